@@ -0,0 +1,51 @@
+package com.miroma.miroma.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de serializar una entrada de log a JSON, sin y con excepción
+ * (la excepción agrega el stack trace escapado).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogEntryBenchmark {
+
+    private LoggingConfig.LogEntry entrada;
+    private LoggingConfig.LogEntry entradaConExcepcion;
+
+    @Setup
+    public void setup() {
+        entrada = new LoggingConfig.LogEntry("INFO",
+                "Egreso creado: \"Supermercado\" por $125.000,50",
+                "EgresoService.crearEgreso", null);
+        entradaConExcepcion = new LoggingConfig.LogEntry("ERROR",
+                "Error al procesar la solicitud\nDetalle: valor inválido",
+                "GlobalExceptionHandler",
+                new IllegalArgumentException("Pareja no encontrada"));
+    }
+
+    @Benchmark
+    public String toJson() {
+        return entrada.toJson();
+    }
+
+    @Benchmark
+    public String toJsonConExcepcion() {
+        return entradaConExcepcion.toJson();
+    }
+}
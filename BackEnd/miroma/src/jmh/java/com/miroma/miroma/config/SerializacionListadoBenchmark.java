@@ -0,0 +1,116 @@
+package com.miroma.miroma.config;
+
+import com.miroma.miroma.dto.EgresoResponse;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización de un listado de 5.000 egresos en JSON, CBOR y Smile (los formatos que
+ * WebConfig ofrece por Accept). El tamaño de cada formato sale como resultado secundario
+ * (serializar:bytes) junto al tiempo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializacionListadoBenchmark {
+
+    private static final int FILAS = 5_000;
+
+    private static final String[][] CATEGORIAS = {
+            {"Alimentación", "Supermercado, feria y compras de comida para la casa"},
+            {"Transporte", "Combustible, peajes, estacionamiento y transporte público"},
+            {"Servicios básicos", "Luz, agua, gas, internet y telefonía del hogar"},
+            {"Salud", "Consultas médicas, medicamentos y seguros de salud"},
+            {"Entretenimiento", "Salidas, suscripciones de streaming y actividades de fin de semana"}
+    };
+
+    /**
+     * Bytes del listado serializado en el formato medido. JMH suma los contadores EVENTS de
+     * todas las iteraciones de medición, así que el tamaño se anota en una sola de ellas
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Tamanio {
+
+        public long bytes;
+
+        private boolean anotar;
+        private boolean anotado;
+
+        @Setup(Level.Iteration)
+        public void reiniciar(IterationParams iteracion) {
+            bytes = 0;
+            anotar = iteracion.getType() == IterationType.MEASUREMENT && !anotado;
+        }
+
+        void anotar(int largo) {
+            if (anotar) {
+                bytes = largo;
+                anotar = false;
+                anotado = true;
+            }
+        }
+    }
+
+    @Param({"json", "cbor", "smile"})
+    private String formato;
+
+    private ObjectMapper mapper;
+    private List<EgresoResponse> egresos;
+
+    @Setup
+    public void preparar() {
+        mapper = switch (formato) {
+            case "cbor" -> CBORMapper.builder().build();
+            case "smile" -> SmileMapper.builder().build();
+            default -> JsonMapper.builder().build();
+        };
+        egresos = new ArrayList<>(FILAS);
+        Timestamp creacion = Timestamp.valueOf("2025-01-01 09:30:00");
+        for (int i = 0; i < FILAS; i++) {
+            String[] categoria = CATEGORIAS[i % CATEGORIAS.length];
+            int mes = i % 12 + 1;
+            String periodo = String.format("2025-%02d", mes);
+            egresos.add(new EgresoResponse(100_000 + i, 42,
+                    BigDecimal.valueOf(1_500_000L + i * 7_919L, 2),
+                    Date.valueOf(String.format("%s-%02d", periodo, i % 28 + 1)),
+                    "Compra " + i + " en " + categoria[0].toLowerCase(),
+                    i % CATEGORIAS.length + 1, categoria[0], categoria[1],
+                    mes, periodo, new Timestamp(creacion.getTime() + i * 60_000L)));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializar(Tamanio tamanio) {
+        byte[] serializado = mapper.writeValueAsBytes(egresos);
+        tamanio.anotar(serializado.length);
+        return serializado;
+    }
+}
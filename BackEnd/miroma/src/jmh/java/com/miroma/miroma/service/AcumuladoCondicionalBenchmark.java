@@ -0,0 +1,194 @@
+package com.miroma.miroma.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Egresos por segundo de una pareja con varios hilos cargando a la vez (H2 en memoria,
+ * modo MySQL), comparando la validación del presupuesto de EgresoAcumuladoService con
+ * una alternativa con bloqueo:
+ * - condicional: un UPDATE ... WHERE gastado + ? <= tope sobre la fila (pareja, presupuesto,
+ *   categoría) y el INSERT del egreso; solo esperan los egresos de la misma categoría.
+ * - bloqueoPareja: SELECT ... FOR UPDATE de la pareja, lectura de lo gastado, validación en
+ *   Java, UPDATE e INSERT; todos los egresos de la pareja quedan en fila.
+ *
+ * categorias indica entre cuántas categorías se reparten los egresos. El tope es alto para
+ * medir siempre el camino en que el egreso se acepta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class AcumuladoCondicionalBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:acumulado;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+    private static final int PAREJA_ID = 1;
+    private static final int PRESUPUESTO_ID = 1;
+    private static final BigDecimal MONTO = new BigDecimal("12.50");
+    private static final BigDecimal TOPE = new BigDecimal("9999999999999.00");
+
+    // Mismas sentencias que EgresoAcumuladoRepository.acumularHasta
+    private static final String ACUMULAR_HASTA_SQL =
+            "UPDATE egresos_acumulados SET gastado = gastado + ?, fecha_actualizacion = CURRENT_TIMESTAMP " +
+            "WHERE pareja_id = ? AND presupuesto_id = ? AND categoria_id = ? AND gastado + ? <= ?";
+    private static final String BLOQUEAR_PAREJA_SQL = "SELECT id FROM parejas WHERE id = ? FOR UPDATE";
+    private static final String OBTENER_GASTADO_SQL =
+            "SELECT gastado FROM egresos_acumulados WHERE pareja_id = ? AND presupuesto_id = ? AND categoria_id = ?";
+    private static final String ACUMULAR_SQL =
+            "UPDATE egresos_acumulados SET gastado = gastado + ?, fecha_actualizacion = CURRENT_TIMESTAMP " +
+            "WHERE pareja_id = ? AND presupuesto_id = ? AND categoria_id = ?";
+    private static final String INSERT_EGRESO_SQL =
+            "INSERT INTO egresos (pareja_id, monto_total, categoria_id, periodo_id) VALUES (?, ?, ?, ?)";
+
+    @Param({"1", "8"})
+    private int categorias;
+
+    private Connection esquema;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        // Mantiene viva la base en memoria durante toda la prueba
+        esquema = DriverManager.getConnection(URL, "sa", "");
+        try (Statement st = esquema.createStatement()) {
+            st.execute("DROP ALL OBJECTS");
+            st.execute("CREATE TABLE parejas (id INT PRIMARY KEY)");
+            st.execute("CREATE TABLE egresos_acumulados (id INT AUTO_INCREMENT PRIMARY KEY, pareja_id INT NOT NULL, " +
+                    "presupuesto_id INT NOT NULL, categoria_id INT NOT NULL, gastado DECIMAL(15,2) NOT NULL, " +
+                    "fecha_actualizacion TIMESTAMP NOT NULL, " +
+                    "CONSTRAINT uk_egresos_acumulados UNIQUE (pareja_id, presupuesto_id, categoria_id))");
+            st.execute("CREATE TABLE egresos (id INT AUTO_INCREMENT PRIMARY KEY, pareja_id INT NOT NULL, " +
+                    "monto_total DECIMAL(15,2) NOT NULL, categoria_id INT NOT NULL, periodo_id INT NOT NULL)");
+            st.execute("INSERT INTO parejas (id) VALUES (" + PAREJA_ID + ")");
+            for (int categoria = 1; categoria <= categorias; categoria++) {
+                st.execute("INSERT INTO egresos_acumulados (pareja_id, presupuesto_id, categoria_id, gastado, " +
+                        "fecha_actualizacion) VALUES (" + PAREJA_ID + ", " + PRESUPUESTO_ID + ", " + categoria +
+                        ", 0, CURRENT_TIMESTAMP)");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        esquema.close();
+    }
+
+    /**
+     * Conexión y sentencias de cada hilo, como una conexión del pool en una transacción
+     */
+    @State(Scope.Thread)
+    public static class Sesion {
+
+        Connection conexion;
+        PreparedStatement acumularHasta;
+        PreparedStatement bloquearPareja;
+        PreparedStatement obtenerGastado;
+        PreparedStatement acumular;
+        PreparedStatement insertEgreso;
+
+        @Setup(Level.Trial)
+        public void abrir(AcumuladoCondicionalBenchmark benchmark) throws SQLException {
+            conexion = DriverManager.getConnection(URL, "sa", "");
+            conexion.setAutoCommit(false);
+            acumularHasta = conexion.prepareStatement(ACUMULAR_HASTA_SQL);
+            bloquearPareja = conexion.prepareStatement(BLOQUEAR_PAREJA_SQL);
+            obtenerGastado = conexion.prepareStatement(OBTENER_GASTADO_SQL);
+            acumular = conexion.prepareStatement(ACUMULAR_SQL);
+            insertEgreso = conexion.prepareStatement(INSERT_EGRESO_SQL);
+        }
+
+        @TearDown(Level.Trial)
+        public void cerrar() throws SQLException {
+            conexion.close();
+        }
+    }
+
+    @Benchmark
+    public boolean condicional(Sesion sesion) throws SQLException {
+        int categoria = categoriaAlAzar();
+
+        PreparedStatement ps = sesion.acumularHasta;
+        ps.setBigDecimal(1, MONTO);
+        ps.setInt(2, PAREJA_ID);
+        ps.setInt(3, PRESUPUESTO_ID);
+        ps.setInt(4, categoria);
+        ps.setBigDecimal(5, MONTO);
+        ps.setBigDecimal(6, TOPE);
+        boolean aceptado = ps.executeUpdate() == 1;
+        if (aceptado) {
+            insertarEgreso(sesion, categoria);
+        }
+        sesion.conexion.commit();
+        return aceptado;
+    }
+
+    @Benchmark
+    public boolean bloqueoPareja(Sesion sesion) throws SQLException {
+        int categoria = categoriaAlAzar();
+
+        sesion.bloquearPareja.setInt(1, PAREJA_ID);
+        try (ResultSet rs = sesion.bloquearPareja.executeQuery()) {
+            rs.next();
+        }
+
+        PreparedStatement ps = sesion.obtenerGastado;
+        ps.setInt(1, PAREJA_ID);
+        ps.setInt(2, PRESUPUESTO_ID);
+        ps.setInt(3, categoria);
+        BigDecimal gastado;
+        try (ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            gastado = rs.getBigDecimal(1);
+        }
+
+        boolean aceptado = gastado.add(MONTO).compareTo(TOPE) <= 0;
+        if (aceptado) {
+            PreparedStatement acumular = sesion.acumular;
+            acumular.setBigDecimal(1, MONTO);
+            acumular.setInt(2, PAREJA_ID);
+            acumular.setInt(3, PRESUPUESTO_ID);
+            acumular.setInt(4, categoria);
+            acumular.executeUpdate();
+            insertarEgreso(sesion, categoria);
+        }
+        sesion.conexion.commit();
+        return aceptado;
+    }
+
+    private int categoriaAlAzar() {
+        return 1 + ThreadLocalRandom.current().nextInt(categorias);
+    }
+
+    private static void insertarEgreso(Sesion sesion, int categoria) throws SQLException {
+        PreparedStatement ps = sesion.insertEgreso;
+        ps.setInt(1, PAREJA_ID);
+        ps.setBigDecimal(2, MONTO);
+        ps.setInt(3, categoria);
+        ps.setInt(4, PRESUPUESTO_ID);
+        ps.executeUpdate();
+    }
+}
@@ -0,0 +1,120 @@
+package com.miroma.miroma.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.crypto.SecretKey;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de CPU de la generación y validación de tokens.
+ *
+ * generarToken y generarRefreshToken miden la emisión en login y refresh; parsear mide
+ * un parseAndVerify aislado.
+ * porPeticionAnterior reproduce lo que hacía JwtAuthenticationFilter antes de parseAndVerify:
+ * validateToken, extractEmail, extractUserId y extractTokenVersion, cada uno decodificando
+ * el header, derivando la clave, construyendo un parser y verificando la firma de nuevo.
+ * porPeticionActual es el camino actual: un solo parseAndVerify con clave y parser reutilizados.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET = "MiRomaSecretKey2025!ThisIsAVeryLongSecretKeyForJWTTokenGenerationAndValidation";
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setup() throws Exception {
+        jwtService = new JwtService();
+        asignar("secret", SECRET);
+        asignar("expiration", 3600000L);
+        asignar("refreshExpiration", 604800000L);
+        jwtService.init();
+        token = jwtService.generateToken(42, "usuario@miroma.com", "Usuario", 3);
+    }
+
+    private void asignar(String campo, Object valor) throws Exception {
+        Field field = JwtService.class.getDeclaredField(campo);
+        field.setAccessible(true);
+        field.set(jwtService, valor);
+    }
+
+    @Benchmark
+    public String generarToken() {
+        return jwtService.generateToken(42, "usuario@miroma.com", "Usuario", 3);
+    }
+
+    @Benchmark
+    public String generarRefreshToken() {
+        return jwtService.generateRefreshToken(42, "usuario@miroma.com");
+    }
+
+    @Benchmark
+    public VerifiedClaims parsear() {
+        return jwtService.parseAndVerify(token);
+    }
+
+    @Benchmark
+    public void porPeticionActual(Blackhole bh) {
+        VerifiedClaims claims = jwtService.parseAndVerify(token);
+        bh.consume(claims.isExpired());
+        bh.consume(claims.email());
+        bh.consume(claims.userId());
+        bh.consume(claims.tokenVersion());
+    }
+
+    @Benchmark
+    public void porPeticionAnterior(Blackhole bh) {
+        bh.consume(!parseoAnterior(token).getExpiration().before(new Date()));
+        bh.consume(parseoAnterior(token).getSubject());
+        bh.consume(parseoAnterior(token).get("userId", Integer.class));
+        bh.consume(parseoAnterior(token).get("tokenVersion", Integer.class));
+    }
+
+    // Implementación previa de JwtService.extractAllClaims
+    private static Claims parseoAnterior(String token) {
+        String[] parts = token.split("\\.");
+        String headerJson = new String(Base64.getUrlDecoder().decode(parts[0]), StandardCharsets.UTF_8);
+        int algIndex = headerJson.indexOf("\"alg\"");
+        int startQuote = headerJson.indexOf('"', headerJson.indexOf(':', algIndex));
+        String algorithm = headerJson.substring(startQuote + 1, headerJson.indexOf('"', startQuote + 1));
+        if (!"HS256".equals(algorithm)) {
+            throw new IllegalStateException(algorithm);
+        }
+        return Jwts.parser()
+                .verifyWith(claveAnterior())
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    // Implementación previa de JwtService.getSigningKey, invocada en cada parseo
+    private static SecretKey claveAnterior() {
+        byte[] keyBytes = SECRET.getBytes(StandardCharsets.UTF_8);
+        byte[] key256 = new byte[32];
+        System.arraycopy(keyBytes, 0, key256, 0, Math.min(keyBytes.length, 32));
+        return Keys.hmacShaKeyFor(key256);
+    }
+}
@@ -0,0 +1,48 @@
+package com.miroma.miroma.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de hashPassword (registro y cambio de contraseña) y de verifyPassword (login).
+ * hashPassword incluye la validación de fortaleza y la generación del salt.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordServiceBenchmark {
+
+    private static final String PASSWORD = "ContraseñaSegura#2025";
+
+    private PasswordService passwordService;
+    private String hash;
+
+    @Setup
+    public void setup() {
+        passwordService = new PasswordService();
+        hash = passwordService.hashPassword(PASSWORD);
+    }
+
+    @Benchmark
+    public String hashPassword() {
+        return passwordService.hashPassword(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean verifyPassword() {
+        return passwordService.verifyPassword(PASSWORD, hash);
+    }
+}
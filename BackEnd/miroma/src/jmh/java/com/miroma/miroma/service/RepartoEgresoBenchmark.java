@@ -0,0 +1,41 @@
+package com.miroma.miroma.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo del cálculo con BigDecimal de porcentajes y montos que hace
+ * EgresoService.crearParticipaciones por cada egreso.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepartoEgresoBenchmark {
+
+    private final BigDecimal montoTotal = new BigDecimal("125000.50");
+    private final BigDecimal ingresosEsposo = new BigDecimal("1850000.00");
+    private final BigDecimal ingresosEsposa = new BigDecimal("1325000.75");
+
+    @Benchmark
+    public EgresoService.Reparto proporcional() {
+        return EgresoService.calcularReparto(montoTotal, ingresosEsposo, ingresosEsposa);
+    }
+
+    @Benchmark
+    public EgresoService.Reparto sinIngresos() {
+        return EgresoService.calcularReparto(montoTotal, BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+}
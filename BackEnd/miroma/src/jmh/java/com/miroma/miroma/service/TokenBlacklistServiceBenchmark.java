@@ -0,0 +1,57 @@
+package com.miroma.miroma.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de hashToken, que se calcula en cada petición autenticada para consultar
+ * la caché de autenticación y la blacklist.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenBlacklistServiceBenchmark {
+
+    private static final String SECRET = "MiRomaSecretKey2025!ThisIsAVeryLongSecretKeyForJWTTokenGenerationAndValidation";
+
+    private TokenBlacklistService tokenBlacklistService;
+    private String token;
+
+    @Setup
+    public void setup() throws Exception {
+        // hashToken no usa las dependencias del servicio
+        tokenBlacklistService = new TokenBlacklistService();
+
+        // Token de acceso real para que el largo de la entrada sea representativo
+        JwtService jwtService = new JwtService();
+        asignar(jwtService, "secret", SECRET);
+        asignar(jwtService, "expiration", 3600000L);
+        jwtService.init();
+        token = jwtService.generateToken(42, "usuario@miroma.com", "Usuario", 3);
+    }
+
+    private static void asignar(JwtService jwtService, String campo, Object valor) throws Exception {
+        Field field = JwtService.class.getDeclaredField(campo);
+        field.setAccessible(true);
+        field.set(jwtService, valor);
+    }
+
+    @Benchmark
+    public String hashToken() {
+        return tokenBlacklistService.hashToken(token);
+    }
+}
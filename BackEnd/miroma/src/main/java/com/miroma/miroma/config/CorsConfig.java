@@ -17,6 +17,7 @@ public class CorsConfig {
                         .allowedOriginPatterns("*")  // Usar allowedOriginPatterns en lugar de allowedOrigins
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                         .allowedHeaders("*")
+                        .exposedHeaders("ETag", "Idempotent-Replayed")  // If-None-Match y respuestas repetidas por Idempotency-Key
                         .allowCredentials(true)
                         .maxAge(3600);
             }
@@ -0,0 +1,122 @@
+package com.miroma.miroma.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataSource que mide cada sentencia SQL (Hibernate y JdbcTemplate pasan por acá).
+ *
+ * Cada execute*() se registra en el timer miroma.sql.sentencias y, si el hilo está atendiendo
+ * una petición (SqlPorRequestFilter), también en el acumulado de esa petición. Un executeBatch
+ * cuenta como una sentencia: es un solo viaje a la base de datos.
+ */
+class DataSourceConMetricas extends DelegatingDataSource {
+
+    /**
+     * Sentencias y tiempo de la petición en curso
+     */
+    static final class Acumulado {
+        int sentencias;
+        long nanos;
+    }
+
+    private static final ThreadLocal<Acumulado> ACUMULADO = new ThreadLocal<>();
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    private volatile Timer timer;
+
+    DataSourceConMetricas(DataSource destino, ObjectProvider<MeterRegistry> meterRegistry) {
+        super(destino);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Empieza a acumular las sentencias del hilo actual
+     */
+    static Acumulado iniciarAcumulado() {
+        Acumulado acumulado = new Acumulado();
+        ACUMULADO.set(acumulado);
+        return acumulado;
+    }
+
+    static void terminarAcumulado() {
+        ACUMULADO.remove();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return envolver(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return envolver(super.getConnection(username, password));
+    }
+
+    private Connection envolver(Connection conexion) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, metodo, args) -> {
+                    Object resultado = invocar(conexion, metodo, args);
+                    return switch (metodo.getName()) {
+                        case "createStatement" -> envolver((Statement) resultado, Statement.class);
+                        case "prepareStatement" -> envolver((Statement) resultado, PreparedStatement.class);
+                        case "prepareCall" -> envolver((Statement) resultado, CallableStatement.class);
+                        default -> resultado;
+                    };
+                });
+    }
+
+    private Statement envolver(Statement sentencia, Class<? extends Statement> tipo) {
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{tipo},
+                (proxy, metodo, args) -> {
+                    if (!metodo.getName().startsWith("execute")) {
+                        return invocar(sentencia, metodo, args);
+                    }
+                    long inicio = System.nanoTime();
+                    try {
+                        return invocar(sentencia, metodo, args);
+                    } finally {
+                        registrar(System.nanoTime() - inicio);
+                    }
+                });
+    }
+
+    private void registrar(long nanos) {
+        Timer actual = timer;
+        if (actual == null) {
+            actual = Timer.builder("miroma.sql.sentencias")
+                    .description("Sentencias SQL ejecutadas")
+                    .register(meterRegistry.getObject());
+            timer = actual;
+        }
+        actual.record(nanos, TimeUnit.NANOSECONDS);
+
+        Acumulado acumulado = ACUMULADO.get();
+        if (acumulado != null) {
+            acumulado.sentencias++;
+            acumulado.nanos += nanos;
+        }
+    }
+
+    private static Object invocar(Object destino, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.miroma.miroma.config;
+
+import com.miroma.miroma.security.UsuarioAutenticado;
+import com.miroma.miroma.service.IdempotenciaService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Atiende la cabecera Idempotency-Key en los POST de creación y en el lote de egresos (ver
+ * WebConfig): la primera petición con una clave se ejecuta y su respuesta se guarda en
+ * IdempotenciaService; los reintentos con la misma clave reciben esa respuesta (con
+ * Idempotent-Replayed: true) sin llegar al controlador. Corre después de Spring Security, con el usuario ya autenticado:
+ * las claves son por usuario.
+ *
+ * Se guardan las respuestas 2xx y 4xx, salvo las que dependen del momento (401, 403, 408,
+ * 409, 429); con un 5xx la clave se libera y el reintento vuelve a ejecutarse. Una clave
+ * reutilizada con otro cuerpo o en otra ruta responde 422.
+ */
+class IdempotenciaFilter extends OncePerRequestFilter {
+
+    static final String CABECERA = "Idempotency-Key";
+    static final String CABECERA_REPETIDA = "Idempotent-Replayed";
+
+    private static final int MAX_LARGO_CLAVE = 100;
+
+    private final IdempotenciaService idempotenciaService;
+
+    IdempotenciaFilter(IdempotenciaService idempotenciaService) {
+        this.idempotenciaService = idempotenciaService;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || request.getHeader(CABECERA) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String clave = request.getHeader(CABECERA).trim();
+        if (!claveValida(clave)) {
+            escribirError(response, HttpServletResponse.SC_BAD_REQUEST,
+                    "La cabecera " + CABECERA + " debe tener entre 1 y " + MAX_LARGO_CLAVE + " caracteres visibles",
+                    "INVALID_IDEMPOTENCY_KEY");
+            return;
+        }
+        UsuarioAutenticado usuario = usuarioAutenticado();
+        if (usuario == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        byte[] cuerpo = request.getInputStream().readAllBytes();
+        String hashPeticion = hashPeticion(request, cuerpo);
+        IdempotenciaService.Reserva reserva = idempotenciaService.reservar(usuario.userId(), clave, hashPeticion);
+
+        IdempotenciaService.Respuesta repetida = reserva.getRepetida();
+        if (repetida != null) {
+            if (!repetida.hashPeticion().equals(hashPeticion)) {
+                escribirError(response, 422, "La clave de idempotencia ya se usó con otra petición",
+                        "IDEMPOTENCY_KEY_REUSED");
+                return;
+            }
+            response.setStatus(repetida.status());
+            if (repetida.contentType() != null) {
+                response.setContentType(repetida.contentType());
+            }
+            response.setHeader(CABECERA_REPETIDA, "true");
+            if (repetida.cuerpo() != null) {
+                response.setContentLength(repetida.cuerpo().length);
+                response.getOutputStream().write(repetida.cuerpo());
+            }
+            return;
+        }
+        if (reserva.isEnCurso()) {
+            response.setHeader("Retry-After", "1");
+            escribirError(response, HttpServletResponse.SC_CONFLICT,
+                    "Ya se está procesando una petición con esta clave de idempotencia",
+                    "IDEMPOTENCY_KEY_IN_PROGRESS");
+            return;
+        }
+
+        ContentCachingResponseWrapper respuesta = new ContentCachingResponseWrapper(response);
+        boolean completada = false;
+        try {
+            filterChain.doFilter(new PeticionConCuerpo(request, cuerpo), respuesta);
+            int status = respuesta.getStatus();
+            if (seGuarda(status)) {
+                idempotenciaService.completar(reserva, status, respuesta.getContentType(),
+                        respuesta.getContentAsByteArray());
+                completada = true;
+            }
+        } finally {
+            if (!completada) {
+                idempotenciaService.liberar(reserva);
+            }
+            respuesta.copyBodyToResponse();
+        }
+    }
+
+    private static boolean seGuarda(int status) {
+        return status >= 200 && status < 500
+                && status != 401 && status != 403 && status != 408 && status != 409 && status != 429;
+    }
+
+    private static boolean claveValida(String clave) {
+        if (clave.isEmpty() || clave.length() > MAX_LARGO_CLAVE) {
+            return false;
+        }
+        return clave.chars().allMatch(c -> c > 0x20 && c < 0x7f);
+    }
+
+    private static UsuarioAutenticado usuarioAutenticado() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UsuarioAutenticado usuario) {
+            return usuario;
+        }
+        return null;
+    }
+
+    /**
+     * SHA-256 de método, ruta y cuerpo: identifica la petición guardada con una clave
+     */
+    private static String hashPeticion(HttpServletRequest request, byte[] cuerpo) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod() + " " + request.getRequestURI() + "\n").getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(cuerpo));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private static void escribirError(HttpServletResponse response, int status, String mensaje, String codigo)
+            throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json;charset=UTF-8");
+        response.getWriter().write("{\"error\":\"" + mensaje + "\",\"code\":\"" + codigo + "\"}");
+    }
+
+    /**
+     * Petición cuyo cuerpo ya se leyó para calcular el hash: lo entrega de nuevo al controlador
+     */
+    private static final class PeticionConCuerpo extends HttpServletRequestWrapper {
+
+        private final byte[] cuerpo;
+
+        PeticionConCuerpo(HttpServletRequest request, byte[] cuerpo) {
+            super(request);
+            this.cuerpo = cuerpo;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream entrada = new ByteArrayInputStream(cuerpo);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return entrada.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return entrada.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return entrada.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /**
+                 * El cuerpo ya está en memoria: todo está disponible de entrada, así que el
+                 * listener se invoca enseguida en lugar de esperar al contenedor
+                 */
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+
+        @Override
+        public int getContentLength() {
+            return cuerpo.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return cuerpo.length;
+        }
+    }
+}
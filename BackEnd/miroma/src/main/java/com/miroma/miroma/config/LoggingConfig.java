@@ -1,23 +1,42 @@
 package com.miroma.miroma.config;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.scheduling.annotation.Scheduled;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.time.format.DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
 /**
  * Configuración de logging para producción
  * En producción, esto debería integrarse con un servicio de logging externo
  * como ELK Stack, Splunk, CloudWatch, etc.
+ *
+ * Las entradas se encolan en una cola acotada y un hilo dedicado las escribe en lotes
+ * a medida que llegan, sobre un único FileChannel con buffer que permanece abierto.
+ * El archivo rota al cambiar el día o al superar app.logging.max-file-size bytes.
+ * Si la cola está llena la entrada se descarta y se cuenta (ver getDescartados).
  */
 @Configuration
 @EnableScheduling
@@ -25,17 +44,47 @@ public class LoggingConfig {
 
     private static final Logger logger = LoggerFactory.getLogger(LoggingConfig.class);
     
-    // Cola para almacenar logs antes de enviarlos
-    private static final BlockingQueue<LogEntry> logQueue = new LinkedBlockingQueue<>();
+    // Capacidad de la cola; por encima de esto las entradas se descartan en lugar de crecer sin límite
+    private static final int CAPACIDAD_COLA = 10000;
+    
+    // Cola para almacenar logs antes de escribirlos
+    private static final BlockingQueue<LogEntry> logQueue = new ArrayBlockingQueue<>(CAPACIDAD_COLA);
+    
+    // Métricas de la cola
+    private static final AtomicLong descartados = new AtomicLong();
+    private static final AtomicLong escritos = new AtomicLong();
+    private static volatile long retrasoMs = 0;
+    private static final AtomicLong lotes = new AtomicLong();
+    private static final AtomicLong tiempoEscrituraNanos = new AtomicLong();
+    
+    private static final DateTimeFormatter FORMATO_DIA = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    
+    // Directorio de logs
+    @Value("${app.logging.dir:${user.home}/miroma-logs}")
+    private String logDir;
     
-    // Directorio de logs (en producción debería ser configurable)
-    private static final String LOG_DIR = System.getProperty("user.home") + "/miroma-logs";
+    // Tamaño máximo de un archivo antes de rotarlo (50 MB por defecto)
+    @Value("${app.logging.max-file-size:52428800}")
+    private long maxFileSize;
+    
+    @Value("${app.logging.batch-size:500}")
+    private int batchSize;
+    
+    private Thread writerThread;
+    private volatile boolean running = false;
+    
+    // Estado del archivo actual; solo lo usa el hilo escritor
+    private FileChannel channel;
+    private String diaActual;
+    private long tamanioActual;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
     
     /**
      * Clase interna para representar una entrada de log
      */
     public static class LogEntry {
         private final LocalDateTime timestamp;
+        private final long creadoEnMs;
         private final String level;
         private final String message;
         private final String context;
@@ -43,38 +92,70 @@ public class LoggingConfig {
         
         public LogEntry(String level, String message, String context, Throwable exception) {
             this.timestamp = LocalDateTime.now();
+            this.creadoEnMs = System.currentTimeMillis();
             this.level = level;
             this.message = message;
             this.context = context;
             this.exception = exception;
         }
         
+        public String getLevel() {
+            return level;
+        }
+        
         public String toJson() {
-            StringBuilder json = new StringBuilder();
+            StringBuilder json = new StringBuilder(128);
+            appendJson(json);
+            return json.toString();
+        }
+        
+        /**
+         * Escribe la entrada como JSON en el StringBuilder dado (sin crear cadenas intermedias)
+         */
+        public void appendJson(StringBuilder json) {
             json.append("{");
-            json.append("\"timestamp\":\"").append(timestamp.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append("\",");
+            json.append("\"timestamp\":\"");
+            ISO_LOCAL_DATE_TIME.formatTo(timestamp, json);
+            json.append("\",");
             json.append("\"level\":\"").append(level).append("\",");
-            json.append("\"message\":\"").append(escapeJson(message)).append("\",");
-            json.append("\"context\":\"").append(escapeJson(context)).append("\"");
+            json.append("\"message\":\"");
+            escapeJson(message, json);
+            json.append("\",");
+            json.append("\"context\":\"");
+            escapeJson(context, json);
+            json.append("\"");
             
             if (exception != null) {
                 json.append(",\"exception\":\"");
-                json.append(escapeJson(exception.getClass().getName()));
+                escapeJson(exception.getClass().getName(), json);
                 json.append("\",\"exceptionMessage\":\"");
-                json.append(escapeJson(exception.getMessage())).append("\"");
+                escapeJson(exception.getMessage(), json);
+                json.append("\"");
             }
             
             json.append("}");
-            return json.toString();
         }
         
-        private String escapeJson(String str) {
-            if (str == null) return "";
-            return str.replace("\\", "\\\\")
-                     .replace("\"", "\\\"")
-                     .replace("\n", "\\n")
-                     .replace("\r", "\\r")
-                     .replace("\t", "\\t");
+        // Escapa en una sola pasada, sin las cadenas intermedias de los replace encadenados
+        private static void escapeJson(String str, StringBuilder out) {
+            if (str == null) return;
+            for (int i = 0; i < str.length(); i++) {
+                char c = str.charAt(i);
+                switch (c) {
+                    case '\\' -> out.append("\\\\");
+                    case '"' -> out.append("\\\"");
+                    case '\n' -> out.append("\\n");
+                    case '\r' -> out.append("\\r");
+                    case '\t' -> out.append("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            out.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            out.append(c);
+                        }
+                    }
+                }
+            }
         }
     }
     
@@ -84,46 +165,185 @@ public class LoggingConfig {
      */
     public static void logToQueue(String level, String message, String context, Throwable exception) {
         try {
-            logQueue.offer(new LogEntry(level, message, context, exception));
+            if (!logQueue.offer(new LogEntry(level, message, context, exception))) {
+                long total = descartados.incrementAndGet();
+                if (total == 1 || total % 1000 == 0) {
+                    logger.warn("Cola de logs llena: {} entrada(s) descartada(s) en total", total);
+                }
+            }
         } catch (Exception e) {
             logger.error("Error al agregar log a la cola", e);
         }
     }
     
     /**
-     * Procesa los logs de la cola cada 30 segundos
-     * En producción, esto podría enviar a un servicio de logging externo
+     * Entradas descartadas por cola llena o por error de escritura
+     */
+    public static long getDescartados() {
+        return descartados.get();
+    }
+    
+    public static long getEscritos() {
+        return escritos.get();
+    }
+    
+    public static int getPendientes() {
+        return logQueue.size();
+    }
+    
+    /**
+     * Tiempo en milisegundos entre que se encoló y se escribió la entrada más antigua del último lote
      */
-    @Scheduled(fixedRate = 30000) // Cada 30 segundos
-    public void processLogQueue() {
-        if (logQueue.isEmpty()) {
+    public static long getRetrasoMs() {
+        return retrasoMs;
+    }
+    
+    /**
+     * Lotes escritos por el hilo escritor (procesarCola) y tiempo total que llevó escribirlos
+     */
+    public static long getLotes() {
+        return lotes.get();
+    }
+    
+    public static long getTiempoEscrituraNanos() {
+        return tiempoEscrituraNanos.get();
+    }
+    
+    @PostConstruct
+    void iniciarEscritor() {
+        running = true;
+        writerThread = new Thread(this::procesarCola, "logging-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+    
+    @PreDestroy
+    void detenerEscritor() {
+        running = false;
+        try {
+            writerThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Vacía la cola continuamente, escribiendo por lotes
+     */
+    private void procesarCola() {
+        List<LogEntry> lote = new ArrayList<>(batchSize);
+        StringBuilder linea = new StringBuilder(256);
+        while (running || !logQueue.isEmpty()) {
+            try {
+                LogEntry primera = logQueue.poll(1, TimeUnit.SECONDS);
+                if (primera == null) {
+                    continue;
+                }
+                lote.add(primera);
+                logQueue.drainTo(lote, batchSize - 1);
+                escribirLote(lote, linea);
+            } catch (InterruptedException e) {
+                // El apagado se controla con 'running'
+            } finally {
+                lote.clear();
+            }
+        }
+        cerrarArchivo();
+    }
+    
+    private void escribirLote(List<LogEntry> lote, StringBuilder linea) {
+        long inicio = System.nanoTime();
+        try {
+            for (LogEntry entry : lote) {
+                linea.setLength(0);
+                entry.appendJson(linea);
+                linea.append('\n');
+                escribir(linea.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            vaciarBuffer();
+            escritos.addAndGet(lote.size());
+            retrasoMs = System.currentTimeMillis() - lote.get(0).creadoEnMs;
+        } catch (IOException e) {
+            descartados.addAndGet(lote.size());
+            logger.error("Error al escribir en archivo de log", e);
+            // Reabrir en el próximo lote
+            cerrarArchivo();
+        } finally {
+            lotes.incrementAndGet();
+            tiempoEscrituraNanos.addAndGet(System.nanoTime() - inicio);
+        }
+    }
+    
+    private void escribir(byte[] bytes) throws IOException {
+        rotarSiCorresponde(bytes.length);
+        if (bytes.length > buffer.remaining()) {
+            vaciarBuffer();
+        }
+        if (bytes.length > buffer.capacity()) {
+            // Línea más grande que el buffer: escribir directo
+            ByteBuffer grande = ByteBuffer.wrap(bytes);
+            while (grande.hasRemaining()) {
+                channel.write(grande);
+            }
+        } else {
+            buffer.put(bytes);
+        }
+        tamanioActual += bytes.length;
+    }
+    
+    private void vaciarBuffer() throws IOException {
+        if (channel == null) {
+            buffer.clear();
             return;
         }
-        
-        // Crear directorio de logs si no existe
-        File logDir = new File(LOG_DIR);
-        if (!logDir.exists()) {
-            logDir.mkdirs();
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    /**
+     * Abre el archivo del día o rota si cambió el día o se superaría el tamaño máximo
+     */
+    private void rotarSiCorresponde(int bytesPorEscribir) throws IOException {
+        String hoy = LocalDate.now().format(FORMATO_DIA);
+        if (channel != null && hoy.equals(diaActual) && tamanioActual + bytesPorEscribir <= maxFileSize) {
+            return;
         }
+        boolean porTamanio = channel != null && hoy.equals(diaActual);
+        vaciarBuffer();
+        cerrarArchivo();
         
-        // Archivo de log diario
-        String logFileName = LOG_DIR + "/miroma-" + 
-                           LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")) + ".log";
+        Path dir = Paths.get(logDir);
+        Files.createDirectories(dir);
+        Path archivo = dir.resolve("miroma-" + hoy + ".log");
+        if (porTamanio || (Files.exists(archivo) && Files.size(archivo) >= maxFileSize)) {
+            // Mover el archivo lleno al siguiente índice libre: miroma-<día>.1.log, .2.log, ...
+            int indice = 1;
+            Path rotado;
+            do {
+                rotado = dir.resolve("miroma-" + hoy + "." + indice++ + ".log");
+            } while (Files.exists(rotado));
+            Files.move(archivo, rotado);
+        }
         
-        try (FileWriter writer = new FileWriter(logFileName, true)) {
-            int processed = 0;
-            while (!logQueue.isEmpty() && processed < 100) { // Procesar hasta 100 logs por ciclo
-                LogEntry entry = logQueue.poll();
-                if (entry != null) {
-                    writer.write(entry.toJson());
-                    writer.write("\n");
-                    processed++;
-                }
-            }
-            writer.flush();
+        channel = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        diaActual = hoy;
+        tamanioActual = channel.size();
+    }
+    
+    private void cerrarArchivo() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            vaciarBuffer();
+            channel.close();
         } catch (IOException e) {
-            logger.error("Error al escribir en archivo de log", e);
+            logger.error("Error al cerrar archivo de log", e);
         }
+        channel = null;
     }
     
     /**
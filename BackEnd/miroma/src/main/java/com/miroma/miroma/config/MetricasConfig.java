@@ -0,0 +1,172 @@
+package com.miroma.miroma.config;
+
+import com.miroma.miroma.security.AuthenticationCache;
+import com.miroma.miroma.service.CategoriaEgresoCache;
+import com.miroma.miroma.service.IdempotenciaService;
+import com.miroma.miroma.service.LogEventoService;
+import com.miroma.miroma.service.LoginAttemptService;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Métricas de la aplicación (Micrometer), publicadas en /actuator/prometheus.
+ *
+ * Además de las que registra Spring Boot (http.server.requests, hikaricp.*,
+ * tasks.scheduled.execution para las tareas @Scheduled, JVM), agrega:
+ * - tag handler (Controlador.metodo) en http.server.requests
+ * - miroma.sql.*: sentencias SQL y sentencias/tiempo por petición (DataSourceConMetricas)
+ * - miroma.logging.*: cola y escritura de LoggingConfig
+ * - miroma.log.eventos.*, miroma.cache.*, miroma.login.*: contadores de los servicios
+ */
+@Configuration
+public class MetricasConfig {
+
+    /**
+     * Método de controlador que atendió la petición, o "ninguno" si no llegó a uno
+     */
+    static String nombreHandler(HttpServletRequest request) {
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        if (handler instanceof HandlerMethod metodo) {
+            return metodo.getBeanType().getSimpleName() + "." + metodo.getMethod().getName();
+        }
+        return "ninguno";
+    }
+
+    /**
+     * Envuelve el DataSource principal para medir las sentencias SQL
+     */
+    @Bean
+    static BeanPostProcessor dataSourceConMetricasPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource
+                        && !(bean instanceof DataSourceConMetricas)) {
+                    return new DataSourceConMetricas(dataSource, meterRegistry);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    FilterRegistrationBean<SqlPorRequestFilter> sqlPorRequestFilter(MeterRegistry meterRegistry) {
+        FilterRegistrationBean<SqlPorRequestFilter> registro =
+                new FilterRegistrationBean<>(new SqlPorRequestFilter(meterRegistry));
+        // Antes que Spring Security, para contar también las consultas del filtro JWT
+        registro.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registro;
+    }
+
+    /**
+     * Agrega el tag handler a http.server.requests (latencia por método de controlador)
+     */
+    @Bean
+    ServerRequestObservationConvention convencionConHandler() {
+        return new DefaultServerRequestObservationConvention() {
+            @Override
+            public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+                return super.getLowCardinalityKeyValues(context)
+                        .and("handler", nombreHandler(context.getCarrier()));
+            }
+        };
+    }
+
+    @Bean
+    MeterBinder metricasLogging(LogEventoService logEventoService) {
+        return registry -> {
+            Gauge.builder("miroma.logging.cola.pendientes", LoggingConfig::getPendientes)
+                    .description("Entradas en la cola del log de errores")
+                    .register(registry);
+            Gauge.builder("miroma.logging.retraso", LoggingConfig::getRetrasoMs)
+                    .description("Espera en cola de la entrada más antigua del último lote")
+                    .baseUnit("milliseconds")
+                    .register(registry);
+            FunctionCounter.builder("miroma.logging.escritas", LoggingConfig.class, c -> LoggingConfig.getEscritos())
+                    .register(registry);
+            FunctionCounter.builder("miroma.logging.descartadas", LoggingConfig.class, c -> LoggingConfig.getDescartados())
+                    .register(registry);
+            FunctionTimer.builder("miroma.logging.escritura", LoggingConfig.class,
+                            c -> LoggingConfig.getLotes(), c -> LoggingConfig.getTiempoEscrituraNanos(), TimeUnit.NANOSECONDS)
+                    .description("Lotes escritos por el hilo escritor de LoggingConfig")
+                    .register(registry);
+
+            Gauge.builder("miroma.log.eventos.cola.pendientes", logEventoService, LogEventoService::getPendientes)
+                    .register(registry);
+            FunctionCounter.builder("miroma.log.eventos.encolados", logEventoService, LogEventoService::getEncolados)
+                    .register(registry);
+            FunctionCounter.builder("miroma.log.eventos.escritos", logEventoService, LogEventoService::getEscritos)
+                    .register(registry);
+            FunctionCounter.builder("miroma.log.eventos.descartados", logEventoService, LogEventoService::getDescartados)
+                    .register(registry);
+            FunctionCounter.builder("miroma.log.eventos.fallidos", logEventoService, LogEventoService::getFallidos)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    MeterBinder metricasCaches(CategoriaEgresoCache categoriaEgresoCache, AuthenticationCache authenticationCache,
+                               LoginAttemptService loginAttemptService, IdempotenciaService idempotenciaService) {
+        return registry -> {
+            registrarCache(registry, "categorias", categoriaEgresoCache,
+                    CategoriaEgresoCache::getAciertos, CategoriaEgresoCache::getFallos, CategoriaEgresoCache::tamanio);
+            FunctionCounter.builder("miroma.cache.recargas", categoriaEgresoCache, CategoriaEgresoCache::getRecargas)
+                    .tag("cache", "categorias")
+                    .register(registry);
+            registrarCache(registry, "autenticacion", authenticationCache,
+                    AuthenticationCache::getAciertos, AuthenticationCache::getFallos, AuthenticationCache::tamanio);
+            registrarCache(registry, "idempotencia", idempotenciaService,
+                    IdempotenciaService::getAciertos, IdempotenciaService::getFallos, IdempotenciaService::tamanio);
+            FunctionCounter.builder("miroma.idempotencia.repetidas", idempotenciaService, IdempotenciaService::getRepetidas)
+                    .description("Peticiones con Idempotency-Key respondidas con la respuesta guardada")
+                    .register(registry);
+            FunctionCounter.builder("miroma.idempotencia.coalescidas", idempotenciaService, IdempotenciaService::getCoalescidas)
+                    .description("Duplicados concurrentes que esperaron la primera ejecución de su clave")
+                    .register(registry);
+
+            FunctionCounter.builder("miroma.login.bloqueos", loginAttemptService, LoginAttemptService::getBloqueos)
+                    .description("Bloqueos por intentos de login fallidos (email o IP)")
+                    .register(registry);
+            Gauge.builder("miroma.login.claves", loginAttemptService, LoginAttemptService::tamanio)
+                    .description("Emails e IP con intentos de login en memoria")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    MeterBinder metricasReplica(ObjectProvider<ReplicaMonitor> replicaMonitor) {
+        return registry -> replicaMonitor.ifAvailable(monitor ->
+                Gauge.builder("miroma.replica.disponible", monitor, m -> m.isDisponible() ? 1 : 0)
+                        .description("1 si las lecturas van a la réplica")
+                        .register(registry));
+    }
+
+    private static <T> void registrarCache(MeterRegistry registry, String nombre, T cache,
+                                           ToDoubleFunction<T> aciertos,
+                                           ToDoubleFunction<T> fallos,
+                                           ToDoubleFunction<T> tamanio) {
+        FunctionCounter.builder("miroma.cache.aciertos", cache, aciertos).tag("cache", nombre).register(registry);
+        FunctionCounter.builder("miroma.cache.fallos", cache, fallos).tag("cache", nombre).register(registry);
+        Gauge.builder("miroma.cache.tamanio", cache, tamanio).tag("cache", nombre).register(registry);
+    }
+}
@@ -0,0 +1,74 @@
+package com.miroma.miroma.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Réplica de lectura (app.datasource.replica.enabled=true).
+ *
+ * Reemplaza el DataSource autoconfigurado por uno que enruta entre dos pools Hikari:
+ * la primaria (spring.datasource.*) y la réplica (app.datasource.replica.*). Ver
+ * ReplicaRoutingDataSource para el criterio y ReplicaMonitor para la tolerancia al retraso.
+ * Deshabilitada, la aplicación usa un único pool como antes.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primariaDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primaria");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${app.datasource.replica.url}") String url,
+                                              @Value("${app.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${app.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        // No fallar al arrancar si la réplica no responde: se usa la primaria hasta que esté disponible
+        dataSource.setInitializationFailTimeout(-1);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaMonitor replicaMonitor(@Qualifier("replicaDataSource") DataSource replica,
+                                         @Value("${app.datasource.replica.lag-query:}") String consultaRetraso,
+                                         @Value("${app.datasource.replica.max-lag-seconds:5}") long maxRetrasoSegundos,
+                                         @Value("${app.datasource.replica.check-timeout-seconds:2}") int timeoutSegundos) {
+        return new ReplicaMonitor(replica, consultaRetraso, maxRetrasoSegundos, timeoutSegundos);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primariaDataSource") DataSource primaria,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReplicaMonitor replicaMonitor) {
+        ReplicaRoutingDataSource enrutador = new ReplicaRoutingDataSource(primaria, replica, replicaMonitor);
+        enrutador.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(enrutador);
+    }
+}
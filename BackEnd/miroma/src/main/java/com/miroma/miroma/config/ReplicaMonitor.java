@@ -0,0 +1,98 @@
+package com.miroma.miroma.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Mide periódicamente el retraso de la réplica y decide si puede atender lecturas.
+ *
+ * La réplica se considera disponible mientras su retraso no supere
+ * app.datasource.replica.max-lag-seconds. Si la replicación está detenida, la consulta
+ * falla o no se puede obtener una conexión, las lecturas van a la primaria hasta la
+ * siguiente verificación exitosa. Al arrancar se asume no disponible.
+ *
+ * Por defecto el retraso se lee de Seconds_Behind_Source (SHOW REPLICA STATUS);
+ * app.datasource.replica.lag-query permite reemplazarlo por una consulta que devuelva
+ * los segundos de retraso (por ejemplo contra una tabla de heartbeat).
+ */
+public class ReplicaMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaMonitor.class);
+
+    private final JdbcTemplate replica;
+    private final String consultaRetraso;
+    private final long maxRetrasoSegundos;
+
+    private volatile boolean disponible = false;
+    private volatile Long retrasoSegundos;
+
+    public ReplicaMonitor(DataSource replica, String consultaRetraso, long maxRetrasoSegundos, int timeoutSegundos) {
+        this.replica = new JdbcTemplate(replica);
+        this.replica.setQueryTimeout(timeoutSegundos);
+        this.consultaRetraso = consultaRetraso;
+        this.maxRetrasoSegundos = maxRetrasoSegundos;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.check-interval:5000}")
+    public void verificar() {
+        try {
+            Long retraso = medirRetraso();
+            retrasoSegundos = retraso;
+            if (retraso == null) {
+                actualizar(false, "replicación detenida");
+            } else if (retraso > maxRetrasoSegundos) {
+                actualizar(false, "retraso de " + retraso + " s");
+            } else {
+                actualizar(true, null);
+            }
+        } catch (Exception e) {
+            retrasoSegundos = null;
+            actualizar(false, e.getMessage());
+        }
+    }
+
+    /**
+     * Marca la réplica como no disponible tras un error al obtener una conexión
+     */
+    void registrarFallo(Exception e) {
+        actualizar(false, e.getMessage());
+    }
+
+    private Long medirRetraso() {
+        if (consultaRetraso != null && !consultaRetraso.isBlank()) {
+            return replica.queryForObject(consultaRetraso, Long.class);
+        }
+        return replica.query("SHOW REPLICA STATUS", rs -> {
+            if (!rs.next()) {
+                return null;
+            }
+            long segundos = rs.getLong("Seconds_Behind_Source");
+            return rs.wasNull() ? null : segundos;
+        });
+    }
+
+    private void actualizar(boolean nuevoEstado, String motivo) {
+        boolean anterior = disponible;
+        disponible = nuevoEstado;
+        if (anterior && !nuevoEstado) {
+            logger.warn("Réplica no disponible ({}): las lecturas van a la base primaria", motivo);
+        } else if (!anterior && nuevoEstado) {
+            logger.info("Réplica disponible (retraso {} s): las lecturas de solo lectura van a la réplica", retrasoSegundos);
+        }
+    }
+
+    public boolean isDisponible() {
+        return disponible;
+    }
+
+    /**
+     * Último retraso medido en segundos, o null si no se pudo medir
+     */
+    public Long getRetrasoSegundos() {
+        return retrasoSegundos;
+    }
+}
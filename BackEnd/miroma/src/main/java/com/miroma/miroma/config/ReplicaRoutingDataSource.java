@@ -0,0 +1,68 @@
+package com.miroma.miroma.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * DataSource que envía a la réplica las transacciones @Transactional(readOnly = true)
+ * declaradas por la aplicación y todo lo demás a la primaria.
+ *
+ * Las transacciones de solo lectura que abren por su cuenta los repositorios de Spring Data
+ * (un findById fuera de un servicio transaccional, como en la autenticación o la blacklist
+ * de tokens) quedan en la primaria: son comprobaciones que deben ver lo recién escrito.
+ *
+ * Debe usarse detrás de un LazyConnectionDataSourceProxy, para que la conexión física se
+ * pida recién en la primera sentencia, cuando la transacción ya marcó si es de solo lectura.
+ * Si la réplica no está disponible (según ReplicaMonitor) o falla al dar una conexión,
+ * se usa la primaria.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARIA = "primaria";
+    static final String REPLICA = "replica";
+
+    // Nombre de las transacciones que abren los repositorios (SimpleJpaRepository.findById, ...)
+    private static final String PREFIJO_TRANSACCIONES_REPOSITORIO = "org.springframework.data.";
+
+    private final DataSource primaria;
+    private final ReplicaMonitor monitor;
+
+    public ReplicaRoutingDataSource(DataSource primaria, DataSource replica, ReplicaMonitor monitor) {
+        this.primaria = primaria;
+        this.monitor = monitor;
+        setTargetDataSources(Map.of(PRIMARIA, primaria, REPLICA, replica));
+        setDefaultTargetDataSource(primaria);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return esLecturaDeAplicacion() && monitor.isDisponible() ? REPLICA : PRIMARIA;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        DataSource destino = determineTargetDataSource();
+        if (destino == primaria) {
+            return primaria.getConnection();
+        }
+        try {
+            return destino.getConnection();
+        } catch (SQLException e) {
+            monitor.registrarFallo(e);
+            return primaria.getConnection();
+        }
+    }
+
+    private static boolean esLecturaDeAplicacion() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return false;
+        }
+        String nombre = TransactionSynchronizationManager.getCurrentTransactionName();
+        return nombre == null || !nombre.startsWith(PREFIJO_TRANSACCIONES_REPOSITORIO);
+    }
+}
@@ -0,0 +1,49 @@
+package com.miroma.miroma.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registra cuántas sentencias SQL ejecutó cada petición y cuánto tardaron en total,
+ * por método de controlador (tag handler). Incluye las consultas de los filtros de
+ * seguridad; no las de la parte asíncrona de una exportación en streaming.
+ */
+class SqlPorRequestFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+
+    SqlPorRequestFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        DataSourceConMetricas.Acumulado acumulado = DataSourceConMetricas.iniciarAcumulado();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            DataSourceConMetricas.terminarAcumulado();
+            String handler = MetricasConfig.nombreHandler(request);
+            DistributionSummary.builder("miroma.sql.request.sentencias")
+                    .description("Sentencias SQL por petición")
+                    .tag("handler", handler)
+                    .register(meterRegistry)
+                    .record(acumulado.sentencias);
+            Timer.builder("miroma.sql.request.tiempo")
+                    .description("Tiempo total en SQL por petición")
+                    .tag("handler", handler)
+                    .register(meterRegistry)
+                    .record(acumulado.nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
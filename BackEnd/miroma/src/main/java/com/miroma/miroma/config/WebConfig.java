@@ -1,13 +1,58 @@
 package com.miroma.miroma.config;
 
+import com.miroma.miroma.service.IdempotenciaService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.security.autoconfigure.web.servlet.SecurityFilterProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverters;
+import org.springframework.http.converter.cbor.JacksonCborHttpMessageConverter;
+import org.springframework.http.converter.smile.JacksonSmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
 
 /**
- * WebConfig - Ya no es necesario registrar el filtro JWT manualmente
- * Spring Security ahora maneja el filtro JWT a través de SecurityConfig
+ * WebConfig - Filtros de servlet propios de la aplicación y conversores de mensajes.
+ * El filtro JWT no se registra aquí: Spring Security lo maneja a través de SecurityConfig.
  */
 @Configuration
-public class WebConfig {
-    // El filtro JWT ahora se maneja a través de Spring Security en SecurityConfig
-}
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private ObjectProvider<CBORMapper> cborMapper;
 
+    /**
+     * Además de JSON, las respuestas se pueden pedir en CBOR (Accept: application/cbor) o
+     * Smile (Accept: application/x-jackson-smile): en los listados grandes (egresos,
+     * presupuesto por categoría) evitan repetir los nombres de campo y los montos como texto.
+     * JSON sigue primero en la lista, así que sin un Accept binario explícito nada cambia.
+     * El CBORMapper es el que arma Spring Boot (spring.jackson.cbor.*); para Smile no hay
+     * autoconfiguración y se usa uno con los valores por defecto de Jackson.
+     */
+    @Override
+    public void configureMessageConverters(HttpMessageConverters.ServerBuilder builder) {
+        builder.withCborConverter(new JacksonCborHttpMessageConverter(
+                        cborMapper.getIfAvailable(() -> CBORMapper.builder().build())))
+                .withSmileConverter(new JacksonSmileHttpMessageConverter(SmileMapper.builder().build()));
+    }
+
+    /**
+     * Idempotency-Key en los POST de creación de egresos e ingresos y en el lote de egresos
+     * (rutas exactas, configurables con app.idempotencia.rutas)
+     */
+    @Bean
+    FilterRegistrationBean<IdempotenciaFilter> idempotenciaFilter(
+            IdempotenciaService idempotenciaService,
+            @Value("${app.idempotencia.rutas:/api/egresos,/api/egresos/batch,/api/ingresos}") String[] rutas) {
+        FilterRegistrationBean<IdempotenciaFilter> registro =
+                new FilterRegistrationBean<>(new IdempotenciaFilter(idempotenciaService));
+        registro.addUrlPatterns(rutas);
+        // Después de Spring Security: las claves son por usuario autenticado
+        registro.setOrder(SecurityFilterProperties.DEFAULT_FILTER_ORDER + 10);
+        return registro;
+    }
+}
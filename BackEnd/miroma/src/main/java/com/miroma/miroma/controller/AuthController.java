@@ -19,6 +19,7 @@ import com.miroma.miroma.service.RefreshTokenService;
 import com.miroma.miroma.service.TokenBlacklistService;
 import com.miroma.miroma.service.UsuarioService;
 import com.miroma.miroma.util.CookieUtil;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -63,8 +64,9 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest request, HttpServletResponse httpResponse) {
-        LoginResponse response = usuarioService.login(request);
+    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest request, HttpServletRequest httpRequest,
+                                   HttpServletResponse httpResponse) {
+        LoginResponse response = usuarioService.login(request, httpRequest.getRemoteAddr());
         
         // Establecer cookies HTTP-only, Secure y SameSite
         cookieUtil.setAccessTokenCookie(httpResponse, response.getToken());
@@ -169,7 +171,7 @@ public class AuthController {
             // Invalidar el access token si está presente
             if (token != null) {
                 try {
-                    Integer userId = jwtService.extractUserId(token);
+                    Integer userId = jwtService.parseAndVerify(token).userId();
                     if (userId != null) {
                         tokenBlacklistService.invalidateToken(token, userId);
                     }
@@ -1,15 +1,24 @@
 package com.miroma.miroma.controller;
 
+import com.miroma.miroma.dto.EgresoLoteRequest;
+import com.miroma.miroma.dto.EgresoLoteResponse;
 import com.miroma.miroma.dto.EgresoRequest;
 import com.miroma.miroma.dto.EgresoResponse;
 import com.miroma.miroma.security.SecurityUtils;
+import com.miroma.miroma.service.EgresoLoteService;
 import com.miroma.miroma.service.EgresoService;
+import com.miroma.miroma.service.ExportacionService;
+import com.miroma.miroma.service.VersionDatosService;
+import com.miroma.miroma.util.Paginacion;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.sql.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,9 +30,21 @@ public class EgresoController {
     @Autowired
     private EgresoService egresoService;
 
+    @Autowired
+    private EgresoLoteService egresoLoteService;
+
     @Autowired
     private SecurityUtils securityUtils;
 
+    @Autowired
+    private Paginacion paginacion;
+
+    @Autowired
+    private ExportacionService exportacionService;
+
+    @Autowired
+    private VersionDatosService versionDatosService;
+
     @PostMapping
     public ResponseEntity<?> crearEgreso(
             @Valid @RequestBody EgresoRequest request) {
@@ -43,19 +64,55 @@ public class EgresoController {
         }
     }
 
+    /**
+     * Crea, actualiza y elimina varios egresos en una sola transacción.
+     * En modo TODO_O_NADA, si alguna operación se rechaza responde 400 con el detalle y no
+     * aplica ninguna; en modo PARCIAL responde 200 con las aplicadas y las rechazadas.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> procesarLote(
+            @Valid @RequestBody EgresoLoteRequest request) {
+        Integer userId = securityUtils.getCurrentUserId();
+        try {
+            EgresoLoteResponse response = egresoLoteService.procesarLote(userId, request);
+            boolean rechazado = response.getModo() == EgresoLoteRequest.Modo.TODO_O_NADA && response.getRechazadas() > 0;
+            return ResponseEntity.status(rechazado ? HttpStatus.BAD_REQUEST : HttpStatus.OK).body(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (Exception e) {
+            e.printStackTrace();
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Error al procesar el lote de egresos: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
     @GetMapping
     public ResponseEntity<?> obtenerEgresos(
             @RequestParam(required = false) String fechaInicio,
-            @RequestParam(required = false) String fechaFin) {
+            @RequestParam(required = false) String fechaFin,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite,
+            WebRequest webRequest) {
         Integer userId = securityUtils.getCurrentUserId();
         try {
+            String etag = versionDatosService.obtenerEtag(userId);
+            if (RespuestaCondicional.noModificado(webRequest, etag)) {
+                return null;
+            }
+            if (paginacion.debePaginar(limite, cursor)) {
+                return RespuestaCondicional.ok(etag, egresoService.obtenerPaginaEgresosPorUsuario(
+                        userId, fechaInicio, fechaFin, cursor, limite));
+            }
             List<EgresoResponse> egresos;
             if (fechaInicio != null && fechaFin != null) {
                 egresos = egresoService.obtenerEgresosPorUsuarioYFecha(userId, fechaInicio, fechaFin);
             } else {
                 egresos = egresoService.obtenerEgresosPorUsuario(userId);
             }
-            return ResponseEntity.ok(egresos);
+            return RespuestaCondicional.ok(etag, egresos);
         } catch (IllegalArgumentException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -68,6 +125,33 @@ public class EgresoController {
         }
     }
 
+    /**
+     * Exporta los egresos de la pareja en CSV (por defecto) o NDJSON, en streaming
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportarEgresos(
+            @RequestParam(required = false) String fechaInicio,
+            @RequestParam(required = false) String fechaFin,
+            @RequestParam(required = false) String formato,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        Integer userId = securityUtils.getCurrentUserId();
+        try {
+            // Validar antes de empezar a escribir: después ya no se puede cambiar el código HTTP
+            ExportacionService.Formato formatoExportacion = ExportacionService.Formato.desde(formato);
+            Integer parejaId = exportacionService.obtenerParejaParaExportar(userId);
+            if (fechaInicio != null && fechaFin != null) {
+                Date.valueOf(fechaInicio);
+                Date.valueOf(fechaFin);
+            }
+            return RespuestaExportacion.crear("egresos", formatoExportacion, acceptEncoding,
+                    salida -> exportacionService.exportarEgresos(parejaId, fechaInicio, fechaFin, formatoExportacion, salida));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<?> obtenerEgresoPorId(@PathVariable Integer id) {
         Integer userId = securityUtils.getCurrentUserId();
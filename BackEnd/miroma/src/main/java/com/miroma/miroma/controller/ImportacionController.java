@@ -0,0 +1,66 @@
+package com.miroma.miroma.controller;
+
+import com.miroma.miroma.dto.ImportacionResponse;
+import com.miroma.miroma.security.SecurityUtils;
+import com.miroma.miroma.service.ImportacionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Importación masiva desde CSV (por ejemplo una planilla exportada).
+ * El archivo se recibe como multipart en el campo "archivo" y se procesa en streaming.
+ */
+@RestController
+@RequestMapping("/api/importaciones")
+public class ImportacionController {
+
+    @Autowired
+    private ImportacionService importacionService;
+
+    @Autowired
+    private SecurityUtils securityUtils;
+
+    @PostMapping(value = "/egresos", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importarEgresos(@RequestParam("archivo") MultipartFile archivo) {
+        Integer userId = securityUtils.getCurrentUserId();
+        try (InputStream entrada = archivo.getInputStream()) {
+            ImportacionResponse response = importacionService.importarEgresos(userId, entrada);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (Exception e) {
+            e.printStackTrace();
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Error al importar egresos: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
+    @PostMapping(value = "/ingresos", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importarIngresos(@RequestParam("archivo") MultipartFile archivo) {
+        Integer userId = securityUtils.getCurrentUserId();
+        try (InputStream entrada = archivo.getInputStream()) {
+            ImportacionResponse response = importacionService.importarIngresos(userId, entrada);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (Exception e) {
+            e.printStackTrace();
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Error al importar ingresos: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+}
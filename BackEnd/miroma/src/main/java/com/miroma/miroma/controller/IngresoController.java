@@ -3,9 +3,12 @@ package com.miroma.miroma.controller;
 import com.miroma.miroma.dto.IngresoRequest;
 import com.miroma.miroma.dto.IngresoResponse;
 import com.miroma.miroma.security.SecurityUtils;
+import com.miroma.miroma.service.ExportacionService;
 import com.miroma.miroma.service.IngresoService;
+import com.miroma.miroma.util.Paginacion;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -24,6 +27,12 @@ public class IngresoController {
     @Autowired
     private SecurityUtils securityUtils;
 
+    @Autowired
+    private Paginacion paginacion;
+
+    @Autowired
+    private ExportacionService exportacionService;
+
     @PostMapping
     public ResponseEntity<?> crearIngreso(
             @Valid @RequestBody IngresoRequest request) {
@@ -33,12 +42,37 @@ public class IngresoController {
     }
 
     @GetMapping
-    public ResponseEntity<?> obtenerIngresos() {
+    public ResponseEntity<?> obtenerIngresos(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
         Integer userId = securityUtils.getCurrentUserId();
+        if (paginacion.debePaginar(limite, cursor)) {
+            return ResponseEntity.ok(ingresoService.obtenerPaginaIngresosPorUsuario(userId, cursor, limite));
+        }
         List<IngresoResponse> ingresos = ingresoService.obtenerIngresosPorUsuario(userId);
         return ResponseEntity.ok(ingresos);
     }
 
+    /**
+     * Exporta los ingresos del usuario en CSV (por defecto) o NDJSON, en streaming
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportarIngresos(
+            @RequestParam(required = false) String formato,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        Integer userId = securityUtils.getCurrentUserId();
+        ExportacionService.Formato formatoExportacion;
+        try {
+            formatoExportacion = ExportacionService.Formato.desde(formato);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+        return RespuestaExportacion.crear("ingresos", formatoExportacion, acceptEncoding,
+                salida -> exportacionService.exportarIngresos(userId, formatoExportacion, salida));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<?> obtenerIngresoPorId(@PathVariable Integer id) {
         Integer userId = securityUtils.getCurrentUserId();
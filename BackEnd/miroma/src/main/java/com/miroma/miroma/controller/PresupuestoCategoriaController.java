@@ -4,11 +4,14 @@ import com.miroma.miroma.dto.PresupuestoCategoriaRequest;
 import com.miroma.miroma.dto.PresupuestoCategoriaResponse;
 import com.miroma.miroma.security.SecurityUtils;
 import com.miroma.miroma.service.PresupuestoCategoriaService;
+import com.miroma.miroma.service.VersionDatosService;
+import com.miroma.miroma.util.Paginacion;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.math.BigDecimal;
 import java.util.HashMap;
@@ -25,6 +28,12 @@ public class PresupuestoCategoriaController {
     @Autowired
     private SecurityUtils securityUtils;
 
+    @Autowired
+    private Paginacion paginacion;
+
+    @Autowired
+    private VersionDatosService versionDatosService;
+
     @PostMapping
     public ResponseEntity<?> crearPresupuestoCategoria(
             @Valid @RequestBody PresupuestoCategoriaRequest request) {
@@ -47,12 +56,17 @@ public class PresupuestoCategoriaController {
 
     @GetMapping("/presupuesto/{presupuestoId}")
     public ResponseEntity<?> obtenerPresupuestosCategoriasPorPresupuesto(
-            @PathVariable Integer presupuestoId) {
+            @PathVariable Integer presupuestoId,
+            WebRequest webRequest) {
         Integer userId = securityUtils.getCurrentUserId();
         try {
+            String etag = versionDatosService.obtenerEtag(userId);
+            if (RespuestaCondicional.noModificado(webRequest, etag)) {
+                return null;
+            }
             List<PresupuestoCategoriaResponse> presupuestosCategorias = presupuestoCategoriaService
                     .obtenerPresupuestosCategoriasPorPresupuesto(presupuestoId, userId);
-            return ResponseEntity.ok(presupuestosCategorias);
+            return RespuestaCondicional.ok(etag, presupuestosCategorias);
         } catch (IllegalArgumentException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -66,12 +80,23 @@ public class PresupuestoCategoriaController {
     }
 
     @GetMapping
-    public ResponseEntity<?> obtenerTodosLosPresupuestosCategorias() {
+    public ResponseEntity<?> obtenerTodosLosPresupuestosCategorias(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite,
+            WebRequest webRequest) {
         Integer userId = securityUtils.getCurrentUserId();
         try {
+            String etag = versionDatosService.obtenerEtag(userId);
+            if (RespuestaCondicional.noModificado(webRequest, etag)) {
+                return null;
+            }
+            if (paginacion.debePaginar(limite, cursor)) {
+                return RespuestaCondicional.ok(etag, presupuestoCategoriaService
+                        .obtenerPaginaPresupuestosCategorias(userId, cursor, limite));
+            }
             List<PresupuestoCategoriaResponse> presupuestosCategorias = presupuestoCategoriaService
                     .obtenerTodosLosPresupuestosCategorias(userId);
-            return ResponseEntity.ok(presupuestosCategorias);
+            return RespuestaCondicional.ok(etag, presupuestosCategorias);
         } catch (IllegalArgumentException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -4,6 +4,7 @@ import com.miroma.miroma.dto.PresupuestoRequest;
 import com.miroma.miroma.dto.PresupuestoResponse;
 import com.miroma.miroma.security.SecurityUtils;
 import com.miroma.miroma.service.PresupuestoService;
+import com.miroma.miroma.util.Paginacion;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -24,6 +25,9 @@ public class PresupuestoController {
     @Autowired
     private SecurityUtils securityUtils;
 
+    @Autowired
+    private Paginacion paginacion;
+
     @PostMapping
     public ResponseEntity<?> crearPresupuesto(
             @Valid @RequestBody PresupuestoRequest request) {
@@ -44,9 +48,14 @@ public class PresupuestoController {
     }
 
     @GetMapping
-    public ResponseEntity<?> obtenerPresupuestos() {
+    public ResponseEntity<?> obtenerPresupuestos(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
         Integer userId = securityUtils.getCurrentUserId();
         try {
+            if (paginacion.debePaginar(limite, cursor)) {
+                return ResponseEntity.ok(presupuestoService.obtenerPaginaPresupuestosPorUsuario(userId, cursor, limite));
+            }
             List<PresupuestoResponse> presupuestos = presupuestoService.obtenerPresupuestosPorUsuario(userId);
             return ResponseEntity.ok(presupuestos);
         } catch (IllegalArgumentException e) {
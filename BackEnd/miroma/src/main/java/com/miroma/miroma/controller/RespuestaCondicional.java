@@ -0,0 +1,41 @@
+package com.miroma.miroma.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Peticiones condicionales de los listados con ETag (VersionDatosService).
+ *
+ * Uso en un GET: si noModificado(...) devuelve true la respuesta ya quedó en 304 y el handler
+ * retorna null sin consultar nada; si no, responde con ok(etag, cuerpo). La respuesta lleva
+ * Cache-Control: private, no-cache, así el navegador la guarda pero revalida siempre, y
+ * Vary: Accept, porque el mismo listado puede salir en JSON, CBOR o Smile (ver WebConfig).
+ */
+final class RespuestaCondicional {
+
+    private static final CacheControl REVALIDAR = CacheControl.noCache().cachePrivate();
+
+    private RespuestaCondicional() {
+    }
+
+    /**
+     * @param etag ETag actual (null si el recurso no tiene versión: nunca es 304)
+     * @return true si el If-None-Match del cliente coincide
+     */
+    static boolean noModificado(WebRequest request, String etag) {
+        return etag != null && request.checkNotModified(etag);
+    }
+
+    static ResponseEntity<Object> ok(String etag, Object cuerpo) {
+        if (etag == null) {
+            return ResponseEntity.ok(cuerpo);
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(REVALIDAR)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(cuerpo);
+    }
+}
@@ -0,0 +1,57 @@
+package com.miroma.miroma.controller;
+
+import com.miroma.miroma.service.ExportacionService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Arma la respuesta de un endpoint de exportación: el cuerpo se escribe en streaming
+ * después de que el controlador retorna y, si el cliente envía Accept-Encoding: gzip,
+ * se comprime a medida que se escribe.
+ */
+final class RespuestaExportacion {
+
+    /**
+     * Escritura del contenido sobre la salida de la respuesta
+     */
+    @FunctionalInterface
+    interface Escritura {
+        void escribir(OutputStream salida) throws IOException;
+    }
+
+    private RespuestaExportacion() {
+    }
+
+    static ResponseEntity<StreamingResponseBody> crear(String nombre, ExportacionService.Formato formato,
+                                                       String acceptEncoding, Escritura escritura) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(formato.getContentType() + ";charset=UTF-8"));
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename(nombre + "." + formato.getExtension())
+                .build());
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            headers.add(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        StreamingResponseBody cuerpo = salida -> {
+            if (gzip) {
+                GZIPOutputStream comprimida = new GZIPOutputStream(salida, 8192);
+                escritura.escribir(comprimida);
+                comprimida.finish();
+            } else {
+                escritura.escribir(salida);
+            }
+        };
+        return ResponseEntity.ok().headers(headers).body(cuerpo);
+    }
+}
@@ -3,9 +3,11 @@ package com.miroma.miroma.controller;
 import com.miroma.miroma.dto.ResumenPeriodoResponse;
 import com.miroma.miroma.security.SecurityUtils;
 import com.miroma.miroma.service.ResumenFinancieroService;
+import com.miroma.miroma.service.VersionDatosService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.List;
@@ -21,12 +23,19 @@ public class ResumenFinancieroController {
     @Autowired
     private SecurityUtils securityUtils;
 
+    @Autowired
+    private VersionDatosService versionDatosService;
+
     @GetMapping
-    public ResponseEntity<?> obtenerResumen() {
+    public ResponseEntity<?> obtenerResumen(WebRequest webRequest) {
         Integer userId = securityUtils.getCurrentUserId();
         try {
+            String etag = versionDatosService.obtenerEtag(userId);
+            if (RespuestaCondicional.noModificado(webRequest, etag)) {
+                return null;
+            }
             List<ResumenPeriodoResponse> resumen = resumenFinancieroService.obtenerResumenPorUsuario(userId);
-            return ResponseEntity.ok(resumen);
+            return RespuestaCondicional.ok(etag, resumen);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Error al obtener resumen financiero: " + e.getMessage());
@@ -0,0 +1,101 @@
+package com.miroma.miroma.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+import java.util.List;
+
+/**
+ * Lote de operaciones sobre egresos (POST /api/egresos/batch).
+ * En modo TODO_O_NADA, si alguna operación no es válida no se aplica ninguna; en modo
+ * PARCIAL se aplican las válidas y se informan las rechazadas.
+ */
+public class EgresoLoteRequest {
+
+    public enum Modo {
+        TODO_O_NADA,
+        PARCIAL
+    }
+
+    public enum TipoOperacion {
+        CREAR,
+        ACTUALIZAR,
+        ELIMINAR
+    }
+
+    /**
+     * Una operación del lote: egreso es obligatorio para CREAR y ACTUALIZAR, id para
+     * ACTUALIZAR y ELIMINAR
+     */
+    public static class Operacion {
+
+        @NotNull(message = "El tipo de operación es obligatorio")
+        private TipoOperacion tipo;
+
+        @Positive(message = "El ID del egreso debe ser positivo")
+        private Integer id;
+
+        @Valid
+        private EgresoRequest egreso;
+
+        public Operacion() {
+        }
+
+        public Operacion(TipoOperacion tipo, Integer id, EgresoRequest egreso) {
+            this.tipo = tipo;
+            this.id = id;
+            this.egreso = egreso;
+        }
+
+        public TipoOperacion getTipo() {
+            return tipo;
+        }
+
+        public void setTipo(TipoOperacion tipo) {
+            this.tipo = tipo;
+        }
+
+        public Integer getId() {
+            return id;
+        }
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+
+        public EgresoRequest getEgreso() {
+            return egreso;
+        }
+
+        public void setEgreso(EgresoRequest egreso) {
+            this.egreso = egreso;
+        }
+    }
+
+    private Modo modo = Modo.TODO_O_NADA;
+
+    @NotEmpty(message = "El lote debe tener al menos una operación")
+    private List<@NotNull(message = "La operación no puede ser nula") @Valid Operacion> operaciones;
+
+    public EgresoLoteRequest() {
+    }
+
+    // Getters y Setters
+    public Modo getModo() {
+        return modo;
+    }
+
+    public void setModo(Modo modo) {
+        this.modo = modo;
+    }
+
+    public List<Operacion> getOperaciones() {
+        return operaciones;
+    }
+
+    public void setOperaciones(List<Operacion> operaciones) {
+        this.operaciones = operaciones;
+    }
+}
@@ -0,0 +1,131 @@
+package com.miroma.miroma.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de un lote de operaciones sobre egresos.
+ * resultados tiene una entrada por operación, en el orden del lote: el egreso creado o
+ * actualizado, o el motivo por el que se rechazó. En modo TODO_O_NADA con rechazos, las
+ * operaciones válidas figuran como no aplicadas y sin error.
+ */
+public class EgresoLoteResponse {
+    private EgresoLoteRequest.Modo modo;
+    private int procesadas;
+    private int aplicadas;
+    private int rechazadas;
+    private List<ResultadoOperacion> resultados = new ArrayList<>();
+
+    /**
+     * Resultado de una operación del lote
+     */
+    public static class ResultadoOperacion {
+        private int indice;
+        private EgresoLoteRequest.TipoOperacion tipo;
+        private Integer id;
+        private boolean aplicada;
+        private EgresoResponse egreso;
+        private String error;
+
+        public ResultadoOperacion() {
+        }
+
+        public ResultadoOperacion(int indice, EgresoLoteRequest.TipoOperacion tipo, Integer id) {
+            this.indice = indice;
+            this.tipo = tipo;
+            this.id = id;
+        }
+
+        public int getIndice() {
+            return indice;
+        }
+
+        public void setIndice(int indice) {
+            this.indice = indice;
+        }
+
+        public EgresoLoteRequest.TipoOperacion getTipo() {
+            return tipo;
+        }
+
+        public void setTipo(EgresoLoteRequest.TipoOperacion tipo) {
+            this.tipo = tipo;
+        }
+
+        public Integer getId() {
+            return id;
+        }
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+
+        public boolean isAplicada() {
+            return aplicada;
+        }
+
+        public void setAplicada(boolean aplicada) {
+            this.aplicada = aplicada;
+        }
+
+        public EgresoResponse getEgreso() {
+            return egreso;
+        }
+
+        public void setEgreso(EgresoResponse egreso) {
+            this.egreso = egreso;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public void setError(String error) {
+            this.error = error;
+        }
+    }
+
+    public EgresoLoteResponse() {
+    }
+
+    // Getters y Setters
+    public EgresoLoteRequest.Modo getModo() {
+        return modo;
+    }
+
+    public void setModo(EgresoLoteRequest.Modo modo) {
+        this.modo = modo;
+    }
+
+    public int getProcesadas() {
+        return procesadas;
+    }
+
+    public void setProcesadas(int procesadas) {
+        this.procesadas = procesadas;
+    }
+
+    public int getAplicadas() {
+        return aplicadas;
+    }
+
+    public void setAplicadas(int aplicadas) {
+        this.aplicadas = aplicadas;
+    }
+
+    public int getRechazadas() {
+        return rechazadas;
+    }
+
+    public void setRechazadas(int rechazadas) {
+        this.rechazadas = rechazadas;
+    }
+
+    public List<ResultadoOperacion> getResultados() {
+        return resultados;
+    }
+
+    public void setResultados(List<ResultadoOperacion> resultados) {
+        this.resultados = resultados;
+    }
+}
@@ -1,6 +1,7 @@
 package com.miroma.miroma.dto;
 
 import java.math.BigDecimal;
+import java.sql.Date;
 import java.sql.Timestamp;
 
 public class EgresoResponse {
@@ -33,6 +34,20 @@ public class EgresoResponse {
         this.fechaCreacion = fechaCreacion;
     }
 
+    /**
+     * Constructor usado por las consultas de listado (expresión constructora JPQL),
+     * que traen la categoría y el período en la misma sentencia que el egreso
+     */
+    public EgresoResponse(Integer id, Integer parejaId, BigDecimal montoTotal, Date fecha,
+                         String descripcion, Integer categoriaId, String categoriaNombre,
+                         String categoriaDescripcion, Integer periodoId, String periodoNombre,
+                         Timestamp fechaCreacion) {
+        this(id, parejaId, montoTotal, fecha != null ? fecha.toString() : null, descripcion,
+                categoriaId, categoriaNombre, categoriaDescripcion, fechaCreacion);
+        this.periodoId = periodoId;
+        this.periodoNombre = periodoNombre;
+    }
+
     // Getters y Setters
     public Integer getId() {
         return id;
@@ -0,0 +1,84 @@
+package com.miroma.miroma.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de importar un archivo CSV.
+ * Las líneas con errores no se importan; el resto del archivo sí. errores lista las primeras
+ * líneas rechazadas (hasta app.importacion.max-errores) y rechazadas las cuenta todas.
+ */
+public class ImportacionResponse {
+    private int procesadas;
+    private int importadas;
+    private int rechazadas;
+    private List<ErrorLinea> errores = new ArrayList<>();
+
+    /**
+     * Error de una línea del archivo
+     */
+    public static class ErrorLinea {
+        private int linea;
+        private String mensaje;
+
+        public ErrorLinea() {
+        }
+
+        public ErrorLinea(int linea, String mensaje) {
+            this.linea = linea;
+            this.mensaje = mensaje;
+        }
+
+        public int getLinea() {
+            return linea;
+        }
+
+        public void setLinea(int linea) {
+            this.linea = linea;
+        }
+
+        public String getMensaje() {
+            return mensaje;
+        }
+
+        public void setMensaje(String mensaje) {
+            this.mensaje = mensaje;
+        }
+    }
+
+    public ImportacionResponse() {
+    }
+
+    // Getters y Setters
+    public int getProcesadas() {
+        return procesadas;
+    }
+
+    public void setProcesadas(int procesadas) {
+        this.procesadas = procesadas;
+    }
+
+    public int getImportadas() {
+        return importadas;
+    }
+
+    public void setImportadas(int importadas) {
+        this.importadas = importadas;
+    }
+
+    public int getRechazadas() {
+        return rechazadas;
+    }
+
+    public void setRechazadas(int rechazadas) {
+        this.rechazadas = rechazadas;
+    }
+
+    public List<ErrorLinea> getErrores() {
+        return errores;
+    }
+
+    public void setErrores(List<ErrorLinea> errores) {
+        this.errores = errores;
+    }
+}
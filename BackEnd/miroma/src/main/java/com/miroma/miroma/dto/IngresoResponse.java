@@ -16,6 +16,20 @@ public class IngresoResponse {
     public IngresoResponse() {
     }
 
+    /**
+     * Constructor usado por la consulta de exportación (expresión constructora JPQL)
+     */
+    public IngresoResponse(Integer id, Integer usuarioId, Integer parejaId, BigDecimal monto,
+                           String descripcion, Date fecha, Timestamp fechaCreacion) {
+        this.id = id;
+        this.usuarioId = usuarioId;
+        this.parejaId = parejaId;
+        this.monto = monto;
+        this.descripcion = descripcion;
+        this.fecha = fecha;
+        this.fechaCreacion = fechaCreacion;
+    }
+
     // Getters y Setters
     public Integer getId() {
         return id;
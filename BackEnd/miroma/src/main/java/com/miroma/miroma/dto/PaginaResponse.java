@@ -0,0 +1,48 @@
+package com.miroma.miroma.dto;
+
+import java.util.List;
+
+/**
+ * Página de un listado paginado por cursor.
+ * siguienteCursor es opaco: se envía tal cual en el parámetro "cursor" para pedir la
+ * página siguiente y es null cuando no hay más resultados.
+ */
+public class PaginaResponse<T> {
+    private List<T> elementos;
+    private String siguienteCursor;
+    private boolean hayMas;
+
+    public PaginaResponse() {
+    }
+
+    public PaginaResponse(List<T> elementos, String siguienteCursor) {
+        this.elementos = elementos;
+        this.siguienteCursor = siguienteCursor;
+        this.hayMas = siguienteCursor != null;
+    }
+
+    // Getters y Setters
+    public List<T> getElementos() {
+        return elementos;
+    }
+
+    public void setElementos(List<T> elementos) {
+        this.elementos = elementos;
+    }
+
+    public String getSiguienteCursor() {
+        return siguienteCursor;
+    }
+
+    public void setSiguienteCursor(String siguienteCursor) {
+        this.siguienteCursor = siguienteCursor;
+    }
+
+    public boolean isHayMas() {
+        return hayMas;
+    }
+
+    public void setHayMas(boolean hayMas) {
+        this.hayMas = hayMas;
+    }
+}
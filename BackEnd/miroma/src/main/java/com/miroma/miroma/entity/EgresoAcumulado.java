@@ -0,0 +1,101 @@
+package com.miroma.miroma.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * Total acumulado de egresos por (pareja, presupuesto, categoría).
+ * Se mantiene transaccionalmente desde EgresoService para que la consulta
+ * de disponibilidad no tenga que recorrer todo el historial de egresos.
+ */
+@Entity
+@Table(name = "egresos_acumulados", uniqueConstraints = @UniqueConstraint(name = "uk_egresos_acumulados",
+        columnNames = {"pareja_id", "presupuesto_id", "categoria_id"}))
+public class EgresoAcumulado {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "pareja_id", nullable = false)
+    private Integer parejaId;
+
+    @Column(name = "presupuesto_id", nullable = false)
+    private Integer presupuestoId;
+
+    @Column(name = "categoria_id", nullable = false)
+    private Integer categoriaId;
+
+    @Column(name = "gastado", nullable = false, precision = 15, scale = 2)
+    private BigDecimal gastado;
+
+    @Column(name = "fecha_actualizacion", nullable = false)
+    private Timestamp fechaActualizacion;
+
+    public EgresoAcumulado() {
+    }
+
+    public EgresoAcumulado(Integer parejaId, Integer presupuestoId, Integer categoriaId, BigDecimal gastado) {
+        this.parejaId = parejaId;
+        this.presupuestoId = presupuestoId;
+        this.categoriaId = categoriaId;
+        this.gastado = gastado;
+        this.fechaActualizacion = new Timestamp(System.currentTimeMillis());
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        this.fechaActualizacion = new Timestamp(System.currentTimeMillis());
+    }
+
+    // Getters y Setters
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Integer getParejaId() {
+        return parejaId;
+    }
+
+    public void setParejaId(Integer parejaId) {
+        this.parejaId = parejaId;
+    }
+
+    public Integer getPresupuestoId() {
+        return presupuestoId;
+    }
+
+    public void setPresupuestoId(Integer presupuestoId) {
+        this.presupuestoId = presupuestoId;
+    }
+
+    public Integer getCategoriaId() {
+        return categoriaId;
+    }
+
+    public void setCategoriaId(Integer categoriaId) {
+        this.categoriaId = categoriaId;
+    }
+
+    public BigDecimal getGastado() {
+        return gastado;
+    }
+
+    public void setGastado(BigDecimal gastado) {
+        this.gastado = gastado;
+    }
+
+    public Timestamp getFechaActualizacion() {
+        return fechaActualizacion;
+    }
+
+    public void setFechaActualizacion(Timestamp fechaActualizacion) {
+        this.fechaActualizacion = fechaActualizacion;
+    }
+}
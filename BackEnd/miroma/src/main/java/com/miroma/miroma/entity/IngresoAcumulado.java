@@ -0,0 +1,88 @@
+package com.miroma.miroma.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * Total acumulado de ingresos por (usuario, pareja).
+ * Los ingresos registrados sin pareja se acumulan con pareja_id = 0.
+ * Se mantiene transaccionalmente desde IngresoService.
+ */
+@Entity
+@Table(name = "ingresos_acumulados")
+public class IngresoAcumulado {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "usuario_id", nullable = false)
+    private Integer usuarioId;
+
+    @Column(name = "pareja_id", nullable = false)
+    private Integer parejaId;
+
+    @Column(name = "total", nullable = false, precision = 15, scale = 2)
+    private BigDecimal total;
+
+    @Column(name = "fecha_actualizacion", nullable = false)
+    private Timestamp fechaActualizacion;
+
+    public IngresoAcumulado() {
+    }
+
+    public IngresoAcumulado(Integer usuarioId, Integer parejaId, BigDecimal total) {
+        this.usuarioId = usuarioId;
+        this.parejaId = parejaId;
+        this.total = total;
+        this.fechaActualizacion = new Timestamp(System.currentTimeMillis());
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        this.fechaActualizacion = new Timestamp(System.currentTimeMillis());
+    }
+
+    // Getters y Setters
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Integer getUsuarioId() {
+        return usuarioId;
+    }
+
+    public void setUsuarioId(Integer usuarioId) {
+        this.usuarioId = usuarioId;
+    }
+
+    public Integer getParejaId() {
+        return parejaId;
+    }
+
+    public void setParejaId(Integer parejaId) {
+        this.parejaId = parejaId;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+
+    public Timestamp getFechaActualizacion() {
+        return fechaActualizacion;
+    }
+
+    public void setFechaActualizacion(Timestamp fechaActualizacion) {
+        this.fechaActualizacion = fechaActualizacion;
+    }
+}
@@ -23,6 +23,10 @@ public class Pareja {
     @Column(name = "fecha_creacion", nullable = false, updatable = false)
     private Timestamp fechaCreacion;
 
+    // Solo la incrementa VersionDatosService con un UPDATE directo
+    @Column(name = "version_datos", nullable = false, updatable = false)
+    private Long versionDatos = 0L;
+
     public Pareja() {
     }
 
@@ -80,5 +84,9 @@ public class Pareja {
     public void setFechaCreacion(Timestamp fechaCreacion) {
         this.fechaCreacion = fechaCreacion;
     }
+
+    public Long getVersionDatos() {
+        return versionDatos;
+    }
 }
 
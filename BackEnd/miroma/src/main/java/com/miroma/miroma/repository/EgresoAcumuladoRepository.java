@@ -0,0 +1,75 @@
+package com.miroma.miroma.repository;
+
+import com.miroma.miroma.entity.EgresoAcumulado;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EgresoAcumuladoRepository extends JpaRepository<EgresoAcumulado, Integer> {
+
+    // Monto gastado de una categoría en un presupuesto
+    @Query("SELECT a.gastado FROM EgresoAcumulado a WHERE a.parejaId = :parejaId AND a.presupuestoId = :presupuestoId AND a.categoriaId = :categoriaId")
+    Optional<BigDecimal> obtenerGastado(@Param("parejaId") Integer parejaId,
+                                        @Param("presupuestoId") Integer presupuestoId,
+                                        @Param("categoriaId") Integer categoriaId);
+
+    // Todos los acumulados de una pareja (para listados)
+    List<EgresoAcumulado> findByParejaId(Integer parejaId);
+
+    // Bloquea la fila del acumulado (usado por la reconciliación)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM EgresoAcumulado a WHERE a.parejaId = :parejaId AND a.presupuestoId = :presupuestoId AND a.categoriaId = :categoriaId")
+    Optional<EgresoAcumulado> bloquear(@Param("parejaId") Integer parejaId,
+                                       @Param("presupuestoId") Integer presupuestoId,
+                                       @Param("categoriaId") Integer categoriaId);
+
+    // Lo gastado de una categoría en un presupuesto, bloqueando la fila hasta el fin de la transacción
+    @Query(value = "SELECT gastado FROM egresos_acumulados " +
+            "WHERE pareja_id = :parejaId AND presupuesto_id = :presupuestoId AND categoria_id = :categoriaId FOR UPDATE",
+            nativeQuery = true)
+    Optional<BigDecimal> bloquearGastado(@Param("parejaId") Integer parejaId,
+                                         @Param("presupuestoId") Integer presupuestoId,
+                                         @Param("categoriaId") Integer categoriaId);
+
+    // Suma (o resta, con monto negativo) al acumulado en una sola sentencia atómica
+    @Modifying
+    @Query(value = "INSERT INTO egresos_acumulados (pareja_id, presupuesto_id, categoria_id, gastado, fecha_actualizacion) " +
+            "VALUES (:parejaId, :presupuestoId, :categoriaId, :monto, CURRENT_TIMESTAMP) " +
+            "ON DUPLICATE KEY UPDATE gastado = gastado + :monto, fecha_actualizacion = CURRENT_TIMESTAMP",
+            nativeQuery = true)
+    int acumular(@Param("parejaId") Integer parejaId,
+                 @Param("presupuestoId") Integer presupuestoId,
+                 @Param("categoriaId") Integer categoriaId,
+                 @Param("monto") BigDecimal monto);
+
+    // Suma al acumulado solo si el total resultante no supera el tope; 0 filas si no alcanza (o si no hay fila)
+    @Modifying
+    @Query(value = "UPDATE egresos_acumulados SET gastado = gastado + :monto, fecha_actualizacion = CURRENT_TIMESTAMP " +
+            "WHERE pareja_id = :parejaId AND presupuesto_id = :presupuestoId AND categoria_id = :categoriaId " +
+            "AND gastado + :monto <= :tope",
+            nativeQuery = true)
+    int acumularHasta(@Param("parejaId") Integer parejaId,
+                      @Param("presupuestoId") Integer presupuestoId,
+                      @Param("categoriaId") Integer categoriaId,
+                      @Param("monto") BigDecimal monto,
+                      @Param("tope") BigDecimal tope);
+
+    // Crea la fila del acumulado en cero si todavía no existe
+    @Modifying
+    @Query(value = "INSERT INTO egresos_acumulados (pareja_id, presupuesto_id, categoria_id, gastado, fecha_actualizacion) " +
+            "VALUES (:parejaId, :presupuestoId, :categoriaId, 0, CURRENT_TIMESTAMP) " +
+            "ON DUPLICATE KEY UPDATE gastado = gastado",
+            nativeQuery = true)
+    int crearSiNoExiste(@Param("parejaId") Integer parejaId,
+                        @Param("presupuestoId") Integer presupuestoId,
+                        @Param("categoriaId") Integer categoriaId);
+}
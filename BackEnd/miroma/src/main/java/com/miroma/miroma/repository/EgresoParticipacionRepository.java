@@ -2,6 +2,9 @@ package com.miroma.miroma.repository;
 
 import com.miroma.miroma.entity.EgresoParticipacion;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -15,7 +18,14 @@ public interface EgresoParticipacionRepository extends JpaRepository<EgresoParti
     // Buscar participaciones por usuario_id
     List<EgresoParticipacion> findByUsuarioId(Integer usuarioId);
     
-    // Eliminar todas las participaciones de un egreso
-    void deleteByEgresoId(Integer egresoId);
+    // Total asignado a un usuario por período, en una sola consulta: [periodoId, suma]
+    @Query("SELECT e.periodoId, SUM(p.montoAsignado) FROM EgresoParticipacion p JOIN Egreso e ON e.id = p.egresoId " +
+           "WHERE p.usuarioId = :usuarioId GROUP BY e.periodoId")
+    List<Object[]> sumarPorUsuarioAgrupadoPorPeriodo(@Param("usuarioId") Integer usuarioId);
+    
+    // Eliminar todas las participaciones de un egreso en una sola sentencia, sin cargarlas
+    @Modifying
+    @Query("DELETE FROM EgresoParticipacion p WHERE p.egresoId = :egresoId")
+    void deleteByEgresoId(@Param("egresoId") Integer egresoId);
 }
 
@@ -1,13 +1,24 @@
 package com.miroma.miroma.repository;
 
+import com.miroma.miroma.dto.EgresoResponse;
 import com.miroma.miroma.entity.Egreso;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.sql.Date;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface EgresoRepository extends JpaRepository<Egreso, Integer> {
@@ -15,11 +26,70 @@ public interface EgresoRepository extends JpaRepository<Egreso, Integer> {
     // Buscar egresos por pareja_id
     List<Egreso> findByParejaIdOrderByFechaDesc(Integer parejaId);
     
+    // Bloquea la fila del egreso hasta el fin de la transacción (cambios y bajas que ajustan el acumulado)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM Egreso e WHERE e.id = :id")
+    Optional<Egreso> bloquear(@Param("id") Integer id);
+    
+    // Bloquea las filas de varios egresos en orden de id, así dos lotes con egresos en común esperan uno al otro
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM Egreso e WHERE e.id IN :ids ORDER BY e.id")
+    List<Egreso> bloquearTodos(@Param("ids") Collection<Integer> ids);
+    
     // Buscar egresos por categoria_id
     List<Egreso> findByCategoriaIdOrderByFechaDesc(Integer categoriaId);
     
     // Buscar egresos por pareja_id y rango de fechas
     @Query("SELECT e FROM Egreso e WHERE e.parejaId = :parejaId AND e.fecha BETWEEN :fechaInicio AND :fechaFin ORDER BY e.fecha DESC")
     List<Egreso> findByParejaIdAndFechaBetween(@Param("parejaId") Integer parejaId, @Param("fechaInicio") Date fechaInicio, @Param("fechaFin") Date fechaFin);
+    
+    // Listado de egresos de la pareja con categoría y período resueltos en una sola consulta
+    @Query("SELECT new com.miroma.miroma.dto.EgresoResponse(e.id, e.parejaId, e.montoTotal, e.fecha, e.descripcion, " +
+           "e.categoriaId, c.nombre, c.descripcion, e.periodoId, p.periodo, e.fechaCreacion) " +
+           "FROM Egreso e LEFT JOIN CategoriaEgreso c ON c.id = e.categoriaId LEFT JOIN Presupuesto p ON p.id = e.periodoId " +
+           "WHERE e.parejaId = :parejaId ORDER BY e.fecha DESC")
+    List<EgresoResponse> listarResponsesPorPareja(@Param("parejaId") Integer parejaId);
+    
+    // Igual que el anterior, filtrando por rango de fechas
+    @Query("SELECT new com.miroma.miroma.dto.EgresoResponse(e.id, e.parejaId, e.montoTotal, e.fecha, e.descripcion, " +
+           "e.categoriaId, c.nombre, c.descripcion, e.periodoId, p.periodo, e.fechaCreacion) " +
+           "FROM Egreso e LEFT JOIN CategoriaEgreso c ON c.id = e.categoriaId LEFT JOIN Presupuesto p ON p.id = e.periodoId " +
+           "WHERE e.parejaId = :parejaId AND e.fecha BETWEEN :fechaInicio AND :fechaFin ORDER BY e.fecha DESC")
+    List<EgresoResponse> listarResponsesPorParejaYFecha(@Param("parejaId") Integer parejaId, @Param("fechaInicio") Date fechaInicio, @Param("fechaFin") Date fechaFin);
+    
+    // Página de egresos de la pareja por cursor (fecha, id); rango de fechas y cursor opcionales (null)
+    @Query("SELECT new com.miroma.miroma.dto.EgresoResponse(e.id, e.parejaId, e.montoTotal, e.fecha, e.descripcion, " +
+           "e.categoriaId, c.nombre, c.descripcion, e.periodoId, p.periodo, e.fechaCreacion) " +
+           "FROM Egreso e LEFT JOIN CategoriaEgreso c ON c.id = e.categoriaId LEFT JOIN Presupuesto p ON p.id = e.periodoId " +
+           "WHERE e.parejaId = :parejaId " +
+           "AND (:fechaInicio IS NULL OR e.fecha >= :fechaInicio) AND (:fechaFin IS NULL OR e.fecha <= :fechaFin) " +
+           "AND (:cursorFecha IS NULL OR e.fecha < :cursorFecha OR (e.fecha = :cursorFecha AND e.id < :cursorId)) " +
+           "ORDER BY e.fecha DESC, e.id DESC")
+    List<EgresoResponse> listarPaginaResponsesPorPareja(@Param("parejaId") Integer parejaId,
+                                                        @Param("fechaInicio") Date fechaInicio,
+                                                        @Param("fechaFin") Date fechaFin,
+                                                        @Param("cursorFecha") Date cursorFecha,
+                                                        @Param("cursorId") Integer cursorId,
+                                                        Pageable pagina);
+    
+    // Todos los egresos de la pareja para exportar, leídos de a bloques; rango de fechas opcional (null)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.miroma.miroma.dto.EgresoResponse(e.id, e.parejaId, e.montoTotal, e.fecha, e.descripcion, " +
+           "e.categoriaId, c.nombre, c.descripcion, e.periodoId, p.periodo, e.fechaCreacion) " +
+           "FROM Egreso e LEFT JOIN CategoriaEgreso c ON c.id = e.categoriaId LEFT JOIN Presupuesto p ON p.id = e.periodoId " +
+           "WHERE e.parejaId = :parejaId " +
+           "AND (:fechaInicio IS NULL OR e.fecha >= :fechaInicio) AND (:fechaFin IS NULL OR e.fecha <= :fechaFin) " +
+           "ORDER BY e.fecha DESC, e.id DESC")
+    Stream<EgresoResponse> streamResponsesPorPareja(@Param("parejaId") Integer parejaId,
+                                                    @Param("fechaInicio") Date fechaInicio,
+                                                    @Param("fechaFin") Date fechaFin);
+    
+    // Sumar egresos de una categoría en un período (fuente de verdad para reconciliar el acumulado)
+    @Query("SELECT COALESCE(SUM(e.montoTotal), 0) FROM Egreso e WHERE e.parejaId = :parejaId AND e.periodoId = :periodoId AND e.categoriaId = :categoriaId")
+    BigDecimal sumarPorPeriodoYCategoria(@Param("parejaId") Integer parejaId, @Param("periodoId") Integer periodoId, @Param("categoriaId") Integer categoriaId);
+    
+    // Totales agrupados por pareja, período y categoría: [parejaId, periodoId, categoriaId, suma]
+    @Query("SELECT e.parejaId, e.periodoId, e.categoriaId, SUM(e.montoTotal) FROM Egreso e GROUP BY e.parejaId, e.periodoId, e.categoriaId")
+    List<Object[]> sumarAgrupadoPorPeriodoYCategoria();
 }
 
@@ -0,0 +1,44 @@
+package com.miroma.miroma.repository;
+
+import com.miroma.miroma.entity.IngresoAcumulado;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface IngresoAcumuladoRepository extends JpaRepository<IngresoAcumulado, Integer> {
+
+    // Acumulados de cada integrante de una pareja
+    List<IngresoAcumulado> findByParejaId(Integer parejaId);
+
+    // Total de ingresos de una pareja
+    @Query("SELECT COALESCE(SUM(a.total), 0) FROM IngresoAcumulado a WHERE a.parejaId = :parejaId")
+    BigDecimal sumarPorPareja(@Param("parejaId") Integer parejaId);
+
+    // Total de ingresos de un usuario, con o sin pareja
+    @Query("SELECT COALESCE(SUM(a.total), 0) FROM IngresoAcumulado a WHERE a.usuarioId = :usuarioId")
+    BigDecimal sumarPorUsuario(@Param("usuarioId") Integer usuarioId);
+
+    // Bloquea la fila del acumulado (usado por la reconciliación)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM IngresoAcumulado a WHERE a.usuarioId = :usuarioId AND a.parejaId = :parejaId")
+    Optional<IngresoAcumulado> bloquear(@Param("usuarioId") Integer usuarioId, @Param("parejaId") Integer parejaId);
+
+    // Suma (o resta, con monto negativo) al acumulado en una sola sentencia atómica
+    @Modifying
+    @Query(value = "INSERT INTO ingresos_acumulados (usuario_id, pareja_id, total, fecha_actualizacion) " +
+            "VALUES (:usuarioId, :parejaId, :monto, CURRENT_TIMESTAMP) " +
+            "ON DUPLICATE KEY UPDATE total = total + :monto, fecha_actualizacion = CURRENT_TIMESTAMP",
+            nativeQuery = true)
+    int acumular(@Param("usuarioId") Integer usuarioId,
+                 @Param("parejaId") Integer parejaId,
+                 @Param("monto") BigDecimal monto);
+}
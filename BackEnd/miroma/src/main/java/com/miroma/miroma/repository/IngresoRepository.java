@@ -1,13 +1,20 @@
 package com.miroma.miroma.repository;
 
+import com.miroma.miroma.dto.IngresoResponse;
 import com.miroma.miroma.entity.Ingreso;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.sql.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface IngresoRepository extends JpaRepository<Ingreso, Integer> {
@@ -15,6 +22,21 @@ public interface IngresoRepository extends JpaRepository<Ingreso, Integer> {
     // Buscar ingresos por usuario_id
     List<Ingreso> findByUsuarioIdOrderByFechaDesc(Integer usuarioId);
     
+    // Página de ingresos del usuario por cursor (fecha, id); cursor null = primera página
+    @Query("SELECT i FROM Ingreso i WHERE i.usuarioId = :usuarioId " +
+           "AND (:cursorFecha IS NULL OR i.fecha < :cursorFecha OR (i.fecha = :cursorFecha AND i.id < :cursorId)) " +
+           "ORDER BY i.fecha DESC, i.id DESC")
+    List<Ingreso> findPaginaPorUsuario(@Param("usuarioId") Integer usuarioId,
+                                       @Param("cursorFecha") Date cursorFecha,
+                                       @Param("cursorId") Integer cursorId,
+                                       Pageable pagina);
+    
+    // Todos los ingresos del usuario para exportar, leídos de a bloques
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.miroma.miroma.dto.IngresoResponse(i.id, i.usuarioId, i.parejaId, i.monto, i.descripcion, " +
+           "i.fecha, i.fechaCreacion) FROM Ingreso i WHERE i.usuarioId = :usuarioId ORDER BY i.fecha DESC, i.id DESC")
+    Stream<IngresoResponse> streamResponsesPorUsuario(@Param("usuarioId") Integer usuarioId);
+    
     // Buscar ingresos por pareja_id
     List<Ingreso> findByParejaIdOrderByFechaDesc(Integer parejaId);
     
@@ -25,5 +47,12 @@ public interface IngresoRepository extends JpaRepository<Ingreso, Integer> {
     // Buscar ingresos por rango de fechas
     @Query("SELECT i FROM Ingreso i WHERE (i.usuarioId = :userId OR i.parejaId = :parejaId) AND i.fecha BETWEEN :fechaInicio AND :fechaFin ORDER BY i.fecha DESC")
     List<Ingreso> findByUsuarioAndFechaBetween(@Param("userId") Integer userId, @Param("parejaId") Integer parejaId, @Param("fechaInicio") Date fechaInicio, @Param("fechaFin") Date fechaFin);
+    
+    // Sumar ingresos de un usuario dentro de una pareja (null = sin pareja)
+    @Query("SELECT COALESCE(SUM(i.monto), 0) FROM Ingreso i WHERE i.usuarioId = :usuarioId AND ((:parejaId IS NULL AND i.parejaId IS NULL) OR i.parejaId = :parejaId)")
+    BigDecimal sumarPorUsuarioYPareja(@Param("usuarioId") Integer usuarioId, @Param("parejaId") Integer parejaId);
+    
+    // Totales agrupados por usuario y pareja: [usuarioId, parejaId, suma]
+    @Query("SELECT i.usuarioId, i.parejaId, SUM(i.monto) FROM Ingreso i GROUP BY i.usuarioId, i.parejaId")
+    List<Object[]> sumarAgrupadoPorUsuarioYPareja();
 }
-
@@ -1,6 +1,7 @@
 package com.miroma.miroma.repository;
 
 import com.miroma.miroma.entity.LogEvento;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -32,5 +33,19 @@ public interface LogEventoRepository extends JpaRepository<LogEvento, Integer> {
                                                                        @Param("fechaInicio") Timestamp fechaInicio,
                                                                        @Param("fechaFin") Timestamp fechaFin,
                                                                        @Param("texto") String texto);
+    
+    // Página de eventos del usuario por cursor (fecha, id); rango de fechas, texto y cursor opcionales (null)
+    @Query("SELECT e FROM LogEvento e WHERE e.usuarioId = :usuarioId " +
+           "AND (:fechaInicio IS NULL OR e.fecha >= :fechaInicio) AND (:fechaFin IS NULL OR e.fecha <= :fechaFin) " +
+           "AND (:texto IS NULL OR e.accion LIKE CONCAT('%', :texto, '%')) " +
+           "AND (:cursorFecha IS NULL OR e.fecha < :cursorFecha OR (e.fecha = :cursorFecha AND e.id < :cursorId)) " +
+           "ORDER BY e.fecha DESC, e.id DESC")
+    List<LogEvento> findPaginaPorUsuario(@Param("usuarioId") Integer usuarioId,
+                                         @Param("fechaInicio") Timestamp fechaInicio,
+                                         @Param("fechaFin") Timestamp fechaFin,
+                                         @Param("texto") String texto,
+                                         @Param("cursorFecha") Timestamp cursorFecha,
+                                         @Param("cursorId") Integer cursorId,
+                                         Pageable pagina);
 }
 
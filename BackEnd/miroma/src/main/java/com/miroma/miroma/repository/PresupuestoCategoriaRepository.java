@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +16,9 @@ public interface PresupuestoCategoriaRepository extends JpaRepository<Presupuest
     
     // Buscar todas las categorías de un presupuesto
     List<PresupuestoCategoria> findByPresupuestoId(Integer presupuestoId);
+
+    // Buscar las categorías de varios presupuestos en una sola consulta (listados paginados)
+    List<PresupuestoCategoria> findByPresupuestoIdIn(Collection<Integer> presupuestoIds);
     
     // Buscar por presupuesto y categoría
     Optional<PresupuestoCategoria> findByPresupuestoIdAndCategoriaId(Integer presupuestoId, Integer categoriaId);
@@ -1,11 +1,13 @@
 package com.miroma.miroma.repository;
 
 import com.miroma.miroma.entity.Presupuesto;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +17,15 @@ public interface PresupuestoRepository extends JpaRepository<Presupuesto, Intege
     // Buscar presupuestos por pareja_id
     List<Presupuesto> findByParejaIdOrderByFechaCreacionDesc(Integer parejaId);
     
+    // Página de presupuestos de la pareja por cursor (fecha_creacion, id); cursor null = primera página
+    @Query("SELECT p FROM Presupuesto p WHERE p.parejaId = :parejaId " +
+           "AND (:cursorFecha IS NULL OR p.fechaCreacion < :cursorFecha OR (p.fechaCreacion = :cursorFecha AND p.id < :cursorId)) " +
+           "ORDER BY p.fechaCreacion DESC, p.id DESC")
+    List<Presupuesto> findPaginaPorPareja(@Param("parejaId") Integer parejaId,
+                                          @Param("cursorFecha") Timestamp cursorFecha,
+                                          @Param("cursorId") Integer cursorId,
+                                          Pageable pagina);
+    
     // Buscar presupuesto por pareja_id y periodo
     @Query("SELECT p FROM Presupuesto p WHERE p.parejaId = :parejaId AND p.periodo = :periodo")
     Optional<Presupuesto> findByParejaIdAndPeriodo(@Param("parejaId") Integer parejaId, @Param("periodo") String periodo);
@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -17,6 +18,10 @@ public interface TokenBlacklistRepository extends JpaRepository<TokenBlacklist,
     
     boolean existsByTokenHash(String tokenHash);
     
+    // Hashes que siguen vigentes (para reconstruir el filtro de Bloom)
+    @Query("SELECT t.tokenHash FROM TokenBlacklist t WHERE t.fechaExpiracion >= :now")
+    List<String> findHashesVigentes(@Param("now") Timestamp now);
+    
     @Modifying
     @Query("DELETE FROM TokenBlacklist t WHERE t.fechaExpiracion < :now")
     void deleteExpiredTokens(@Param("now") Timestamp now);
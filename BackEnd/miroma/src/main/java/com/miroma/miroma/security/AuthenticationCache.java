@@ -0,0 +1,142 @@
+package com.miroma.miroma.security;
+
+import com.miroma.miroma.service.VerifiedClaims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché en memoria de tokens ya validados, indexada por el hash SHA-256 del token.
+ * Guarda los claims que usa el filtro y el UsuarioAutenticado resuelto, de modo que una
+ * petición con un token en caché se autentica sin consultar la base de datos.
+ *
+ * Está acotada (LRU) y cada entrada vence a los app.auth-cache.ttl milisegundos o
+ * cuando expira el token, lo que ocurra primero. El logout, el cambio de contraseña,
+ * el incremento de tokenVersion y la vinculación de una pareja la invalidan explícitamente;
+ * el TTL limita cuánto puede tardar en verse un cambio hecho desde otra instancia.
+ */
+@Component
+public class AuthenticationCache {
+
+    /**
+     * Datos de un token validado
+     */
+    public record Entrada(VerifiedClaims claims, UsuarioAutenticado usuario, long venceEn) {
+    }
+
+    @Value("${app.auth-cache.enabled:true}")
+    private boolean habilitada;
+
+    @Value("${app.auth-cache.max-entries:10000}")
+    private int maxEntradas;
+
+    @Value("${app.auth-cache.ttl:60000}")
+    private long ttl;
+
+    // Orden de acceso para desalojar la entrada menos usada al superar el máximo
+    private final LinkedHashMap<String, Entrada> entradas = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+
+    /**
+     * Obtiene la entrada vigente de un token
+     * @param tokenHash Hash del token
+     * @return La entrada, o null si no está en caché o ya venció
+     */
+    public Entrada obtener(String tokenHash) {
+        if (!habilitada) {
+            return null;
+        }
+        synchronized (entradas) {
+            Entrada entrada = entradas.get(tokenHash);
+            if (entrada == null) {
+                fallos.incrementAndGet();
+                return null;
+            }
+            if (entrada.venceEn() <= System.currentTimeMillis()) {
+                entradas.remove(tokenHash);
+                fallos.incrementAndGet();
+                return null;
+            }
+            aciertos.incrementAndGet();
+            return entrada;
+        }
+    }
+
+    /**
+     * Guarda un token validado
+     */
+    public void guardar(String tokenHash, VerifiedClaims claims, UsuarioAutenticado usuario) {
+        if (!habilitada) {
+            return;
+        }
+        long venceEn = Math.min(System.currentTimeMillis() + ttl, claims.expiration().toEpochMilli());
+        synchronized (entradas) {
+            entradas.put(tokenHash, new Entrada(claims, usuario, venceEn));
+            if (entradas.size() > maxEntradas) {
+                Iterator<String> masAntigua = entradas.keySet().iterator();
+                masAntigua.next();
+                masAntigua.remove();
+            }
+        }
+    }
+
+    /**
+     * Quita un token de la caché (logout o token agregado a la blacklist)
+     */
+    public void invalidarToken(String tokenHash) {
+        alConfirmar(() -> {
+            synchronized (entradas) {
+                entradas.remove(tokenHash);
+            }
+        });
+    }
+
+    /**
+     * Quita todos los tokens de un usuario (cambio de contraseña, de tokenVersion o de pareja)
+     */
+    public void invalidarUsuario(Integer userId) {
+        alConfirmar(() -> {
+            synchronized (entradas) {
+                entradas.values().removeIf(entrada -> userId.equals(entrada.claims().userId()));
+            }
+        });
+    }
+
+    /**
+     * Aplica la invalidación ahora y, si hay una transacción activa, de nuevo al confirmarla,
+     * para descartar lo que otra petición haya guardado mientras la base de datos aún tenía
+     * los datos anteriores
+     */
+    private void alConfirmar(Runnable invalidacion) {
+        invalidacion.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidacion.run();
+                }
+            });
+        }
+    }
+
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    public long getFallos() {
+        return fallos.get();
+    }
+
+    public int tamanio() {
+        synchronized (entradas) {
+            return entradas.size();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.miroma.miroma.entity.Usuario;
 import com.miroma.miroma.repository.UsuarioRepository;
 import com.miroma.miroma.service.JwtService;
 import com.miroma.miroma.service.TokenBlacklistService;
+import com.miroma.miroma.service.VerifiedClaims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -11,13 +12,12 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Filtro de Spring Security para autenticación JWT
@@ -29,15 +29,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private JwtService jwtService;
 
-    @Autowired
-    private UserDetailsService userDetailsService;
-
     @Autowired
     private TokenBlacklistService tokenBlacklistService;
 
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
     @Override
     protected void doFilterInternal(
             HttpServletRequest request,
@@ -88,60 +88,77 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         try {
+            String tokenHash = tokenBlacklistService.hashToken(token);
+
+            // Token ya validado recientemente: autenticar sin consultar la base de datos
+            AuthenticationCache.Entrada enCache = authenticationCache.obtener(tokenHash);
+            if (enCache != null) {
+                if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                    establecerAutenticacion(request, enCache.usuario());
+                }
+                filterChain.doFilter(request, response);
+                return;
+            }
+
             // Verificar si el token está en la blacklist
-            if (tokenBlacklistService.isTokenBlacklisted(token)) {
+            if (tokenBlacklistService.isTokenHashBlacklisted(tokenHash)) {
                 // Token invalidado, no autenticar
                 filterChain.doFilter(request, response);
                 return;
             }
 
-            // Validar el token
-            if (jwtService.validateToken(token)) {
-                String email = jwtService.extractEmail(token);
-                Integer userId = jwtService.extractUserId(token);
-                Integer tokenVersion = jwtService.extractTokenVersion(token);
+            // Validar el token y leer sus claims en un solo parseo
+            VerifiedClaims claims = parseAndVerify(token);
+            if (claims != null) {
+                String email = claims.email();
+                Integer userId = claims.userId();
+                Integer tokenVersion = claims.tokenVersion();
                 
                 logger.debug("Token válido. Email: " + email + ", UserId: " + userId + ", TokenVersion: " + tokenVersion);
                 
+                // Una sola lectura del usuario: versión del token, estado y datos del principal
+                Usuario usuario = null;
+                if (userId != null) {
+                    usuario = usuarioRepository.findById(userId).orElse(null);
+                } else if (email != null) {
+                    // Tokens antiguos sin userId
+                    usuario = usuarioRepository.findByEmail(email.toLowerCase().trim()).orElse(null);
+                }
+                if (usuario == null) {
+                    logger.warn("Usuario no encontrado para userId: " + userId + ", email: " + email);
+                    filterChain.doFilter(request, response);
+                    return;
+                }
+
                 // Verificar la versión del token contra la del usuario
+                boolean versionVerificada = false;
                 if (userId != null) {
-                    Usuario usuario = usuarioRepository.findById(userId).orElse(null);
-                    if (usuario != null) {
-                        Integer userTokenVersion = usuario.getTokenVersion() != null ? usuario.getTokenVersion() : 1;
-                        if (tokenVersion == null || !tokenVersion.equals(userTokenVersion)) {
-                            // Token inválido por versión (contraseña fue cambiada)
-                            logger.warn("Token version mismatch. Token version: " + tokenVersion + ", User version: " + userTokenVersion);
-                            filterChain.doFilter(request, response);
-                            return;
-                        }
-                    } else {
-                        logger.warn("Usuario no encontrado para userId: " + userId);
+                    Integer userTokenVersion = usuario.getTokenVersion() != null ? usuario.getTokenVersion() : 1;
+                    if (tokenVersion == null || !tokenVersion.equals(userTokenVersion)) {
+                        // Token inválido por versión (contraseña fue cambiada)
+                        logger.warn("Token version mismatch. Token version: " + tokenVersion + ", User version: " + userTokenVersion);
+                        filterChain.doFilter(request, response);
+                        return;
                     }
+                    versionVerificada = true;
                 }
-                
-                // Cargar UserDetails solo si no hay autenticación en el contexto
-                if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    try {
-                        UserDetails userDetails = userDetailsService.loadUserByUsername(email);
-                        
-                        // Crear autenticación y establecerla en el contexto de seguridad
-                        UsernamePasswordAuthenticationToken authentication = 
-                            new UsernamePasswordAuthenticationToken(
-                                userDetails,
-                                null,
-                                userDetails.getAuthorities()
-                            );
-                        
-                        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                        SecurityContextHolder.getContext().setAuthentication(authentication);
-                        
-                        logger.debug("Autenticación establecida para usuario: " + email);
-                        
-                        // Agregar información del usuario al request para compatibilidad con código existente
-                        request.setAttribute("userId", userId);
-                        request.setAttribute("email", email);
-                    } catch (Exception e) {
-                        logger.error("Error al cargar UserDetails para email: " + email, e);
+
+                if (usuario.getActivo() == null || usuario.getActivo() != 1) {
+                    logger.warn("Usuario inactivo: " + usuario.getEmail());
+                    filterChain.doFilter(request, response);
+                    return;
+                }
+
+                // Establecer el principal solo si no hay autenticación en el contexto
+                if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                    UsuarioAutenticado principal = UsuarioAutenticado.de(usuario);
+                    establecerAutenticacion(request, principal);
+
+                    logger.debug("Autenticación establecida para usuario: " + principal.email());
+
+                    // Solo se guardan en caché los tokens cuya versión se comprobó contra el usuario
+                    if (versionVerificada) {
+                        authenticationCache.guardar(tokenHash, claims, principal);
                     }
                 }
             } else {
@@ -154,5 +171,30 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         filterChain.doFilter(request, response);
     }
+
+    private VerifiedClaims parseAndVerify(String token) {
+        try {
+            return jwtService.parseAndVerify(token);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void establecerAutenticacion(HttpServletRequest request, UsuarioAutenticado usuario) {
+        // Crear autenticación y establecerla en el contexto de seguridad (sin roles por ahora)
+        UsernamePasswordAuthenticationToken authentication = 
+            new UsernamePasswordAuthenticationToken(
+                usuario,
+                null,
+                List.of()
+            );
+        
+        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        
+        // Agregar información del usuario al request para compatibilidad con código existente
+        request.setAttribute("userId", usuario.userId());
+        request.setAttribute("email", usuario.email());
+    }
 }
 
@@ -68,6 +68,8 @@ public class SecurityConfig {
                 .requestMatchers("/api/hello").permitAll()
                 .requestMatchers("/api/db/test").permitAll()
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                // Actuator: solo se sirve en el puerto de administración (management.server.port)
+                .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
                 
                 // Todos los demás endpoints requieren autenticación
                 .anyRequest().authenticated()
@@ -146,6 +148,8 @@ public class SecurityConfig {
         configuration.setAllowedOriginPatterns(List.of("*"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
         configuration.setAllowedHeaders(List.of("*"));
+        // Para que el frontend pueda leer el ETag (If-None-Match) y saber si una respuesta es repetida (Idempotency-Key)
+        configuration.setExposedHeaders(List.of("ETag", "Idempotent-Replayed"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
         
@@ -4,13 +4,16 @@ import com.miroma.miroma.entity.Usuario;
 import com.miroma.miroma.repository.UsuarioRepository;
 import com.miroma.miroma.exception.ResourceNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
- * Utilidades de seguridad para obtener información del usuario autenticado
+ * Utilidades de seguridad para obtener información del usuario autenticado.
+ * Los datos salen del principal UsuarioAutenticado, sin consultar la base de datos.
  */
 @Component
 public class SecurityUtils {
@@ -18,23 +21,31 @@ public class SecurityUtils {
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
     /**
-     * Obtiene el ID del usuario autenticado
-     * @return ID del usuario
-     * @throws ResourceNotFoundException Si el usuario no se encuentra
+     * Obtiene el usuario autenticado en la petición actual
+     * @return El principal establecido por JwtAuthenticationFilter
+     * @throws com.miroma.miroma.exception.UnauthorizedException Si no hay usuario autenticado
      */
-    public Integer getCurrentUserId() {
+    public UsuarioAutenticado getUsuarioAutenticado() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        
-        if (authentication == null || !authentication.isAuthenticated()) {
+
+        if (authentication == null || !authentication.isAuthenticated()
+                || !(authentication.getPrincipal() instanceof UsuarioAutenticado usuario)) {
             throw new com.miroma.miroma.exception.UnauthorizedException("Usuario no autenticado");
         }
-        
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        Usuario usuario = usuarioRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new ResourceNotFoundException("usuario", userDetails.getUsername()));
-        
-        return usuario.getId();
+
+        return usuario;
+    }
+
+    /**
+     * Obtiene el ID del usuario autenticado
+     * @return ID del usuario
+     */
+    public Integer getCurrentUserId() {
+        return getUsuarioAutenticado().userId();
     }
 
     /**
@@ -42,14 +53,7 @@ public class SecurityUtils {
      * @return Email del usuario
      */
     public String getCurrentUserEmail() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new com.miroma.miroma.exception.UnauthorizedException("Usuario no autenticado");
-        }
-        
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        return userDetails.getUsername();
+        return getUsuarioAutenticado().email();
     }
 
     /**
@@ -58,16 +62,70 @@ public class SecurityUtils {
      * @throws ResourceNotFoundException Si el usuario no se encuentra
      */
     public Usuario getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new com.miroma.miroma.exception.UnauthorizedException("Usuario no autenticado");
+        Integer userId = getCurrentUserId();
+        return usuarioRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("usuario", userId));
+    }
+
+    /**
+     * Obtiene la pareja de un usuario. Si es el usuario autenticado y ya tiene pareja se
+     * toma del principal; si no (otro hilo, importaciones, pruebas, o usuario aún sin pareja
+     * que pudo vincularse desde otra sesión) se consulta la base de datos.
+     * @param userId ID del usuario
+     * @return ID de la pareja, o null si no tiene
+     * @throws IllegalArgumentException Si el usuario no existe
+     */
+    public Integer obtenerParejaId(Integer userId) {
+        UsuarioAutenticado actual = principalActual();
+        if (actual != null && actual.userId().equals(userId) && actual.parejaId() != null) {
+            return actual.parejaId();
+        }
+
+        Usuario usuario = usuarioRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        if (actual != null && actual.userId().equals(userId) && usuario.getParejaId() != null) {
+            // Se vinculó desde otra sesión o instancia: las próximas peticiones ya la traen
+            refrescarParejaId(userId, usuario.getParejaId());
         }
-        
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        return usuarioRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new ResourceNotFoundException("usuario", userDetails.getUsername()));
+        return usuario.getParejaId();
     }
-}
 
+    /**
+     * Actualiza la pareja de un usuario recién vinculado: descarta sus tokens de la caché
+     * de autenticación (el filtro vuelve a leer el usuario en su próxima petición) y, si es
+     * el usuario de esta petición, reemplaza el principal. Con una transacción activa el
+     * principal se reemplaza al confirmarla.
+     */
+    public void refrescarParejaId(Integer userId, Integer parejaId) {
+        authenticationCache.invalidarUsuario(userId);
+
+        Runnable reemplazarPrincipal = () -> {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof UsuarioAutenticado actual
+                    && actual.userId().equals(userId)) {
+                UsernamePasswordAuthenticationToken nueva = new UsernamePasswordAuthenticationToken(
+                        actual.conParejaId(parejaId), null, authentication.getAuthorities());
+                nueva.setDetails(authentication.getDetails());
+                SecurityContextHolder.getContext().setAuthentication(nueva);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reemplazarPrincipal.run();
+                }
+            });
+        } else {
+            reemplazarPrincipal.run();
+        }
+    }
 
+    private UsuarioAutenticado principalActual() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UsuarioAutenticado usuario) {
+            return usuario;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package com.miroma.miroma.security;
+
+import com.miroma.miroma.entity.Usuario;
+
+import java.security.Principal;
+
+/**
+ * Principal de la autenticación que establece JwtAuthenticationFilter.
+ * Lleva los datos del usuario que se usan en cada petición (id, email, pareja y versión
+ * del token), leídos una sola vez al validar el token, para que los controladores y
+ * servicios no vuelvan a consultar la tabla usuarios.
+ *
+ * parejaId es null mientras el usuario no tenga pareja: en ese caso SecurityUtils la
+ * vuelve a buscar en la base de datos, porque pudo vincularse desde otra sesión.
+ */
+public record UsuarioAutenticado(Integer userId, String email, Integer parejaId, Integer tokenVersion)
+        implements Principal {
+
+    static UsuarioAutenticado de(Usuario usuario) {
+        return new UsuarioAutenticado(usuario.getId(), usuario.getEmail(), usuario.getParejaId(),
+                usuario.getTokenVersion() != null ? usuario.getTokenVersion() : 1);
+    }
+
+    UsuarioAutenticado conParejaId(Integer nuevaParejaId) {
+        return new UsuarioAutenticado(userId, email, nuevaParejaId, tokenVersion);
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -0,0 +1,173 @@
+package com.miroma.miroma.service;
+
+import com.miroma.miroma.entity.CategoriaEgreso;
+import com.miroma.miroma.repository.CategoriaEgresoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Caché en memoria del catálogo de categorías de egreso (tabla chica, global y que casi no cambia).
+ *
+ * Guarda una instantánea inmutable con el mapa id -> categoría y la lista ordenada por nombre.
+ * Las lecturas no bloquean: toman la instantánea vigente. Las altas, cambios y bajas de
+ * CategoriaEgresoService la reemplazan entera al confirmar su transacción (copy-on-write),
+ * así que nunca se ve un catálogo a medio actualizar. Además se recarga cada
+ * app.categorias.cache.refresh-interval milisegundos para incorporar cambios hechos desde
+ * otra instancia; un ID que no está en la instantánea se busca en la base de datos.
+ *
+ * Las categorías devueltas son copias desconectadas compartidas entre hilos: no deben modificarse.
+ */
+@Component
+public class CategoriaEgresoCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CategoriaEgresoCache.class);
+
+    private record Instantanea(Map<Integer, CategoriaEgreso> porId, List<CategoriaEgreso> ordenadas) {
+    }
+
+    @Autowired
+    private CategoriaEgresoRepository categoriaEgresoRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicReference<Instantanea> instantanea = new AtomicReference<>();
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong recargas = new AtomicLong();
+
+    public CategoriaEgresoCache(PlatformTransactionManager transactionManager) {
+        // La recarga corre en su propia transacción: también se invoca tras confirmar otra
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Busca una categoría por ID
+     */
+    public Optional<CategoriaEgreso> buscar(Integer id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        CategoriaEgreso categoria = obtenerInstantanea().porId().get(id);
+        if (categoria != null) {
+            aciertos.incrementAndGet();
+            return Optional.of(categoria);
+        }
+        fallos.incrementAndGet();
+        // Puede haberse creado desde otra instancia después de la última recarga
+        Optional<CategoriaEgreso> enBase = categoriaEgresoRepository.findById(id);
+        if (enBase.isPresent()) {
+            recargar();
+        }
+        return enBase;
+    }
+
+    /**
+     * Todas las categorías ordenadas por nombre (lista inmutable)
+     */
+    public List<CategoriaEgreso> listar() {
+        aciertos.incrementAndGet();
+        return obtenerInstantanea().ordenadas();
+    }
+
+    /**
+     * Recarga el catálogo cuando se confirme la transacción actual (o ahora, si no hay una)
+     */
+    public void recargarAlConfirmar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recargar();
+                }
+            });
+        } else {
+            recargar();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.categorias.cache.refresh-interval:300000}",
+               fixedDelayString = "${app.categorias.cache.refresh-interval:300000}")
+    public void recargarPeriodicamente() {
+        try {
+            recargar();
+        } catch (Exception e) {
+            // Se mantiene la instantánea anterior hasta el próximo intento
+            logger.error("Error al recargar el catálogo de categorías: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Lee el catálogo completo y reemplaza la instantánea. Las recargas se serializan para
+     * que una lectura más vieja no pise a una más nueva
+     */
+    public synchronized void recargar() {
+        List<CategoriaEgreso> categorias = transactionTemplate.execute(
+                status -> categoriaEgresoRepository.findAllByOrderByNombreAsc());
+
+        Map<Integer, CategoriaEgreso> porId = new LinkedHashMap<>();
+        List<CategoriaEgreso> ordenadas = new ArrayList<>(categorias.size());
+        for (CategoriaEgreso categoria : categorias) {
+            CategoriaEgreso copia = copiar(categoria);
+            porId.put(copia.getId(), copia);
+            ordenadas.add(copia);
+        }
+        instantanea.set(new Instantanea(Map.copyOf(porId), List.copyOf(ordenadas)));
+        recargas.incrementAndGet();
+        logger.debug("Catálogo de categorías recargado: {} categoría(s)", ordenadas.size());
+    }
+
+    private Instantanea obtenerInstantanea() {
+        Instantanea actual = instantanea.get();
+        if (actual == null) {
+            synchronized (this) {
+                actual = instantanea.get();
+                if (actual == null) {
+                    recargar();
+                    actual = instantanea.get();
+                }
+            }
+        }
+        return actual;
+    }
+
+    private CategoriaEgreso copiar(CategoriaEgreso categoria) {
+        CategoriaEgreso copia = new CategoriaEgreso(categoria.getNombre(), categoria.getDescripcion());
+        copia.setId(categoria.getId());
+        return copia;
+    }
+
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    public long getFallos() {
+        return fallos.get();
+    }
+
+    public long getRecargas() {
+        return recargas.get();
+    }
+
+    public int tamanio() {
+        Instantanea actual = instantanea.get();
+        return actual != null ? actual.ordenadas().size() : 0;
+    }
+}
@@ -20,6 +20,12 @@ public class CategoriaEgresoService {
     @Autowired
     private LogEventoService logEventoService;
 
+    @Autowired
+    private CategoriaEgresoCache categoriaEgresoCache;
+
+    @Autowired
+    private VersionDatosService versionDatosService;
+
     @Transactional
     public CategoriaEgresoResponse crearCategoria(Integer userId, CategoriaEgresoRequest request) {
         // Verificar si ya existe una categoría con el mismo nombre (case-insensitive)
@@ -33,19 +39,21 @@ public class CategoriaEgresoService {
 
         categoria = categoriaEgresoRepository.save(categoria);
         categoriaEgresoRepository.flush();
+        categoriaEgresoCache.recargarAlConfirmar();
 
         return mapToResponse(categoria);
     }
 
+    @Transactional(readOnly = true)
     public List<CategoriaEgresoResponse> obtenerTodasLasCategorias() {
-        List<CategoriaEgreso> categorias = categoriaEgresoRepository.findAllByOrderByNombreAsc();
-        return categorias.stream()
+        return categoriaEgresoCache.listar().stream()
                 .map(this::mapToResponse)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public CategoriaEgresoResponse obtenerCategoriaPorId(Integer id) {
-        CategoriaEgreso categoria = categoriaEgresoRepository.findById(id)
+        CategoriaEgreso categoria = categoriaEgresoCache.buscar(id)
                 .orElseThrow(() -> new IllegalArgumentException("Categoría no encontrada"));
         return mapToResponse(categoria);
     }
@@ -68,6 +76,9 @@ public class CategoriaEgresoService {
 
         categoria = categoriaEgresoRepository.save(categoria);
         categoriaEgresoRepository.flush();
+        categoriaEgresoCache.recargarAlConfirmar();
+        // El nombre de la categoría aparece en los listados de todas las parejas
+        versionDatosService.incrementarTodas();
 
         // Registrar evento en log
         logEventoService.registrarEvento(userId, 
@@ -86,6 +97,8 @@ public class CategoriaEgresoService {
             String.format("Eliminó la categoría de egreso (ID: %d) - Nombre: '%s'", id, categoria.getNombre()));
 
         categoriaEgresoRepository.delete(categoria);
+        categoriaEgresoCache.recargarAlConfirmar();
+        versionDatosService.incrementarTodas();
     }
 
     private CategoriaEgresoResponse mapToResponse(CategoriaEgreso categoria) {
@@ -5,6 +5,7 @@ import com.miroma.miroma.entity.IntentoLogin;
 import com.miroma.miroma.repository.IntentoLoginRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
@@ -20,6 +21,7 @@ public class ComportamientoExtranoService {
      * Obtiene todos los comportamientos extraños detectados
      * @return Lista de comportamientos extraños
      */
+    @Transactional(readOnly = true)
     public List<ComportamientoExtranoResponse> obtenerComportamientosExtranos() {
         List<IntentoLogin> intentos = intentoLoginRepository.findComportamientosExtranos();
         List<ComportamientoExtranoResponse> comportamientos = new ArrayList<>();
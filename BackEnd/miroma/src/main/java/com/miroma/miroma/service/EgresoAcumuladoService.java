@@ -0,0 +1,252 @@
+package com.miroma.miroma.service;
+
+import com.miroma.miroma.entity.EgresoAcumulado;
+import com.miroma.miroma.repository.EgresoAcumuladoRepository;
+import com.miroma.miroma.repository.EgresoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Mantiene el acumulado de egresos por (pareja, presupuesto, categoría).
+ * Las altas, cambios y bajas de egresos actualizan el acumulado dentro de la misma
+ * transacción, de modo que consultar lo gastado es una lectura indexada en lugar
+ * de recorrer todos los egresos de la pareja.
+ */
+@Service
+public class EgresoAcumuladoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EgresoAcumuladoService.class);
+
+    /**
+     * (período, categoría) de un acumulado dentro de la pareja. Cuando una transacción
+     * modifica más de un acumulado toma las filas en este orden: dos transacciones sobre las
+     * mismas claves esperan una a la otra en lugar de bloquearse mutuamente.
+     */
+    public record Clave(Integer periodoId, Integer categoriaId) implements Comparable<Clave> {
+
+        private static final Comparator<Clave> ORDEN =
+                Comparator.comparing(Clave::periodoId).thenComparing(Clave::categoriaId);
+
+        @Override
+        public int compareTo(Clave otra) {
+            return ORDEN.compare(this, otra);
+        }
+    }
+
+    @Autowired
+    private EgresoAcumuladoRepository egresoAcumuladoRepository;
+
+    @Autowired
+    private EgresoRepository egresoRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Suma el monto de un egreso al acumulado de su período y categoría solo si lo gastado
+     * no pasa del monto asignado. La comprobación y la suma son un único UPDATE condicional:
+     * la fila queda bloqueada hasta el fin de la transacción, de modo que dos egresos
+     * concurrentes de la misma categoría se aplican uno detrás del otro y el segundo se
+     * evalúa contra lo que dejó el primero. Egresos de otras categorías o períodos no esperan.
+     * @param asignado Tope de lo gastado en la categoría para el período
+     * @return true si se registró; false si el egreso supera lo disponible
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean registrarSiHayDisponible(Integer parejaId, Integer presupuestoId, Integer categoriaId,
+                                            BigDecimal monto, BigDecimal asignado) {
+        if (egresoAcumuladoRepository.acumularHasta(parejaId, presupuestoId, categoriaId, monto, asignado) == 1) {
+            return true;
+        }
+        // Primer egreso de la categoría en el período: crear la fila en cero y reintentar una vez
+        egresoAcumuladoRepository.crearSiNoExiste(parejaId, presupuestoId, categoriaId);
+        return egresoAcumuladoRepository.acumularHasta(parejaId, presupuestoId, categoriaId, monto, asignado) == 1;
+    }
+
+    /**
+     * Pasa el monto de un egreso modificado de su acumulado anterior al nuevo, solo si el
+     * monto nuevo entra en lo asignado. Si la clave no cambia es un único UPDATE con la
+     * diferencia (condicional solo si aumenta); si cambia, las dos filas se toman en el orden
+     * de Clave, así dos cambios concurrentes en sentidos opuestos entre las mismas categorías
+     * no se bloquean mutuamente.
+     * @return true si se registró; false si el monto nuevo supera lo disponible (lo ya
+     *         modificado lo deshace el rollback de la transacción)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean moverSiHayDisponible(Integer parejaId, Clave anterior, BigDecimal montoAnterior,
+                                        Clave nueva, BigDecimal montoNuevo, BigDecimal asignado) {
+        if (anterior.equals(nueva)) {
+            BigDecimal diferencia = montoNuevo.subtract(montoAnterior);
+            if (diferencia.signum() <= 0) {
+                acumular(parejaId, nueva.periodoId(), nueva.categoriaId(), diferencia);
+                return true;
+            }
+            return registrarSiHayDisponible(parejaId, nueva.periodoId(), nueva.categoriaId(), diferencia, asignado);
+        }
+        if (anterior.compareTo(nueva) < 0) {
+            revertirEgreso(parejaId, anterior.periodoId(), anterior.categoriaId(), montoAnterior);
+            return registrarSiHayDisponible(parejaId, nueva.periodoId(), nueva.categoriaId(), montoNuevo, asignado);
+        }
+        if (!registrarSiHayDisponible(parejaId, nueva.periodoId(), nueva.categoriaId(), montoNuevo, asignado)) {
+            return false;
+        }
+        revertirEgreso(parejaId, anterior.periodoId(), anterior.categoriaId(), montoAnterior);
+        return true;
+    }
+
+    /**
+     * Bloquea los acumulados de las claves en el orden de Clave (creando en cero los que no
+     * existen) y devuelve lo gastado en cada uno. Hasta el fin de la transacción ningún otro
+     * egreso los modifica: quien llama puede validar varias operaciones contra estos montos y
+     * aplicar después las diferencias sin que el disponible cambie en el medio.
+     * @return Mapa clave -> gastado
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Clave, BigDecimal> bloquearGastados(Integer parejaId, Collection<Clave> claves) {
+        Map<Clave, BigDecimal> gastados = new HashMap<>();
+        for (Clave clave : new TreeSet<>(claves)) {
+            Optional<BigDecimal> gastado =
+                    egresoAcumuladoRepository.bloquearGastado(parejaId, clave.periodoId(), clave.categoriaId());
+            if (gastado.isEmpty()) {
+                egresoAcumuladoRepository.crearSiNoExiste(parejaId, clave.periodoId(), clave.categoriaId());
+                gastado = egresoAcumuladoRepository.bloquearGastado(parejaId, clave.periodoId(), clave.categoriaId());
+            }
+            gastados.put(clave, gastado.orElse(BigDecimal.ZERO));
+        }
+        return gastados;
+    }
+
+    /**
+     * Resta el monto de un egreso del acumulado de su período y categoría
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void revertirEgreso(Integer parejaId, Integer presupuestoId, Integer categoriaId, BigDecimal monto) {
+        acumular(parejaId, presupuestoId, categoriaId, monto.negate());
+    }
+
+    /**
+     * Suma un monto al acumulado de un período y categoría (por ejemplo el total de
+     * varios egresos importados juntos)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarMonto(Integer parejaId, Integer presupuestoId, Integer categoriaId, BigDecimal monto) {
+        acumular(parejaId, presupuestoId, categoriaId, monto);
+    }
+
+    private void acumular(Integer parejaId, Integer presupuestoId, Integer categoriaId, BigDecimal monto) {
+        if (monto == null || monto.signum() == 0) {
+            return;
+        }
+        egresoAcumuladoRepository.acumular(parejaId, presupuestoId, categoriaId, monto);
+    }
+
+    /**
+     * Obtiene lo gastado en una categoría de un presupuesto
+     * @return Monto gastado, o cero si no hay egresos registrados
+     */
+    public BigDecimal obtenerGastado(Integer parejaId, Integer presupuestoId, Integer categoriaId) {
+        return egresoAcumuladoRepository.obtenerGastado(parejaId, presupuestoId, categoriaId)
+                .orElse(BigDecimal.ZERO);
+    }
+
+    /**
+     * Obtiene lo gastado por presupuesto y categoría de toda la pareja en una sola consulta
+     * @return Mapa presupuestoId -> (categoriaId -> gastado)
+     */
+    public Map<Integer, Map<Integer, BigDecimal>> obtenerGastadosPorPareja(Integer parejaId) {
+        Map<Integer, Map<Integer, BigDecimal>> gastados = new HashMap<>();
+        for (EgresoAcumulado acumulado : egresoAcumuladoRepository.findByParejaId(parejaId)) {
+            gastados.computeIfAbsent(acumulado.getPresupuestoId(), k -> new HashMap<>())
+                    .put(acumulado.getCategoriaId(), acumulado.getGastado());
+        }
+        return gastados;
+    }
+
+    /**
+     * Reconstruye el acumulado a partir de la tabla de egresos y corrige las diferencias.
+     * Se ejecuta poco después del arranque y luego una vez al día.
+     * @return Cantidad de acumulados que estaban desfasados
+     */
+    @Scheduled(initialDelayString = "${app.egresos-acumulados.reconciliacion.initial-delay:60000}",
+               fixedDelayString = "${app.egresos-acumulados.reconciliacion.interval:86400000}")
+    public int reconciliar() {
+        try {
+            // Totales reales calculados desde egresos
+            Map<List<Integer>, BigDecimal> esperados = new HashMap<>();
+            for (Object[] fila : egresoRepository.sumarAgrupadoPorPeriodoYCategoria()) {
+                esperados.put(List.of((Integer) fila[0], (Integer) fila[1], (Integer) fila[2]), (BigDecimal) fila[3]);
+            }
+
+            // Comparar contra el acumulado mantenido
+            List<List<Integer>> desfasados = new ArrayList<>();
+            for (EgresoAcumulado acumulado : egresoAcumuladoRepository.findAll()) {
+                List<Integer> clave = List.of(acumulado.getParejaId(), acumulado.getPresupuestoId(), acumulado.getCategoriaId());
+                BigDecimal esperado = esperados.remove(clave);
+                if (!coinciden(acumulado.getGastado(), esperado)) {
+                    desfasados.add(clave);
+                }
+            }
+            // Lo que queda en esperados no tiene fila de acumulado
+            for (Map.Entry<List<Integer>, BigDecimal> faltante : esperados.entrySet()) {
+                if (faltante.getValue().signum() != 0) {
+                    desfasados.add(faltante.getKey());
+                }
+            }
+
+            // Corregir cada clave bajo bloqueo, recalculando con el dato vigente
+            for (List<Integer> clave : desfasados) {
+                transactionTemplate.executeWithoutResult(status -> corregir(clave.get(0), clave.get(1), clave.get(2)));
+            }
+
+            if (desfasados.isEmpty()) {
+                logger.info("Reconciliación de egresos acumulados: sin diferencias");
+            } else {
+                logger.warn("Reconciliación de egresos acumulados: {} acumulado(s) corregido(s)", desfasados.size());
+            }
+            return desfasados.size();
+        } catch (Exception e) {
+            logger.error("Error al reconciliar egresos acumulados: {}", e.getMessage(), e);
+            return -1;
+        }
+    }
+
+    private void corregir(Integer parejaId, Integer presupuestoId, Integer categoriaId) {
+        // Bloquear primero la fila para que ningún egreso concurrente la modifique mientras recalculamos
+        EgresoAcumulado acumulado = egresoAcumuladoRepository.bloquear(parejaId, presupuestoId, categoriaId)
+                .orElse(null);
+        BigDecimal real = egresoRepository.sumarPorPeriodoYCategoria(parejaId, presupuestoId, categoriaId);
+
+        if (acumulado == null) {
+            logger.warn("Acumulado faltante (pareja {}, presupuesto {}, categoría {}): se registra {}",
+                    parejaId, presupuestoId, categoriaId, real);
+            egresoAcumuladoRepository.acumular(parejaId, presupuestoId, categoriaId, real);
+        } else if (!coinciden(acumulado.getGastado(), real)) {
+            logger.warn("Acumulado desfasado (pareja {}, presupuesto {}, categoría {}): {} -> {}",
+                    parejaId, presupuestoId, categoriaId, acumulado.getGastado(), real);
+            acumulado.setGastado(real);
+            egresoAcumuladoRepository.save(acumulado);
+        }
+    }
+
+    private boolean coinciden(BigDecimal actual, BigDecimal esperado) {
+        BigDecimal a = Objects.requireNonNullElse(actual, BigDecimal.ZERO);
+        BigDecimal b = Objects.requireNonNullElse(esperado, BigDecimal.ZERO);
+        return a.compareTo(b) == 0;
+    }
+}
@@ -0,0 +1,488 @@
+package com.miroma.miroma.service;
+
+import com.miroma.miroma.dto.EgresoLoteRequest;
+import com.miroma.miroma.dto.EgresoLoteResponse;
+import com.miroma.miroma.dto.EgresoRequest;
+import com.miroma.miroma.entity.CategoriaEgreso;
+import com.miroma.miroma.entity.Egreso;
+import com.miroma.miroma.entity.EgresoParticipacion;
+import com.miroma.miroma.entity.Pareja;
+import com.miroma.miroma.entity.Presupuesto;
+import com.miroma.miroma.entity.PresupuestoCategoria;
+import com.miroma.miroma.repository.EgresoRepository;
+import com.miroma.miroma.repository.ParejaRepository;
+import com.miroma.miroma.repository.PresupuestoCategoriaRepository;
+import com.miroma.miroma.repository.PresupuestoRepository;
+import com.miroma.miroma.security.SecurityUtils;
+import com.miroma.miroma.service.EgresoAcumuladoService.Clave;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Lotes de altas, cambios y bajas de egresos (POST /api/egresos/batch).
+ *
+ * Como en la importación CSV, la pareja, los períodos, los porcentajes, los ingresos y los
+ * egresos a modificar se consultan una vez por lote. Los egresos a modificar o eliminar se
+ * leen bloqueados en orden de id y después lo ya gastado se lee bloqueando los acumulados que
+ * el lote puede tocar, en el orden de EgresoAcumuladoService.Clave (el mismo orden, egreso y
+ * luego acumulado, que un cambio individual en EgresoService), así que ningún egreso
+ * concurrente los cambia hasta confirmar. Cada operación se valida contra esa
+ * foto descontando (o devolviendo) su monto del disponible en memoria, en el orden del lote,
+ * y después los acumulados se ajustan con una sola diferencia por (período, categoría).
+ * Egresos y participaciones se escriben con batches JDBC. Se registra un solo evento de log
+ * por lote.
+ *
+ * En modo TODO_O_NADA basta un rechazo para que no se aplique nada; en modo PARCIAL se
+ * aplican las operaciones válidas.
+ */
+@Service
+public class EgresoLoteService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EgresoLoteService.class);
+
+    private static final String UPDATE_EGRESO_SQL =
+            "UPDATE egresos SET monto_total = ?, fecha = ?, descripcion = ?, categoria_id = ?, periodo_id = ? WHERE id = ?";
+
+    private static final String DELETE_PARTICIPACIONES_SQL = "DELETE FROM egreso_participaciones WHERE egreso_id = ?";
+
+    private static final String DELETE_EGRESO_SQL = "DELETE FROM egresos WHERE id = ?";
+
+    /**
+     * Operación válida contra la foto: anterior es el egreso actual (null al crear) y nuevo
+     * el egreso a escribir (null al eliminar)
+     */
+    private record Aceptada(EgresoLoteResponse.ResultadoOperacion resultado, Egreso anterior, Egreso nuevo,
+                            CategoriaEgreso categoria, Presupuesto presupuesto) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SecurityUtils securityUtils;
+
+    @Autowired
+    private ParejaRepository parejaRepository;
+
+    @Autowired
+    private EgresoRepository egresoRepository;
+
+    @Autowired
+    private CategoriaEgresoCache categoriaEgresoCache;
+
+    @Autowired
+    private PresupuestoRepository presupuestoRepository;
+
+    @Autowired
+    private PresupuestoCategoriaRepository presupuestoCategoriaRepository;
+
+    @Autowired
+    private EgresoService egresoService;
+
+    @Autowired
+    private EgresoAcumuladoService egresoAcumuladoService;
+
+    @Autowired
+    private IngresoAcumuladoService ingresoAcumuladoService;
+
+    @Autowired
+    private ResumenFinancieroCache resumenFinancieroCache;
+
+    @Autowired
+    private VersionDatosService versionDatosService;
+
+    @Autowired
+    private LogEventoService logEventoService;
+
+    @Value("${app.egresos.lote.max-operaciones:500}")
+    private int maxOperaciones;
+
+    /**
+     * Valida y aplica un lote de operaciones sobre los egresos de la pareja del usuario
+     * @throws IllegalArgumentException Si el lote es demasiado grande o el usuario no tiene pareja
+     */
+    @Transactional
+    public EgresoLoteResponse procesarLote(Integer userId, EgresoLoteRequest request) {
+        List<EgresoLoteRequest.Operacion> operaciones = request.getOperaciones();
+        if (operaciones.size() > maxOperaciones) {
+            throw new IllegalArgumentException(
+                    String.format("El lote no puede tener más de %d operaciones", maxOperaciones));
+        }
+        EgresoLoteRequest.Modo modo = request.getModo() != null ? request.getModo() : EgresoLoteRequest.Modo.TODO_O_NADA;
+
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
+        if (parejaId == null) {
+            throw new IllegalArgumentException("Debes tener una pareja vinculada para registrar egresos");
+        }
+        Pareja pareja = parejaRepository.findById(parejaId)
+                .orElseThrow(() -> new IllegalArgumentException("Pareja no encontrada"));
+
+        Foto foto = new Foto(pareja, operaciones);
+
+        EgresoLoteResponse respuesta = new EgresoLoteResponse();
+        respuesta.setModo(modo);
+        respuesta.setProcesadas(operaciones.size());
+        List<Aceptada> aceptadas = new ArrayList<>();
+        Set<Integer> idsEnLote = new HashSet<>();
+        for (int i = 0; i < operaciones.size(); i++) {
+            EgresoLoteRequest.Operacion operacion = operaciones.get(i);
+            EgresoLoteResponse.ResultadoOperacion resultado =
+                    new EgresoLoteResponse.ResultadoOperacion(i, operacion.getTipo(), operacion.getId());
+            respuesta.getResultados().add(resultado);
+            try {
+                Aceptada aceptada = validar(operacion, resultado, foto, parejaId, idsEnLote);
+                aceptadas.add(aceptada);
+                if (aceptada.anterior() != null) {
+                    idsEnLote.add(aceptada.anterior().getId());
+                }
+            } catch (IllegalArgumentException e) {
+                resultado.setError(e.getMessage());
+            }
+        }
+
+        boolean hayRechazos = aceptadas.size() < operaciones.size();
+        if (aceptadas.isEmpty() || (modo == EgresoLoteRequest.Modo.TODO_O_NADA && hayRechazos)) {
+            respuesta.setRechazadas(operaciones.size() - aceptadas.size());
+            return respuesta;
+        }
+
+        ajustarAcumulados(parejaId, aceptadas, foto);
+        escribir(pareja, aceptadas, foto);
+
+        int creados = 0;
+        int actualizados = 0;
+        int eliminados = 0;
+        for (Aceptada aceptada : aceptadas) {
+            aceptada.resultado().setAplicada(true);
+            if (aceptada.nuevo() != null) {
+                aceptada.resultado().setId(aceptada.nuevo().getId());
+                aceptada.resultado().setEgreso(
+                        EgresoService.mapToResponse(aceptada.nuevo(), aceptada.categoria(), aceptada.presupuesto()));
+            }
+            switch (aceptada.resultado().getTipo()) {
+                case CREAR -> creados++;
+                case ACTUALIZAR -> actualizados++;
+                case ELIMINAR -> eliminados++;
+            }
+        }
+        respuesta.setAplicadas(aceptadas.size());
+        respuesta.setRechazadas(operaciones.size() - aceptadas.size());
+
+        resumenFinancieroCache.invalidarPareja(parejaId);
+        versionDatosService.incrementar(parejaId);
+        logger.info("Lote de egresos (pareja {}): {} creado(s), {} actualizado(s), {} eliminado(s), {} rechazado(s)",
+                parejaId, creados, actualizados, eliminados, respuesta.getRechazadas());
+        logEventoService.registrarEvento(userId,
+                String.format("Procesó un lote de egresos: %d creado(s), %d actualizado(s), %d eliminado(s) (%d rechazado(s))",
+                        creados, actualizados, eliminados, respuesta.getRechazadas()));
+        return respuesta;
+    }
+
+    /**
+     * Valida una operación contra la foto y, si es válida, descuenta o devuelve su monto
+     * del disponible en memoria
+     */
+    private Aceptada validar(EgresoLoteRequest.Operacion operacion, EgresoLoteResponse.ResultadoOperacion resultado,
+                             Foto foto, Integer parejaId, Set<Integer> idsEnLote) {
+        EgresoLoteRequest.TipoOperacion tipo = operacion.getTipo();
+
+        Egreso anterior = null;
+        if (tipo != EgresoLoteRequest.TipoOperacion.CREAR) {
+            if (operacion.getId() == null) {
+                throw new IllegalArgumentException("El ID del egreso es obligatorio");
+            }
+            if (idsEnLote.contains(operacion.getId())) {
+                throw new IllegalArgumentException("El egreso ya tiene otra operación en el lote");
+            }
+            anterior = foto.existentes.get(operacion.getId());
+            if (anterior == null) {
+                throw new IllegalArgumentException("Egreso no encontrado");
+            }
+            if (!anterior.getParejaId().equals(parejaId)) {
+                throw new IllegalArgumentException(tipo == EgresoLoteRequest.TipoOperacion.ELIMINAR
+                        ? "No tienes permiso para eliminar este egreso"
+                        : "No tienes permiso para modificar este egreso");
+            }
+        }
+        if (tipo == EgresoLoteRequest.TipoOperacion.ELIMINAR) {
+            foto.devolver(claveDe(anterior), anterior.getMontoTotal());
+            return new Aceptada(resultado, anterior, null, null, null);
+        }
+
+        EgresoRequest datos = operacion.getEgreso();
+        if (datos == null) {
+            throw new IllegalArgumentException("Los datos del egreso son obligatorios");
+        }
+        CategoriaEgreso categoria = categoriaEgresoCache.buscar(datos.getCategoriaId())
+                .orElseThrow(() -> new IllegalArgumentException("Categoría no encontrada"));
+        Presupuesto presupuesto = foto.periodos.get(datos.getPeriodoId());
+        if (presupuesto == null) {
+            throw new IllegalArgumentException("Período no encontrado");
+        }
+
+        Egreso nuevo = new Egreso(parejaId, datos.getMontoTotal(), Date.valueOf(datos.getFecha()),
+                datos.getDescripcion() != null ? datos.getDescripcion().trim() : null,
+                datos.getCategoriaId(), datos.getPeriodoId());
+
+        if (anterior == null) {
+            foto.descontar(new Clave(presupuesto.getId(), categoria.getId()), nuevo.getMontoTotal(),
+                    categoria, presupuesto);
+        } else {
+            nuevo.setId(anterior.getId());
+            nuevo.setFechaCreacion(anterior.getFechaCreacion());
+            // El monto anterior vuelve al disponible antes de evaluar el nuevo
+            Clave claveAnterior = claveDe(anterior);
+            foto.devolver(claveAnterior, anterior.getMontoTotal());
+            try {
+                foto.descontar(new Clave(presupuesto.getId(), categoria.getId()), nuevo.getMontoTotal(),
+                        categoria, presupuesto);
+            } catch (IllegalArgumentException e) {
+                foto.devolver(claveAnterior, anterior.getMontoTotal().negate());
+                throw e;
+            }
+        }
+        return new Aceptada(resultado, anterior, nuevo, categoria, presupuesto);
+    }
+
+    /**
+     * Aplica a cada acumulado la diferencia neta de las operaciones aceptadas, en el orden de
+     * Clave. Las filas están bloqueadas desde la foto y las operaciones se validaron contra
+     * ellas, así que lo que aumenta siempre entra; el UPDATE condicional queda como resguardo
+     * del tope.
+     */
+    private void ajustarAcumulados(Integer parejaId, List<Aceptada> aceptadas, Foto foto) {
+        Map<Clave, BigDecimal> diferencias = new TreeMap<>();
+        for (Aceptada aceptada : aceptadas) {
+            if (aceptada.anterior() != null) {
+                diferencias.merge(claveDe(aceptada.anterior()), aceptada.anterior().getMontoTotal().negate(), BigDecimal::add);
+            }
+            if (aceptada.nuevo() != null) {
+                diferencias.merge(claveDe(aceptada.nuevo()), aceptada.nuevo().getMontoTotal(), BigDecimal::add);
+            }
+        }
+
+        diferencias.forEach((clave, diferencia) -> {
+            if (diferencia.signum() <= 0) {
+                egresoAcumuladoService.revertirEgreso(parejaId, clave.periodoId(), clave.categoriaId(), diferencia.negate());
+            } else if (!egresoAcumuladoService.registrarSiHayDisponible(parejaId, clave.periodoId(), clave.categoriaId(),
+                    diferencia, foto.asignados.get(clave))) {
+                throw new IllegalStateException("El acumulado de egresos cambió mientras estaba bloqueado");
+            }
+        });
+    }
+
+    /**
+     * Escribe las operaciones aceptadas con batches JDBC: borra las participaciones de los
+     * egresos modificados o eliminados, elimina, actualiza, inserta los egresos nuevos y
+     * vuelve a insertar las participaciones de los creados y modificados
+     */
+    private void escribir(Pareja pareja, List<Aceptada> aceptadas, Foto foto) {
+        List<Egreso> eliminados = new ArrayList<>();
+        List<Egreso> actualizados = new ArrayList<>();
+        List<Egreso> creados = new ArrayList<>();
+        List<Integer> sinParticipaciones = new ArrayList<>();
+        for (Aceptada aceptada : aceptadas) {
+            if (aceptada.anterior() != null) {
+                sinParticipaciones.add(aceptada.anterior().getId());
+            }
+            if (aceptada.nuevo() == null) {
+                eliminados.add(aceptada.anterior());
+            } else if (aceptada.anterior() == null) {
+                creados.add(aceptada.nuevo());
+            } else {
+                actualizados.add(aceptada.nuevo());
+            }
+        }
+
+        if (!sinParticipaciones.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_PARTICIPACIONES_SQL, sinParticipaciones, sinParticipaciones.size(),
+                    (ps, egresoId) -> ps.setInt(1, egresoId));
+        }
+        if (!eliminados.isEmpty()) {
+            verificarUnaFilaPorEgreso(jdbcTemplate.batchUpdate(DELETE_EGRESO_SQL, eliminados, eliminados.size(),
+                    (ps, egreso) -> ps.setInt(1, egreso.getId())));
+        }
+        if (!actualizados.isEmpty()) {
+            verificarUnaFilaPorEgreso(jdbcTemplate.batchUpdate(UPDATE_EGRESO_SQL, actualizados, actualizados.size(), (ps, egreso) -> {
+                ps.setBigDecimal(1, egreso.getMontoTotal());
+                ps.setDate(2, egreso.getFecha());
+                ps.setString(3, egreso.getDescripcion());
+                ps.setInt(4, egreso.getCategoriaId());
+                ps.setInt(5, egreso.getPeriodoId());
+                ps.setInt(6, egreso.getId());
+            }));
+        }
+        if (!creados.isEmpty()) {
+            egresoService.insertarEgresosConIds(creados);
+        }
+
+        List<EgresoParticipacion> participaciones = new ArrayList<>((creados.size() + actualizados.size()) * 2);
+        for (List<Egreso> egresos : List.of(creados, actualizados)) {
+            for (Egreso egreso : egresos) {
+                EgresoService.Reparto reparto = EgresoService.calcularReparto(egreso.getMontoTotal(),
+                        foto.ingresosEsposo, foto.ingresosEsposa);
+                participaciones.add(new EgresoParticipacion(egreso.getId(), pareja.getEsposoId(),
+                        reparto.porcentajeEsposo(), reparto.montoEsposo()));
+                participaciones.add(new EgresoParticipacion(egreso.getId(), pareja.getEsposaId(),
+                        reparto.porcentajeEsposa(), reparto.montoEsposa()));
+            }
+        }
+        egresoService.insertarParticipaciones(participaciones);
+    }
+
+    /**
+     * Cada DELETE o UPDATE del batch tiene que tocar su egreso: los acumulados ya se ajustaron
+     * con el monto anterior, así que un egreso que no estaba hace fallar el lote entero
+     */
+    private static void verificarUnaFilaPorEgreso(int[][] filas) {
+        for (int[] bloque : filas) {
+            for (int fila : bloque) {
+                if (fila != 1) {
+                    throw new IllegalStateException("Un egreso del lote cambió mientras estaba bloqueado");
+                }
+            }
+        }
+    }
+
+    private static Clave claveDe(Egreso egreso) {
+        return new Clave(egreso.getPeriodoId(), egreso.getCategoriaId());
+    }
+
+    /**
+     * Datos de la pareja leídos una vez por lote y disponible de cada (período, categoría),
+     * que se va descontando a medida que se aceptan operaciones
+     */
+    private final class Foto {
+
+        final Map<Integer, Presupuesto> periodos = new HashMap<>();
+        final Map<Integer, Egreso> existentes = new HashMap<>();
+        final Map<Clave, BigDecimal> gastados;
+        final Map<Integer, Map<Integer, BigDecimal>> porcentajes = new HashMap<>();
+        final Map<Clave, BigDecimal> asignados = new HashMap<>();
+        final Map<Clave, BigDecimal> disponibles = new HashMap<>();
+        final BigDecimal ingresosTotales;
+        final BigDecimal ingresosEsposo;
+        final BigDecimal ingresosEsposa;
+
+        Foto(Pareja pareja, List<EgresoLoteRequest.Operacion> operaciones) {
+            Integer parejaId = pareja.getId();
+            for (Presupuesto presupuesto : presupuestoRepository.findByParejaIdOrderByFechaCreacionDesc(parejaId)) {
+                periodos.put(presupuesto.getId(), presupuesto);
+            }
+            List<Integer> ids = operaciones.stream()
+                    .map(EgresoLoteRequest.Operacion::getId)
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .toList();
+            if (!ids.isEmpty()) {
+                egresoRepository.bloquearTodos(ids).forEach(egreso -> existentes.put(egreso.getId(), egreso));
+            }
+            gastados = egresoAcumuladoService.bloquearGastados(parejaId, clavesDelLote(parejaId, operaciones));
+            Map<Integer, BigDecimal> ingresosPorUsuario = ingresoAcumuladoService.obtenerTotalesPorUsuario(parejaId);
+            ingresosEsposo = ingresosPorUsuario.getOrDefault(pareja.getEsposoId(), BigDecimal.ZERO);
+            ingresosEsposa = ingresosPorUsuario.getOrDefault(pareja.getEsposaId(), BigDecimal.ZERO);
+            ingresosTotales = ingresosEsposo.add(ingresosEsposa);
+        }
+
+        /**
+         * Claves que el lote puede tocar: la de cada egreso de la pareja que se modifica o
+         * elimina y la de cada egreso a escribir cuyo período tiene porcentaje para la categoría
+         */
+        private Set<Clave> clavesDelLote(Integer parejaId, List<EgresoLoteRequest.Operacion> operaciones) {
+            Set<Clave> claves = new HashSet<>();
+            for (EgresoLoteRequest.Operacion operacion : operaciones) {
+                Egreso anterior = operacion.getId() != null ? existentes.get(operacion.getId()) : null;
+                if (anterior != null && anterior.getParejaId().equals(parejaId)) {
+                    claves.add(claveDe(anterior));
+                }
+                EgresoRequest datos = operacion.getEgreso();
+                if (operacion.getTipo() == EgresoLoteRequest.TipoOperacion.ELIMINAR || datos == null
+                        || !periodos.containsKey(datos.getPeriodoId())) {
+                    continue;
+                }
+                if (porcentajes.computeIfAbsent(datos.getPeriodoId(), this::cargarPorcentajes)
+                        .containsKey(datos.getCategoriaId())) {
+                    claves.add(new Clave(datos.getPeriodoId(), datos.getCategoriaId()));
+                }
+            }
+            return claves;
+        }
+
+        /**
+         * Descuenta un monto del disponible de la clave
+         * @throws IllegalArgumentException Si no hay presupuesto para la categoría o el monto no entra
+         */
+        void descontar(Clave clave, BigDecimal monto, CategoriaEgreso categoria, Presupuesto presupuesto) {
+            BigDecimal disponible = disponible(clave);
+            if (disponible == null) {
+                throw new IllegalArgumentException(
+                        "No existe un presupuesto asignado para esta categoría en el período seleccionado");
+            }
+            if (monto.compareTo(disponible) > 0) {
+                throw new IllegalArgumentException(String.format(
+                        "Supera el monto disponible de la categoría '%s' en el período '%s' ($%s)",
+                        categoria.getNombre(), presupuesto.getPeriodo(), disponible));
+            }
+            disponibles.put(clave, disponible.subtract(monto));
+        }
+
+        /**
+         * Devuelve al disponible el monto de un egreso que se modifica o elimina
+         */
+        void devolver(Clave clave, BigDecimal monto) {
+            BigDecimal disponible = disponible(clave);
+            if (disponible != null) {
+                disponibles.put(clave, disponible.add(monto));
+            }
+        }
+
+        /**
+         * Disponible actual de la clave, o null si el período no tiene porcentaje para la categoría
+         */
+        private BigDecimal disponible(Clave clave) {
+            BigDecimal disponible = disponibles.get(clave);
+            if (disponible != null) {
+                return disponible;
+            }
+            BigDecimal porcentaje = porcentajes
+                    .computeIfAbsent(clave.periodoId(), this::cargarPorcentajes)
+                    .get(clave.categoriaId());
+            if (porcentaje == null) {
+                return null;
+            }
+            BigDecimal asignado = ingresosTotales
+                    .multiply(porcentaje)
+                    .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
+            BigDecimal gastado = gastados.getOrDefault(clave, BigDecimal.ZERO);
+            asignados.put(clave, asignado);
+            disponible = asignado.subtract(gastado);
+            disponibles.put(clave, disponible);
+            return disponible;
+        }
+
+        private Map<Integer, BigDecimal> cargarPorcentajes(Integer presupuestoId) {
+            Map<Integer, BigDecimal> porCategoria = new HashMap<>();
+            for (PresupuestoCategoria presupuestoCategoria : presupuestoCategoriaRepository.findByPresupuestoId(presupuestoId)) {
+                porCategoria.put(presupuestoCategoria.getCategoriaId(), presupuestoCategoria.getPorcentaje());
+            }
+            return porCategoria;
+        }
+    }
+}
@@ -2,22 +2,39 @@ package com.miroma.miroma.service;
 
 import com.miroma.miroma.dto.EgresoRequest;
 import com.miroma.miroma.dto.EgresoResponse;
+import com.miroma.miroma.dto.PaginaResponse;
 import com.miroma.miroma.entity.*;
 import com.miroma.miroma.repository.*;
 import com.miroma.miroma.entity.PresupuestoCategoria;
+import com.miroma.miroma.util.Paginacion;
+import com.miroma.miroma.security.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
 public class EgresoService {
 
+    static final String INSERT_EGRESO_SQL =
+            "INSERT INTO egresos (pareja_id, monto_total, fecha, descripcion, categoria_id, periodo_id, fecha_creacion) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    static final String INSERT_PARTICIPACION_SQL =
+            "INSERT INTO egreso_participaciones (egreso_id, usuario_id, porcentaje, monto_asignado) VALUES (?, ?, ?, ?)";
+
     @Autowired
     private EgresoRepository egresoRepository;
 
@@ -28,10 +45,10 @@ public class EgresoService {
     private UsuarioRepository usuarioRepository;
 
     @Autowired
-    private CategoriaEgresoRepository categoriaEgresoRepository;
+    private SecurityUtils securityUtils;
 
     @Autowired
-    private IngresoRepository ingresoRepository;
+    private CategoriaEgresoCache categoriaEgresoCache;
 
     @Autowired
     private ParejaRepository parejaRepository;
@@ -43,25 +60,37 @@ public class EgresoService {
     private PresupuestoCategoriaRepository presupuestoCategoriaRepository;
 
     @Autowired
-    private PresupuestoCategoriaService presupuestoCategoriaService;
+    private LogEventoService logEventoService;
 
     @Autowired
-    private LogEventoService logEventoService;
+    private EgresoAcumuladoService egresoAcumuladoService;
+
+    @Autowired
+    private IngresoAcumuladoService ingresoAcumuladoService;
+
+    @Autowired
+    private ResumenFinancieroCache resumenFinancieroCache;
+
+    @Autowired
+    private VersionDatosService versionDatosService;
+
+    @Autowired
+    private Paginacion paginacion;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
     @Transactional
     public EgresoResponse crearEgreso(Integer userId, EgresoRequest request) {
-        // Obtener el usuario
-        Usuario usuario = usuarioRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        // Obtener la pareja del usuario autenticado
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
 
-        // Obtener pareja_id del usuario
-        Integer parejaId = usuario.getParejaId();
         if (parejaId == null) {
             throw new IllegalArgumentException("Debes tener una pareja vinculada para crear egresos");
         }
 
         // Validar que la categoría existe
-        CategoriaEgreso categoria = categoriaEgresoRepository.findById(request.getCategoriaId())
+        CategoriaEgreso categoria = categoriaEgresoCache.buscar(request.getCategoriaId())
                 .orElseThrow(() -> new IllegalArgumentException("Categoría no encontrada"));
 
         // Validar que el período existe y pertenece a la pareja
@@ -81,12 +110,14 @@ public class EgresoService {
             throw new IllegalArgumentException("No existe un presupuesto asignado para esta categoría en el período seleccionado");
         }
 
-        // Calcular el monto disponible antes de crear el egreso
-        BigDecimal montoDisponible = presupuestoCategoriaService.calcularMontoDisponible(
-                parejaId, request.getPeriodoId(), request.getCategoriaId());
-        
-        // Validar que el monto del egreso no exceda el disponible
-        if (request.getMontoTotal().compareTo(montoDisponible) > 0) {
+        // Lecturas antes de reservar el monto, para bloquear el acumulado el menor tiempo posible
+        Participantes participantes = cargarParticipantes(parejaId);
+        BigDecimal montoAsignado = calcularMontoAsignado(
+                participantes.ingresosEsposo().add(participantes.ingresosEsposa()), presupuestoCategoria);
+
+        // Validar y sumar al acumulado en una sola sentencia: sin carrera con otro egreso concurrente
+        if (!egresoAcumuladoService.registrarSiHayDisponible(parejaId, request.getPeriodoId(),
+                request.getCategoriaId(), request.getMontoTotal(), montoAsignado)) {
             throw new IllegalArgumentException("No es posible crear este egreso porque supera los límites definidos");
         }
 
@@ -99,11 +130,13 @@ public class EgresoService {
         egreso.setCategoriaId(request.getCategoriaId());
         egreso.setPeriodoId(request.getPeriodoId());
 
+        // Con IDENTITY el INSERT se ejecuta en save: el id ya está disponible sin flush
         egreso = egresoRepository.save(egreso);
-        egresoRepository.flush();
 
         // Crear las participaciones automáticamente
-        crearParticipaciones(egreso, parejaId);
+        repartir(egreso, participantes);
+        resumenFinancieroCache.invalidarPareja(parejaId);
+        versionDatosService.incrementar(parejaId);
 
         // Registrar evento en log
         logEventoService.registrarEvento(userId, 
@@ -113,7 +146,14 @@ public class EgresoService {
         return mapToResponse(egreso, categoria, presupuesto);
     }
 
-    private void crearParticipaciones(Egreso egreso, Integer parejaId) {
+    /**
+     * Integrantes de la pareja y sus ingresos, para repartir un egreso
+     */
+    private record Participantes(Integer esposoId, Integer esposaId,
+                                 BigDecimal ingresosEsposo, BigDecimal ingresosEsposa) {
+    }
+
+    private Participantes cargarParticipantes(Integer parejaId) {
         // Obtener la pareja por su ID (parejaId es el id de la tabla parejas)
         Pareja pareja = parejaRepository.findById(parejaId)
                 .orElseThrow(() -> new IllegalArgumentException("Pareja no encontrada"));
@@ -124,9 +164,106 @@ public class EgresoService {
         Usuario esposa = usuarioRepository.findById(pareja.getEsposaId())
                 .orElseThrow(() -> new IllegalArgumentException("Esposa no encontrada"));
 
-        // Calcular ingresos totales de cada uno
-        BigDecimal ingresosEsposo = calcularIngresosTotales(esposo.getId(), parejaId);
-        BigDecimal ingresosEsposa = calcularIngresosTotales(esposa.getId(), parejaId);
+        // Calcular ingresos totales de cada uno (una sola consulta para ambos)
+        Map<Integer, BigDecimal> ingresosPorUsuario = ingresoAcumuladoService.obtenerTotalesPorUsuario(parejaId);
+        return new Participantes(esposo.getId(), esposa.getId(),
+                ingresosPorUsuario.getOrDefault(esposo.getId(), BigDecimal.ZERO),
+                ingresosPorUsuario.getOrDefault(esposa.getId(), BigDecimal.ZERO));
+    }
+
+    /**
+     * Reparte el egreso entre los integrantes de la pareja según sus ingresos y guarda las dos participaciones
+     */
+    private void repartir(Egreso egreso, Participantes participantes) {
+        Reparto reparto = calcularReparto(egreso.getMontoTotal(),
+                participantes.ingresosEsposo(), participantes.ingresosEsposa());
+
+        insertarParticipaciones(List.of(
+                new EgresoParticipacion(egreso.getId(), participantes.esposoId(),
+                        reparto.porcentajeEsposo(), reparto.montoEsposo()),
+                new EgresoParticipacion(egreso.getId(), participantes.esposaId(),
+                        reparto.porcentajeEsposa(), reparto.montoEsposa())));
+    }
+
+    /**
+     * Monto asignado a la categoría: porcentaje del presupuesto sobre los ingresos de la pareja
+     */
+    private static BigDecimal calcularMontoAsignado(BigDecimal ingresosTotales, PresupuestoCategoria presupuestoCategoria) {
+        return ingresosTotales
+                .multiply(presupuestoCategoria.getPorcentaje())
+                .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Inserta egresos nuevos en un solo batch JDBC y les asigna el ID generado y la fecha de
+     * creación. Lo usan la importación CSV y los lotes de egresos, que escriben muchos egresos
+     * por transacción y no pasan por Hibernate.
+     * @throws IllegalStateException Si el driver no devuelve un ID por egreso
+     */
+    void insertarEgresosConIds(List<Egreso> egresos) {
+        Timestamp ahora = new Timestamp(System.currentTimeMillis());
+        KeyHolder claves = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_EGRESO_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Egreso egreso = egresos.get(i);
+                        ps.setInt(1, egreso.getParejaId());
+                        ps.setBigDecimal(2, egreso.getMontoTotal());
+                        ps.setDate(3, egreso.getFecha());
+                        ps.setString(4, egreso.getDescripcion());
+                        ps.setInt(5, egreso.getCategoriaId());
+                        ps.setInt(6, egreso.getPeriodoId());
+                        ps.setTimestamp(7, ahora);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return egresos.size();
+                    }
+                },
+                claves);
+
+        List<Map<String, Object>> ids = claves.getKeyList();
+        if (ids.size() != egresos.size()) {
+            throw new IllegalStateException("No se obtuvieron los IDs de los egresos creados");
+        }
+        for (int i = 0; i < egresos.size(); i++) {
+            egresos.get(i).setId(((Number) ids.get(i).values().iterator().next()).intValue());
+            egresos.get(i).setFechaCreacion(ahora);
+        }
+    }
+
+    /**
+     * Inserta las participaciones en un solo batch JDBC (con rewriteBatchedStatements el driver
+     * de MySQL lo envía como un único INSERT de varias filas). Las participaciones no se leen
+     * después de crearlas, así que no hace falta que Hibernate obtenga el id de cada una.
+     * Usa la conexión de la transacción actual, después del INSERT de los egresos.
+     */
+    void insertarParticipaciones(List<EgresoParticipacion> participaciones) {
+        if (participaciones.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_PARTICIPACION_SQL, participaciones, participaciones.size(), (ps, participacion) -> {
+            ps.setInt(1, participacion.getEgresoId());
+            ps.setInt(2, participacion.getUsuarioId());
+            ps.setBigDecimal(3, participacion.getPorcentaje());
+            ps.setBigDecimal(4, participacion.getMontoAsignado());
+        });
+    }
+
+    /**
+     * Porcentajes y montos asignados a cada integrante de la pareja para un egreso
+     */
+    record Reparto(BigDecimal porcentajeEsposo, BigDecimal porcentajeEsposa,
+                   BigDecimal montoEsposo, BigDecimal montoEsposa) {
+    }
+
+    /**
+     * Reparte el monto de un egreso en proporción a los ingresos de cada integrante
+     */
+    static Reparto calcularReparto(BigDecimal montoTotal, BigDecimal ingresosEsposo, BigDecimal ingresosEsposa) {
         BigDecimal ingresosTotales = ingresosEsposo.add(ingresosEsposa);
 
         // Si no hay ingresos, dividir 50/50
@@ -145,90 +282,30 @@ public class EgresoService {
         }
 
         // Calcular montos asignados
-        BigDecimal montoAsignadoEsposo = egreso.getMontoTotal()
+        BigDecimal montoAsignadoEsposo = montoTotal
                 .multiply(porcentajeEsposo)
                 .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
-        BigDecimal montoAsignadoEsposa = egreso.getMontoTotal().subtract(montoAsignadoEsposo);
-
-        // Crear participación del esposo
-        EgresoParticipacion participacionEsposo = new EgresoParticipacion();
-        participacionEsposo.setEgresoId(egreso.getId());
-        participacionEsposo.setUsuarioId(esposo.getId());
-        participacionEsposo.setPorcentaje(porcentajeEsposo);
-        participacionEsposo.setMontoAsignado(montoAsignadoEsposo);
-        egresoParticipacionRepository.save(participacionEsposo);
-
-        // Crear participación de la esposa
-        EgresoParticipacion participacionEsposa = new EgresoParticipacion();
-        participacionEsposa.setEgresoId(egreso.getId());
-        participacionEsposa.setUsuarioId(esposa.getId());
-        participacionEsposa.setPorcentaje(porcentajeEsposa);
-        participacionEsposa.setMontoAsignado(montoAsignadoEsposa);
-        egresoParticipacionRepository.save(participacionEsposa);
-
-        egresoParticipacionRepository.flush();
-    }
+        BigDecimal montoAsignadoEsposa = montoTotal.subtract(montoAsignadoEsposo);
 
-    private BigDecimal calcularIngresosTotales(Integer usuarioId, Integer parejaId) {
-        // Obtener todos los ingresos de la pareja
-        List<Ingreso> ingresos = ingresoRepository.findByParejaIdOrderByFechaDesc(parejaId);
-
-        // Filtrar ingresos del usuario específico y sumar
-        return ingresos.stream()
-                .filter(ingreso -> ingreso.getUsuarioId().equals(usuarioId))
-                .map(Ingreso::getMonto)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    private BigDecimal calcularIngresosTotalesPareja(Integer parejaId) {
-        List<Ingreso> ingresos = ingresoRepository.findByParejaIdOrderByFechaDesc(parejaId);
-        return ingresos.stream()
-                .map(Ingreso::getMonto)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    /**
-     * Calcula los egresos por categoría excluyendo un egreso específico
-     * Útil para validar al actualizar un egreso
-     */
-    private BigDecimal calcularEgresosPorCategoriaExcluyendo(
-            Integer parejaId, Integer categoriaId, Integer presupuestoId, Integer egresoIdExcluir) {
-        List<Egreso> egresos = egresoRepository.findByParejaIdOrderByFechaDesc(parejaId);
-        return egresos.stream()
-                .filter(egreso -> egreso.getCategoriaId().equals(categoriaId))
-                .filter(egreso -> egreso.getPeriodoId().equals(presupuestoId))
-                .filter(egreso -> !egreso.getId().equals(egresoIdExcluir)) // Excluir el egreso actual
-                .map(Egreso::getMontoTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return new Reparto(porcentajeEsposo, porcentajeEsposa, montoAsignadoEsposo, montoAsignadoEsposa);
     }
 
+    @Transactional(readOnly = true)
     public List<EgresoResponse> obtenerEgresosPorUsuario(Integer userId) {
-        Usuario usuario = usuarioRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
 
-        Integer parejaId = usuario.getParejaId();
         if (parejaId == null) {
             throw new IllegalArgumentException("Debes tener una pareja vinculada para ver egresos");
         }
 
-        List<Egreso> egresos = egresoRepository.findByParejaIdOrderByFechaDesc(parejaId);
-
-        return egresos.stream()
-                .map(egreso -> {
-                    CategoriaEgreso categoria = categoriaEgresoRepository.findById(egreso.getCategoriaId())
-                            .orElse(null);
-                    Presupuesto presupuesto = presupuestoRepository.findById(egreso.getPeriodoId())
-                            .orElse(null);
-                    return mapToResponse(egreso, categoria, presupuesto);
-                })
-                .collect(Collectors.toList());
+        // Categoría y período se resuelven en la misma consulta
+        return egresoRepository.listarResponsesPorPareja(parejaId);
     }
 
+    @Transactional(readOnly = true)
     public List<EgresoResponse> obtenerEgresosPorUsuarioYFecha(Integer userId, String fechaInicio, String fechaFin) {
-        Usuario usuario = usuarioRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
 
-        Integer parejaId = usuario.getParejaId();
         if (parejaId == null) {
             throw new IllegalArgumentException("Debes tener una pareja vinculada para ver egresos");
         }
@@ -236,32 +313,52 @@ public class EgresoService {
         Date fechaInicioDate = Date.valueOf(fechaInicio);
         Date fechaFinDate = Date.valueOf(fechaFin);
 
-        List<Egreso> egresos = egresoRepository.findByParejaIdAndFechaBetween(parejaId, fechaInicioDate, fechaFinDate);
-
-        return egresos.stream()
-                .map(egreso -> {
-                    CategoriaEgreso categoria = categoriaEgresoRepository.findById(egreso.getCategoriaId())
-                            .orElse(null);
-                    Presupuesto presupuesto = presupuestoRepository.findById(egreso.getPeriodoId())
-                            .orElse(null);
-                    return mapToResponse(egreso, categoria, presupuesto);
-                })
-                .collect(Collectors.toList());
+        return egresoRepository.listarResponsesPorParejaYFecha(parejaId, fechaInicioDate, fechaFinDate);
+    }
+
+    /**
+     * Página de egresos de la pareja, del más reciente al más antiguo
+     * @param fechaInicio Fecha inicial (opcional, junto con fechaFin)
+     * @param fechaFin Fecha final (opcional, junto con fechaInicio)
+     * @param cursor Cursor de la página anterior (null para la primera)
+     * @param limite Tamaño de página pedido (null para el valor por defecto)
+     */
+    @Transactional(readOnly = true)
+    public PaginaResponse<EgresoResponse> obtenerPaginaEgresosPorUsuario(Integer userId, String fechaInicio, String fechaFin,
+                                                                          String cursor, Integer limite) {
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
+
+        if (parejaId == null) {
+            throw new IllegalArgumentException("Debes tener una pareja vinculada para ver egresos");
+        }
+
+        Date fechaInicioDate = fechaInicio != null && fechaFin != null ? Date.valueOf(fechaInicio) : null;
+        Date fechaFinDate = fechaInicio != null && fechaFin != null ? Date.valueOf(fechaFin) : null;
+        Paginacion.Posicion posicion = Paginacion.decodificar(cursor);
+        int tamanio = paginacion.tamanio(limite);
+
+        List<EgresoResponse> filas = egresoRepository.listarPaginaResponsesPorPareja(parejaId,
+                fechaInicioDate, fechaFinDate,
+                posicion != null ? posicion.fechaComoDate() : null,
+                posicion != null ? posicion.id() : null,
+                paginacion.consulta(tamanio));
+        return paginacion.armarPagina(filas, tamanio,
+                egreso -> new Paginacion.Posicion(egreso.getFecha(), egreso.getId()));
     }
 
+    @Transactional(readOnly = true)
     public EgresoResponse obtenerEgresoPorId(Integer egresoId, Integer userId) {
         Egreso egreso = egresoRepository.findById(egresoId)
                 .orElseThrow(() -> new IllegalArgumentException("Egreso no encontrado"));
 
         // Verificar que el egreso pertenezca a la pareja del usuario
-        Usuario usuario = usuarioRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
 
-        if (usuario.getParejaId() == null || !egreso.getParejaId().equals(usuario.getParejaId())) {
+        if (parejaId == null || !egreso.getParejaId().equals(parejaId)) {
             throw new IllegalArgumentException("No tienes permiso para acceder a este egreso");
         }
 
-        CategoriaEgreso categoria = categoriaEgresoRepository.findById(egreso.getCategoriaId())
+        CategoriaEgreso categoria = categoriaEgresoCache.buscar(egreso.getCategoriaId())
                 .orElse(null);
         Presupuesto presupuesto = presupuestoRepository.findById(egreso.getPeriodoId())
                 .orElse(null);
@@ -271,19 +368,20 @@ public class EgresoService {
 
     @Transactional
     public EgresoResponse actualizarEgreso(Integer egresoId, Integer userId, EgresoRequest request) {
-        Egreso egreso = egresoRepository.findById(egresoId)
+        // Bloquear el egreso antes de leer su monto: otro cambio o baja concurrente espera y
+        // ajusta el acumulado a partir de lo que deje esta transacción
+        Egreso egreso = egresoRepository.bloquear(egresoId)
                 .orElseThrow(() -> new IllegalArgumentException("Egreso no encontrado"));
 
         // Verificar que el egreso pertenezca a la pareja del usuario
-        Usuario usuario = usuarioRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
 
-        if (usuario.getParejaId() == null || !egreso.getParejaId().equals(usuario.getParejaId())) {
+        if (parejaId == null || !egreso.getParejaId().equals(parejaId)) {
             throw new IllegalArgumentException("No tienes permiso para modificar este egreso");
         }
 
         // Validar que la categoría existe
-        CategoriaEgreso categoria = categoriaEgresoRepository.findById(request.getCategoriaId())
+        CategoriaEgreso categoria = categoriaEgresoCache.buscar(request.getCategoriaId())
                 .orElseThrow(() -> new IllegalArgumentException("Categoría no encontrada"));
 
         // Validar que el período existe y pertenece a la pareja
@@ -303,24 +401,16 @@ public class EgresoService {
             throw new IllegalArgumentException("No existe un presupuesto asignado para esta categoría en el período seleccionado");
         }
 
-        // Calcular el monto disponible antes de actualizar el egreso
-        // Necesitamos excluir el egreso actual del cálculo de monto gastado
-        BigDecimal montoGastadoActual = calcularEgresosPorCategoriaExcluyendo(
-                egreso.getParejaId(), request.getCategoriaId(), request.getPeriodoId(), egresoId);
-        
-        // Calcular ingresos totales
-        BigDecimal ingresosTotales = calcularIngresosTotalesPareja(egreso.getParejaId());
-        
         // Calcular monto asignado
-        BigDecimal montoAsignado = ingresosTotales
-                .multiply(presupuestoCategoria.getPorcentaje())
-                .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
-        
-        // Monto disponible = asignado - gastado (sin incluir el egreso actual)
-        BigDecimal montoDisponible = montoAsignado.subtract(montoGastadoActual);
-        
-        // Validar que el nuevo monto del egreso no exceda el disponible
-        if (request.getMontoTotal().compareTo(montoDisponible) > 0) {
+        BigDecimal ingresosTotales = ingresoAcumuladoService.obtenerTotalPareja(egreso.getParejaId());
+        BigDecimal montoAsignado = calcularMontoAsignado(ingresosTotales, presupuestoCategoria);
+
+        // Pasar el monto del acumulado anterior al nuevo solo si hay disponible
+        // (si no, la excepción revierte también lo que se haya restado)
+        if (!egresoAcumuladoService.moverSiHayDisponible(egreso.getParejaId(),
+                new EgresoAcumuladoService.Clave(egreso.getPeriodoId(), egreso.getCategoriaId()), egreso.getMontoTotal(),
+                new EgresoAcumuladoService.Clave(request.getPeriodoId(), request.getCategoriaId()), request.getMontoTotal(),
+                montoAsignado)) {
             throw new IllegalArgumentException("No es posible crear este egreso porque supera los límites definidos");
         }
 
@@ -336,7 +426,9 @@ public class EgresoService {
 
         // Eliminar participaciones existentes y crear nuevas
         egresoParticipacionRepository.deleteByEgresoId(egresoId);
-        crearParticipaciones(egreso, egreso.getParejaId());
+        repartir(egreso, cargarParticipantes(egreso.getParejaId()));
+        resumenFinancieroCache.invalidarPareja(egreso.getParejaId());
+        versionDatosService.incrementar(egreso.getParejaId());
 
         // Registrar evento en log
         logEventoService.registrarEvento(userId, 
@@ -348,19 +440,19 @@ public class EgresoService {
 
     @Transactional
     public void eliminarEgreso(Integer egresoId, Integer userId) {
-        Egreso egreso = egresoRepository.findById(egresoId)
+        // Bloqueado como en actualizarEgreso: el monto que se resta del acumulado es el vigente
+        Egreso egreso = egresoRepository.bloquear(egresoId)
                 .orElseThrow(() -> new IllegalArgumentException("Egreso no encontrado"));
 
         // Verificar que el egreso pertenezca a la pareja del usuario
-        Usuario usuario = usuarioRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
 
-        if (usuario.getParejaId() == null || !egreso.getParejaId().equals(usuario.getParejaId())) {
+        if (parejaId == null || !egreso.getParejaId().equals(parejaId)) {
             throw new IllegalArgumentException("No tienes permiso para eliminar este egreso");
         }
 
         // Registrar evento en log antes de eliminar
-        CategoriaEgreso categoria = categoriaEgresoRepository.findById(egreso.getCategoriaId()).orElse(null);
+        CategoriaEgreso categoria = categoriaEgresoCache.buscar(egreso.getCategoriaId()).orElse(null);
         String categoriaNombre = categoria != null ? categoria.getNombre() : "Desconocida";
         logEventoService.registrarEvento(userId, 
             String.format("Eliminó un egreso (ID: %d) - Monto: $%s, Categoría: '%s'", 
@@ -369,11 +461,17 @@ public class EgresoService {
         // Eliminar participaciones primero (por las foreign keys)
         egresoParticipacionRepository.deleteByEgresoId(egresoId);
         
+        // Restar del acumulado de la categoría en el período
+        egresoAcumuladoService.revertirEgreso(egreso.getParejaId(), egreso.getPeriodoId(),
+                egreso.getCategoriaId(), egreso.getMontoTotal());
+
         // Eliminar el egreso
         egresoRepository.delete(egreso);
+        resumenFinancieroCache.invalidarPareja(egreso.getParejaId());
+        versionDatosService.incrementar(egreso.getParejaId());
     }
 
-    private EgresoResponse mapToResponse(Egreso egreso, CategoriaEgreso categoria, Presupuesto presupuesto) {
+    static EgresoResponse mapToResponse(Egreso egreso, CategoriaEgreso categoria, Presupuesto presupuesto) {
         EgresoResponse response = new EgresoResponse();
         response.setId(egreso.getId());
         response.setParejaId(egreso.getParejaId());
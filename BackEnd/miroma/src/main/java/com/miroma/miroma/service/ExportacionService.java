@@ -0,0 +1,168 @@
+package com.miroma.miroma.service;
+
+import com.miroma.miroma.dto.EgresoResponse;
+import com.miroma.miroma.dto.IngresoResponse;
+import com.miroma.miroma.repository.EgresoRepository;
+import com.miroma.miroma.repository.IngresoRepository;
+import com.miroma.miroma.util.EscritorCsv;
+import com.miroma.miroma.security.SecurityUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Exportación del historial de egresos e ingresos en CSV o NDJSON (un objeto JSON por línea).
+ *
+ * Las filas se leen con una consulta Stream (fetch size 500; en MySQL requiere useCursorFetch
+ * en la URL) y se escriben a medida que llegan, así que la memoria usada no depende de la
+ * cantidad de registros. Las consultas proyectan directamente a DTO, de modo que el contexto
+ * de persistencia no acumula entidades. Cada método mantiene abierta una transacción de solo
+ * lectura mientras escribe: se invoca desde el StreamingResponseBody del controlador.
+ */
+@Service
+public class ExportacionService {
+
+    /**
+     * Formatos de exportación soportados
+     */
+    public enum Formato {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Formato(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * @param valor Nombre del formato, sin distinguir mayúsculas (null para CSV)
+         */
+        public static Formato desde(String valor) {
+            if (valor == null || valor.isBlank()) {
+                return CSV;
+            }
+            try {
+                return valueOf(valor.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Formato de exportación no soportado: '" + valor + "' (csv o ndjson)");
+            }
+        }
+    }
+
+    @Autowired
+    private EgresoRepository egresoRepository;
+
+    @Autowired
+    private IngresoRepository ingresoRepository;
+
+    @Autowired
+    private SecurityUtils securityUtils;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    /**
+     * Valida que el usuario pueda exportar egresos. Se llama antes de empezar a escribir la
+     * respuesta, cuando todavía se puede devolver un error con su código HTTP
+     * @return ID de la pareja del usuario
+     */
+    public Integer obtenerParejaParaExportar(Integer userId) {
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
+        if (parejaId == null) {
+            throw new IllegalArgumentException("Debes tener una pareja vinculada para exportar egresos");
+        }
+        return parejaId;
+    }
+
+    /**
+     * Escribe los egresos de la pareja, del más reciente al más antiguo
+     * @param fechaInicio Fecha inicial (opcional, junto con fechaFin)
+     * @param fechaFin Fecha final (opcional, junto con fechaInicio)
+     */
+    @Transactional(readOnly = true)
+    public void exportarEgresos(Integer parejaId, String fechaInicio, String fechaFin,
+                                Formato formato, OutputStream salida) throws IOException {
+        Date fechaInicioDate = fechaInicio != null && fechaFin != null ? Date.valueOf(fechaInicio) : null;
+        Date fechaFinDate = fechaInicio != null && fechaFin != null ? Date.valueOf(fechaFin) : null;
+
+        Writer writer = abrir(salida, formato);
+        if (formato == Formato.CSV) {
+            EscritorCsv.escribirFila(writer, "id", "fecha", "monto", "categoria", "periodo", "descripcion", "fechaCreacion");
+        }
+        try (Stream<EgresoResponse> egresos = egresoRepository.streamResponsesPorPareja(parejaId, fechaInicioDate, fechaFinDate)) {
+            Iterator<EgresoResponse> it = egresos.iterator();
+            while (it.hasNext()) {
+                EgresoResponse egreso = it.next();
+                if (formato == Formato.CSV) {
+                    EscritorCsv.escribirFila(writer, egreso.getId(), egreso.getFecha(), egreso.getMontoTotal(),
+                            egreso.getCategoriaNombre(), egreso.getPeriodoNombre(), egreso.getDescripcion(),
+                            egreso.getFechaCreacion());
+                } else {
+                    escribirJson(writer, egreso);
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Escribe los ingresos del usuario, del más reciente al más antiguo
+     */
+    @Transactional(readOnly = true)
+    public void exportarIngresos(Integer userId, Formato formato, OutputStream salida) throws IOException {
+        Writer writer = abrir(salida, formato);
+        if (formato == Formato.CSV) {
+            EscritorCsv.escribirFila(writer, "id", "fecha", "monto", "descripcion", "fechaCreacion");
+        }
+        try (Stream<IngresoResponse> ingresos = ingresoRepository.streamResponsesPorUsuario(userId)) {
+            Iterator<IngresoResponse> it = ingresos.iterator();
+            while (it.hasNext()) {
+                IngresoResponse ingreso = it.next();
+                if (formato == Formato.CSV) {
+                    EscritorCsv.escribirFila(writer, ingreso.getId(), ingreso.getFecha(), ingreso.getMonto(),
+                            ingreso.getDescripcion(), ingreso.getFechaCreacion());
+                } else {
+                    escribirJson(writer, ingreso);
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    private Writer abrir(OutputStream salida, Formato formato) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), 16384);
+        if (formato == Formato.CSV) {
+            // BOM para que Excel reconozca el UTF-8 (LectorCsv la ignora al importar)
+            writer.write('\uFEFF');
+        }
+        return writer;
+    }
+
+    private void escribirJson(Writer writer, Object fila) throws IOException {
+        writer.write(jsonMapper.writeValueAsString(fila));
+        writer.write('\n');
+    }
+}
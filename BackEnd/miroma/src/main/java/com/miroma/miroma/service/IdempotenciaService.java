@@ -0,0 +1,301 @@
+package com.miroma.miroma.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Respuestas guardadas por clave de idempotencia (cabecera Idempotency-Key), por usuario.
+ * Lo usa IdempotenciaFilter para que un reintento de POST /api/egresos o /api/ingresos
+ * devuelva la respuesta de la primera ejecución sin volver a pasar por los servicios.
+ *
+ * Las respuestas están en la tabla claves_idempotencia (válida para todas las instancias)
+ * y, delante, en una caché LRU en memoria. Cada clave se reserva con un INSERT antes de
+ * ejecutar la petición: los duplicados concurrentes de esta instancia esperan la respuesta
+ * de la primera ejecución; los de otra instancia, que encuentran la reserva, reciben 409.
+ * Una reserva que no se completa (instancia caída) vence a los app.idempotencia.reserva-ttl ms.
+ */
+@Service
+public class IdempotenciaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotenciaService.class);
+
+    private static final String RESERVAR_SQL =
+            "INSERT INTO claves_idempotencia (usuario_id, clave, hash_peticion, vence_en) VALUES (?, ?, ?, ?)";
+
+    private static final String OBTENER_SQL =
+            "SELECT hash_peticion, status_http, content_type, cuerpo, vence_en FROM claves_idempotencia " +
+            "WHERE usuario_id = ? AND clave = ? AND vence_en > ?";
+
+    private static final String COMPLETAR_SQL =
+            "UPDATE claves_idempotencia SET status_http = ?, content_type = ?, cuerpo = ?, vence_en = ? " +
+            "WHERE usuario_id = ? AND clave = ?";
+
+    private static final String LIBERAR_SQL =
+            "DELETE FROM claves_idempotencia WHERE usuario_id = ? AND clave = ? AND status_http IS NULL";
+
+    private static final String ELIMINAR_VENCIDA_SQL =
+            "DELETE FROM claves_idempotencia WHERE usuario_id = ? AND clave = ? AND vence_en <= ?";
+
+    private static final String ELIMINAR_VENCIDAS_SQL =
+            "DELETE FROM claves_idempotencia WHERE vence_en <= ?";
+
+    /**
+     * Respuesta de la primera ejecución de una clave
+     */
+    public record Respuesta(String hashPeticion, int status, String contentType, byte[] cuerpo, long venceEn) {
+    }
+
+    /**
+     * Resultado de reservar una clave: la respuesta guardada (repetida), la reserva para
+     * ejecutar la petición (propia) o ninguna de las dos si otra instancia la está ejecutando
+     */
+    public static final class Reserva {
+
+        private final Respuesta repetida;
+        private final Integer usuarioId;
+        private final String clave;
+        private final String hashPeticion;
+        private final CompletableFuture<Respuesta> resultado;
+
+        private Reserva(Respuesta repetida, Integer usuarioId, String clave, String hashPeticion,
+                        CompletableFuture<Respuesta> resultado) {
+            this.repetida = repetida;
+            this.usuarioId = usuarioId;
+            this.clave = clave;
+            this.hashPeticion = hashPeticion;
+            this.resultado = resultado;
+        }
+
+        public Respuesta getRepetida() {
+            return repetida;
+        }
+
+        public boolean isPropia() {
+            return resultado != null;
+        }
+
+        public boolean isEnCurso() {
+            return repetida == null && resultado == null;
+        }
+    }
+
+    @Value("${app.idempotencia.ttl:86400000}")
+    private long ttl;
+
+    @Value("${app.idempotencia.reserva-ttl:60000}")
+    private long reservaTtl;
+
+    @Value("${app.idempotencia.espera-max:30000}")
+    private long esperaMax;
+
+    @Value("${app.idempotencia.max-entries:10000}")
+    private int maxEntradas;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Orden de acceso para desalojar la respuesta menos usada al superar el máximo
+    private final LinkedHashMap<String, Respuesta> respuestas = new LinkedHashMap<>(256, 0.75f, true);
+
+    // Primera ejecución de cada clave en esta instancia; los duplicados esperan su resultado
+    private final ConcurrentHashMap<String, CompletableFuture<Respuesta>> enCurso = new ConcurrentHashMap<>();
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong repetidas = new AtomicLong();
+    private final AtomicLong coalescidas = new AtomicLong();
+
+    /**
+     * Busca la respuesta de una clave o la reserva para ejecutar la petición. Si la clave
+     * se está ejecutando en esta instancia, espera a que termine.
+     * @param usuarioId Usuario autenticado
+     * @param clave Valor de la cabecera Idempotency-Key
+     * @param hashPeticion Hash de método, ruta y cuerpo de la petición
+     */
+    public Reserva reservar(Integer usuarioId, String clave, String hashPeticion) {
+        String id = usuarioId + ":" + clave;
+        while (true) {
+            Respuesta guardada = obtener(id, usuarioId, clave);
+            if (guardada != null) {
+                repetidas.incrementAndGet();
+                return new Reserva(guardada, usuarioId, clave, hashPeticion, null);
+            }
+
+            CompletableFuture<Respuesta> propia = new CompletableFuture<>();
+            CompletableFuture<Respuesta> primera = enCurso.putIfAbsent(id, propia);
+            if (primera != null) {
+                coalescidas.incrementAndGet();
+                Respuesta respuesta = esperar(primera);
+                if (respuesta == null) {
+                    if (!primera.isDone()) {
+                        return new Reserva(null, usuarioId, clave, hashPeticion, null);
+                    }
+                    // La primera ejecución no guardó respuesta (error del servidor): se reintenta
+                    continue;
+                }
+                repetidas.incrementAndGet();
+                return new Reserva(respuesta, usuarioId, clave, hashPeticion, null);
+            }
+
+            long ahora = System.currentTimeMillis();
+            try {
+                jdbcTemplate.update(RESERVAR_SQL, usuarioId, clave, hashPeticion, new Timestamp(ahora + reservaTtl));
+                return new Reserva(null, usuarioId, clave, hashPeticion, propia);
+            } catch (DuplicateKeyException e) {
+                enCurso.remove(id, propia);
+                propia.complete(null);
+                // Completada entre la consulta y el INSERT, reservada por otra instancia o vencida
+                if (jdbcTemplate.update(ELIMINAR_VENCIDA_SQL, usuarioId, clave, new Timestamp(ahora)) == 0
+                        && obtener(id, usuarioId, clave) == null) {
+                    return new Reserva(null, usuarioId, clave, hashPeticion, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Guarda la respuesta de una petición reservada y la entrega a los duplicados en espera
+     */
+    public void completar(Reserva reserva, int status, String contentType, byte[] cuerpo) {
+        Respuesta respuesta = new Respuesta(reserva.hashPeticion, status, contentType, cuerpo,
+                System.currentTimeMillis() + ttl);
+        String id = reserva.usuarioId + ":" + reserva.clave;
+        try {
+            jdbcTemplate.update(COMPLETAR_SQL, status, contentType, cuerpo, new Timestamp(respuesta.venceEn()),
+                    reserva.usuarioId, reserva.clave);
+        } catch (DataAccessException e) {
+            // En memoria sigue valiendo para esta instancia
+            logger.warn("No se pudo guardar la respuesta de la clave de idempotencia {}: {}", id, e.getMessage());
+        }
+        guardarEnMemoria(id, respuesta);
+        enCurso.remove(id, reserva.resultado);
+        reserva.resultado.complete(respuesta);
+    }
+
+    /**
+     * Libera una clave reservada sin guardar respuesta, para que un reintento vuelva a ejecutarse
+     */
+    public void liberar(Reserva reserva) {
+        String id = reserva.usuarioId + ":" + reserva.clave;
+        try {
+            jdbcTemplate.update(LIBERAR_SQL, reserva.usuarioId, reserva.clave);
+        } catch (DataAccessException e) {
+            logger.warn("No se pudo liberar la clave de idempotencia {}: {}", id, e.getMessage());
+        } finally {
+            enCurso.remove(id, reserva.resultado);
+            reserva.resultado.complete(null);
+        }
+    }
+
+    /**
+     * Elimina las claves vencidas (ejecutado periódicamente)
+     */
+    @Scheduled(initialDelayString = "${app.idempotencia.limpieza-interval:3600000}",
+               fixedDelayString = "${app.idempotencia.limpieza-interval:3600000}")
+    public void eliminarVencidas() {
+        long ahora = System.currentTimeMillis();
+        try {
+            int eliminadas = jdbcTemplate.update(ELIMINAR_VENCIDAS_SQL, new Timestamp(ahora));
+            logger.debug("Eliminadas {} clave(s) de idempotencia vencidas", eliminadas);
+        } catch (DataAccessException e) {
+            logger.error("Error al eliminar claves de idempotencia vencidas: {}", e.getMessage());
+        }
+        synchronized (respuestas) {
+            respuestas.values().removeIf(respuesta -> respuesta.venceEn() <= ahora);
+        }
+    }
+
+    private Respuesta obtener(String id, Integer usuarioId, String clave) {
+        long ahora = System.currentTimeMillis();
+        synchronized (respuestas) {
+            Respuesta respuesta = respuestas.get(id);
+            if (respuesta != null) {
+                if (respuesta.venceEn() > ahora) {
+                    aciertos.incrementAndGet();
+                    return respuesta;
+                }
+                respuestas.remove(id);
+            }
+        }
+        fallos.incrementAndGet();
+
+        List<Respuesta> filas = jdbcTemplate.query(OBTENER_SQL, (rs, rowNum) -> {
+            int status = rs.getInt("status_http");
+            if (rs.wasNull()) {
+                // Reservada: la petición todavía se está ejecutando
+                return null;
+            }
+            return new Respuesta(rs.getString("hash_peticion"), status, rs.getString("content_type"),
+                    rs.getBytes("cuerpo"), rs.getTimestamp("vence_en").getTime());
+        }, usuarioId, clave, new Timestamp(ahora));
+        Respuesta respuesta = filas.isEmpty() ? null : filas.get(0);
+        if (respuesta != null) {
+            guardarEnMemoria(id, respuesta);
+        }
+        return respuesta;
+    }
+
+    private void guardarEnMemoria(String id, Respuesta respuesta) {
+        synchronized (respuestas) {
+            respuestas.put(id, respuesta);
+            if (respuestas.size() > maxEntradas) {
+                Iterator<String> masAntigua = respuestas.keySet().iterator();
+                masAntigua.next();
+                masAntigua.remove();
+            }
+        }
+    }
+
+    private Respuesta esperar(CompletableFuture<Respuesta> primera) {
+        try {
+            return primera.get(esperaMax, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    public long getFallos() {
+        return fallos.get();
+    }
+
+    public long getRepetidas() {
+        return repetidas.get();
+    }
+
+    public long getCoalescidas() {
+        return coalescidas.get();
+    }
+
+    public int tamanio() {
+        synchronized (respuestas) {
+            return respuestas.size();
+        }
+    }
+}
@@ -0,0 +1,541 @@
+package com.miroma.miroma.service;
+
+import com.miroma.miroma.dto.ImportacionResponse;
+import com.miroma.miroma.entity.CategoriaEgreso;
+import com.miroma.miroma.entity.Egreso;
+import com.miroma.miroma.entity.EgresoParticipacion;
+import com.miroma.miroma.entity.Pareja;
+import com.miroma.miroma.entity.Presupuesto;
+import com.miroma.miroma.entity.PresupuestoCategoria;
+import com.miroma.miroma.repository.ParejaRepository;
+import com.miroma.miroma.repository.PresupuestoCategoriaRepository;
+import com.miroma.miroma.repository.PresupuestoRepository;
+import com.miroma.miroma.util.LectorCsv;
+import com.miroma.miroma.security.SecurityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Importación masiva de egresos e ingresos desde CSV.
+ *
+ * El archivo se lee de a un registro (LectorCsv) y se escribe en lotes de
+ * app.importacion.tamanio-lote filas con inserciones JDBC batch, así que la memoria usada no
+ * depende del tamaño del archivo. Categorías, períodos, porcentajes, lo ya gastado y los
+ * ingresos se consultan una vez por archivo; el disponible de cada (período, categoría) se
+ * descuenta en memoria a medida que se aceptan líneas, con la misma regla que crearEgreso.
+ * Al escribir cada lote, los acumulados se actualizan una vez por clave con el UPDATE
+ * condicional de EgresoAcumuladoService, así un egreso registrado mientras corre la
+ * importación no queda fuera de la cuenta: las líneas que ya no entran se rechazan en ese
+ * momento. Se registra un solo evento de log.
+ *
+ * Las líneas inválidas se informan con su número y se omiten. Cada lote se confirma en su
+ * propia transacción, así los acumulados que toca quedan bloqueados solo mientras se escribe
+ * ese lote y no hasta terminar de leer el archivo; si un lote falla, lo confirmado antes
+ * queda importado y el error lo informa.
+ */
+@Service
+public class ImportacionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportacionService.class);
+
+    private static final String INSERT_INGRESO_SQL =
+            "INSERT INTO ingresos (usuario_id, pareja_id, monto, descripcion, fecha, fecha_creacion) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final int MAX_DESCRIPCION_LENGTH = 500;
+
+    private static final BigDecimal MONTO_MINIMO = new BigDecimal("0.01");
+
+    private interface LineaImportada {
+        int linea();
+    }
+
+    private record EgresoImportado(int linea, BigDecimal monto, Date fecha, String descripcion,
+                                   CategoriaEgreso categoria, Presupuesto presupuesto) implements LineaImportada {
+
+        EgresoAcumuladoService.Clave clave() {
+            return new EgresoAcumuladoService.Clave(presupuesto.getId(), categoria.getId());
+        }
+    }
+
+    private record IngresoImportado(int linea, BigDecimal monto, Date fecha, String descripcion)
+            implements LineaImportada {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SecurityUtils securityUtils;
+
+    @Autowired
+    private ParejaRepository parejaRepository;
+
+    @Autowired
+    private CategoriaEgresoCache categoriaEgresoCache;
+
+    @Autowired
+    private PresupuestoRepository presupuestoRepository;
+
+    @Autowired
+    private PresupuestoCategoriaRepository presupuestoCategoriaRepository;
+
+    @Autowired
+    private EgresoService egresoService;
+
+    @Autowired
+    private EgresoAcumuladoService egresoAcumuladoService;
+
+    @Autowired
+    private IngresoAcumuladoService ingresoAcumuladoService;
+
+    @Autowired
+    private ResumenFinancieroCache resumenFinancieroCache;
+
+    @Autowired
+    private VersionDatosService versionDatosService;
+
+    @Autowired
+    private LogEventoService logEventoService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.importacion.tamanio-lote:500}")
+    private int tamanioLote;
+
+    @Value("${app.importacion.max-errores:1000}")
+    private int maxErrores;
+
+    @Value("${app.importacion.max-largo-campo:4096}")
+    private int maxLargoCampo;
+
+    /**
+     * Importa egresos de la pareja del usuario.
+     * Columnas (en cualquier orden, la primera línea es el encabezado): fecha (AAAA-MM-DD),
+     * monto, categoria (nombre o ID), periodo (nombre o ID) y opcionalmente descripcion.
+     */
+    public ImportacionResponse importarEgresos(Integer userId, InputStream entrada) throws IOException {
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
+
+        if (parejaId == null) {
+            throw new IllegalArgumentException("Debes tener una pareja vinculada para importar egresos");
+        }
+        Pareja pareja = parejaRepository.findById(parejaId)
+                .orElseThrow(() -> new IllegalArgumentException("Pareja no encontrada"));
+
+        LectorCsv lector = LectorCsv.abrir(entrada, maxLargoCampo);
+        Map<String, Integer> columnas = leerEncabezado(lector, List.of("fecha", "monto", "categoria", "periodo"));
+
+        // Catálogos y saldos: una consulta por archivo, no por línea
+        Map<String, CategoriaEgreso> categorias = new HashMap<>();
+        for (CategoriaEgreso categoria : categoriaEgresoCache.listar()) {
+            categorias.put(normalizar(categoria.getNombre()), categoria);
+            categorias.putIfAbsent(categoria.getId().toString(), categoria);
+        }
+        Map<String, Presupuesto> periodos = new HashMap<>();
+        for (Presupuesto presupuesto : presupuestoRepository.findByParejaIdOrderByFechaCreacionDesc(parejaId)) {
+            periodos.putIfAbsent(normalizar(presupuesto.getPeriodo()), presupuesto);
+            periodos.putIfAbsent(presupuesto.getId().toString(), presupuesto);
+        }
+        Map<Integer, Map<Integer, BigDecimal>> gastados = egresoAcumuladoService.obtenerGastadosPorPareja(parejaId);
+        BigDecimal ingresosTotales = ingresoAcumuladoService.obtenerTotalPareja(parejaId);
+        Map<Integer, BigDecimal> ingresosPorUsuario = ingresoAcumuladoService.obtenerTotalesPorUsuario(parejaId);
+        BigDecimal ingresosEsposo = ingresosPorUsuario.getOrDefault(pareja.getEsposoId(), BigDecimal.ZERO);
+        BigDecimal ingresosEsposa = ingresosPorUsuario.getOrDefault(pareja.getEsposaId(), BigDecimal.ZERO);
+
+        Map<Integer, Map<Integer, BigDecimal>> porcentajes = new HashMap<>();
+        Map<EgresoAcumuladoService.Clave, BigDecimal> asignados = new HashMap<>();
+        Map<EgresoAcumuladoService.Clave, BigDecimal> disponibles = new HashMap<>();
+
+        ImportacionResponse resultado = new ImportacionResponse();
+        List<EgresoImportado> lote = new ArrayList<>(tamanioLote);
+        List<String> campos;
+        while ((campos = leerRegistro(lector, resultado)) != null) {
+            if (esVacio(campos)) {
+                continue;
+            }
+            resultado.setProcesadas(resultado.getProcesadas() + 1);
+            try {
+                BigDecimal monto = leerMonto(campo(campos, columnas, "monto"));
+                Date fecha = leerFecha(campo(campos, columnas, "fecha"));
+                String descripcion = leerDescripcion(campo(campos, columnas, "descripcion"));
+
+                String nombreCategoria = campo(campos, columnas, "categoria");
+                CategoriaEgreso categoria = categorias.get(normalizar(nombreCategoria));
+                if (categoria == null) {
+                    throw new IllegalArgumentException("Categoría no encontrada: '" + nombreCategoria + "'");
+                }
+                String nombrePeriodo = campo(campos, columnas, "periodo");
+                Presupuesto presupuesto = periodos.get(normalizar(nombrePeriodo));
+                if (presupuesto == null) {
+                    throw new IllegalArgumentException("Período no encontrado: '" + nombrePeriodo + "'");
+                }
+
+                EgresoAcumuladoService.Clave clave =
+                        new EgresoAcumuladoService.Clave(presupuesto.getId(), categoria.getId());
+                BigDecimal disponible = disponibles.get(clave);
+                if (disponible == null) {
+                    BigDecimal porcentaje = porcentajes
+                            .computeIfAbsent(presupuesto.getId(), this::cargarPorcentajes)
+                            .get(categoria.getId());
+                    if (porcentaje == null) {
+                        throw new IllegalArgumentException(String.format(
+                                "No existe un presupuesto asignado para la categoría '%s' en el período '%s'",
+                                categoria.getNombre(), presupuesto.getPeriodo()));
+                    }
+                    BigDecimal asignado = ingresosTotales
+                            .multiply(porcentaje)
+                            .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
+                    BigDecimal gastado = gastados.getOrDefault(clave.periodoId(), Map.of())
+                            .getOrDefault(clave.categoriaId(), BigDecimal.ZERO);
+                    asignados.put(clave, asignado);
+                    disponible = asignado.subtract(gastado);
+                }
+                if (monto.compareTo(disponible) > 0) {
+                    throw new IllegalArgumentException(String.format(
+                            "Supera el monto disponible de la categoría '%s' en el período '%s' ($%s)",
+                            categoria.getNombre(), presupuesto.getPeriodo(), disponible));
+                }
+                disponibles.put(clave, disponible.subtract(monto));
+
+                lote.add(new EgresoImportado(lector.getLinea(), monto, fecha, descripcion, categoria, presupuesto));
+                if (lote.size() >= tamanioLote) {
+                    boolean escrito = escribirLote(resultado, lote, () ->
+                            escribirEgresos(pareja, lote, ingresosEsposo, ingresosEsposa, asignados, disponibles, resultado));
+                    lote.clear();
+                    if (!escrito) {
+                        break;
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                registrarError(resultado, lector.getLinea(), e.getMessage());
+            }
+        }
+        if (!lote.isEmpty()) {
+            escribirLote(resultado, lote, () ->
+                    escribirEgresos(pareja, lote, ingresosEsposo, ingresosEsposa, asignados, disponibles, resultado));
+        }
+
+        logger.info("Importación de egresos (pareja {}): {} importado(s), {} rechazado(s)",
+                parejaId, resultado.getImportadas(), resultado.getRechazadas());
+        logEventoService.registrarEvento(userId,
+                String.format("Importó %d egreso(s) desde CSV (%d línea(s) rechazada(s))",
+                        resultado.getImportadas(), resultado.getRechazadas()));
+        return resultado;
+    }
+
+    /**
+     * Importa ingresos del usuario.
+     * Columnas (en cualquier orden, la primera línea es el encabezado): fecha (AAAA-MM-DD),
+     * monto y opcionalmente descripcion.
+     */
+    public ImportacionResponse importarIngresos(Integer userId, InputStream entrada) throws IOException {
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
+
+        LectorCsv lector = LectorCsv.abrir(entrada, maxLargoCampo);
+        Map<String, Integer> columnas = leerEncabezado(lector, List.of("fecha", "monto"));
+
+        ImportacionResponse resultado = new ImportacionResponse();
+        List<IngresoImportado> lote = new ArrayList<>(tamanioLote);
+        List<String> campos;
+        while ((campos = leerRegistro(lector, resultado)) != null) {
+            if (esVacio(campos)) {
+                continue;
+            }
+            resultado.setProcesadas(resultado.getProcesadas() + 1);
+            try {
+                lote.add(new IngresoImportado(lector.getLinea(),
+                        leerMonto(campo(campos, columnas, "monto")),
+                        leerFecha(campo(campos, columnas, "fecha")),
+                        leerDescripcion(campo(campos, columnas, "descripcion"))));
+                if (lote.size() >= tamanioLote) {
+                    boolean escrito = escribirLote(resultado, lote, () -> escribirIngresos(userId, parejaId, lote, resultado));
+                    lote.clear();
+                    if (!escrito) {
+                        break;
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                registrarError(resultado, lector.getLinea(), e.getMessage());
+            }
+        }
+        if (!lote.isEmpty()) {
+            escribirLote(resultado, lote, () -> escribirIngresos(userId, parejaId, lote, resultado));
+        }
+
+        logger.info("Importación de ingresos (usuario {}): {} importado(s), {} rechazado(s)",
+                userId, resultado.getImportadas(), resultado.getRechazadas());
+        logEventoService.registrarEvento(userId,
+                String.format("Importó %d ingreso(s) desde CSV (%d línea(s) rechazada(s))",
+                        resultado.getImportadas(), resultado.getRechazadas()));
+        return resultado;
+    }
+
+    /**
+     * Escribe un lote en su propia transacción.
+     * Si falla, lo que el lote había anotado en el resultado se descarta junto con la
+     * transacción, sus líneas cuentan como rechazadas y se informa un error en su primera línea
+     * con la cantidad de líneas ya confirmadas; quien llama deja de leer el archivo.
+     * @return true si el lote se confirmó
+     */
+    private boolean escribirLote(ImportacionResponse resultado, List<? extends LineaImportada> lote, Runnable escritura) {
+        int importadas = resultado.getImportadas();
+        int rechazadas = resultado.getRechazadas();
+        int errores = resultado.getErrores().size();
+        try {
+            transactionTemplate.executeWithoutResult(status -> escritura.run());
+            return true;
+        } catch (RuntimeException e) {
+            int primera = lote.get(0).linea();
+            int ultima = lote.get(lote.size() - 1).linea();
+            logger.error("Error al guardar las líneas {} a {} de una importación: {}", primera, ultima, e.getMessage(), e);
+            resultado.setImportadas(importadas);
+            resultado.setRechazadas(rechazadas);
+            resultado.getErrores().subList(errores, resultado.getErrores().size()).clear();
+            registrarError(resultado, primera, lote.size(), String.format(
+                    "No se pudieron guardar las líneas %d a %d; quedaron importadas las %d línea(s) anteriores "
+                            + "y no se leyó el resto del archivo", primera, ultima, importadas));
+            return false;
+        }
+    }
+
+    /**
+     * Suma los montos del lote a los acumulados e inserta los egresos que entraron con sus
+     * participaciones. Cada clave se registra con el UPDATE condicional, en orden de clave; si
+     * el total no entra (otro egreso concurrente consumió el disponible después de la foto),
+     * se reintentan de a una las líneas de esa clave y se rechazan las que ya no entran, y el
+     * disponible en memoria se vuelve a leer para las líneas siguientes.
+     */
+    private void escribirEgresos(Pareja pareja, List<EgresoImportado> lote,
+                                 BigDecimal ingresosEsposo, BigDecimal ingresosEsposa,
+                                 Map<EgresoAcumuladoService.Clave, BigDecimal> asignados,
+                                 Map<EgresoAcumuladoService.Clave, BigDecimal> disponibles,
+                                 ImportacionResponse resultado) {
+        Map<EgresoAcumuladoService.Clave, List<EgresoImportado>> porClave = new TreeMap<>();
+        for (EgresoImportado egreso : lote) {
+            porClave.computeIfAbsent(egreso.clave(), k -> new ArrayList<>()).add(egreso);
+        }
+        Set<EgresoImportado> rechazados = new HashSet<>();
+        porClave.forEach((clave, egresos) -> {
+            BigDecimal asignado = asignados.get(clave);
+            BigDecimal total = egresos.stream()
+                    .map(EgresoImportado::monto)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            if (egresoAcumuladoService.registrarSiHayDisponible(pareja.getId(), clave.periodoId(), clave.categoriaId(),
+                    total, asignado)) {
+                return;
+            }
+            for (EgresoImportado egreso : egresos) {
+                if (!egresoAcumuladoService.registrarSiHayDisponible(pareja.getId(), clave.periodoId(),
+                        clave.categoriaId(), egreso.monto(), asignado)) {
+                    rechazados.add(egreso);
+                }
+            }
+            BigDecimal disponible = asignado.subtract(
+                    egresoAcumuladoService.obtenerGastado(pareja.getId(), clave.periodoId(), clave.categoriaId()));
+            disponibles.put(clave, disponible);
+        });
+        // El reporte de errores sigue el orden de las líneas
+        for (EgresoImportado egreso : lote) {
+            if (rechazados.contains(egreso)) {
+                registrarError(resultado, egreso.linea(), String.format(
+                        "Supera el monto disponible de la categoría '%s' en el período '%s' (otro egreso registrado durante la importación)",
+                        egreso.categoria().getNombre(), egreso.presupuesto().getPeriodo()));
+            }
+        }
+        List<EgresoImportado> aceptados = rechazados.isEmpty()
+                ? lote
+                : lote.stream().filter(egreso -> !rechazados.contains(egreso)).toList();
+        if (!aceptados.isEmpty()) {
+            insertarEgresos(pareja, aceptados, ingresosEsposo, ingresosEsposa);
+            resultado.setImportadas(resultado.getImportadas() + aceptados.size());
+            resumenFinancieroCache.invalidarPareja(pareja.getId());
+            versionDatosService.incrementar(pareja.getId());
+        }
+    }
+
+    /**
+     * Inserta un lote de egresos con sus participaciones
+     */
+    private void insertarEgresos(Pareja pareja, List<EgresoImportado> lote,
+                                 BigDecimal ingresosEsposo, BigDecimal ingresosEsposa) {
+        List<Egreso> egresos = new ArrayList<>(lote.size());
+        for (EgresoImportado egreso : lote) {
+            egresos.add(new Egreso(pareja.getId(), egreso.monto(), egreso.fecha(), egreso.descripcion(),
+                    egreso.categoria().getId(), egreso.presupuesto().getId()));
+        }
+        egresoService.insertarEgresosConIds(egresos);
+
+        List<EgresoParticipacion> participaciones = new ArrayList<>(egresos.size() * 2);
+        for (Egreso egreso : egresos) {
+            EgresoService.Reparto reparto = EgresoService.calcularReparto(egreso.getMontoTotal(),
+                    ingresosEsposo, ingresosEsposa);
+            participaciones.add(new EgresoParticipacion(egreso.getId(), pareja.getEsposoId(),
+                    reparto.porcentajeEsposo(), reparto.montoEsposo()));
+            participaciones.add(new EgresoParticipacion(egreso.getId(), pareja.getEsposaId(),
+                    reparto.porcentajeEsposa(), reparto.montoEsposa()));
+        }
+        egresoService.insertarParticipaciones(participaciones);
+    }
+
+    /**
+     * Inserta un lote de ingresos y suma su total al acumulado del usuario
+     */
+    private void escribirIngresos(Integer userId, Integer parejaId, List<IngresoImportado> lote,
+                                  ImportacionResponse resultado) {
+        Timestamp ahora = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.batchUpdate(INSERT_INGRESO_SQL, lote, lote.size(), (ps, ingreso) -> {
+            ps.setInt(1, userId);
+            ps.setObject(2, parejaId);
+            ps.setBigDecimal(3, ingreso.monto());
+            ps.setString(4, ingreso.descripcion());
+            ps.setDate(5, ingreso.fecha());
+            ps.setTimestamp(6, ahora);
+        });
+
+        BigDecimal total = lote.stream()
+                .map(IngresoImportado::monto)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        ingresoAcumuladoService.registrarMonto(userId, parejaId, total);
+        resultado.setImportadas(resultado.getImportadas() + lote.size());
+        resumenFinancieroCache.invalidarUsuario(userId);
+        versionDatosService.incrementar(parejaId);
+    }
+
+    private Map<Integer, BigDecimal> cargarPorcentajes(Integer presupuestoId) {
+        Map<Integer, BigDecimal> porCategoria = new HashMap<>();
+        for (PresupuestoCategoria presupuestoCategoria : presupuestoCategoriaRepository.findByPresupuestoId(presupuestoId)) {
+            porCategoria.put(presupuestoCategoria.getCategoriaId(), presupuestoCategoria.getPorcentaje());
+        }
+        return porCategoria;
+    }
+
+    /**
+     * Lee la línea de encabezados y devuelve la posición de cada columna
+     */
+    private Map<String, Integer> leerEncabezado(LectorCsv lector, List<String> obligatorias) throws IOException {
+        List<String> encabezado = lector.leer();
+        if (encabezado == null) {
+            throw new IllegalArgumentException("El archivo está vacío");
+        }
+        Map<String, Integer> columnas = new HashMap<>();
+        for (int i = 0; i < encabezado.size(); i++) {
+            columnas.putIfAbsent(normalizar(encabezado.get(i)), i);
+        }
+        for (String obligatoria : obligatorias) {
+            if (!columnas.containsKey(obligatoria)) {
+                throw new IllegalArgumentException("Falta la columna '" + obligatoria + "' en el encabezado");
+            }
+        }
+        return columnas;
+    }
+
+    /**
+     * Lee el siguiente registro. Un error de formato (comillas sin cerrar, campo demasiado
+     * largo) deja el lector en un estado indeterminado, así que detiene la lectura
+     */
+    private List<String> leerRegistro(LectorCsv lector, ImportacionResponse resultado) throws IOException {
+        try {
+            return lector.leer();
+        } catch (IllegalArgumentException e) {
+            resultado.setProcesadas(resultado.getProcesadas() + 1);
+            registrarError(resultado, lector.getLinea(), e.getMessage() + "; no se leyó el resto del archivo");
+            return null;
+        }
+    }
+
+    private void registrarError(ImportacionResponse resultado, int linea, String mensaje) {
+        registrarError(resultado, linea, 1, mensaje);
+    }
+
+    private void registrarError(ImportacionResponse resultado, int linea, int lineas, String mensaje) {
+        resultado.setRechazadas(resultado.getRechazadas() + lineas);
+        if (resultado.getErrores().size() < maxErrores) {
+            resultado.getErrores().add(new ImportacionResponse.ErrorLinea(linea, mensaje));
+        }
+    }
+
+    private String campo(List<String> campos, Map<String, Integer> columnas, String columna) {
+        Integer indice = columnas.get(columna);
+        if (indice == null || indice >= campos.size()) {
+            return "";
+        }
+        return campos.get(indice).trim();
+    }
+
+    private BigDecimal leerMonto(String valor) {
+        if (valor.isEmpty()) {
+            throw new IllegalArgumentException("El monto es obligatorio");
+        }
+        // Acepta coma decimal si no hay punto (1234,56)
+        String numero = valor.indexOf('.') < 0 ? valor.replace(',', '.') : valor;
+        BigDecimal monto;
+        try {
+            monto = new BigDecimal(numero);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Monto inválido: '" + valor + "'");
+        }
+        if (monto.compareTo(MONTO_MINIMO) < 0) {
+            throw new IllegalArgumentException("El monto debe ser mayor a 0");
+        }
+        if (monto.scale() > 2) {
+            throw new IllegalArgumentException("El monto no puede tener más de 2 decimales");
+        }
+        return monto;
+    }
+
+    private Date leerFecha(String valor) {
+        if (valor.isEmpty()) {
+            throw new IllegalArgumentException("La fecha es obligatoria");
+        }
+        try {
+            return Date.valueOf(valor);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Fecha inválida: '" + valor + "' (formato AAAA-MM-DD)");
+        }
+    }
+
+    private String leerDescripcion(String valor) {
+        if (valor.isEmpty()) {
+            return null;
+        }
+        if (valor.length() > MAX_DESCRIPCION_LENGTH) {
+            throw new IllegalArgumentException("La descripción no puede exceder 500 caracteres");
+        }
+        return valor;
+    }
+
+    private boolean esVacio(List<String> campos) {
+        return campos.stream().allMatch(String::isBlank);
+    }
+
+    // Minúsculas y sin tildes, para comparar encabezados, categorías y períodos
+    private static String normalizar(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        String sinTildes = Normalizer.normalize(valor.trim(), Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return sinTildes.toLowerCase(Locale.ROOT);
+    }
+}
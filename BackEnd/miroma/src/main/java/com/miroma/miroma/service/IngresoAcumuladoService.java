@@ -0,0 +1,180 @@
+package com.miroma.miroma.service;
+
+import com.miroma.miroma.entity.Ingreso;
+import com.miroma.miroma.entity.IngresoAcumulado;
+import com.miroma.miroma.repository.IngresoAcumuladoRepository;
+import com.miroma.miroma.repository.IngresoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Mantiene los totales de ingresos por usuario y por pareja.
+ * IngresoService actualiza el acumulado dentro de la misma transacción en la que
+ * crea, modifica o elimina un ingreso, así que leer un total es una consulta indexada
+ * sobre a lo sumo dos filas en lugar de recorrer toda la tabla de ingresos.
+ */
+@Service
+public class IngresoAcumuladoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngresoAcumuladoService.class);
+
+    // pareja_id usado para los ingresos registrados sin pareja vinculada
+    private static final Integer SIN_PAREJA = 0;
+
+    @Autowired
+    private IngresoAcumuladoRepository ingresoAcumuladoRepository;
+
+    @Autowired
+    private IngresoRepository ingresoRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Suma el monto de un ingreso al acumulado de su usuario
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarIngreso(Ingreso ingreso) {
+        acumular(ingreso.getUsuarioId(), ingreso.getParejaId(), ingreso.getMonto());
+    }
+
+    /**
+     * Resta el monto de un ingreso del acumulado de su usuario
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void revertirIngreso(Integer usuarioId, Integer parejaId, BigDecimal monto) {
+        acumular(usuarioId, parejaId, monto.negate());
+    }
+
+    /**
+     * Suma un monto al acumulado de un usuario (por ejemplo el total de varios ingresos
+     * importados juntos)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarMonto(Integer usuarioId, Integer parejaId, BigDecimal monto) {
+        acumular(usuarioId, parejaId, monto);
+    }
+
+    private void acumular(Integer usuarioId, Integer parejaId, BigDecimal monto) {
+        if (monto == null || monto.signum() == 0) {
+            return;
+        }
+        ingresoAcumuladoRepository.acumular(usuarioId, clavePareja(parejaId), monto);
+    }
+
+    /**
+     * Obtiene el total de ingresos de una pareja
+     */
+    public BigDecimal obtenerTotalPareja(Integer parejaId) {
+        return ingresoAcumuladoRepository.sumarPorPareja(parejaId);
+    }
+
+    /**
+     * Obtiene el total de ingresos de cada integrante de una pareja en una sola consulta
+     * @return Mapa usuarioId -> total (los integrantes sin ingresos no aparecen)
+     */
+    public Map<Integer, BigDecimal> obtenerTotalesPorUsuario(Integer parejaId) {
+        Map<Integer, BigDecimal> totales = new HashMap<>();
+        for (IngresoAcumulado acumulado : ingresoAcumuladoRepository.findByParejaId(parejaId)) {
+            totales.put(acumulado.getUsuarioId(), acumulado.getTotal());
+        }
+        return totales;
+    }
+
+    /**
+     * Obtiene el total de ingresos de un usuario, incluyendo los registrados antes de tener pareja
+     */
+    public BigDecimal obtenerTotalUsuario(Integer usuarioId) {
+        return ingresoAcumuladoRepository.sumarPorUsuario(usuarioId);
+    }
+
+    /**
+     * Reconstruye los acumulados a partir de la tabla de ingresos y corrige las diferencias.
+     * Se ejecuta poco después del arranque y luego una vez al día.
+     * @return Cantidad de acumulados que estaban desfasados
+     */
+    @Scheduled(initialDelayString = "${app.ingresos-acumulados.reconciliacion.initial-delay:60000}",
+               fixedDelayString = "${app.ingresos-acumulados.reconciliacion.interval:86400000}")
+    public int reconciliar() {
+        try {
+            // Totales reales calculados desde ingresos
+            Map<List<Integer>, BigDecimal> esperados = new HashMap<>();
+            for (Object[] fila : ingresoRepository.sumarAgrupadoPorUsuarioYPareja()) {
+                esperados.merge(List.of((Integer) fila[0], clavePareja((Integer) fila[1])),
+                        (BigDecimal) fila[2], BigDecimal::add);
+            }
+
+            // Comparar contra los acumulados mantenidos
+            List<List<Integer>> desfasados = new ArrayList<>();
+            for (IngresoAcumulado acumulado : ingresoAcumuladoRepository.findAll()) {
+                List<Integer> clave = List.of(acumulado.getUsuarioId(), acumulado.getParejaId());
+                BigDecimal esperado = esperados.remove(clave);
+                if (!coinciden(acumulado.getTotal(), esperado)) {
+                    desfasados.add(clave);
+                }
+            }
+            // Lo que queda en esperados no tiene fila de acumulado
+            for (Map.Entry<List<Integer>, BigDecimal> faltante : esperados.entrySet()) {
+                if (faltante.getValue().signum() != 0) {
+                    desfasados.add(faltante.getKey());
+                }
+            }
+
+            // Corregir cada clave bajo bloqueo, recalculando con el dato vigente
+            for (List<Integer> clave : desfasados) {
+                transactionTemplate.executeWithoutResult(status -> corregir(clave.get(0), clave.get(1)));
+            }
+
+            if (desfasados.isEmpty()) {
+                logger.info("Reconciliación de ingresos acumulados: sin diferencias");
+            } else {
+                logger.warn("Reconciliación de ingresos acumulados: {} acumulado(s) corregido(s)", desfasados.size());
+            }
+            return desfasados.size();
+        } catch (Exception e) {
+            logger.error("Error al reconciliar ingresos acumulados: {}", e.getMessage(), e);
+            return -1;
+        }
+    }
+
+    private void corregir(Integer usuarioId, Integer parejaId) {
+        // Bloquear primero la fila para que ningún ingreso concurrente la modifique mientras recalculamos
+        IngresoAcumulado acumulado = ingresoAcumuladoRepository.bloquear(usuarioId, parejaId).orElse(null);
+        BigDecimal real = ingresoRepository.sumarPorUsuarioYPareja(
+                usuarioId, SIN_PAREJA.equals(parejaId) ? null : parejaId);
+
+        if (acumulado == null) {
+            logger.warn("Acumulado de ingresos faltante (usuario {}, pareja {}): se registra {}",
+                    usuarioId, parejaId, real);
+            ingresoAcumuladoRepository.acumular(usuarioId, parejaId, real);
+        } else if (!coinciden(acumulado.getTotal(), real)) {
+            logger.warn("Acumulado de ingresos desfasado (usuario {}, pareja {}): {} -> {}",
+                    usuarioId, parejaId, acumulado.getTotal(), real);
+            acumulado.setTotal(real);
+            ingresoAcumuladoRepository.save(acumulado);
+        }
+    }
+
+    private Integer clavePareja(Integer parejaId) {
+        return parejaId != null ? parejaId : SIN_PAREJA;
+    }
+
+    private boolean coinciden(BigDecimal actual, BigDecimal esperado) {
+        BigDecimal a = Objects.requireNonNullElse(actual, BigDecimal.ZERO);
+        BigDecimal b = Objects.requireNonNullElse(esperado, BigDecimal.ZERO);
+        return a.compareTo(b) == 0;
+    }
+}
@@ -2,11 +2,12 @@ package com.miroma.miroma.service;
 
 import com.miroma.miroma.dto.IngresoRequest;
 import com.miroma.miroma.dto.IngresoResponse;
+import com.miroma.miroma.dto.PaginaResponse;
 import com.miroma.miroma.entity.Ingreso;
-import com.miroma.miroma.entity.Usuario;
 import com.miroma.miroma.exception.UnauthorizedException;
 import com.miroma.miroma.repository.IngresoRepository;
-import com.miroma.miroma.repository.UsuarioRepository;
+import com.miroma.miroma.util.Paginacion;
+import com.miroma.miroma.security.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -22,19 +23,27 @@ public class IngresoService {
     private IngresoRepository ingresoRepository;
 
     @Autowired
-    private UsuarioRepository usuarioRepository;
+    private SecurityUtils securityUtils;
 
     @Autowired
     private LogEventoService logEventoService;
 
+    @Autowired
+    private IngresoAcumuladoService ingresoAcumuladoService;
+
+    @Autowired
+    private ResumenFinancieroCache resumenFinancieroCache;
+
+    @Autowired
+    private VersionDatosService versionDatosService;
+
+    @Autowired
+    private Paginacion paginacion;
+
     @Transactional
     public IngresoResponse crearIngreso(Integer userId, IngresoRequest request) {
-        // Obtener el usuario
-        Usuario usuario = usuarioRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
-
-        // Obtener pareja_id del usuario
-        Integer parejaId = usuario.getParejaId();
+        // Obtener la pareja del usuario autenticado
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
 
         // Crear el ingreso
         Ingreso ingreso = new Ingreso();
@@ -47,6 +56,11 @@ public class IngresoService {
         ingreso = ingresoRepository.save(ingreso);
         ingresoRepository.flush();
 
+        // Sumar al total de ingresos del usuario
+        ingresoAcumuladoService.registrarIngreso(ingreso);
+        resumenFinancieroCache.invalidarUsuario(userId);
+        versionDatosService.incrementar(ingreso.getParejaId());
+
         // Registrar evento en log
         logEventoService.registrarEvento(userId, 
             String.format("Creó un ingreso de $%s - %s", request.getMonto(), 
@@ -55,6 +69,7 @@ public class IngresoService {
         return mapToResponse(ingreso);
     }
 
+    @Transactional(readOnly = true)
     public List<IngresoResponse> obtenerIngresosPorUsuario(Integer userId) {
         // Solo obtener ingresos del usuario logueado, no de su pareja
         List<Ingreso> ingresos = ingresoRepository.findByUsuarioIdOrderByFechaDesc(userId);
@@ -64,6 +79,28 @@ public class IngresoService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Página de ingresos del usuario logueado, del más reciente al más antiguo
+     * @param cursor Cursor de la página anterior (null para la primera)
+     * @param limite Tamaño de página pedido (null para el valor por defecto)
+     */
+    @Transactional(readOnly = true)
+    public PaginaResponse<IngresoResponse> obtenerPaginaIngresosPorUsuario(Integer userId, String cursor, Integer limite) {
+        Paginacion.Posicion posicion = Paginacion.decodificar(cursor);
+        int tamanio = paginacion.tamanio(limite);
+
+        List<IngresoResponse> filas = ingresoRepository.findPaginaPorUsuario(userId,
+                        posicion != null ? posicion.fechaComoDate() : null,
+                        posicion != null ? posicion.id() : null,
+                        paginacion.consulta(tamanio))
+                .stream()
+                .map(this::mapToResponse)
+                .collect(Collectors.toList());
+        return paginacion.armarPagina(filas, tamanio,
+                ingreso -> new Paginacion.Posicion(ingreso.getFecha().toString(), ingreso.getId()));
+    }
+
+    @Transactional(readOnly = true)
     public IngresoResponse obtenerIngresoPorId(Integer ingresoId, Integer userId) {
         Ingreso ingreso = ingresoRepository.findById(ingresoId)
                 .orElseThrow(() -> new IllegalArgumentException("Ingreso no encontrado"));
@@ -86,6 +123,9 @@ public class IngresoService {
             throw new IllegalArgumentException("No tienes permiso para modificar este ingreso");
         }
 
+        // Quitar el monto anterior del total antes de modificar el ingreso
+        ingresoAcumuladoService.revertirIngreso(ingreso.getUsuarioId(), ingreso.getParejaId(), ingreso.getMonto());
+
         // Actualizar campos
         ingreso.setMonto(request.getMonto());
         ingreso.setDescripcion(request.getDescripcion() != null ? request.getDescripcion().trim() : null);
@@ -94,6 +134,11 @@ public class IngresoService {
         ingreso = ingresoRepository.save(ingreso);
         ingresoRepository.flush();
 
+        // Sumar el nuevo monto al total
+        ingresoAcumuladoService.registrarIngreso(ingreso);
+        resumenFinancieroCache.invalidarUsuario(userId);
+        versionDatosService.incrementar(ingreso.getParejaId());
+
         // Registrar evento en log
         logEventoService.registrarEvento(userId, 
             String.format("Actualizó un ingreso (ID: %d) - Monto: $%s", ingresoId, request.getMonto()));
@@ -115,7 +160,12 @@ public class IngresoService {
         logEventoService.registrarEvento(userId, 
             String.format("Eliminó un ingreso (ID: %d) - Monto: $%s", ingresoId, ingreso.getMonto()));
 
+        // Restar del total de ingresos del usuario
+        ingresoAcumuladoService.revertirIngreso(ingreso.getUsuarioId(), ingreso.getParejaId(), ingreso.getMonto());
+
         ingresoRepository.delete(ingreso);
+        resumenFinancieroCache.invalidarUsuario(userId);
+        versionDatosService.incrementar(ingreso.getParejaId());
     }
 
     private IngresoResponse mapToResponse(Ingreso ingreso) {
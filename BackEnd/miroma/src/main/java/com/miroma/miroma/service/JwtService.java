@@ -1,8 +1,11 @@
 package com.miroma.miroma.service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -31,6 +34,10 @@ public class JwtService {
     // Longitud mínima de la clave secreta (256 bits = 32 bytes)
     private static final int MIN_SECRET_KEY_LENGTH = 32;
 
+    // Clave y parser se construyen una sola vez al iniciar; ambos son inmutables y thread-safe
+    private SecretKey signingKey;
+    private JwtParser parser;
+
     /**
      * Valida que la clave secreta tenga la longitud mínima requerida
      * @throws IllegalArgumentException si la clave es demasiado corta
@@ -45,11 +52,12 @@ public class JwtService {
     }
 
     /**
-     * Obtiene la clave de firma HMAC-SHA256
+     * Construye la clave de firma HMAC-SHA256 y el parser de tokens
      * Valida que la clave tenga la longitud mínima requerida
      * Fuerza HS256 usando una clave de exactamente 256 bits (32 bytes)
      */
-    private SecretKey getSigningKey() {
+    @PostConstruct
+    void init() {
         validateSecretKey();
         byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
         // Asegurar que la clave tenga exactamente 32 bytes (256 bits) para HS256
@@ -58,7 +66,10 @@ public class JwtService {
         int copyLength = Math.min(keyBytes.length, 32);
         System.arraycopy(keyBytes, 0, key256, 0, copyLength);
         // Si la clave original es más corta, el resto ya está en ceros
-        return Keys.hmacShaKeyFor(key256);
+        signingKey = Keys.hmacShaKeyFor(key256);
+        parser = Jwts.parser()
+                .verifyWith(signingKey) // Forzar uso de la clave HMAC
+                .build();
     }
 
     public String generateToken(Integer userId, String email, String nombre) {
@@ -96,7 +107,7 @@ public class JwtService {
         Date expiryDate = new Date(now.getTime() + expirationTime);
 
         // Forzar el algoritmo HS256 explícitamente
-        // getSigningKey() ya devuelve una clave de 256 bits que fuerza HS256
+        // signingKey es una clave de 256 bits que fuerza HS256
         return Jwts.builder()
                 .header()
                 .add("alg", ALLOWED_ALGORITHM) // Forzar algoritmo HS256 en el header
@@ -105,30 +116,49 @@ public class JwtService {
                 .subject(subject)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey()) // La clave de 256 bits fuerza HS256 automáticamente
+                .signWith(signingKey) // La clave de 256 bits fuerza HS256 automáticamente
                 .compact();
     }
 
+    /**
+     * Verifica el token una sola vez y devuelve sus claims como un valor inmutable
+     * Valida explícitamente:
+     * 1. Que el algoritmo no sea "none"
+     * 2. Que el algoritmo sea el esperado (HS256)
+     * 3. Que la firma sea válida
+     * 4. Que el token no haya expirado
+     * 
+     * Esto previene los siguientes ataques:
+     * - Algoritmo "none" attack: Rechaza tokens sin firma
+     * - Algorithm confusion attack: Solo acepta HS256, rechaza RSA/ECDSA
+     * - Weak key attack: Valida longitud mínima de clave
+     * 
+     * @param token Token JWT a validar
+     * @return Claims verificados del token
+     * @throws io.jsonwebtoken.security.SecurityException si el token es inválido, la firma no coincide o expiró
+     */
+    public VerifiedClaims parseAndVerify(String token) {
+        return VerifiedClaims.from(extractAllClaims(token));
+    }
+
     public String getTokenType(String token) {
         try {
-            Claims claims = extractAllClaims(token);
-            return claims.get("type", String.class);
+            return parseAndVerify(token).type();
         } catch (Exception e) {
             return null;
         }
     }
 
     public String extractEmail(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return parseAndVerify(token).email();
     }
 
     public Integer extractUserId(String token) {
-        Claims claims = extractAllClaims(token);
-        return claims.get("userId", Integer.class);
+        return parseAndVerify(token).userId();
     }
 
     public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        return Date.from(parseAndVerify(token).expiration());
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
@@ -136,99 +166,18 @@ public class JwtService {
         return claimsResolver.apply(claims);
     }
 
-    /**
-     * Extrae los claims del token JWT con validación de seguridad
-     * Valida explícitamente:
-     * 1. Que el algoritmo no sea "none"
-     * 2. Que el algoritmo sea el esperado (HS256)
-     * 3. Que la firma sea válida
-     * 
-     * @param token Token JWT a validar
-     * @return Claims del token
-     * @throws io.jsonwebtoken.security.SecurityException si el algoritmo es inválido o la firma no coincide
-     */
-    /**
-     * Extrae los claims del token JWT con validación de seguridad
-     * Valida explícitamente:
-     * 1. Que el algoritmo no sea "none"
-     * 2. Que el algoritmo sea el esperado (HS256)
-     * 3. Que la firma sea válida
-     * 
-     * Esto previene los siguientes ataques:
-     * - Algoritmo "none" attack: Rechaza tokens sin firma
-     * - Algorithm confusion attack: Solo acepta HS256, rechaza RSA/ECDSA
-     * - Weak key attack: Valida longitud mínima de clave
-     * 
-     * @param token Token JWT a validar
-     * @return Claims del token
-     * @throws io.jsonwebtoken.security.SecurityException si el algoritmo es inválido o la firma no coincide
-     */
-    /**
-     * Extrae el algoritmo del header del token JWT sin verificar la firma
-     * Esto permite validar el algoritmo antes de verificar la firma
-     */
-    private String extractAlgorithmFromHeader(String token) {
-        try {
-            // Decodificar el header del JWT (primera parte del token)
-            String[] parts = token.split("\\.");
-            if (parts.length != 3) {
-                throw new io.jsonwebtoken.security.SecurityException("Token JWT inválido: formato incorrecto");
-            }
-            
-            // Decodificar el header (base64url)
-            String headerJson = new String(
-                java.util.Base64.getUrlDecoder().decode(parts[0]),
-                StandardCharsets.UTF_8
-            );
-            
-            // Parsear el header JSON de forma simple (buscar "alg":)
-            // Formato esperado: {"alg":"HS256","typ":"JWT"}
-            int algIndex = headerJson.indexOf("\"alg\"");
-            if (algIndex == -1) {
-                return null; // No hay campo alg
-            }
-            
-            // Buscar el valor después de "alg":
-            int colonIndex = headerJson.indexOf(':', algIndex);
-            if (colonIndex == -1) {
-                return null;
-            }
-            
-            // Buscar las comillas del valor
-            int startQuote = headerJson.indexOf('"', colonIndex);
-            if (startQuote == -1) {
-                return null;
-            }
-            
-            int endQuote = headerJson.indexOf('"', startQuote + 1);
-            if (endQuote == -1) {
-                return null;
-            }
-            
-            return headerJson.substring(startQuote + 1, endQuote);
-        } catch (Exception e) {
-            throw new io.jsonwebtoken.security.SecurityException(
-                "Error al decodificar el header del token JWT: " + e.getMessage(), e
-            );
-        }
-    }
-
     private Claims extractAllClaims(String token) {
         try {
-            // Validar el algoritmo ANTES de verificar la firma
-            // Esto previene algorithm confusion attacks y algoritmo "none" attack
-            String algorithm = extractAlgorithmFromHeader(token);
-            
-            // Validar que el algoritmo no sea "none"
-            if (algorithm == null || "none".equalsIgnoreCase(algorithm)) {
-                throw new io.jsonwebtoken.security.SecurityException(
-                    "Algoritmo 'none' no permitido. Tokens sin firma son rechazados por seguridad."
-                );
-            }
-            
+            // El parser rechaza tokens sin firma (algoritmo "none") y verifica la firma
+            // siempre con la clave HMAC configurada, sin confiar en el header del token.
+            // JJWT 0.12.5 con verifyWith() ya valida que el algoritmo coincida con la clave
+            Jws<Claims> jws = parser.parseSignedClaims(token);
+
             // Validar que el algoritmo sea el esperado (HS256)
             // Esto previene ataques de confusión de algoritmos (alg header attack)
-            // donde un atacante intenta cambiar el algoritmo a RSA/ECDSA
+            // donde un atacante intenta cambiar el algoritmo a RSA/ECDSA; el header ya
+            // viene decodificado por el parser, así que no se vuelve a procesar el token
+            String algorithm = jws.getHeader().getAlgorithm();
             if (!ALLOWED_ALGORITHM.equals(algorithm)) {
                 throw new io.jsonwebtoken.security.SecurityException(
                     String.format("Algoritmo '%s' no permitido. Solo se acepta '%s' (HMAC-SHA256). " +
@@ -237,20 +186,12 @@ public class JwtService {
                 );
             }
             
-            // Ahora verificar la firma con la clave correcta
-            // Esto previene ataques de confusión de algoritmos (alg header attack)
-            // JJWT 0.12.5 con verifyWith() ya valida que el algoritmo coincida con la clave,
-            // pero nuestra validación explícita añade una capa adicional de seguridad
-            return Jwts.parser()
-                    .verifyWith(getSigningKey()) // Forzar uso de la clave HMAC
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            return jws.getPayload();
         } catch (io.jsonwebtoken.security.SecurityException e) {
             // Re-lanzar excepciones de seguridad
             throw e;
         } catch (Exception e) {
-            // Cualquier otro error se convierte en excepción de seguridad
+            // Cualquier otro error (incluido un token expirado) se convierte en excepción de seguridad
             throw new io.jsonwebtoken.security.SecurityException(
                 "Error al validar el token JWT: " + e.getMessage(), e
             );
@@ -258,17 +199,17 @@ public class JwtService {
     }
 
     public Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return parseAndVerify(token).isExpired();
     }
 
     public Boolean validateToken(String token, String email) {
-        final String tokenEmail = extractEmail(token);
-        return (tokenEmail.equals(email) && !isTokenExpired(token));
+        final VerifiedClaims claims = parseAndVerify(token);
+        return (claims.email().equals(email) && !claims.isExpired());
     }
 
     public Boolean validateToken(String token) {
         try {
-            return !isTokenExpired(token);
+            return !parseAndVerify(token).isExpired();
         } catch (Exception e) {
             return false;
         }
@@ -276,11 +217,9 @@ public class JwtService {
 
     public Integer extractTokenVersion(String token) {
         try {
-            Claims claims = extractAllClaims(token);
-            return claims.get("tokenVersion", Integer.class);
+            return parseAndVerify(token).tokenVersion();
         } catch (Exception e) {
             return null;
         }
     }
 }
-
@@ -1,55 +1,309 @@
 package com.miroma.miroma.service;
 
+import com.miroma.miroma.dto.LogEventoResponse;
+import com.miroma.miroma.dto.PaginaResponse;
 import com.miroma.miroma.entity.LogEvento;
 import com.miroma.miroma.entity.Usuario;
 import com.miroma.miroma.repository.LogEventoRepository;
 import com.miroma.miroma.repository.UsuarioRepository;
+import com.miroma.miroma.util.Paginacion;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
+/**
+ * Registro de auditoría (tabla log_eventos).
+ *
+ * registrarEvento solo encola el evento: no abre transacción ni usa una conexión del pool
+ * del request. Uno o más hilos de fondo vacían la cola en lotes con inserciones JDBC batch,
+ * resolviendo el nombre del usuario con una caché. Como antes (REQUIRES_NEW), el evento se
+ * registra aunque la transacción del llamador luego se revierta.
+ *
+ * Si la cola está llena se espera hasta app.log-eventos.offer-timeout-ms y luego el evento
+ * se descarta y se cuenta. Al apagar la aplicación se escribe lo que quede en la cola.
+ *
+ * Las consultas de eventos del usuario son transacciones de solo lectura: con la réplica
+ * habilitada se leen de ella.
+ */
 @Service
 public class LogEventoService {
 
+    private static final Logger logger = LoggerFactory.getLogger(LogEventoService.class);
+
+    private static final int MAX_ACCION_LENGTH = 1000;
+
+    private static final String INSERT_SQL = "INSERT INTO log_eventos (usuario_id, accion, fecha) VALUES (?, ?, ?)";
+
+    private static final int MAX_NOMBRES_EN_CACHE = 10000;
+
+    private record Evento(Integer usuarioId, String accion, Timestamp fecha) {
+    }
+
     @Autowired
-    private LogEventoRepository logEventoRepository;
+    private JdbcTemplate jdbcTemplate;
 
     @Autowired
     private UsuarioRepository usuarioRepository;
 
-    private static final int MAX_ACCION_LENGTH = 1000;
+    @Autowired
+    private LogEventoRepository logEventoRepository;
+
+    @Autowired
+    private Paginacion paginacion;
+
+    @Value("${app.log-eventos.queue-capacity:10000}")
+    private int capacidadCola;
+
+    @Value("${app.log-eventos.batch-size:200}")
+    private int tamanioLote;
+
+    @Value("${app.log-eventos.workers:1}")
+    private int cantidadWorkers;
+
+    @Value("${app.log-eventos.offer-timeout-ms:50}")
+    private long esperaEncolarMs;
+
+    @Value("${app.log-eventos.shutdown-timeout-ms:10000}")
+    private long esperaApagadoMs;
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    private BlockingQueue<Evento> cola;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean detenido = false;
+
+    private final Map<Integer, String> nombres = new ConcurrentHashMap<>();
+
+    private final AtomicLong encolados = new AtomicLong();
+    private final AtomicLong escritos = new AtomicLong();
+    private final AtomicLong descartados = new AtomicLong();
+    private final AtomicLong fallidos = new AtomicLong();
+
+    @PostConstruct
+    void iniciar() {
+        cola = new ArrayBlockingQueue<>(capacidadCola);
+        for (int i = 0; i < cantidadWorkers; i++) {
+            Thread worker = new Thread(this::procesarCola, "log-eventos-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Encola un evento de auditoría del usuario
+     * @param usuarioId ID del usuario que realizó la acción
+     * @param accion Descripción de la acción
+     */
     public void registrarEvento(Integer usuarioId, String accion) {
+        Evento evento = new Evento(usuarioId, accion, new Timestamp(System.currentTimeMillis()));
         try {
-            // Obtener el nombre del usuario
-            String nombreUsuario = "Usuario desconocido";
-            Optional<Usuario> usuarioOpt = usuarioRepository.findById(usuarioId);
-            if (usuarioOpt.isPresent()) {
-                nombreUsuario = usuarioOpt.get().getNombre();
+            if (!detenido && cola.offer(evento, esperaEncolarMs, TimeUnit.MILLISECONDS)) {
+                encolados.incrementAndGet();
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long total = descartados.incrementAndGet();
+        // No llenar el log de errores si la cola se mantiene saturada
+        if (total == 1 || total % 1000 == 0) {
+            logger.warn("Cola de log de eventos llena: {} evento(s) descartado(s) en total", total);
+        }
+    }
+
+    /**
+     * Eventos del usuario, del más reciente al más antiguo
+     * @param fechaInicio Fecha inicial (opcional, junto con fechaFin)
+     * @param fechaFin Fecha final (opcional, junto con fechaInicio)
+     * @param tipoAccion Texto a buscar en la acción (opcional)
+     */
+    @Transactional(readOnly = true)
+    public List<LogEventoResponse> obtenerEventosPorUsuario(Integer userId, String fechaInicio, String fechaFin,
+                                                            String tipoAccion) {
+        List<LogEvento> eventos;
+
+        // Si hay filtros de fecha, convertir a Timestamp
+        if (fechaInicio != null && fechaFin != null && !fechaInicio.isEmpty() && !fechaFin.isEmpty()) {
+            Timestamp fechaInicioTs = Timestamp.valueOf(fechaInicio + " 00:00:00");
+            Timestamp fechaFinTs = Timestamp.valueOf(fechaFin + " 23:59:59");
+
+            if (tipoAccion != null && !tipoAccion.isEmpty()) {
+                eventos = logEventoRepository.findByUsuarioIdAndFechaBetweenAndAccionContaining(
+                        userId, fechaInicioTs, fechaFinTs, tipoAccion);
+            } else {
+                eventos = logEventoRepository.findByUsuarioIdAndFechaBetween(
+                        userId, fechaInicioTs, fechaFinTs);
             }
+        } else if (tipoAccion != null && !tipoAccion.isEmpty()) {
+            eventos = logEventoRepository.findByUsuarioIdAndAccionContaining(userId, tipoAccion);
+        } else {
+            eventos = logEventoRepository.findByUsuarioIdOrderByFechaDesc(userId);
+        }
+
+        return eventos.stream()
+                .map(this::mapToResponse)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Página de eventos del usuario, del más reciente al más antiguo, con los mismos filtros
+     * @param cursor Cursor de la página anterior (null para la primera)
+     * @param limite Tamaño de página pedido (null para el valor por defecto)
+     */
+    @Transactional(readOnly = true)
+    public PaginaResponse<LogEventoResponse> obtenerPaginaEventosPorUsuario(Integer userId, String fechaInicio,
+                                                                            String fechaFin, String tipoAccion,
+                                                                            String cursor, Integer limite) {
+        Timestamp fechaInicioTs = null;
+        Timestamp fechaFinTs = null;
+        if (fechaInicio != null && fechaFin != null && !fechaInicio.isEmpty() && !fechaFin.isEmpty()) {
+            fechaInicioTs = Timestamp.valueOf(fechaInicio + " 00:00:00");
+            fechaFinTs = Timestamp.valueOf(fechaFin + " 23:59:59");
+        }
+        String texto = tipoAccion != null && !tipoAccion.isEmpty() ? tipoAccion : null;
+        Paginacion.Posicion posicion = Paginacion.decodificar(cursor);
+        int tamanio = paginacion.tamanio(limite);
 
-            // Construir el mensaje completo con el nombre del usuario
-            String accionCompleta = String.format("%s: %s", nombreUsuario, accion);
+        List<LogEventoResponse> filas = logEventoRepository.findPaginaPorUsuario(userId,
+                        fechaInicioTs, fechaFinTs, texto,
+                        posicion != null ? posicion.fechaComoTimestamp() : null,
+                        posicion != null ? posicion.id() : null,
+                        paginacion.consulta(tamanio))
+                .stream()
+                .map(this::mapToResponse)
+                .collect(Collectors.toList());
+        return paginacion.armarPagina(filas, tamanio,
+                evento -> new Paginacion.Posicion(evento.getFecha().toString(), evento.getId()));
+    }
+
+    private LogEventoResponse mapToResponse(LogEvento evento) {
+        return new LogEventoResponse(
+                evento.getId(),
+                evento.getUsuarioId(),
+                evento.getAccion(),
+                evento.getFecha()
+        );
+    }
 
-            // Truncar la acción si excede el límite
-            String accionTruncada = accionCompleta;
-            if (accionCompleta != null && accionCompleta.length() > MAX_ACCION_LENGTH) {
-                accionTruncada = accionCompleta.substring(0, MAX_ACCION_LENGTH - 3) + "...";
+    private void procesarCola() {
+        List<Evento> lote = new ArrayList<>(tamanioLote);
+        while (!detenido || !cola.isEmpty()) {
+            try {
+                Evento primero = cola.poll(500, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    continue;
+                }
+                lote.add(primero);
+                cola.drainTo(lote, tamanioLote - 1);
+                escribirLote(lote);
+            } catch (InterruptedException e) {
+                // El apagado se controla con 'detenido'; seguir vaciando la cola
+            } finally {
+                lote.clear();
             }
-            
-            LogEvento logEvento = new LogEvento(usuarioId, accionTruncada);
-            logEventoRepository.save(logEvento);
-            logEventoRepository.flush();
+        }
+    }
+
+    private void escribirLote(List<Evento> lote) {
+        List<Object[]> filas = new ArrayList<>(lote.size());
+        for (Evento evento : lote) {
+            filas.add(new Object[]{evento.usuarioId(), construirAccion(evento), evento.fecha()});
+        }
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, filas);
+            escritos.addAndGet(lote.size());
         } catch (Exception e) {
-            // No lanzar excepción para no interrumpir el flujo principal
-            // Solo loggear el error
-            System.err.println("Error al registrar evento en log: " + e.getMessage());
-            e.printStackTrace();
+            // No lanzar excepción para no detener el worker; el lote se pierde y se cuenta
+            fallidos.addAndGet(lote.size());
+            logger.error("Error al registrar {} evento(s) en log: {}", lote.size(), e.getMessage());
         }
     }
-}
 
+    private String construirAccion(Evento evento) {
+        // Construir el mensaje completo con el nombre del usuario
+        String accionCompleta = String.format("%s: %s", obtenerNombre(evento.usuarioId()), evento.accion());
+
+        // Truncar la acción si excede el límite
+        if (accionCompleta.length() > MAX_ACCION_LENGTH) {
+            return accionCompleta.substring(0, MAX_ACCION_LENGTH - 3) + "...";
+        }
+        return accionCompleta;
+    }
+
+    private String obtenerNombre(Integer usuarioId) {
+        String nombre = nombres.get(usuarioId);
+        if (nombre != null) {
+            return nombre;
+        }
+        try {
+            nombre = usuarioRepository.findById(usuarioId).map(Usuario::getNombre).orElse(null);
+        } catch (Exception e) {
+            nombre = null;
+        }
+        if (nombre == null) {
+            // No se guarda en caché: el usuario podría existir en un próximo intento
+            return "Usuario desconocido";
+        }
+        if (nombres.size() >= MAX_NOMBRES_EN_CACHE) {
+            nombres.clear();
+        }
+        nombres.put(usuarioId, nombre);
+        return nombre;
+    }
+
+    /**
+     * Escribe los eventos pendientes antes de apagar la aplicación
+     */
+    @PreDestroy
+    void detener() {
+        detenido = true;
+        long limite = System.currentTimeMillis() + esperaApagadoMs;
+        for (Thread worker : workers) {
+            try {
+                worker.join(Math.max(1, limite - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (!cola.isEmpty()) {
+            logger.warn("Apagado: {} evento(s) de log sin escribir", cola.size());
+        }
+    }
+
+    public long getEncolados() {
+        return encolados.get();
+    }
+
+    public long getEscritos() {
+        return escritos.get();
+    }
+
+    public long getDescartados() {
+        return descartados.get();
+    }
+
+    public long getFallidos() {
+        return fallidos.get();
+    }
+
+    public int getPendientes() {
+        return cola.size();
+    }
+}
@@ -3,51 +3,128 @@ package com.miroma.miroma.service;
 import com.miroma.miroma.entity.IntentoLogin;
 import com.miroma.miroma.exception.ValidationException;
 import com.miroma.miroma.repository.IntentoLoginRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
-import java.util.Calendar;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+/**
+ * Control de intentos de login fallidos.
+ *
+ * El estado se lleva en memoria, por email normalizado y por IP del cliente, con candados
+ * repartidos en franjas (dos logins de emails distintos no se bloquean entre sí). Cada clave
+ * cuenta los fallos dentro de una ventana deslizante de app.login-throttle.ventana-ms; al llegar
+ * al máximo se bloquea por 3 minutos * 2^nivelBloqueo y el nivel sube, como antes.
+ *
+ * La tabla intentos_login se sigue actualizando, pero solo con los cambios de estado de cada
+ * email (bloqueo, o intentos reseteados tras un login exitoso) y en lotes asíncronos cada
+ * app.login-throttle.flush-interval ms, así una ráfaga de intentos no genera una escritura por
+ * intento. Un email se lee de la tabla la primera vez que aparece, para respetar bloqueos y
+ * niveles previos a un reinicio. Las IP solo se llevan en memoria.
+ */
 @Service
 public class LoginAttemptService {
 
+    private static final Logger logger = LoggerFactory.getLogger(LoginAttemptService.class);
+
     private static final int MAX_INTENTOS = 3;
     private static final int TIEMPO_BLOQUEO_INICIAL_MINUTOS = 3;
+    private static final int MAX_NIVEL_BLOQUEO = 20;
+
+    private static final int FRANJAS = 64;
+
+    private static final String PREFIJO_IP = "ip:";
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO intentos_login (email, intentos_fallidos, ultimo_intento, bloqueado_hasta, nivel_bloqueo) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE intentos_fallidos = VALUES(intentos_fallidos), ultimo_intento = VALUES(ultimo_intento), " +
+            "bloqueado_hasta = VALUES(bloqueado_hasta), nivel_bloqueo = VALUES(nivel_bloqueo)";
+
+    /**
+     * Estado de una clave (email o IP). Se modifica solo con el candado de su franja
+     */
+    private static class Estado {
+        private final Deque<Long> fallos = new ArrayDeque<>();
+        private long bloqueadoHasta;
+        private int nivelBloqueo;
+        private long ultimoIntento;
+        // Lo que hay guardado en intentos_login difiere de "sin intentos ni bloqueo"
+        private boolean persistido;
+    }
 
     @Autowired
     private IntentoLoginRepository intentoLoginRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.login-throttle.ventana-ms:900000}")
+    private long ventanaMs;
+
+    @Value("${app.login-throttle.max-intentos-ip:20}")
+    private int maxIntentosIp;
+
+    private final Map<String, Estado> estados = new ConcurrentHashMap<>();
+
+    private final Object[] franjas = new Object[FRANJAS];
+
+    // Último estado de cada email pendiente de escribir (si cambia varias veces, se escribe una)
+    private final Map<String, IntentoLogin> pendientes = new ConcurrentHashMap<>();
+
+    private final AtomicLong bloqueos = new AtomicLong();
+    private final AtomicLong escritos = new AtomicLong();
+
+    public LoginAttemptService() {
+        for (int i = 0; i < FRANJAS; i++) {
+            franjas[i] = new Object();
+        }
+    }
+
     /**
-     * Verifica si el email está bloqueado
+     * Verifica si el email o la IP están bloqueados
      * @param email Email del usuario
+     * @param ip Dirección del cliente (null si no se conoce)
      * @throws ValidationException Si el usuario está bloqueado
      */
-    public void verificarBloqueo(String email) {
-        Optional<IntentoLogin> intentoOpt = intentoLoginRepository.findByEmail(email.toLowerCase().trim());
-        
-        if (intentoOpt.isPresent()) {
-            IntentoLogin intento = intentoOpt.get();
-            
-            // Verificar si está bloqueado
-            if (intento.getBloqueadoHasta() != null) {
-                Timestamp ahora = new Timestamp(System.currentTimeMillis());
-                
-                if (intento.getBloqueadoHasta().after(ahora)) {
-                    // Aún está bloqueado
-                    long minutosRestantes = calcularMinutosRestantes(intento.getBloqueadoHasta(), ahora);
-                    throw new ValidationException(
-                        String.format("Tu cuenta está temporalmente bloqueada debido a múltiples intentos fallidos. " +
-                                     "Por favor, intenta nuevamente en %d minuto(s).", minutosRestantes)
-                    );
-                } else {
-                    // El bloqueo expiró, resetear intentos pero mantener nivel de bloqueo
-                    intento.setBloqueadoHasta(null);
-                    intento.setIntentosFallidos(0);
-                    intentoLoginRepository.save(intento);
-                }
+    public void verificarBloqueo(String email, String ip) {
+        long ahora = System.currentTimeMillis();
+
+        String claveEmail = normalizar(email);
+        long bloqueadoHasta = bloqueadoHasta(claveEmail, obtenerEstado(claveEmail), ahora);
+        if (bloqueadoHasta > ahora) {
+            throw new ValidationException(
+                String.format("Tu cuenta está temporalmente bloqueada debido a múltiples intentos fallidos. " +
+                             "Por favor, intenta nuevamente en %d minuto(s).", calcularMinutosRestantes(bloqueadoHasta, ahora))
+            );
+        }
+
+        if (ip != null) {
+            String claveIp = PREFIJO_IP + ip;
+            Estado estadoIp = estados.get(claveIp);
+            bloqueadoHasta = estadoIp != null ? bloqueadoHasta(claveIp, estadoIp, ahora) : 0;
+            if (bloqueadoHasta > ahora) {
+                throw new ValidationException(
+                    String.format("Demasiados intentos fallidos desde esta conexión. " +
+                                 "Por favor, intenta nuevamente en %d minuto(s).", calcularMinutosRestantes(bloqueadoHasta, ahora))
+                );
             }
         }
     }
@@ -55,103 +132,229 @@ public class LoginAttemptService {
     /**
      * Registra un intento fallido de login
      * @param email Email del usuario
+     * @param ip Dirección del cliente (null si no se conoce)
      */
-    @Transactional
-    public void registrarIntentoFallido(String email) {
-        String emailNormalizado = email.toLowerCase().trim();
-        Optional<IntentoLogin> intentoOpt = intentoLoginRepository.findByEmail(emailNormalizado);
-        
-        IntentoLogin intento;
-        if (intentoOpt.isPresent()) {
-            intento = intentoOpt.get();
-        } else {
-            intento = new IntentoLogin(emailNormalizado);
-        }
-        
-        // Incrementar intentos fallidos
-        intento.setIntentosFallidos(intento.getIntentosFallidos() + 1);
-        intento.setUltimoIntento(new Timestamp(System.currentTimeMillis()));
-        
-        // Si alcanzó el máximo de intentos, bloquear
-        if (intento.getIntentosFallidos() >= MAX_INTENTOS) {
-            bloquearUsuario(intento);
+    public void registrarIntentoFallido(String email, String ip) {
+        long ahora = System.currentTimeMillis();
+
+        String claveEmail = normalizar(email);
+        conEstado(claveEmail, this::obtenerEstado, estado -> registrarFallo(claveEmail, estado, MAX_INTENTOS, ahora));
+
+        if (ip != null) {
+            String claveIp = PREFIJO_IP + ip;
+            conEstado(claveIp, clave -> estados.computeIfAbsent(clave, k -> new Estado()),
+                    estado -> registrarFallo(claveIp, estado, maxIntentosIp, ahora));
         }
-        
-        intentoLoginRepository.save(intento);
     }
 
     /**
-     * Bloquea al usuario por un tiempo determinado según su nivel de bloqueo
-     * @param intento Objeto IntentoLogin
+     * Resetea los intentos fallidos del email después de un login exitoso.
+     * Los de la IP no se resetean: un ataque que acierta alguna contraseña sigue contando
+     * @param email Email del usuario
      */
-    private void bloquearUsuario(IntentoLogin intento) {
-        // Calcular tiempo de bloqueo: 3 minutos * 2^nivelBloqueo
-        int minutosBloqueo = TIEMPO_BLOQUEO_INICIAL_MINUTOS * (int) Math.pow(2, intento.getNivelBloqueo());
-        
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.MINUTE, minutosBloqueo);
-        Timestamp bloqueadoHasta = new Timestamp(cal.getTimeInMillis());
-        
-        intento.setBloqueadoHasta(bloqueadoHasta);
-        intento.setIntentosFallidos(0); // Resetear contador para el próximo ciclo
-        intento.setNivelBloqueo(intento.getNivelBloqueo() + 1); // Incrementar nivel de bloqueo
+    public void resetearIntentos(String email) {
+        String clave = normalizar(email);
+        conEstado(clave, estados::get, estado -> {
+            estado.fallos.clear();
+            estado.bloqueadoHasta = 0;
+            estado.ultimoIntento = System.currentTimeMillis();
+            // No resetear el nivel de bloqueo, se mantiene para futuros bloqueos
+            if (estado.persistido) {
+                encolar(clave, estado);
+            }
+        });
     }
 
     /**
-     * Resetea los intentos fallidos después de un login exitoso
+     * Obtiene información sobre el estado de bloqueo (para debugging)
      * @param email Email del usuario
+     * @return Información del bloqueo o null si no existe
      */
-    @Transactional
-    public void resetearIntentos(String email) {
-        Optional<IntentoLogin> intentoOpt = intentoLoginRepository.findByEmail(email.toLowerCase().trim());
-        
-        if (intentoOpt.isPresent()) {
-            IntentoLogin intento = intentoOpt.get();
-            intento.setIntentosFallidos(0);
-            intento.setUltimoIntento(new Timestamp(System.currentTimeMillis()));
-            intento.setBloqueadoHasta(null);
-            // No resetear el nivel de bloqueo, se mantiene para futuros bloqueos
-            intentoLoginRepository.save(intento);
+    public String obtenerInfoBloqueo(String email) {
+        String clave = normalizar(email);
+        Estado estado = estados.get(clave);
+        if (estado == null) {
+            return null;
+        }
+        long ahora = System.currentTimeMillis();
+        synchronized (franja(clave)) {
+            if (estado.bloqueadoHasta > ahora) {
+                return String.format("Bloqueado por %d minutos. Nivel: %d",
+                        calcularMinutosRestantes(estado.bloqueadoHasta, ahora), estado.nivelBloqueo);
+            }
+            descartarVencidos(estado, ahora);
+            return String.format("Intentos fallidos: %d/%d. Nivel bloqueo: %d",
+                    estado.fallos.size(), MAX_INTENTOS, estado.nivelBloqueo);
         }
     }
 
     /**
-     * Calcula los minutos restantes de bloqueo
-     * @param bloqueadoHasta Timestamp de cuando expira el bloqueo
-     * @param ahora Timestamp actual
-     * @return Minutos restantes (redondeado hacia arriba)
+     * Escribe en intentos_login los cambios de estado pendientes, en un solo batch
      */
-    private long calcularMinutosRestantes(Timestamp bloqueadoHasta, Timestamp ahora) {
-        long diferenciaMillis = bloqueadoHasta.getTime() - ahora.getTime();
-        long minutos = diferenciaMillis / (60 * 1000);
-        long segundosRestantes = (diferenciaMillis % (60 * 1000)) / 1000;
-        
-        // Redondear hacia arriba si hay segundos restantes
-        return segundosRestantes > 0 ? minutos + 1 : minutos;
+    @Scheduled(fixedDelayString = "${app.login-throttle.flush-interval:1000}")
+    public void escribirPendientes() {
+        if (pendientes.isEmpty()) {
+            return;
+        }
+        List<Object[]> filas = new ArrayList<>(pendientes.size());
+        for (String email : List.copyOf(pendientes.keySet())) {
+            IntentoLogin intento = pendientes.remove(email);
+            if (intento != null) {
+                filas.add(new Object[]{intento.getEmail(), intento.getIntentosFallidos(), intento.getUltimoIntento(),
+                        intento.getBloqueadoHasta(), intento.getNivelBloqueo()});
+            }
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, filas);
+            escritos.addAndGet(filas.size());
+        } catch (Exception e) {
+            // El estado en memoria sigue vigente; solo se pierde su copia en la tabla
+            logger.error("Error al guardar {} intento(s) de login: {}", filas.size(), e.getMessage());
+        }
     }
 
     /**
-     * Obtiene información sobre el estado de bloqueo (para debugging)
-     * @param email Email del usuario
-     * @return Información del bloqueo o null si no existe
+     * Libera las claves sin fallos en la ventana ni bloqueo vigente. Un email con historial
+     * ya quedó en la tabla y se vuelve a leer si reaparece; una IP empieza de nuevo en nivel 0
      */
-    public String obtenerInfoBloqueo(String email) {
-        Optional<IntentoLogin> intentoOpt = intentoLoginRepository.findByEmail(email.toLowerCase().trim());
-        
+    @Scheduled(fixedDelay = 60000)
+    public void limpiarInactivos() {
+        long ahora = System.currentTimeMillis();
+        estados.forEach((clave, estado) -> {
+            synchronized (franja(clave)) {
+                descartarVencidos(estado, ahora);
+                if (estado.fallos.isEmpty() && estado.bloqueadoHasta <= ahora && !pendientes.containsKey(clave)) {
+                    estados.remove(clave, estado);
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    void detener() {
+        escribirPendientes();
+    }
+
+    private Estado obtenerEstado(String email) {
+        Estado estado = estados.get(email);
+        if (estado != null) {
+            return estado;
+        }
+        // Primera vez que aparece: partir de lo guardado (bloqueo o nivel de antes de un reinicio)
+        Estado cargado = new Estado();
+        Optional<IntentoLogin> intentoOpt = intentoLoginRepository.findByEmail(email);
         if (intentoOpt.isPresent()) {
             IntentoLogin intento = intentoOpt.get();
-            if (intento.getBloqueadoHasta() != null) {
-                Timestamp ahora = new Timestamp(System.currentTimeMillis());
-                if (intento.getBloqueadoHasta().after(ahora)) {
-                    long minutos = calcularMinutosRestantes(intento.getBloqueadoHasta(), ahora);
-                    return String.format("Bloqueado por %d minutos. Nivel: %d", minutos, intento.getNivelBloqueo());
+            cargado.nivelBloqueo = intento.getNivelBloqueo();
+            cargado.bloqueadoHasta = intento.getBloqueadoHasta() != null ? intento.getBloqueadoHasta().getTime() : 0;
+            cargado.persistido = intento.getIntentosFallidos() > 0 || intento.getBloqueadoHasta() != null;
+        }
+        Estado existente = estados.putIfAbsent(email, cargado);
+        return existente != null ? existente : cargado;
+    }
+
+    /**
+     * Aplica un cambio al estado de la clave con el candado de su franja tomado.
+     * limpiarInactivos quita estados del mapa con ese mismo candado: si el estado obtenido ya
+     * no es el del mapa al tomar el candado, se vuelve a obtener en lugar de modificar uno
+     * huérfano. Si obtener devuelve null no hay nada que cambiar
+     */
+    private void conEstado(String clave, Function<String, Estado> obtener, Consumer<Estado> cambio) {
+        while (true) {
+            Estado estado = obtener.apply(clave);
+            if (estado == null) {
+                return;
+            }
+            synchronized (franja(clave)) {
+                if (estados.get(clave) == estado) {
+                    cambio.accept(estado);
+                    return;
                 }
             }
-            return String.format("Intentos fallidos: %d/%d. Nivel bloqueo: %d", 
-                intento.getIntentosFallidos(), MAX_INTENTOS, intento.getNivelBloqueo());
         }
-        
-        return null;
     }
-}
 
+    private long bloqueadoHasta(String clave, Estado estado, long ahora) {
+        synchronized (franja(clave)) {
+            if (estado.bloqueadoHasta != 0 && estado.bloqueadoHasta <= ahora) {
+                // El bloqueo expiró, resetear intentos pero mantener nivel de bloqueo
+                estado.bloqueadoHasta = 0;
+                estado.fallos.clear();
+            }
+            return estado.bloqueadoHasta;
+        }
+    }
+
+    /**
+     * Suma un fallo a la ventana de la clave y bloquea si llegó al máximo (con el candado de su franja tomado)
+     */
+    private void registrarFallo(String clave, Estado estado, int maxIntentos, long ahora) {
+        descartarVencidos(estado, ahora);
+        estado.fallos.addLast(ahora);
+        estado.ultimoIntento = ahora;
+
+        // Si alcanzó el máximo de intentos dentro de la ventana, bloquear
+        if (estado.fallos.size() >= maxIntentos) {
+            // 3 minutos * 2^nivelBloqueo
+            long minutosBloqueo = TIEMPO_BLOQUEO_INICIAL_MINUTOS * (1L << Math.min(estado.nivelBloqueo, MAX_NIVEL_BLOQUEO));
+            estado.bloqueadoHasta = ahora + TimeUnit.MINUTES.toMillis(minutosBloqueo);
+            estado.fallos.clear(); // Resetear contador para el próximo ciclo
+            estado.nivelBloqueo++;
+            bloqueos.incrementAndGet();
+            if (!clave.startsWith(PREFIJO_IP)) {
+                encolar(clave, estado);
+            }
+        }
+    }
+
+    private void descartarVencidos(Estado estado, long ahora) {
+        while (!estado.fallos.isEmpty() && estado.fallos.peekFirst() <= ahora - ventanaMs) {
+            estado.fallos.removeFirst();
+        }
+    }
+
+    /**
+     * Copia el estado del email a la cola de escritura (con el candado de su franja tomado)
+     */
+    private void encolar(String email, Estado estado) {
+        IntentoLogin intento = new IntentoLogin(email);
+        intento.setIntentosFallidos(estado.fallos.size());
+        intento.setUltimoIntento(new Timestamp(estado.ultimoIntento));
+        intento.setBloqueadoHasta(estado.bloqueadoHasta != 0 ? new Timestamp(estado.bloqueadoHasta) : null);
+        intento.setNivelBloqueo(estado.nivelBloqueo);
+        pendientes.put(email, intento);
+        estado.persistido = estado.bloqueadoHasta != 0 || !estado.fallos.isEmpty();
+    }
+
+    private Object franja(String clave) {
+        return franjas[(clave.hashCode() & 0x7fffffff) % FRANJAS];
+    }
+
+    private String normalizar(String email) {
+        return email.toLowerCase().trim();
+    }
+
+    /**
+     * Calcula los minutos restantes de bloqueo (redondeado hacia arriba)
+     */
+    private long calcularMinutosRestantes(long bloqueadoHasta, long ahora) {
+        long diferenciaMillis = bloqueadoHasta - ahora;
+        long minutos = diferenciaMillis / (60 * 1000);
+        long segundosRestantes = (diferenciaMillis % (60 * 1000)) / 1000;
+
+        // Redondear hacia arriba si hay segundos restantes
+        return segundosRestantes > 0 ? minutos + 1 : minutos;
+    }
+
+    public long getBloqueos() {
+        return bloqueos.get();
+    }
+
+    public long getEscritos() {
+        return escritos.get();
+    }
+
+    public int tamanio() {
+        return estados.size();
+    }
+}
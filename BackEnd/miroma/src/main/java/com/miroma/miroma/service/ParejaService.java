@@ -4,6 +4,7 @@ import com.miroma.miroma.entity.Pareja;
 import com.miroma.miroma.entity.Usuario;
 import com.miroma.miroma.repository.ParejaRepository;
 import com.miroma.miroma.repository.UsuarioRepository;
+import com.miroma.miroma.security.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -19,8 +20,13 @@ public class ParejaService {
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    @Autowired
+    private SecurityUtils securityUtils;
+
     /**
-     * Crea una pareja entre dos usuarios
+     * Crea una pareja entre dos usuarios.
+     * Actualiza la pareja en las sesiones de ambos: descarta sus tokens de la caché de
+     * autenticación y, al confirmar, el principal de la petición actual
      * @param usuario1Id ID del primer usuario
      * @param usuario2Id ID del segundo usuario
      * @return La pareja creada
@@ -60,6 +66,9 @@ public class ParejaService {
         usuarioRepository.save(usuario2);
         usuarioRepository.flush();
 
+        securityUtils.refrescarParejaId(usuario1.getId(), pareja.getId());
+        securityUtils.refrescarParejaId(usuario2.getId(), pareja.getId());
+
         return pareja;
     }
 
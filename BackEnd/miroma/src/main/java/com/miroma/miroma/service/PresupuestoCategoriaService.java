@@ -1,19 +1,17 @@
 package com.miroma.miroma.service;
 
+import com.miroma.miroma.dto.PaginaResponse;
 import com.miroma.miroma.dto.PresupuestoCategoriaRequest;
 import com.miroma.miroma.dto.PresupuestoCategoriaResponse;
 import com.miroma.miroma.entity.CategoriaEgreso;
 import com.miroma.miroma.entity.Presupuesto;
 import com.miroma.miroma.entity.PresupuestoCategoria;
 import com.miroma.miroma.entity.Usuario;
-import com.miroma.miroma.entity.Egreso;
-import com.miroma.miroma.entity.Ingreso;
-import com.miroma.miroma.repository.CategoriaEgresoRepository;
-import com.miroma.miroma.repository.EgresoRepository;
-import com.miroma.miroma.repository.IngresoRepository;
 import com.miroma.miroma.repository.PresupuestoCategoriaRepository;
 import com.miroma.miroma.repository.PresupuestoRepository;
 import com.miroma.miroma.repository.UsuarioRepository;
+import com.miroma.miroma.util.Paginacion;
+import com.miroma.miroma.security.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,6 +19,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,36 +32,44 @@ public class PresupuestoCategoriaService {
     private PresupuestoRepository presupuestoRepository;
 
     @Autowired
-    private CategoriaEgresoRepository categoriaEgresoRepository;
+    private CategoriaEgresoCache categoriaEgresoCache;
+
+    @Autowired
+    private VersionDatosService versionDatosService;
 
     @Autowired
     private UsuarioRepository usuarioRepository;
 
     @Autowired
-    private IngresoRepository ingresoRepository;
+    private SecurityUtils securityUtils;
+
+    @Autowired
+    private IngresoAcumuladoService ingresoAcumuladoService;
 
     @Autowired
-    private EgresoRepository egresoRepository;
+    private EgresoAcumuladoService egresoAcumuladoService;
 
     @Autowired
     private LogEventoService logEventoService;
 
+    @Autowired
+    private Paginacion paginacion;
+
     @Transactional
     public PresupuestoCategoriaResponse crearPresupuestoCategoria(Integer userId, PresupuestoCategoriaRequest request) {
-        // Validar que el usuario existe
-        Usuario usuario = usuarioRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        // Obtener la pareja del usuario autenticado
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
 
         // Validar que el presupuesto existe y pertenece a la pareja del usuario
         Presupuesto presupuesto = presupuestoRepository.findById(request.getPresupuestoId())
                 .orElseThrow(() -> new IllegalArgumentException("Presupuesto no encontrado"));
 
-        if (usuario.getParejaId() == null || !presupuesto.getParejaId().equals(usuario.getParejaId())) {
+        if (parejaId == null || !presupuesto.getParejaId().equals(parejaId)) {
             throw new IllegalArgumentException("No tienes permiso para acceder a este presupuesto");
         }
 
         // Validar que la categoría existe
-        CategoriaEgreso categoria = categoriaEgresoRepository.findById(request.getCategoriaId())
+        CategoriaEgreso categoria = categoriaEgresoCache.buscar(request.getCategoriaId())
                 .orElseThrow(() -> new IllegalArgumentException("Categoría no encontrada"));
 
         // Validar que no existe ya esta categoría en este presupuesto
@@ -90,6 +97,7 @@ public class PresupuestoCategoriaService {
 
         presupuestoCategoria = presupuestoCategoriaRepository.save(presupuestoCategoria);
         presupuestoCategoriaRepository.flush();
+        versionDatosService.incrementar(presupuesto.getParejaId());
 
         // Calcular ingresos totales de la pareja
         BigDecimal ingresosTotales = calcularIngresosTotalesPareja(presupuesto.getParejaId());
@@ -99,20 +107,21 @@ public class PresupuestoCategoriaService {
             String.format("Asignó %s%% del presupuesto '%s' a la categoría '%s'", 
                 presupuestoCategoria.getPorcentaje(), presupuesto.getPeriodo(), categoria.getNombre()));
 
-        return mapToResponse(presupuestoCategoria, presupuesto, categoria, ingresosTotales);
+        return mapToResponse(presupuestoCategoria, presupuesto, categoria, ingresosTotales,
+                calcularEgresosPorCategoria(presupuesto.getParejaId(), categoria.getId(), presupuesto.getId()));
     }
 
+    @Transactional(readOnly = true)
     public List<PresupuestoCategoriaResponse> obtenerPresupuestosCategoriasPorPresupuesto(
             Integer presupuestoId, Integer userId) {
-        // Validar que el usuario existe
-        Usuario usuario = usuarioRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        // Obtener la pareja del usuario autenticado
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
 
         // Validar que el presupuesto existe y pertenece a la pareja del usuario
         Presupuesto presupuesto = presupuestoRepository.findById(presupuestoId)
                 .orElseThrow(() -> new IllegalArgumentException("Presupuesto no encontrado"));
 
-        if (usuario.getParejaId() == null || !presupuesto.getParejaId().equals(usuario.getParejaId())) {
+        if (parejaId == null || !presupuesto.getParejaId().equals(parejaId)) {
             throw new IllegalArgumentException("No tienes permiso para acceder a este presupuesto");
         }
 
@@ -122,66 +131,116 @@ public class PresupuestoCategoriaService {
         // Calcular ingresos totales de la pareja
         BigDecimal ingresosTotales = calcularIngresosTotalesPareja(presupuesto.getParejaId());
 
+        // Lo gastado por categoría de toda la pareja en una sola consulta
+        Map<Integer, Map<Integer, BigDecimal>> gastados = egresoAcumuladoService
+                .obtenerGastadosPorPareja(presupuesto.getParejaId());
+
         return presupuestosCategorias.stream()
                 .map(pc -> {
-                    CategoriaEgreso categoria = categoriaEgresoRepository.findById(pc.getCategoriaId())
+                    CategoriaEgreso categoria = categoriaEgresoCache.buscar(pc.getCategoriaId())
                             .orElse(null);
-                    return mapToResponse(pc, presupuesto, categoria, ingresosTotales);
+                    return mapToResponse(pc, presupuesto, categoria, ingresosTotales, obtenerGastado(gastados, pc));
                 })
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public List<PresupuestoCategoriaResponse> obtenerTodosLosPresupuestosCategorias(Integer userId) {
-        Usuario usuario = usuarioRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
 
-        if (usuario.getParejaId() == null) {
+        if (parejaId == null) {
             throw new IllegalArgumentException("Debes tener una pareja vinculada para ver presupuestos por categoría");
         }
 
         // Obtener todos los presupuestos de la pareja
         List<Presupuesto> presupuestos = presupuestoRepository
-                .findByParejaIdOrderByFechaCreacionDesc(usuario.getParejaId());
+                .findByParejaIdOrderByFechaCreacionDesc(parejaId);
+
+        return mapearPresupuestosCategorias(parejaId, presupuestos);
+    }
 
+    /**
+     * Página de presupuestos categorías de la pareja. La página se arma por presupuesto
+     * (cursor sobre fecha de creación e id del presupuesto) e incluye todas las categorías
+     * de cada presupuesto, por lo que puede tener más elementos que el límite.
+     * @param cursor Cursor de la página anterior (null para la primera)
+     * @param limite Cantidad de presupuestos por página (null para el valor por defecto)
+     */
+    @Transactional(readOnly = true)
+    public PaginaResponse<PresupuestoCategoriaResponse> obtenerPaginaPresupuestosCategorias(Integer userId, String cursor,
+                                                                                            Integer limite) {
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
+
+        if (parejaId == null) {
+            throw new IllegalArgumentException("Debes tener una pareja vinculada para ver presupuestos por categoría");
+        }
+
+        Paginacion.Posicion posicion = Paginacion.decodificar(cursor);
+        int tamanio = paginacion.tamanio(limite);
+
+        List<Presupuesto> filas = presupuestoRepository.findPaginaPorPareja(parejaId,
+                posicion != null ? posicion.fechaComoTimestamp() : null,
+                posicion != null ? posicion.id() : null,
+                paginacion.consulta(tamanio));
+        PaginaResponse<Presupuesto> presupuestos = paginacion.armarPagina(filas, tamanio,
+                presupuesto -> new Paginacion.Posicion(presupuesto.getFechaCreacion().toString(), presupuesto.getId()));
+
+        return new PaginaResponse<>(
+                mapearPresupuestosCategorias(parejaId, presupuestos.getElementos()),
+                presupuestos.getSiguienteCursor());
+    }
+
+    private List<PresupuestoCategoriaResponse> mapearPresupuestosCategorias(Integer parejaId, List<Presupuesto> presupuestos) {
         // Calcular ingresos totales de la pareja
-        BigDecimal ingresosTotales = calcularIngresosTotalesPareja(usuario.getParejaId());
+        BigDecimal ingresosTotales = calcularIngresosTotalesPareja(parejaId);
+
+        // Lo gastado por categoría de toda la pareja en una sola consulta
+        Map<Integer, Map<Integer, BigDecimal>> gastados = egresoAcumuladoService
+                .obtenerGastadosPorPareja(parejaId);
+
+        // Los presupuestos categorías de toda la página en una sola consulta, agrupados por presupuesto
+        Map<Integer, List<PresupuestoCategoria>> porPresupuesto = presupuestos.isEmpty() ? Map.of()
+                : presupuestoCategoriaRepository
+                        .findByPresupuestoIdIn(presupuestos.stream().map(Presupuesto::getId).toList())
+                        .stream()
+                        .collect(Collectors.groupingBy(PresupuestoCategoria::getPresupuestoId));
 
-        // Obtener todos los presupuestos categorías de esos presupuestos
         return presupuestos.stream()
                 .flatMap(presupuesto -> {
-                    List<PresupuestoCategoria> pcs = presupuestoCategoriaRepository
-                            .findByPresupuestoId(presupuesto.getId());
+                    List<PresupuestoCategoria> pcs = porPresupuesto.getOrDefault(presupuesto.getId(), List.of());
                     return pcs.stream().map(pc -> {
-                        CategoriaEgreso categoria = categoriaEgresoRepository.findById(pc.getCategoriaId())
+                        CategoriaEgreso categoria = categoriaEgresoCache.buscar(pc.getCategoriaId())
                                 .orElse(null);
-                        return mapToResponse(pc, presupuesto, categoria, ingresosTotales);
+                        return mapToResponse(pc, presupuesto, categoria, ingresosTotales, obtenerGastado(gastados, pc));
                     });
                 })
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public PresupuestoCategoriaResponse obtenerPresupuestoCategoriaPorId(Integer id, Integer userId) {
         PresupuestoCategoria presupuestoCategoria = presupuestoCategoriaRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Presupuesto categoría no encontrado"));
 
         // Validar que el usuario tiene acceso
-        Usuario usuario = usuarioRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
 
         Presupuesto presupuesto = presupuestoRepository.findById(presupuestoCategoria.getPresupuestoId())
                 .orElseThrow(() -> new IllegalArgumentException("Presupuesto no encontrado"));
 
-        if (usuario.getParejaId() == null || !presupuesto.getParejaId().equals(usuario.getParejaId())) {
+        if (parejaId == null || !presupuesto.getParejaId().equals(parejaId)) {
             throw new IllegalArgumentException("No tienes permiso para acceder a este presupuesto categoría");
         }
 
-        CategoriaEgreso categoria = categoriaEgresoRepository.findById(presupuestoCategoria.getCategoriaId())
+        CategoriaEgreso categoria = categoriaEgresoCache.buscar(presupuestoCategoria.getCategoriaId())
                 .orElse(null);
 
         // Calcular ingresos totales de la pareja
         BigDecimal ingresosTotales = calcularIngresosTotalesPareja(presupuesto.getParejaId());
 
-        return mapToResponse(presupuestoCategoria, presupuesto, categoria, ingresosTotales);
+        return mapToResponse(presupuestoCategoria, presupuesto, categoria, ingresosTotales,
+                calcularEgresosPorCategoria(presupuesto.getParejaId(),
+                        presupuestoCategoria.getCategoriaId(), presupuestoCategoria.getPresupuestoId()));
     }
 
     @Transactional
@@ -191,18 +250,17 @@ public class PresupuestoCategoriaService {
                 .orElseThrow(() -> new IllegalArgumentException("Presupuesto categoría no encontrado"));
 
         // Validar que el usuario tiene acceso
-        Usuario usuario = usuarioRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
 
         Presupuesto presupuesto = presupuestoRepository.findById(presupuestoCategoria.getPresupuestoId())
                 .orElseThrow(() -> new IllegalArgumentException("Presupuesto no encontrado"));
 
-        if (usuario.getParejaId() == null || !presupuesto.getParejaId().equals(usuario.getParejaId())) {
+        if (parejaId == null || !presupuesto.getParejaId().equals(parejaId)) {
             throw new IllegalArgumentException("No tienes permiso para modificar este presupuesto categoría");
         }
 
         // Validar que la categoría existe
-        CategoriaEgreso categoria = categoriaEgresoRepository.findById(request.getCategoriaId())
+        CategoriaEgreso categoria = categoriaEgresoCache.buscar(request.getCategoriaId())
                 .orElseThrow(() -> new IllegalArgumentException("Categoría no encontrada"));
 
         // Si se cambia la categoría, validar que no exista ya en el presupuesto
@@ -231,6 +289,7 @@ public class PresupuestoCategoriaService {
 
         presupuestoCategoria = presupuestoCategoriaRepository.save(presupuestoCategoria);
         presupuestoCategoriaRepository.flush();
+        versionDatosService.incrementar(presupuesto.getParejaId());
 
         // Calcular ingresos totales de la pareja
         BigDecimal ingresosTotales = calcularIngresosTotalesPareja(presupuesto.getParejaId());
@@ -240,7 +299,9 @@ public class PresupuestoCategoriaService {
             String.format("Actualizó la asignación de presupuesto (ID: %d) - Categoría: '%s', Porcentaje: %s%%", 
                 id, categoria.getNombre(), presupuestoCategoria.getPorcentaje()));
 
-        return mapToResponse(presupuestoCategoria, presupuesto, categoria, ingresosTotales);
+        return mapToResponse(presupuestoCategoria, presupuesto, categoria, ingresosTotales,
+                calcularEgresosPorCategoria(presupuesto.getParejaId(),
+                        presupuestoCategoria.getCategoriaId(), presupuestoCategoria.getPresupuestoId()));
     }
 
     @Transactional
@@ -249,18 +310,17 @@ public class PresupuestoCategoriaService {
                 .orElseThrow(() -> new IllegalArgumentException("Presupuesto categoría no encontrado"));
 
         // Validar que el usuario tiene acceso
-        Usuario usuario = usuarioRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
 
         Presupuesto presupuesto = presupuestoRepository.findById(presupuestoCategoria.getPresupuestoId())
                 .orElseThrow(() -> new IllegalArgumentException("Presupuesto no encontrado"));
 
-        if (usuario.getParejaId() == null || !presupuesto.getParejaId().equals(usuario.getParejaId())) {
+        if (parejaId == null || !presupuesto.getParejaId().equals(parejaId)) {
             throw new IllegalArgumentException("No tienes permiso para eliminar este presupuesto categoría");
         }
 
         // Obtener información de la categoría antes de eliminar
-        CategoriaEgreso categoria = categoriaEgresoRepository.findById(presupuestoCategoria.getCategoriaId())
+        CategoriaEgreso categoria = categoriaEgresoCache.buscar(presupuestoCategoria.getCategoriaId())
                 .orElse(null);
         String categoriaNombre = categoria != null ? categoria.getNombre() : "Desconocida";
 
@@ -270,16 +330,16 @@ public class PresupuestoCategoriaService {
                 id, categoriaNombre, presupuesto.getPeriodo()));
 
         presupuestoCategoriaRepository.delete(presupuestoCategoria);
+        versionDatosService.incrementar(presupuesto.getParejaId());
     }
 
     public BigDecimal obtenerPorcentajeTotalPorPresupuesto(Integer presupuestoId, Integer userId) {
-        Usuario usuario = usuarioRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
 
         Presupuesto presupuesto = presupuestoRepository.findById(presupuestoId)
                 .orElseThrow(() -> new IllegalArgumentException("Presupuesto no encontrado"));
 
-        if (usuario.getParejaId() == null || !presupuesto.getParejaId().equals(usuario.getParejaId())) {
+        if (parejaId == null || !presupuesto.getParejaId().equals(parejaId)) {
             throw new IllegalArgumentException("No tienes permiso para acceder a este presupuesto");
         }
 
@@ -287,19 +347,16 @@ public class PresupuestoCategoriaService {
     }
 
     private BigDecimal calcularIngresosTotalesPareja(Integer parejaId) {
-        List<Ingreso> ingresos = ingresoRepository.findByParejaIdOrderByFechaDesc(parejaId);
-        return ingresos.stream()
-                .map(Ingreso::getMonto)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return ingresoAcumuladoService.obtenerTotalPareja(parejaId);
     }
 
     private BigDecimal calcularEgresosPorCategoria(Integer parejaId, Integer categoriaId, Integer presupuestoId) {
-        List<Egreso> egresos = egresoRepository.findByParejaIdOrderByFechaDesc(parejaId);
-        return egresos.stream()
-                .filter(egreso -> egreso.getCategoriaId().equals(categoriaId))
-                .filter(egreso -> egreso.getPeriodoId().equals(presupuestoId))
-                .map(Egreso::getMontoTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return egresoAcumuladoService.obtenerGastado(parejaId, presupuestoId, categoriaId);
+    }
+
+    private BigDecimal obtenerGastado(Map<Integer, Map<Integer, BigDecimal>> gastados, PresupuestoCategoria pc) {
+        return gastados.getOrDefault(pc.getPresupuestoId(), Map.of())
+                .getOrDefault(pc.getCategoriaId(), BigDecimal.ZERO);
     }
 
     /**
@@ -347,7 +404,7 @@ public class PresupuestoCategoriaService {
 
     private PresupuestoCategoriaResponse mapToResponse(
             PresupuestoCategoria presupuestoCategoria, Presupuesto presupuesto, 
-            CategoriaEgreso categoria, BigDecimal ingresosTotales) {
+            CategoriaEgreso categoria, BigDecimal ingresosTotales, BigDecimal montoGastado) {
         PresupuestoCategoriaResponse response = new PresupuestoCategoriaResponse();
         response.setId(presupuestoCategoria.getId());
         response.setPresupuestoId(presupuestoCategoria.getPresupuestoId());
@@ -366,10 +423,6 @@ public class PresupuestoCategoriaService {
             response.setMontoAsignado(montoAsignado);
 
             // Monto gastado = suma de egresos de esta categoría que pertenecen a este presupuesto
-            BigDecimal montoGastado = calcularEgresosPorCategoria(
-                    presupuesto.getParejaId(), 
-                    presupuestoCategoria.getCategoriaId(), 
-                    presupuestoCategoria.getPresupuestoId());
             response.setMontoGastado(montoGastado);
 
             // Monto disponible = asignado - gastado
@@ -1,11 +1,12 @@
 package com.miroma.miroma.service;
 
+import com.miroma.miroma.dto.PaginaResponse;
 import com.miroma.miroma.dto.PresupuestoRequest;
 import com.miroma.miroma.dto.PresupuestoResponse;
 import com.miroma.miroma.entity.Presupuesto;
-import com.miroma.miroma.entity.Usuario;
 import com.miroma.miroma.repository.PresupuestoRepository;
-import com.miroma.miroma.repository.UsuarioRepository;
+import com.miroma.miroma.util.Paginacion;
+import com.miroma.miroma.security.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,20 +21,25 @@ public class PresupuestoService {
     private PresupuestoRepository presupuestoRepository;
 
     @Autowired
-    private UsuarioRepository usuarioRepository;
+    private SecurityUtils securityUtils;
 
     @Autowired
     private LogEventoService logEventoService;
 
+    @Autowired
+    private ResumenFinancieroCache resumenFinancieroCache;
+
+    @Autowired
+    private VersionDatosService versionDatosService;
+
+    @Autowired
+    private Paginacion paginacion;
+
     @Transactional
     public PresupuestoResponse crearPresupuesto(Integer userId, PresupuestoRequest request) {
-        // Obtener el usuario
-        Usuario usuario = usuarioRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        // Obtener la pareja del usuario autenticado
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
 
-        // Obtener pareja_id del usuario
-        Integer parejaId = usuario.getParejaId();
-        
         if (parejaId == null) {
             throw new IllegalArgumentException("Debes tener una pareja vinculada para crear presupuestos");
         }
@@ -50,16 +56,16 @@ public class PresupuestoService {
 
         presupuesto = presupuestoRepository.save(presupuesto);
         presupuestoRepository.flush();
+        resumenFinancieroCache.invalidarPareja(parejaId);
+        versionDatosService.incrementar(parejaId);
 
         return mapToResponse(presupuesto);
     }
 
+    @Transactional(readOnly = true)
     public List<PresupuestoResponse> obtenerPresupuestosPorUsuario(Integer userId) {
-        Usuario usuario = usuarioRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
 
-        Integer parejaId = usuario.getParejaId();
-        
         if (parejaId == null) {
             throw new IllegalArgumentException("Debes tener una pareja vinculada para ver presupuestos");
         }
@@ -71,15 +77,42 @@ public class PresupuestoService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Página de presupuestos de la pareja, del más reciente al más antiguo
+     * @param cursor Cursor de la página anterior (null para la primera)
+     * @param limite Tamaño de página pedido (null para el valor por defecto)
+     */
+    @Transactional(readOnly = true)
+    public PaginaResponse<PresupuestoResponse> obtenerPaginaPresupuestosPorUsuario(Integer userId, String cursor, Integer limite) {
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
+
+        if (parejaId == null) {
+            throw new IllegalArgumentException("Debes tener una pareja vinculada para ver presupuestos");
+        }
+
+        Paginacion.Posicion posicion = Paginacion.decodificar(cursor);
+        int tamanio = paginacion.tamanio(limite);
+
+        List<PresupuestoResponse> filas = presupuestoRepository.findPaginaPorPareja(parejaId,
+                        posicion != null ? posicion.fechaComoTimestamp() : null,
+                        posicion != null ? posicion.id() : null,
+                        paginacion.consulta(tamanio))
+                .stream()
+                .map(this::mapToResponse)
+                .collect(Collectors.toList());
+        return paginacion.armarPagina(filas, tamanio,
+                presupuesto -> new Paginacion.Posicion(presupuesto.getFechaCreacion().toString(), presupuesto.getId()));
+    }
+
+    @Transactional(readOnly = true)
     public PresupuestoResponse obtenerPresupuestoPorId(Integer presupuestoId, Integer userId) {
         Presupuesto presupuesto = presupuestoRepository.findById(presupuestoId)
                 .orElseThrow(() -> new IllegalArgumentException("Presupuesto no encontrado"));
 
         // Verificar que el presupuesto pertenezca a la pareja del usuario
-        Usuario usuario = usuarioRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
 
-        if (usuario.getParejaId() == null || !presupuesto.getParejaId().equals(usuario.getParejaId())) {
+        if (parejaId == null || !presupuesto.getParejaId().equals(parejaId)) {
             throw new IllegalArgumentException("No tienes permiso para acceder a este presupuesto");
         }
 
@@ -92,10 +125,9 @@ public class PresupuestoService {
                 .orElseThrow(() -> new IllegalArgumentException("Presupuesto no encontrado"));
 
         // Verificar que el presupuesto pertenezca a la pareja del usuario
-        Usuario usuario = usuarioRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
 
-        if (usuario.getParejaId() == null || !presupuesto.getParejaId().equals(usuario.getParejaId())) {
+        if (parejaId == null || !presupuesto.getParejaId().equals(parejaId)) {
             throw new IllegalArgumentException("No tienes permiso para modificar este presupuesto");
         }
 
@@ -112,6 +144,8 @@ public class PresupuestoService {
 
         presupuesto = presupuestoRepository.save(presupuesto);
         presupuestoRepository.flush();
+        resumenFinancieroCache.invalidarPareja(presupuesto.getParejaId());
+        versionDatosService.incrementar(presupuesto.getParejaId());
 
         // Registrar evento en log
         logEventoService.registrarEvento(userId, 
@@ -126,10 +160,9 @@ public class PresupuestoService {
                 .orElseThrow(() -> new IllegalArgumentException("Presupuesto no encontrado"));
 
         // Verificar que el presupuesto pertenezca a la pareja del usuario
-        Usuario usuario = usuarioRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
 
-        if (usuario.getParejaId() == null || !presupuesto.getParejaId().equals(usuario.getParejaId())) {
+        if (parejaId == null || !presupuesto.getParejaId().equals(parejaId)) {
             throw new IllegalArgumentException("No tienes permiso para eliminar este presupuesto");
         }
 
@@ -138,6 +171,8 @@ public class PresupuestoService {
             String.format("Eliminó el presupuesto (ID: %d) - Período: '%s'", presupuestoId, presupuesto.getPeriodo()));
 
         presupuestoRepository.delete(presupuesto);
+        resumenFinancieroCache.invalidarPareja(presupuesto.getParejaId());
+        versionDatosService.incrementar(presupuesto.getParejaId());
     }
 
     private PresupuestoResponse mapToResponse(Presupuesto presupuesto) {
@@ -55,14 +55,16 @@ public class RefreshTokenService {
             throw new RuntimeException("Refresh token inválido o expirado");
         }
 
-        // Validar el token JWT
-        if (!jwtService.validateToken(token)) {
+        // Validar el token JWT (firma y expiración) una sola vez
+        VerifiedClaims claims;
+        try {
+            claims = jwtService.parseAndVerify(token);
+        } catch (Exception e) {
             throw new RuntimeException("Refresh token JWT inválido");
         }
 
         // Verificar que sea un refresh token
-        String tokenType = jwtService.getTokenType(token);
-        if (!"refresh".equals(tokenType)) {
+        if (!claims.isRefreshToken()) {
             throw new RuntimeException("Token no es un refresh token");
         }
 
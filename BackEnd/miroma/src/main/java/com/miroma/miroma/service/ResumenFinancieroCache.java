@@ -0,0 +1,88 @@
+package com.miroma.miroma.service;
+
+import com.miroma.miroma.dto.ResumenPeriodoResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caché en memoria del resumen financiero por usuario.
+ * Los servicios que modifican egresos, ingresos o presupuestos invalidan las entradas
+ * afectadas una vez confirmada su transacción. Se activa con
+ * app.resumen-financiero.cache.enabled=true; desactivada, siempre se calcula.
+ */
+@Component
+public class ResumenFinancieroCache {
+
+    private record Entrada(Integer parejaId, List<ResumenPeriodoResponse> resumen) {
+    }
+
+    private final Map<Integer, Entrada> entradas = new ConcurrentHashMap<>();
+
+    // Se incrementa en cada invalidación; un cálculo que empezó antes no se guarda
+    private final AtomicLong generacion = new AtomicLong();
+
+    @Value("${app.resumen-financiero.cache.enabled:false}")
+    private boolean habilitada;
+
+    /**
+     * Devuelve el resumen guardado del usuario o lo calcula y lo guarda
+     */
+    public List<ResumenPeriodoResponse> obtener(Integer usuarioId, Integer parejaId,
+                                                Supplier<List<ResumenPeriodoResponse>> calcular) {
+        if (!habilitada) {
+            return calcular.get();
+        }
+
+        Entrada entrada = entradas.get(usuarioId);
+        if (entrada != null && entrada.parejaId().equals(parejaId)) {
+            return entrada.resumen();
+        }
+
+        long generacionInicial = generacion.get();
+        List<ResumenPeriodoResponse> resumen = List.copyOf(calcular.get());
+        if (generacion.get() == generacionInicial) {
+            entradas.put(usuarioId, new Entrada(parejaId, resumen));
+        }
+        return resumen;
+    }
+
+    /**
+     * Invalida el resumen de ambos integrantes de una pareja (egresos y presupuestos son compartidos)
+     */
+    public void invalidarPareja(Integer parejaId) {
+        if (parejaId == null) {
+            return;
+        }
+        alConfirmar(() -> entradas.values().removeIf(entrada -> entrada.parejaId().equals(parejaId)));
+    }
+
+    /**
+     * Invalida el resumen de un usuario (sus ingresos o su pareja cambiaron)
+     */
+    public void invalidarUsuario(Integer usuarioId) {
+        alConfirmar(() -> entradas.remove(usuarioId));
+    }
+
+    private void alConfirmar(Runnable invalidacion) {
+        generacion.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Invalidar también tras confirmar, para descartar lo que se haya leído antes del commit
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    generacion.incrementAndGet();
+                    invalidacion.run();
+                }
+            });
+        }
+        invalidacion.run();
+    }
+}
@@ -3,50 +3,57 @@ package com.miroma.miroma.service;
 import com.miroma.miroma.dto.ResumenPeriodoResponse;
 import com.miroma.miroma.entity.*;
 import com.miroma.miroma.repository.*;
+import com.miroma.miroma.security.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 public class ResumenFinancieroService {
 
     @Autowired
-    private UsuarioRepository usuarioRepository;
+    private SecurityUtils securityUtils;
 
     @Autowired
     private PresupuestoRepository presupuestoRepository;
 
     @Autowired
-    private IngresoRepository ingresoRepository;
+    private IngresoAcumuladoService ingresoAcumuladoService;
 
     @Autowired
     private EgresoParticipacionRepository egresoParticipacionRepository;
 
     @Autowired
-    private EgresoRepository egresoRepository;
+    private ResumenFinancieroCache resumenFinancieroCache;
 
     public List<ResumenPeriodoResponse> obtenerResumenPorUsuario(Integer userId) {
-        Usuario usuario = usuarioRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        Integer parejaId = securityUtils.obtenerParejaId(userId);
 
-        Integer parejaId = usuario.getParejaId();
         if (parejaId == null) {
             throw new IllegalArgumentException("Debes tener una pareja vinculada para ver el resumen financiero");
         }
 
+        return resumenFinancieroCache.obtener(userId, parejaId, () -> calcularResumen(userId, parejaId));
+    }
+
+    private List<ResumenPeriodoResponse> calcularResumen(Integer userId, Integer parejaId) {
         // Calcular ingresos totales del usuario (sin filtrar por período)
         BigDecimal ingresosTotalesUsuario = calcularIngresosTotalesUsuario(userId);
 
+        // Egresos del usuario de todos los períodos (suma de participaciones) en una sola consulta
+        Map<Integer, BigDecimal> egresosPorPeriodo = calcularEgresosTotalesPorPeriodo(userId);
+
         // Obtener todos los presupuestos de la pareja
         List<Presupuesto> presupuestos = presupuestoRepository.findByParejaIdOrderByFechaCreacionDesc(parejaId);
 
         return presupuestos.stream()
                 .map(presupuesto -> {
-                    // Calcular egresos totales del usuario para este período (suma de participaciones)
-                    BigDecimal egresosTotales = calcularEgresosTotalesUsuario(userId, presupuesto.getId());
+                    BigDecimal egresosTotales = egresosPorPeriodo.getOrDefault(presupuesto.getId(), BigDecimal.ZERO);
 
                     // Calcular dinero restante
                     BigDecimal dineroRestante = ingresosTotalesUsuario.subtract(egresosTotales);
@@ -63,25 +70,14 @@ public class ResumenFinancieroService {
     }
 
     private BigDecimal calcularIngresosTotalesUsuario(Integer usuarioId) {
-        List<Ingreso> ingresos = ingresoRepository.findByUsuarioIdOrderByFechaDesc(usuarioId);
-        return ingresos.stream()
-                .map(Ingreso::getMonto)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return ingresoAcumuladoService.obtenerTotalUsuario(usuarioId);
     }
 
-    private BigDecimal calcularEgresosTotalesUsuario(Integer usuarioId, Integer presupuestoId) {
-        // Obtener todas las participaciones del usuario
-        List<EgresoParticipacion> participaciones = egresoParticipacionRepository.findByUsuarioId(usuarioId);
-        
-        return participaciones.stream()
-                .filter(participacion -> {
-                    // Obtener el egreso para verificar su periodoId
-                    Egreso egreso = egresoRepository.findById(participacion.getEgresoId())
-                            .orElse(null);
-                    return egreso != null && egreso.getPeriodoId().equals(presupuestoId);
-                })
-                .map(EgresoParticipacion::getMontoAsignado)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private Map<Integer, BigDecimal> calcularEgresosTotalesPorPeriodo(Integer usuarioId) {
+        Map<Integer, BigDecimal> egresosPorPeriodo = new HashMap<>();
+        for (Object[] fila : egresoParticipacionRepository.sumarPorUsuarioAgrupadoPorPeriodo(usuarioId)) {
+            egresosPorPeriodo.put((Integer) fila[0], (BigDecimal) fila[1]);
+        }
+        return egresosPorPeriodo;
     }
 }
-
@@ -2,7 +2,12 @@ package com.miroma.miroma.service;
 
 import com.miroma.miroma.entity.TokenBlacklist;
 import com.miroma.miroma.repository.TokenBlacklistRepository;
+import com.miroma.miroma.security.AuthenticationCache;
+import com.miroma.miroma.util.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -11,24 +16,53 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.sql.Timestamp;
-import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Servicio para manejar la blacklist de tokens JWT invalidados
+ *
+ * Delante de la tabla token_blacklist hay un filtro de Bloom en memoria con los hashes
+ * vigentes: si el filtro dice que un hash no está, no se consulta la base de datos.
+ * Se reconstruye al iniciar, periódicamente (para incorporar tokens invalidados desde
+ * otra instancia) y después de cada limpieza de expirados, para que no se sature.
  */
 @Service
 public class TokenBlacklistService {
 
+    private static final Logger logger = LoggerFactory.getLogger(TokenBlacklistService.class);
+
+    // Margen para no descartar hashes recientes cuya transacción podía seguir abierta
+    private static final long MARGEN_RECIENTES_MS = 60000;
+
     @Autowired
     private TokenBlacklistRepository tokenBlacklistRepository;
 
     @Autowired
     private JwtService jwtService;
 
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
+    @Value("${app.token-blacklist.bloom.enabled:true}")
+    private boolean filtroHabilitado;
+
+    @Value("${app.token-blacklist.bloom.fpp:0.01}")
+    private double probabilidadFalsoPositivo;
+
+    // null hasta la primera reconstrucción: mientras tanto se consulta siempre la base de datos
+    private volatile BloomFilter filtro;
+
+    // Hashes agregados desde esta instancia y cuándo; cubren la ventana entre la consulta
+    // de una reconstrucción y el reemplazo del filtro
+    private final Map<String, Long> recientes = new ConcurrentHashMap<>();
+
     /**
      * Genera un hash SHA-256 del token para almacenarlo de forma segura
+     * (también es la clave de la caché de autenticación)
      */
-    private String hashToken(String token) {
+    public String hashToken(String token) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
             byte[] hash = digest.digest(token.getBytes(StandardCharsets.UTF_8));
@@ -54,15 +88,21 @@ public class TokenBlacklistService {
     @Transactional
     public void invalidateToken(String token, Integer usuarioId) {
         try {
-            // Obtener la fecha de expiración del token
-            Date expirationDate = jwtService.extractExpiration(token);
-            if (expirationDate == null) {
+            // Obtener la fecha de expiración del token (lanza excepción si es inválido)
+            VerifiedClaims claims = jwtService.parseAndVerify(token);
+            if (claims.expiration() == null) {
                 return; // Token inválido, no hacer nada
             }
 
             // Generar hash del token
             String tokenHash = hashToken(token);
 
+            // Dejar de aceptarlo desde la caché de autenticación
+            authenticationCache.invalidarToken(tokenHash);
+
+            // Agregarlo al filtro antes de guardarlo, para que nunca haya un falso negativo
+            agregarAlFiltro(tokenHash);
+
             // Verificar si ya está en la blacklist
             if (tokenBlacklistRepository.existsByTokenHash(tokenHash)) {
                 return; // Ya está invalidado
@@ -72,7 +112,7 @@ public class TokenBlacklistService {
             TokenBlacklist blacklistEntry = new TokenBlacklist(
                 tokenHash,
                 usuarioId,
-                new Timestamp(expirationDate.getTime())
+                Timestamp.from(claims.expiration())
             );
 
             tokenBlacklistRepository.save(blacklistEntry);
@@ -89,20 +129,38 @@ public class TokenBlacklistService {
      */
     public boolean isTokenBlacklisted(String token) {
         try {
-            String tokenHash = hashToken(token);
-            return tokenBlacklistRepository.existsByTokenHash(tokenHash);
+            return isTokenHashBlacklisted(hashToken(token));
         } catch (Exception e) {
             // En caso de error, asumir que no está en blacklist para no bloquear acceso legítimo
             return false;
         }
     }
 
+    /**
+     * Verifica si un token está en la blacklist a partir de su hash ya calculado
+     * @param tokenHash Hash SHA-256 del token
+     * @return true si el token está invalidado, false si es válido
+     */
+    public boolean isTokenHashBlacklisted(String tokenHash) {
+        try {
+            // El filtro no tiene falsos negativos: si no lo contiene, no está en la tabla
+            BloomFilter actual = filtro;
+            if (actual != null && !actual.mightContain(tokenHash)) {
+                return false;
+            }
+            return tokenBlacklistRepository.existsByTokenHash(tokenHash);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
     /**
      * Invalida todos los tokens de un usuario (útil cuando cambia la contraseña)
      * @param usuarioId ID del usuario
      */
     @Transactional
     public void invalidateAllUserTokens(Integer usuarioId) {
+        authenticationCache.invalidarUsuario(usuarioId);
         try {
             // Eliminar todos los tokens del usuario de la blacklist
             // (aunque técnicamente no están en blacklist, esto limpia entradas antiguas)
@@ -121,10 +179,57 @@ public class TokenBlacklistService {
         try {
             Timestamp now = new Timestamp(System.currentTimeMillis());
             tokenBlacklistRepository.deleteExpiredTokens(now);
+
+            // Reconstruir sin los hashes eliminados para que el filtro no se sature
+            reconstruirFiltro();
         } catch (Exception e) {
             System.err.println("Error al limpiar tokens expirados: " + e.getMessage());
         }
     }
+
+    /**
+     * Reconstruye el filtro de Bloom con los hashes vigentes de token_blacklist
+     * y lo reemplaza de forma atómica
+     */
+    @Scheduled(initialDelay = 0,
+               fixedDelayString = "${app.token-blacklist.bloom.refresh-interval:60000}")
+    public void reconstruirFiltro() {
+        if (!filtroHabilitado) {
+            filtro = null;
+            return;
+        }
+        try {
+            long inicio = System.currentTimeMillis();
+            List<String> hashes = tokenBlacklistRepository.findHashesVigentes(new Timestamp(inicio));
+
+            // Dimensionar con holgura para absorber las invalidaciones hasta la próxima reconstrucción
+            BloomFilter nuevo = new BloomFilter(Math.max(1024, hashes.size() * 2), probabilidadFalsoPositivo);
+            hashes.forEach(nuevo::put);
+
+            synchronized (recientes) {
+                recientes.keySet().forEach(nuevo::put);
+                filtro = nuevo;
+                recientes.values().removeIf(agregado -> agregado < inicio - MARGEN_RECIENTES_MS);
+            }
+            logger.debug("Filtro de blacklist reconstruido con {} hash(es)", hashes.size());
+        } catch (Exception e) {
+            // Conservar el filtro anterior; los hashes nuevos siguen entrando por agregarAlFiltro
+            logger.warn("No se pudo reconstruir el filtro de blacklist: {}", e.getMessage());
+        }
+    }
+
+    private void agregarAlFiltro(String tokenHash) {
+        if (!filtroHabilitado) {
+            return;
+        }
+        synchronized (recientes) {
+            recientes.put(tokenHash, System.currentTimeMillis());
+            BloomFilter actual = filtro;
+            if (actual != null) {
+                actual.put(tokenHash);
+            }
+        }
+    }
 }
 
 
@@ -14,6 +14,7 @@ import com.miroma.miroma.exception.ResourceNotFoundException;
 import com.miroma.miroma.exception.UnauthorizedException;
 import com.miroma.miroma.exception.ValidationException;
 import com.miroma.miroma.repository.UsuarioRepository;
+import com.miroma.miroma.security.AuthenticationCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -49,6 +50,9 @@ public class UsuarioService {
     @Autowired
     private com.miroma.miroma.service.TokenBlacklistService tokenBlacklistService;
 
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
     @Transactional
     public RegisterResponse registrarUsuario(RegisterRequest request) {
         // Validar que las contraseñas coincidan
@@ -159,12 +163,15 @@ public class UsuarioService {
         }
     }
 
-    public LoginResponse login(LoginRequest request) {
+    /**
+     * @param ip Dirección del cliente, para limitar los intentos fallidos por conexión (null si no se conoce)
+     */
+    public LoginResponse login(LoginRequest request, String ip) {
         String email = request.getEmail().toLowerCase().trim();
         
-        // Verificar si el usuario está bloqueado
+        // Verificar si el usuario (o la conexión) está bloqueado
         try {
-            loginAttemptService.verificarBloqueo(email);
+            loginAttemptService.verificarBloqueo(email, ip);
         } catch (ValidationException e) {
             // Si está bloqueado, lanzar excepción con el mensaje apropiado
             throw e;
@@ -193,7 +200,7 @@ public class UsuarioService {
         
         // Si las credenciales son inválidas, registrar intento fallido
         if (credencialesInvalidas) {
-            loginAttemptService.registrarIntentoFallido(email);
+            loginAttemptService.registrarIntentoFallido(email, ip);
             throw new UnauthorizedException("Credenciales inválidas");
         }
         
@@ -329,6 +336,7 @@ public class UsuarioService {
 
         // Incrementar la versión del token para invalidar todos los tokens anteriores
         usuario.setTokenVersion(usuario.getTokenVersion() != null ? usuario.getTokenVersion() + 1 : 1);
+        authenticationCache.invalidarUsuario(userId);
 
         // Guardar el usuario
         usuarioRepository.save(usuario);
@@ -0,0 +1,45 @@
+package com.miroma.miroma.service;
+
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+
+/**
+ * Claims de un token JWT cuya firma, algoritmo y expiración ya fueron verificados.
+ * Inmutable: se obtiene una sola vez con JwtService.parseAndVerify y se comparte
+ * entre el filtro, la caché de autenticación y los servicios de tokens.
+ */
+public record VerifiedClaims(
+        Integer userId,
+        String email,
+        String nombre,
+        String type,
+        Integer tokenVersion,
+        Instant issuedAt,
+        Instant expiration
+) {
+
+    static VerifiedClaims from(Claims claims) {
+        return new VerifiedClaims(
+                claims.get("userId", Integer.class),
+                claims.getSubject(),
+                claims.get("nombre", String.class),
+                claims.get("type", String.class),
+                claims.get("tokenVersion", Integer.class),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null
+        );
+    }
+
+    public boolean isAccessToken() {
+        return "access".equals(type);
+    }
+
+    public boolean isRefreshToken() {
+        return "refresh".equals(type);
+    }
+
+    public boolean isExpired() {
+        return expiration == null || !expiration.isAfter(Instant.now());
+    }
+}
@@ -0,0 +1,117 @@
+package com.miroma.miroma.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Versión de los datos de cada pareja (columna parejas.version_datos), para responder
+ * peticiones condicionales (If-None-Match) sin calcular los listados.
+ *
+ * Los servicios que modifican egresos, ingresos, presupuestos o porcentajes llaman a
+ * incrementar(parejaId). El UPDATE se ejecuta justo antes de confirmar la transacción
+ * (una vez por pareja aunque se llame varias veces), así el bloqueo de la fila de la pareja
+ * dura lo mínimo y una transacción que se revierte no cambia la versión. Como la versión
+ * está en la base de datos, vale para todas las instancias.
+ */
+@Service
+public class VersionDatosService {
+
+    private static final String INCREMENTAR_SQL =
+            "UPDATE parejas SET version_datos = version_datos + 1 WHERE id = ?";
+
+    private static final String INCREMENTAR_TODAS_SQL =
+            "UPDATE parejas SET version_datos = version_datos + 1";
+
+    private static final String VERSION_POR_USUARIO_SQL =
+            "SELECT p.id, p.version_datos FROM usuarios u JOIN parejas p ON p.id = u.pareja_id WHERE u.id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Registra un cambio en los datos de la pareja (se aplica al confirmar la transacción actual)
+     */
+    public void incrementar(Integer parejaId) {
+        if (parejaId == null) {
+            return;
+        }
+        IncrementosPendientes pendientes = obtenerPendientes();
+        if (pendientes == null) {
+            jdbcTemplate.update(INCREMENTAR_SQL, parejaId);
+        } else {
+            pendientes.parejas.add(parejaId);
+        }
+    }
+
+    /**
+     * Registra un cambio que afecta a todas las parejas (por ejemplo, renombrar una categoría)
+     */
+    public void incrementarTodas() {
+        IncrementosPendientes pendientes = obtenerPendientes();
+        if (pendientes == null) {
+            jdbcTemplate.update(INCREMENTAR_TODAS_SQL);
+        } else {
+            pendientes.todas = true;
+        }
+    }
+
+    /**
+     * ETag de los datos que ve el usuario: identifica pareja, versión y usuario (el resumen
+     * financiero es por usuario). Se lee en una transacción de solo lectura, del mismo origen
+     * que los listados: con réplica, la versión nunca es más nueva que los datos que se devuelven
+     * @return El ETag (débil), o null si el usuario no tiene pareja
+     */
+    @Transactional(readOnly = true)
+    public String obtenerEtag(Integer userId) {
+        try {
+            return jdbcTemplate.queryForObject(VERSION_POR_USUARIO_SQL,
+                    (rs, rowNum) -> "W/\"" + rs.getInt(1) + "-" + rs.getLong(2) + "-" + userId + "\"",
+                    userId);
+        } catch (EmptyResultDataAccessException e) {
+            return null;
+        }
+    }
+
+    private IncrementosPendientes obtenerPendientes() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        for (TransactionSynchronization sincronizacion : TransactionSynchronizationManager.getSynchronizations()) {
+            if (sincronizacion instanceof IncrementosPendientes pendientes) {
+                return pendientes;
+            }
+        }
+        IncrementosPendientes pendientes = new IncrementosPendientes();
+        TransactionSynchronizationManager.registerSynchronization(pendientes);
+        return pendientes;
+    }
+
+    /**
+     * Parejas a incrementar al confirmar una transacción
+     */
+    private class IncrementosPendientes implements TransactionSynchronization {
+
+        // Ordenadas, para que dos transacciones bloqueen las filas en el mismo orden
+        private final Set<Integer> parejas = new TreeSet<>();
+        private boolean todas;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (todas) {
+                jdbcTemplate.update(INCREMENTAR_TODAS_SQL);
+                return;
+            }
+            for (Integer parejaId : parejas) {
+                jdbcTemplate.update(INCREMENTAR_SQL, parejaId);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.miroma.miroma.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom de cadenas, seguro para uso concurrente.
+ * mightContain puede dar falsos positivos (con la probabilidad indicada al crearlo
+ * si no se superan las inserciones esperadas) pero nunca falsos negativos.
+ * No admite borrados: para quitar elementos hay que construir uno nuevo.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long cantidadBits;
+    private final int cantidadHashes;
+
+    /**
+     * @param insercionesEsperadas Cantidad de elementos para la que se dimensiona el filtro
+     * @param probabilidadFalsoPositivo Probabilidad de falso positivo deseada (por ejemplo 0.01)
+     */
+    public BloomFilter(int insercionesEsperadas, double probabilidadFalsoPositivo) {
+        if (insercionesEsperadas <= 0) {
+            throw new IllegalArgumentException("Las inserciones esperadas deben ser mayores a cero");
+        }
+        if (probabilidadFalsoPositivo <= 0 || probabilidadFalsoPositivo >= 1) {
+            throw new IllegalArgumentException("La probabilidad de falso positivo debe estar entre 0 y 1");
+        }
+        // m = -n ln(p) / (ln 2)^2 ; k = m/n ln 2
+        long m = (long) Math.ceil(-insercionesEsperadas * Math.log(probabilidadFalsoPositivo) / (Math.log(2) * Math.log(2)));
+        this.cantidadBits = Math.max(64, ((m + 63) / 64) * 64);
+        this.cantidadHashes = Math.max(1, (int) Math.round((double) cantidadBits / insercionesEsperadas * Math.log(2)));
+        this.bits = new AtomicLongArray((int) (cantidadBits / 64));
+    }
+
+    public void put(String valor) {
+        long hash = hash64(valor);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= cantidadHashes; i++) {
+            long indice = indice(h1 + i * h2);
+            int palabra = (int) (indice >>> 6);
+            long mascara = 1L << indice;
+            long actual;
+            do {
+                actual = bits.get(palabra);
+                if ((actual & mascara) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(palabra, actual, actual | mascara));
+        }
+    }
+
+    public boolean mightContain(String valor) {
+        long hash = hash64(valor);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= cantidadHashes; i++) {
+            long indice = indice(h1 + i * h2);
+            if ((bits.get((int) (indice >>> 6)) & (1L << indice)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long indice(int combinado) {
+        // Doble hashing (Kirsch-Mitzenmacher): g_i = h1 + i*h2
+        return (combinado & Integer.MAX_VALUE) % cantidadBits;
+    }
+
+    // FNV-1a de 64 bits con una mezcla final para repartir mejor los bits altos
+    private static long hash64(String valor) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : valor.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,46 @@
+package com.miroma.miroma.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Escritura de registros CSV (RFC 4180) directamente sobre un Writer, sin armar el archivo
+ * en memoria. Usa coma como separador y CRLF como fin de línea; los campos con separador,
+ * comillas o saltos de línea se escriben entre comillas. Complementa a LectorCsv: un archivo
+ * exportado se puede volver a importar.
+ */
+public final class EscritorCsv {
+
+    private EscritorCsv() {
+    }
+
+    /**
+     * Escribe un registro; los valores null se escriben como campo vacío
+     */
+    public static void escribirFila(Writer writer, Object... valores) throws IOException {
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (valores[i] != null) {
+                escribirCampo(writer, valores[i].toString());
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private static void escribirCampo(Writer writer, String valor) throws IOException {
+        boolean requiereComillas = false;
+        for (int i = 0; i < valor.length() && !requiereComillas; i++) {
+            char c = valor.charAt(i);
+            requiereComillas = c == ',' || c == ';' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!requiereComillas) {
+            writer.write(valor);
+            return;
+        }
+        writer.write('"');
+        writer.write(valor.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
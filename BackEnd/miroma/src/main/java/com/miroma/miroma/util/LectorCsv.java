@@ -0,0 +1,151 @@
+package com.miroma.miroma.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector incremental de CSV (RFC 4180): devuelve un registro por llamada sin cargar el
+ * archivo en memoria. Acepta coma o punto y coma como separador (el que exporta Excel
+ * con configuración regional en español), campos entre comillas con separadores, saltos
+ * de línea y comillas dobles escapadas, y finales de línea LF o CRLF.
+ * No es seguro para uso concurrente.
+ */
+public class LectorCsv {
+
+    private static final int MAX_LARGO_ENCABEZADO = 65536;
+
+    private final Reader reader;
+    private final char separador;
+    private final int maxLargoCampo;
+
+    private int lineaActual = 1;
+    private int lineaRegistro;
+    private int pendiente = -2;
+
+    /**
+     * @param reader Origen del CSV (conviene que tenga buffer)
+     * @param separador Separador de campos
+     * @param maxLargoCampo Largo máximo de un campo, para acotar la memoria ante archivos mal formados
+     */
+    public LectorCsv(Reader reader, char separador, int maxLargoCampo) {
+        this.reader = reader;
+        this.separador = separador;
+        this.maxLargoCampo = maxLargoCampo;
+    }
+
+    /**
+     * Abre un CSV en UTF-8, ignorando la marca BOM si la tiene, y detecta el separador
+     * a partir de la primera línea
+     */
+    public static LectorCsv abrir(InputStream entrada, int maxLargoCampo) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+        reader.mark(MAX_LARGO_ENCABEZADO);
+        String primeraLinea = reader.readLine();
+        reader.reset();
+        return new LectorCsv(reader, primeraLinea != null ? detectarSeparador(primeraLinea) : ',', maxLargoCampo);
+    }
+
+    /**
+     * Lee el siguiente registro
+     * @return Los campos del registro, o null al llegar al final del archivo
+     * @throws IllegalArgumentException Si un campo excede el largo máximo o quedan comillas sin cerrar
+     */
+    public List<String> leer() throws IOException {
+        int c = siguiente();
+        if (c == -1) {
+            return null;
+        }
+        lineaRegistro = lineaActual;
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        boolean campoConComillas = false;
+        while (true) {
+            if (entreComillas) {
+                if (c == -1) {
+                    throw new IllegalArgumentException("Comillas sin cerrar desde la línea " + lineaRegistro);
+                }
+                if (c == '"') {
+                    int sig = siguiente();
+                    if (sig == '"') {
+                        agregar(campo, '"');
+                    } else {
+                        entreComillas = false;
+                        c = sig;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineaActual++;
+                    }
+                    agregar(campo, (char) c);
+                }
+            } else if (c == '"' && campo.isEmpty() && !campoConComillas) {
+                entreComillas = true;
+                campoConComillas = true;
+            } else if (c == separador) {
+                campos.add(campo.toString());
+                campo.setLength(0);
+                campoConComillas = false;
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int sig = siguiente();
+                    if (sig != '\n') {
+                        pendiente = sig;
+                    }
+                }
+                if (c != -1) {
+                    lineaActual++;
+                }
+                campos.add(campo.toString());
+                return campos;
+            } else {
+                agregar(campo, (char) c);
+            }
+            c = siguiente();
+        }
+    }
+
+    /**
+     * Número de línea (desde 1) en que empieza el último registro leído
+     */
+    public int getLinea() {
+        return lineaRegistro;
+    }
+
+    /**
+     * Detecta el separador a partir de la línea de encabezados: punto y coma si aparece
+     * antes que cualquier coma, coma en otro caso
+     */
+    public static char detectarSeparador(String encabezado) {
+        int coma = encabezado.indexOf(',');
+        int puntoYComa = encabezado.indexOf(';');
+        return puntoYComa >= 0 && (coma < 0 || puntoYComa < coma) ? ';' : ',';
+    }
+
+    private int siguiente() throws IOException {
+        if (pendiente != -2) {
+            int c = pendiente;
+            pendiente = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private void agregar(StringBuilder campo, char c) {
+        if (campo.length() >= maxLargoCampo) {
+            throw new IllegalArgumentException("Campo demasiado largo en la línea " + lineaRegistro);
+        }
+        campo.append(c);
+    }
+}
@@ -0,0 +1,123 @@
+package com.miroma.miroma.util;
+
+import com.miroma.miroma.dto.PaginaResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Paginación por cursor (keyset) sobre (fecha, id) en orden descendente.
+ *
+ * El cursor es la posición del último elemento devuelto codificada en Base64: la página
+ * siguiente se pide con "fecha &lt; cursor.fecha OR (fecha = cursor.fecha AND id &lt; cursor.id)",
+ * que usa el índice y cuesta lo mismo en la primera página que en la última (a diferencia
+ * de OFFSET). Se pide un elemento de más para saber si hay otra página sin hacer un COUNT.
+ */
+@Component
+public class Paginacion {
+
+    /**
+     * Posición del último elemento de una página
+     */
+    public record Posicion(String fecha, Integer id) {
+
+        public Date fechaComoDate() {
+            return Date.valueOf(fecha);
+        }
+
+        public Timestamp fechaComoTimestamp() {
+            return Timestamp.valueOf(fecha);
+        }
+    }
+
+    // true: sin "limite" ni "cursor" los endpoints devuelven la lista completa como antes
+    @Value("${app.paginacion.sin-paginar.enabled:true}")
+    private boolean sinPaginarHabilitado;
+
+    @Value("${app.paginacion.tamanio-default:50}")
+    private int tamanioDefault;
+
+    @Value("${app.paginacion.tamanio-max:200}")
+    private int tamanioMax;
+
+    /**
+     * Indica si la petición debe responder paginada
+     * @param limite Parámetro "limite" de la petición (puede ser null)
+     * @param cursor Parámetro "cursor" de la petición (puede ser null)
+     */
+    public boolean debePaginar(Integer limite, String cursor) {
+        return !sinPaginarHabilitado || limite != null || (cursor != null && !cursor.isEmpty());
+    }
+
+    /**
+     * Tamaño de página a usar, acotado a app.paginacion.tamanio-max
+     */
+    public int tamanio(Integer limite) {
+        if (limite == null) {
+            return tamanioDefault;
+        }
+        if (limite <= 0) {
+            throw new IllegalArgumentException("El límite debe ser mayor a cero");
+        }
+        return Math.min(limite, tamanioMax);
+    }
+
+    /**
+     * Consulta para una página: pide un elemento de más para saber si hay otra página
+     */
+    public Pageable consulta(int tamanio) {
+        return PageRequest.of(0, tamanio + 1);
+    }
+
+    /**
+     * Arma la página a partir del resultado de la consulta
+     * @param filas Resultado obtenido con consulta(tamanio)
+     * @param tamanio Tamaño de página
+     * @param posicion Posición (fecha, id) de un elemento, para el cursor siguiente
+     */
+    public <T> PaginaResponse<T> armarPagina(List<T> filas, int tamanio, Function<T, Posicion> posicion) {
+        if (filas.size() <= tamanio) {
+            return new PaginaResponse<>(filas, null);
+        }
+        List<T> elementos = filas.subList(0, tamanio);
+        Posicion ultima = posicion.apply(elementos.get(tamanio - 1));
+        return new PaginaResponse<>(elementos, codificar(ultima));
+    }
+
+    public static String codificar(Posicion posicion) {
+        String valor = posicion.fecha() + "|" + posicion.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor Cursor recibido en la petición
+     * @return La posición, o null si no se envió cursor (primera página)
+     */
+    public static Posicion decodificar(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.lastIndexOf('|');
+            Posicion posicion = new Posicion(valor.substring(0, separador), Integer.valueOf(valor.substring(separador + 1)));
+            // Validar el formato de la fecha ahora y no al ejecutar la consulta
+            if (posicion.fecha().length() == 10) {
+                posicion.fechaComoDate();
+            } else {
+                posicion.fechaComoTimestamp();
+            }
+            return posicion;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+}
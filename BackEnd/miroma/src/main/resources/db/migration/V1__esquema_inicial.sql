@@ -0,0 +1,184 @@
+-- Esquema base de Mi Roma
+-- Reúne los scripts que antes se ejecutaban a mano (schema*.sql, fix_*.sql,
+-- add_token_version_to_usuarios.sql) y agrega las tablas que no tenían DDL
+-- (egresos, egreso_participaciones, ingresos, categorias_gasto, presupuesto_categoria).
+-- Usa IF NOT EXISTS: en una base existente (baseline-on-migrate) no modifica las tablas creadas a mano.
+
+CREATE TABLE IF NOT EXISTS usuarios (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    pareja_id INT NULL DEFAULT NULL,
+    rol_id INT NOT NULL,
+    nombre VARCHAR(200) NOT NULL,
+    fecha_nacimiento DATE NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    activo INT NOT NULL DEFAULT 1,
+    fecha_creacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    token_version INT NOT NULL DEFAULT 1,
+    UNIQUE KEY uk_usuarios_email (email),
+    INDEX idx_usuarios_pareja_id (pareja_id),
+    CONSTRAINT chk_rol_id CHECK (rol_id IN (1, 2))
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS parejas (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    nombre VARCHAR(400) NOT NULL,
+    esposo_id INT NOT NULL,
+    esposa_id INT NOT NULL,
+    fecha_creacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_parejas_esposo (esposo_id),
+    UNIQUE KEY uk_parejas_esposa (esposa_id),
+    FOREIGN KEY (esposo_id) REFERENCES usuarios(id) ON DELETE CASCADE,
+    FOREIGN KEY (esposa_id) REFERENCES usuarios(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS categorias_gasto (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    nombre VARCHAR(200) NOT NULL,
+    descripcion VARCHAR(500) NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS presupuestos (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    pareja_id INT NOT NULL,
+    periodo VARCHAR(50) NOT NULL,
+    fecha_creacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_presupuestos_pareja_periodo (pareja_id, periodo),
+    FOREIGN KEY (pareja_id) REFERENCES parejas(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS presupuesto_categoria (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    presupuesto_id INT NOT NULL,
+    categoria_id INT NOT NULL,
+    porcentaje DECIMAL(5,2) NOT NULL,
+    UNIQUE KEY uk_presupuesto_categoria (presupuesto_id, categoria_id),
+    INDEX idx_presupuesto_categoria_categoria_id (categoria_id),
+    FOREIGN KEY (presupuesto_id) REFERENCES presupuestos(id) ON DELETE CASCADE,
+    FOREIGN KEY (categoria_id) REFERENCES categorias_gasto(id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS egresos (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    pareja_id INT NOT NULL,
+    monto_total DECIMAL(15,2) NOT NULL,
+    fecha DATE NOT NULL,
+    descripcion VARCHAR(500) NULL,
+    categoria_id INT NOT NULL,
+    periodo_id INT NOT NULL,
+    fecha_creacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_egresos_categoria_id (categoria_id),
+    INDEX idx_egresos_periodo_id (periodo_id),
+    FOREIGN KEY (pareja_id) REFERENCES parejas(id) ON DELETE CASCADE,
+    FOREIGN KEY (categoria_id) REFERENCES categorias_gasto(id),
+    CONSTRAINT fk_egresos_presupuesto FOREIGN KEY (periodo_id) REFERENCES presupuestos(id)
+        ON DELETE RESTRICT ON UPDATE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS egreso_participaciones (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    egreso_id INT NOT NULL,
+    usuario_id INT NOT NULL,
+    porcentaje DECIMAL(5,2) NOT NULL,
+    monto_asignado DECIMAL(15,2) NOT NULL,
+    INDEX idx_egreso_participaciones_egreso_id (egreso_id),
+    FOREIGN KEY (egreso_id) REFERENCES egresos(id) ON DELETE CASCADE,
+    FOREIGN KEY (usuario_id) REFERENCES usuarios(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS ingresos (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    usuario_id INT NOT NULL,
+    pareja_id INT NULL,
+    monto DECIMAL(15,2) NOT NULL,
+    descripcion VARCHAR(500) NULL,
+    fecha DATE NOT NULL,
+    fecha_creacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (usuario_id) REFERENCES usuarios(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS log_eventos (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    usuario_id INT NOT NULL,
+    accion VARCHAR(1000) NOT NULL,
+    fecha DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_log_eventos_fecha (fecha),
+    FOREIGN KEY (usuario_id) REFERENCES usuarios(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    usuario_id INT NOT NULL,
+    token VARCHAR(500) NOT NULL,
+    expires_at DATETIME NOT NULL,
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    revoked BOOLEAN NOT NULL DEFAULT FALSE,
+    UNIQUE KEY uk_refresh_tokens_token (token),
+    INDEX idx_refresh_tokens_usuario_id (usuario_id),
+    INDEX idx_refresh_tokens_expires_at (expires_at),
+    FOREIGN KEY (usuario_id) REFERENCES usuarios(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS token_blacklist (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    token_hash VARCHAR(255) NOT NULL,
+    usuario_id INT NOT NULL,
+    fecha_invalidacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    fecha_expiracion DATETIME NOT NULL,
+    UNIQUE KEY uk_token_blacklist_token_hash (token_hash),
+    INDEX idx_token_blacklist_usuario_id (usuario_id),
+    INDEX idx_token_blacklist_fecha_expiracion (fecha_expiracion),
+    FOREIGN KEY (usuario_id) REFERENCES usuarios(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS intentos_login (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    email VARCHAR(255) NOT NULL,
+    intentos_fallidos INT NOT NULL DEFAULT 0,
+    ultimo_intento DATETIME NULL,
+    bloqueado_hasta DATETIME NULL,
+    nivel_bloqueo INT NOT NULL DEFAULT 0,
+    UNIQUE KEY uk_intentos_login_email (email),
+    INDEX idx_intentos_login_bloqueado_hasta (bloqueado_hasta)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Acumulado de egresos por (pareja, presupuesto, categoría)
+-- EgresoService lo mantiene y EgresoAcumuladoService lo reconcilia contra egresos
+CREATE TABLE IF NOT EXISTS egresos_acumulados (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    pareja_id INT NOT NULL,
+    presupuesto_id INT NOT NULL,
+    categoria_id INT NOT NULL,
+    gastado DECIMAL(15,2) NOT NULL DEFAULT 0,
+    fecha_actualizacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_egresos_acumulados (pareja_id, presupuesto_id, categoria_id),
+    INDEX idx_egresos_acumulados_presupuesto_id (presupuesto_id),
+    FOREIGN KEY (pareja_id) REFERENCES parejas(id) ON DELETE CASCADE,
+    FOREIGN KEY (presupuesto_id) REFERENCES presupuestos(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Totales de ingresos por (usuario, pareja); pareja_id = 0 agrupa los ingresos sin pareja
+-- IngresoService lo mantiene y IngresoAcumuladoService lo reconcilia contra ingresos
+CREATE TABLE IF NOT EXISTS ingresos_acumulados (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    usuario_id INT NOT NULL,
+    pareja_id INT NOT NULL DEFAULT 0,
+    total DECIMAL(15,2) NOT NULL DEFAULT 0,
+    fecha_actualizacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_ingresos_acumulados (usuario_id, pareja_id),
+    INDEX idx_ingresos_acumulados_pareja_id (pareja_id),
+    FOREIGN KEY (usuario_id) REFERENCES usuarios(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Carga inicial de los acumulados a partir de los datos existentes
+INSERT INTO egresos_acumulados (pareja_id, presupuesto_id, categoria_id, gastado)
+SELECT pareja_id, periodo_id, categoria_id, SUM(monto_total)
+FROM egresos
+GROUP BY pareja_id, periodo_id, categoria_id
+ON DUPLICATE KEY UPDATE gastado = VALUES(gastado);
+
+INSERT INTO ingresos_acumulados (usuario_id, pareja_id, total)
+SELECT usuario_id, COALESCE(pareja_id, 0), SUM(monto)
+FROM ingresos
+GROUP BY usuario_id, COALESCE(pareja_id, 0)
+ON DUPLICATE KEY UPDATE total = VALUES(total);
@@ -0,0 +1,19 @@
+-- Índices compuestos para los patrones de acceso de los repositorios
+
+-- Acumulado y reconciliación de egresos por (pareja, período, categoría)
+CREATE INDEX idx_egresos_pareja_periodo_categoria ON egresos (pareja_id, periodo_id, categoria_id);
+
+-- Listados de egresos de la pareja por fecha (y paginación por (fecha, id))
+CREATE INDEX idx_egresos_pareja_fecha ON egresos (pareja_id, fecha);
+
+-- Totales de ingresos por pareja y usuario
+CREATE INDEX idx_ingresos_pareja_usuario ON ingresos (pareja_id, usuario_id);
+
+-- Listados de ingresos del usuario por fecha (y paginación por (fecha, id))
+CREATE INDEX idx_ingresos_usuario_fecha ON ingresos (usuario_id, fecha);
+
+-- Sumas de participaciones del usuario unidas a egresos
+CREATE INDEX idx_egreso_participaciones_usuario_egreso ON egreso_participaciones (usuario_id, egreso_id);
+
+-- Log de eventos del usuario por fecha (y paginación por (fecha, id))
+CREATE INDEX idx_log_eventos_usuario_fecha ON log_eventos (usuario_id, fecha);
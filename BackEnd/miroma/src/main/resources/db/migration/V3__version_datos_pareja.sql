@@ -0,0 +1,3 @@
+-- Versión de los datos de cada pareja: la incrementa cada cambio en egresos, ingresos,
+-- presupuestos o porcentajes, y de ella salen los ETag de los listados (VersionDatosService)
+ALTER TABLE parejas ADD COLUMN version_datos BIGINT NOT NULL DEFAULT 0;
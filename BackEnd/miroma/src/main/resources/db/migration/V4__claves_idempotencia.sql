@@ -0,0 +1,16 @@
+-- Claves de idempotencia (cabecera Idempotency-Key) de POST /api/egresos y /api/ingresos
+-- (IdempotenciaService). Mientras la primera petición se ejecuta la fila queda sin status_http
+-- y vence a los pocos segundos; al terminar guarda la respuesta y vence con app.idempotencia.ttl.
+CREATE TABLE IF NOT EXISTS claves_idempotencia (
+    usuario_id INT NOT NULL,
+    clave VARCHAR(100) NOT NULL,
+    hash_peticion CHAR(64) NOT NULL,
+    status_http INT NULL,
+    content_type VARCHAR(255) NULL,
+    cuerpo MEDIUMBLOB NULL,
+    fecha_creacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    vence_en DATETIME NOT NULL,
+    PRIMARY KEY (usuario_id, clave),
+    INDEX idx_claves_idempotencia_vence_en (vence_en),
+    FOREIGN KEY (usuario_id) REFERENCES usuarios(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -1,16 +0,0 @@
--- Tabla de usuarios para Mi Roma
-CREATE TABLE IF NOT EXISTS usuarios (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
-    pareja_id VARCHAR(255) NULL,
-    rol_id INT NOT NULL,
-    nombre VARCHAR(200) NOT NULL,
-    fecha_nacimiento DATE NOT NULL,
-    email VARCHAR(255) NOT NULL UNIQUE,
-    password VARCHAR(255) NOT NULL,
-    activo INT NOT NULL DEFAULT 1,
-    fecha_creacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
-    INDEX idx_email (email),
-    INDEX idx_pareja_id (pareja_id),
-    CONSTRAINT chk_rol_id CHECK (rol_id IN (1, 2))
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
-
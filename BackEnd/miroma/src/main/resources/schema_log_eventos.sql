@@ -1,11 +0,0 @@
--- Tabla de log de eventos para Mi Roma
-CREATE TABLE IF NOT EXISTS log_eventos (
-    id INT AUTO_INCREMENT PRIMARY KEY,
-    usuario_id INT NOT NULL,
-    accion VARCHAR(1000) NOT NULL,
-    fecha DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
-    INDEX idx_usuario_id (usuario_id),
-    INDEX idx_fecha (fecha),
-    FOREIGN KEY (usuario_id) REFERENCES usuarios(id) ON DELETE CASCADE
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
-
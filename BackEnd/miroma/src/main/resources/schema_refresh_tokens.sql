@@ -1,16 +0,0 @@
--- Tabla de refresh tokens para Mi Roma
--- Ejecuta este script en MySQL para crear la tabla
-
-CREATE TABLE IF NOT EXISTS refresh_tokens (
-    id INT AUTO_INCREMENT PRIMARY KEY,
-    usuario_id INT NOT NULL,
-    token VARCHAR(500) NOT NULL UNIQUE,
-    expires_at DATETIME NOT NULL,
-    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
-    revoked BOOLEAN NOT NULL DEFAULT FALSE,
-    INDEX idx_usuario_id (usuario_id),
-    INDEX idx_token (token),
-    INDEX idx_expires_at (expires_at),
-    FOREIGN KEY (usuario_id) REFERENCES usuarios(id) ON DELETE CASCADE
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
-
@@ -1,14 +0,0 @@
--- Tabla para almacenar tokens JWT invalidados (blacklist)
-CREATE TABLE IF NOT EXISTS token_blacklist (
-    id INT AUTO_INCREMENT PRIMARY KEY,
-    token_hash VARCHAR(255) NOT NULL UNIQUE,
-    usuario_id INT NOT NULL,
-    fecha_invalidacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
-    fecha_expiracion DATETIME NOT NULL,
-    INDEX idx_token_hash (token_hash),
-    INDEX idx_usuario_id (usuario_id),
-    INDEX idx_fecha_expiracion (fecha_expiracion),
-    FOREIGN KEY (usuario_id) REFERENCES usuarios(id) ON DELETE CASCADE
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
-
-
@@ -3,7 +3,8 @@ package com.miroma.miroma;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// Sin base de datos disponible: las migraciones se prueban en MigracionesIndicesTest
+@SpringBootTest(properties = "spring.flyway.enabled=false")
 class MiromaApplicationTests {
 
 	@Test
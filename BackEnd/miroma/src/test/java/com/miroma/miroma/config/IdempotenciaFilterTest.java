@@ -0,0 +1,209 @@
+package com.miroma.miroma.config;
+
+import com.miroma.miroma.security.UsuarioAutenticado;
+import com.miroma.miroma.service.IdempotenciaService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * IdempotenciaFilter con IdempotenciaService sobre la tabla de Flyway (H2 modo MySQL).
+ * La cadena de filtros hace de controlador: cuenta sus ejecuciones y responde 201 con el
+ * número de ejecución y el cuerpo que recibió. Las reservas se confirman de verdad (sin el
+ * rollback de @DataJpaTest) para que los hilos concurrentes las vean.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:idempotencia;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=none"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(IdempotenciaService.class)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotenciaFilterTest {
+
+    private static final int PETICIONES = 8;
+
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private IdempotenciaFilter filtro;
+    private UsuarioAutenticado usuario;
+    private final AtomicInteger ejecuciones = new AtomicInteger();
+
+    @BeforeEach
+    void preparar() {
+        jdbcTemplate.update("INSERT INTO usuarios (rol_id, nombre, fecha_nacimiento, email, password) "
+                + "VALUES (1, 'Esposo', '1990-01-01', 'esposo@prueba.com', 'hash')");
+        Integer userId = jdbcTemplate.queryForObject("SELECT id FROM usuarios", Integer.class);
+        usuario = new UsuarioAutenticado(userId, "esposo@prueba.com", null, 1);
+        filtro = new IdempotenciaFilter(idempotenciaService);
+    }
+
+    @AfterEach
+    void limpiar() {
+        jdbcTemplate.update("DELETE FROM claves_idempotencia");
+        jdbcTemplate.update("DELETE FROM usuarios");
+    }
+
+    @Test
+    void elReintentoRecibeLaRespuestaGuardadaSinEjecutarDeNuevo() throws Exception {
+        MockHttpServletResponse primera = enviar("clave-1", "{\"monto\":100}", this::ejecutar);
+        MockHttpServletResponse reintento = enviar("clave-1", "{\"monto\":100}", this::ejecutar);
+
+        assertEquals(1, ejecuciones.get());
+        assertEquals(201, primera.getStatus());
+        assertNull(primera.getHeader(IdempotenciaFilter.CABECERA_REPETIDA));
+        assertEquals(201, reintento.getStatus());
+        assertEquals("true", reintento.getHeader(IdempotenciaFilter.CABECERA_REPETIDA));
+        assertEquals(primera.getContentAsString(), reintento.getContentAsString());
+        assertEquals("{\"ejecucion\":1,\"recibido\":{\"monto\":100}}", reintento.getContentAsString());
+    }
+
+    @Test
+    void laClaveReutilizadaConOtroCuerpoResponde422() throws Exception {
+        enviar("clave-1", "{\"monto\":100}", this::ejecutar);
+        MockHttpServletResponse otra = enviar("clave-1", "{\"monto\":200}", this::ejecutar);
+
+        assertEquals(1, ejecuciones.get());
+        assertEquals(422, otra.getStatus());
+        assertTrue(otra.getContentAsString().contains("IDEMPOTENCY_KEY_REUSED"));
+    }
+
+    @Test
+    void losDuplicadosConcurrentesSeEjecutanUnaVez() throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(PETICIONES);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<MockHttpServletResponse>> resultados = new ArrayList<>();
+        try {
+            for (int i = 0; i < PETICIONES; i++) {
+                resultados.add(hilos.submit(() -> {
+                    largada.await();
+                    return enviar("clave-concurrente", "{\"monto\":100}", (request, response) -> {
+                        // Los duplicados llegan mientras la primera ejecución sigue en curso
+                        try {
+                            Thread.sleep(200);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        ejecutar(request, response);
+                    });
+                }));
+            }
+            largada.countDown();
+
+            List<String> cuerpos = new ArrayList<>();
+            for (Future<MockHttpServletResponse> resultado : resultados) {
+                MockHttpServletResponse respuesta = resultado.get(30, TimeUnit.SECONDS);
+                assertEquals(201, respuesta.getStatus());
+                cuerpos.add(respuesta.getContentAsString());
+            }
+            assertEquals(1, ejecuciones.get());
+            assertTrue(cuerpos.stream().allMatch(cuerpo -> cuerpo.equals("{\"ejecucion\":1,\"recibido\":{\"monto\":100}}")),
+                    cuerpos.toString());
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    @Test
+    void entregaElCuerpoAUnReadListener() throws Exception {
+        MockHttpServletResponse respuesta = enviar("clave-asincrona", "{\"monto\":100}", (request, response) -> {
+            HttpServletResponse http = (HttpServletResponse) response;
+            ServletInputStream entrada = request.getInputStream();
+            ByteArrayOutputStream leido = new ByteArrayOutputStream();
+            entrada.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    byte[] buffer = new byte[4];
+                    int n;
+                    while (entrada.isReady() && (n = entrada.read(buffer)) != -1) {
+                        leido.write(buffer, 0, n);
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() throws IOException {
+                    http.setStatus(201);
+                    http.getWriter().write(leido.toString(StandardCharsets.UTF_8));
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    http.setStatus(500);
+                }
+            });
+        });
+
+        assertEquals(201, respuesta.getStatus());
+        assertEquals("{\"monto\":100}", respuesta.getContentAsString());
+    }
+
+    private void ejecutar(ServletRequest request, ServletResponse response) throws IOException {
+        int ejecucion = ejecuciones.incrementAndGet();
+        String recibido = new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        ((HttpServletResponse) response).setStatus(201);
+        response.setContentType("application/json");
+        response.getWriter().write("{\"ejecucion\":" + ejecucion + ",\"recibido\":" + recibido + "}");
+    }
+
+    /**
+     * POST /api/egresos con la clave y el cuerpo dados, autenticado como el usuario de la prueba
+     */
+    private MockHttpServletResponse enviar(String clave, String cuerpo, FilterChain cadena) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/egresos");
+        request.addHeader(IdempotenciaFilter.CABECERA, clave);
+        request.setContentType("application/json");
+        request.setContent(cuerpo.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(usuario, null, List.of()));
+        try {
+            filtro.doFilter(request, response, cadena);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return response;
+    }
+}
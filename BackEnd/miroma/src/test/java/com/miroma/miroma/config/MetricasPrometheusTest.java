@@ -0,0 +1,80 @@
+package com.miroma.miroma.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Levanta la aplicación (H2, sin TLS) y lee /actuator/prometheus en el puerto de administración
+ * después de llamar a un par de endpoints: verifica que se publiquen latencia por handler,
+ * SQL por petición, pool de conexiones, colas y tareas programadas.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.ssl.enabled=false",
+        "management.server.port=0",
+        "spring.datasource.url=jdbc:h2:mem:metricas;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+@ActiveProfiles("test")
+class MetricasPrometheusTest {
+
+    @LocalServerPort
+    private int puerto;
+
+    @LocalManagementPort
+    private int puertoAdministracion;
+
+    private final HttpClient cliente = HttpClient.newHttpClient();
+
+    @Test
+    void publicaMetricasEnPrometheus() throws Exception {
+        assertEquals(200, enviar(HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + "/api/hello"))
+                .GET().build()).statusCode());
+        assertEquals(200, enviar(HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + "/api/auth/check-user"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"nadie@miroma.test\"}"))
+                .build()).statusCode());
+
+        // cleanupExpiredTokens corre al arrancar; se espera a que termine su primera ejecución
+        String metricas = "";
+        for (int intento = 0; intento < 50 && !metricas.contains("cleanupExpiredTokens"); intento++) {
+            metricas = prometheus();
+            Thread.sleep(100);
+        }
+
+        assertTrue(metricas.lines().anyMatch(l -> l.startsWith("http_server_requests_seconds_bucket{")
+                && l.contains("handler=\"HelloController.hello\"")), "latencia por handler");
+        assertTrue(metricas.lines().anyMatch(l -> l.startsWith("miroma_sql_request_sentencias_count{")
+                && l.contains("handler=\"AuthController.checkUser\"")), "sentencias SQL por petición");
+        assertTrue(metricas.contains("miroma_sql_sentencias_seconds_count"), "sentencias SQL");
+        assertTrue(metricas.contains("hikaricp_connections_pending"), "pool de conexiones");
+        assertTrue(metricas.contains("miroma_logging_cola_pendientes"), "cola del log de errores");
+        assertTrue(metricas.contains("miroma_log_eventos_cola_pendientes"), "cola de eventos");
+        assertTrue(metricas.contains("miroma_cache_aciertos_total{"), "caches");
+        assertTrue(metricas.lines().anyMatch(l -> l.startsWith("tasks_scheduled_execution_seconds_count{")
+                && l.contains("cleanupExpiredTokens")), "tareas programadas");
+    }
+
+    private String prometheus() throws Exception {
+        HttpResponse<String> respuesta = enviar(HttpRequest.newBuilder(
+                URI.create("http://localhost:" + puertoAdministracion + "/actuator/prometheus")).GET().build());
+        assertEquals(200, respuesta.statusCode());
+        return respuesta.body();
+    }
+
+    private HttpResponse<String> enviar(HttpRequest request) throws Exception {
+        return cliente.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
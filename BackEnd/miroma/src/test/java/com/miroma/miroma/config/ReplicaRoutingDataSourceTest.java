@@ -0,0 +1,124 @@
+package com.miroma.miroma.config;
+
+import com.miroma.miroma.entity.CategoriaEgreso;
+import com.miroma.miroma.repository.CategoriaEgresoRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Enrutamiento entre primaria y réplica con dos bases H2 en memoria.
+ * Cada base tiene una categoría distinta, de modo que el resultado de una lectura
+ * indica a qué base fue.
+ */
+@DataJpaTest(properties = {
+        "app.datasource.replica.enabled=true",
+        "spring.datasource.url=jdbc:h2:mem:primaria;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "app.datasource.replica.url=jdbc:h2:mem:replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica.lag-query=SELECT segundos FROM retraso_replica",
+        "app.datasource.replica.max-lag-seconds=5",
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=none"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(ReplicaDataSourceConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReplicaRoutingDataSourceTest {
+
+    @Autowired
+    @Qualifier("primariaDataSource")
+    private HikariDataSource primaria;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private HikariDataSource replica;
+
+    @Autowired
+    private ReplicaMonitor replicaMonitor;
+
+    @Autowired
+    private CategoriaEgresoRepository categoriaEgresoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void preparar() {
+        Flyway.configure().dataSource(replica).load().migrate();
+
+        JdbcTemplate jdbcPrimaria = new JdbcTemplate(primaria);
+        jdbcPrimaria.update("DELETE FROM categorias_gasto");
+        jdbcPrimaria.update("INSERT INTO categorias_gasto (nombre) VALUES ('Primaria')");
+
+        JdbcTemplate jdbcReplica = new JdbcTemplate(replica);
+        jdbcReplica.update("DELETE FROM categorias_gasto");
+        jdbcReplica.update("INSERT INTO categorias_gasto (nombre) VALUES ('Replica')");
+        jdbcReplica.execute("CREATE TABLE IF NOT EXISTS retraso_replica (segundos INT)");
+        jdbcReplica.update("DELETE FROM retraso_replica");
+        jdbcReplica.update("INSERT INTO retraso_replica (segundos) VALUES (0)");
+
+        replicaMonitor.verificar();
+    }
+
+    @Test
+    void lasTransaccionesDeSoloLecturaVanALaReplica() {
+        assertEquals(List.of("Replica"), nombres(leer(true)));
+    }
+
+    @Test
+    void lasEscriturasYLosRepositoriosSinTransaccionUsanLaPrimaria() {
+        assertEquals(List.of("Primaria"), nombres(leer(false)));
+        // findAll abre su propia transacción de solo lectura: no es una lectura declarada por la aplicación
+        assertEquals(List.of("Primaria"), nombres(categoriaEgresoRepository.findAll()));
+    }
+
+    @Test
+    void conRetrasoMayorAlToleradoSeLeeDeLaPrimaria() {
+        new JdbcTemplate(replica).update("UPDATE retraso_replica SET segundos = 30");
+        replicaMonitor.verificar();
+
+        assertFalse(replicaMonitor.isDisponible());
+        assertEquals(List.of("Primaria"), nombres(leer(true)));
+    }
+
+    @Test
+    @DirtiesContext
+    void siLaReplicaNoDaConexionesSeLeeDeLaPrimaria() {
+        replica.close();
+
+        assertEquals(List.of("Primaria"), nombres(leer(true)));
+        assertFalse(replicaMonitor.isDisponible());
+    }
+
+    private List<CategoriaEgreso> leer(boolean soloLectura) {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        transaccion.setReadOnly(soloLectura);
+        return transaccion.execute(status -> categoriaEgresoRepository.findAll());
+    }
+
+    private List<String> nombres(List<CategoriaEgreso> categorias) {
+        return categorias.stream().map(CategoriaEgreso::getNombre).toList();
+    }
+}
@@ -0,0 +1,34 @@
+package com.miroma.miroma.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Guarda las sentencias SQL que genera Hibernate para poder analizarlas en los tests
+ */
+public class CapturaSql implements StatementInspector {
+
+    private static final List<String> SENTENCIAS = new ArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        synchronized (SENTENCIAS) {
+            SENTENCIAS.add(sql);
+        }
+        return sql;
+    }
+
+    public static void limpiar() {
+        synchronized (SENTENCIAS) {
+            SENTENCIAS.clear();
+        }
+    }
+
+    public static List<String> sentencias() {
+        synchronized (SENTENCIAS) {
+            return new ArrayList<>(SENTENCIAS);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.miroma.miroma.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Aplica las migraciones de Flyway sobre H2 en modo MySQL y verifica con EXPLAIN que
+ * las consultas de los repositorios usen un índice en lugar de recorrer la tabla.
+ *
+ * El optimizador de H2 no es el de MySQL, pero si H2 no encuentra un índice utilizable
+ * para una consulta, MySQL tampoco. Quedan fuera las consultas que recorren la tabla
+ * completa a propósito (totales agrupados de la reconciliación, listado de categorías,
+ * comportamientos extraños) y Pareja.findByUsuarioId, cuyo OR entre dos columnas MySQL
+ * resuelve con index_merge pero H2 no.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.datasource.url=jdbc:h2:mem:migraciones;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.miroma.miroma.repository.CapturaSql"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class MigracionesIndicesTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EgresoRepository egresoRepository;
+
+    @Autowired
+    private IngresoRepository ingresoRepository;
+
+    @Autowired
+    private EgresoParticipacionRepository egresoParticipacionRepository;
+
+    @Autowired
+    private EgresoAcumuladoRepository egresoAcumuladoRepository;
+
+    @Autowired
+    private IngresoAcumuladoRepository ingresoAcumuladoRepository;
+
+    @Autowired
+    private LogEventoRepository logEventoRepository;
+
+    @Autowired
+    private PresupuestoRepository presupuestoRepository;
+
+    @Autowired
+    private PresupuestoCategoriaRepository presupuestoCategoriaRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private ParejaRepository parejaRepository;
+
+    @Autowired
+    private TokenBlacklistRepository tokenBlacklistRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private IntentoLoginRepository intentoLoginRepository;
+
+    @Test
+    void lasMigracionesSeAplicanEnOrden() {
+        List<String> versiones = jdbcTemplate.queryForList(
+                "SELECT \"version\" FROM flyway_schema_history WHERE \"type\" = 'SQL' AND \"success\" = TRUE ORDER BY \"installed_rank\"",
+                String.class);
+        assertEquals(List.of("1", "2", "3", "4"), versiones);
+
+        List<String> indices = jdbcTemplate.queryForList(
+                "SELECT index_name FROM information_schema.indexes WHERE index_name LIKE 'idx_%'", String.class);
+        assertTrue(indices.containsAll(List.of(
+                "idx_egresos_pareja_periodo_categoria",
+                "idx_egresos_pareja_fecha",
+                "idx_ingresos_pareja_usuario",
+                "idx_ingresos_usuario_fecha",
+                "idx_egreso_participaciones_usuario_egreso",
+                "idx_log_eventos_usuario_fecha")), indices.toString());
+    }
+
+    @Test
+    void lasConsultasDeLosRepositoriosUsanIndices() {
+        Date desde = Date.valueOf("2025-01-01");
+        Date hasta = Date.valueOf("2025-01-31");
+        Timestamp ahora = new Timestamp(System.currentTimeMillis());
+        PageRequest pagina = PageRequest.of(0, 51);
+
+        Map<String, Runnable> consultas = new LinkedHashMap<>();
+        consultas.put("Egreso.findByParejaIdOrderByFechaDesc", () -> egresoRepository.findByParejaIdOrderByFechaDesc(1));
+        consultas.put("Egreso.findByParejaIdAndFechaBetween", () -> egresoRepository.findByParejaIdAndFechaBetween(1, desde, hasta));
+        consultas.put("Egreso.listarResponsesPorPareja", () -> egresoRepository.listarResponsesPorPareja(1));
+        consultas.put("Egreso.listarResponsesPorParejaYFecha", () -> egresoRepository.listarResponsesPorParejaYFecha(1, desde, hasta));
+        consultas.put("Egreso.listarPaginaResponsesPorPareja", () -> egresoRepository.listarPaginaResponsesPorPareja(1, null, null, hasta, 10, pagina));
+        consultas.put("Egreso.sumarPorPeriodoYCategoria", () -> egresoRepository.sumarPorPeriodoYCategoria(1, 2, 3));
+        consultas.put("Ingreso.findByUsuarioIdOrderByFechaDesc", () -> ingresoRepository.findByUsuarioIdOrderByFechaDesc(1));
+        consultas.put("Ingreso.findByParejaIdOrderByFechaDesc", () -> ingresoRepository.findByParejaIdOrderByFechaDesc(1));
+        consultas.put("Ingreso.findPaginaPorUsuario", () -> ingresoRepository.findPaginaPorUsuario(1, hasta, 10, pagina));
+        consultas.put("Ingreso.sumarPorUsuarioYPareja", () -> ingresoRepository.sumarPorUsuarioYPareja(1, 2));
+        consultas.put("EgresoParticipacion.findByEgresoId", () -> egresoParticipacionRepository.findByEgresoId(1));
+        consultas.put("EgresoParticipacion.findByUsuarioId", () -> egresoParticipacionRepository.findByUsuarioId(1));
+        consultas.put("EgresoParticipacion.sumarPorUsuarioAgrupadoPorPeriodo", () -> egresoParticipacionRepository.sumarPorUsuarioAgrupadoPorPeriodo(1));
+        consultas.put("EgresoAcumulado.obtenerGastado", () -> egresoAcumuladoRepository.obtenerGastado(1, 2, 3));
+        consultas.put("EgresoAcumulado.findByParejaId", () -> egresoAcumuladoRepository.findByParejaId(1));
+        consultas.put("IngresoAcumulado.findByParejaId", () -> ingresoAcumuladoRepository.findByParejaId(1));
+        consultas.put("IngresoAcumulado.sumarPorPareja", () -> ingresoAcumuladoRepository.sumarPorPareja(1));
+        consultas.put("IngresoAcumulado.sumarPorUsuario", () -> ingresoAcumuladoRepository.sumarPorUsuario(1));
+        consultas.put("LogEvento.findByUsuarioIdOrderByFechaDesc", () -> logEventoRepository.findByUsuarioIdOrderByFechaDesc(1));
+        consultas.put("LogEvento.findByUsuarioIdAndFechaBetween", () -> logEventoRepository.findByUsuarioIdAndFechaBetween(1, ahora, ahora));
+        consultas.put("LogEvento.findByUsuarioIdAndAccionContaining", () -> logEventoRepository.findByUsuarioIdAndAccionContaining(1, "egreso"));
+        consultas.put("LogEvento.findPaginaPorUsuario", () -> logEventoRepository.findPaginaPorUsuario(1, null, null, null, ahora, 10, pagina));
+        consultas.put("Presupuesto.findByParejaIdOrderByFechaCreacionDesc", () -> presupuestoRepository.findByParejaIdOrderByFechaCreacionDesc(1));
+        consultas.put("Presupuesto.findByParejaIdAndPeriodo", () -> presupuestoRepository.findByParejaIdAndPeriodo(1, "2025-01"));
+        consultas.put("Presupuesto.findPaginaPorPareja", () -> presupuestoRepository.findPaginaPorPareja(1, ahora, 10, pagina));
+        consultas.put("PresupuestoCategoria.findByPresupuestoId", () -> presupuestoCategoriaRepository.findByPresupuestoId(1));
+        consultas.put("PresupuestoCategoria.sumarPorcentajesPorPresupuesto", () -> presupuestoCategoriaRepository.sumarPorcentajesPorPresupuesto(1));
+        consultas.put("Usuario.findByEmail", () -> usuarioRepository.findByEmail("usuario@miroma.com"));
+        consultas.put("Pareja.findByEsposoId", () -> parejaRepository.findByEsposoId(1));
+        consultas.put("Pareja.findByEsposaId", () -> parejaRepository.findByEsposaId(1));
+        consultas.put("TokenBlacklist.existsByTokenHash", () -> tokenBlacklistRepository.existsByTokenHash("hash"));
+        consultas.put("TokenBlacklist.findHashesVigentes", () -> tokenBlacklistRepository.findHashesVigentes(ahora));
+        consultas.put("RefreshToken.findByToken", () -> refreshTokenRepository.findByToken("token"));
+        consultas.put("RefreshToken.findByUsuarioId", () -> refreshTokenRepository.findByUsuarioId(1));
+        consultas.put("IntentoLogin.findByEmail", () -> intentoLoginRepository.findByEmail("usuario@miroma.com"));
+
+        List<String> sinIndice = new ArrayList<>();
+        for (Map.Entry<String, Runnable> consulta : consultas.entrySet()) {
+            CapturaSql.limpiar();
+            consulta.getValue().run();
+            List<String> sentencias = CapturaSql.sentencias();
+            assertFalse(sentencias.isEmpty(), consulta.getKey() + " no ejecutó ninguna sentencia");
+            for (String sql : sentencias) {
+                String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+                if (plan.contains("tableScan")) {
+                    sinIndice.add(consulta.getKey() + ":\n" + plan);
+                }
+            }
+        }
+        assertTrue(sinIndice.isEmpty(), "Consultas sin índice:\n" + String.join("\n\n", sinIndice));
+    }
+}
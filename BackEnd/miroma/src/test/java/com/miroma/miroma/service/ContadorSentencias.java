@@ -0,0 +1,99 @@
+package com.miroma.miroma.service;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Envuelve el DataSource para registrar cada ejecución de un PreparedStatement, tanto las
+ * de Hibernate como las de JdbcTemplate. Un executeBatch cuenta como una sola ejecución
+ * con tantas filas como addBatch previos.
+ */
+class ContadorSentencias implements BeanPostProcessor {
+
+    /**
+     * Una ida a la base de datos
+     */
+    record Ejecucion(String sql, int filas, boolean batch) {
+    }
+
+    private static final List<Ejecucion> EJECUCIONES = new ArrayList<>();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return envolver(DataSource.class, dataSource, null);
+        }
+        return bean;
+    }
+
+    static void limpiar() {
+        synchronized (EJECUCIONES) {
+            EJECUCIONES.clear();
+        }
+    }
+
+    /**
+     * Ejecuciones registradas cuyo SQL empieza con el prefijo (sin distinguir mayúsculas)
+     */
+    static List<Ejecucion> ejecuciones(String prefijo) {
+        String buscado = prefijo.toLowerCase(Locale.ROOT);
+        synchronized (EJECUCIONES) {
+            return EJECUCIONES.stream()
+                    .filter(e -> e.sql().toLowerCase(Locale.ROOT).trim().startsWith(buscado))
+                    .toList();
+        }
+    }
+
+    private static void registrar(Ejecucion ejecucion) {
+        synchronized (EJECUCIONES) {
+            EJECUCIONES.add(ejecucion);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T envolver(Class<T> tipo, T destino, String sql) {
+        int[] pendientes = {0};
+        return (T) Proxy.newProxyInstance(ContadorSentencias.class.getClassLoader(), new Class<?>[]{tipo},
+                (proxy, metodo, args) -> {
+                    Object resultado = invocar(destino, metodo, args);
+                    String nombre = metodo.getName();
+                    if (resultado instanceof Connection conexion && tipo == DataSource.class) {
+                        return envolver(Connection.class, conexion, null);
+                    }
+                    if (resultado instanceof PreparedStatement ps && nombre.equals("prepareStatement")) {
+                        return envolver(PreparedStatement.class, ps, (String) args[0]);
+                    }
+                    if (sql != null) {
+                        switch (nombre) {
+                            case "addBatch" -> pendientes[0]++;
+                            case "executeBatch" -> {
+                                registrar(new Ejecucion(sql, pendientes[0], true));
+                                pendientes[0] = 0;
+                            }
+                            case "execute", "executeUpdate", "executeQuery", "executeLargeUpdate" ->
+                                    registrar(new Ejecucion(sql, 1, false));
+                            default -> {
+                            }
+                        }
+                    }
+                    return resultado;
+                });
+    }
+
+    private static Object invocar(Object destino, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.miroma.miroma.service;
+
+import com.miroma.miroma.dto.EgresoLoteRequest;
+import com.miroma.miroma.dto.EgresoLoteResponse;
+import com.miroma.miroma.entity.CategoriaEgreso;
+import com.miroma.miroma.entity.Pareja;
+import com.miroma.miroma.entity.Presupuesto;
+import com.miroma.miroma.entity.Usuario;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Lotes de egresos contra una categoría con 1.000 asignados (ingresos 10.000, 10%):
+ * las altas van en un solo batch con sus participaciones, cada operación se valida contra
+ * lo que dejaron las anteriores del lote, y en modo TODO_O_NADA un rechazo no deja nada escrito.
+ * Usa el esquema de Flyway en modo MySQL por el INSERT ... ON DUPLICATE KEY del acumulado.
+ */
+class EgresoLoteServiceTest extends PruebaServiciosEgresosMySql {
+
+    @Autowired
+    private EgresoLoteService egresoLoteService;
+
+    private Usuario esposo;
+    private CategoriaEgreso categoria;
+    private Presupuesto presupuesto;
+
+    @BeforeEach
+    void preparar() {
+        esposo = nuevoUsuario("esposo@prueba.com", 1);
+        Pareja pareja = nuevaPareja(esposo, nuevoUsuario("esposa@prueba.com", 2));
+
+        registrarIngresos(pareja, "6000.00", "4000.00");
+        categoria = new CategoriaEgreso("Comida", null);
+        entityManager.persist(categoria);
+        presupuesto = nuevoPresupuesto(pareja, "2025-01", categoria, "10.00");
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void loteParcialAplicaLasOperacionesValidas() {
+        EgresoLoteResponse altas = egresoLoteService.procesarLote(esposo.getId(), lote(EgresoLoteRequest.Modo.TODO_O_NADA,
+                crear("100.00"), crear("200.00"), crear("300.00")));
+        assertEquals(3, altas.getAplicadas());
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM egresos", Integer.class));
+        Integer primero = altas.getResultados().get(0).getId();
+        Integer segundo = altas.getResultados().get(1).getId();
+
+        ContadorSentencias.limpiar();
+        // Disponible 400: el cambio 100 -> 500 libera 100 y consume 500 (queda 0), la baja devuelve 200
+        // y la última alta ya no entra
+        EgresoLoteResponse respuesta = egresoLoteService.procesarLote(esposo.getId(), lote(EgresoLoteRequest.Modo.PARCIAL,
+                actualizar(primero, "500.00"), eliminar(segundo), crear("150.00"), crear("100.00")));
+
+        assertEquals(4, respuesta.getProcesadas());
+        assertEquals(3, respuesta.getAplicadas());
+        assertEquals(1, respuesta.getRechazadas());
+        assertTrue(respuesta.getResultados().get(3).getError().startsWith("Supera el monto disponible"));
+        assertEquals(0, new BigDecimal("500.00").compareTo(respuesta.getResultados().get(0).getEgreso().getMontoTotal()));
+
+        // Un batch para los egresos nuevos y otro para las participaciones de creados y modificados
+        assertEquals(1, ContadorSentencias.ejecuciones("insert into egresos (").size());
+        assertEquals(1, ContadorSentencias.ejecuciones("insert into egreso_participaciones").size());
+        assertEquals(4, ContadorSentencias.ejecuciones("insert into egreso_participaciones").get(0).filas());
+        assertEquals(0, new BigDecimal("950.00").compareTo(
+                jdbcTemplate.queryForObject("SELECT SUM(monto_total) FROM egresos", BigDecimal.class)));
+        assertEquals(0, new BigDecimal("950.00").compareTo(
+                jdbcTemplate.queryForObject("SELECT gastado FROM egresos_acumulados", BigDecimal.class)));
+        assertEquals(6, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM egreso_participaciones", Integer.class));
+        verify(logEventoService, times(2)).registrarEvento(anyInt(), anyString());
+    }
+
+    @Test
+    void loteTodoONadaConUnRechazoNoEscribeNada() {
+        EgresoLoteResponse respuesta = egresoLoteService.procesarLote(esposo.getId(), lote(EgresoLoteRequest.Modo.TODO_O_NADA,
+                crear("600.00"), crear("500.00"), eliminar(999999)));
+
+        assertEquals(0, respuesta.getAplicadas());
+        assertEquals(2, respuesta.getRechazadas());
+        List<EgresoLoteResponse.ResultadoOperacion> resultados = respuesta.getResultados();
+        assertFalse(resultados.get(0).isAplicada());
+        assertNull(resultados.get(0).getError());
+        assertTrue(resultados.get(1).getError().startsWith("Supera el monto disponible"));
+        assertEquals("Egreso no encontrado", resultados.get(2).getError());
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM egresos", Integer.class));
+        // El acumulado de la categoría se crea en cero para bloquearlo, pero no suma nada
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM egresos_acumulados WHERE gastado <> 0", Integer.class));
+        verifyNoInteractions(logEventoService);
+    }
+
+    private EgresoLoteRequest lote(EgresoLoteRequest.Modo modo, EgresoLoteRequest.Operacion... operaciones) {
+        EgresoLoteRequest request = new EgresoLoteRequest();
+        request.setModo(modo);
+        request.setOperaciones(List.of(operaciones));
+        return request;
+    }
+
+    private EgresoLoteRequest.Operacion crear(String monto) {
+        return new EgresoLoteRequest.Operacion(EgresoLoteRequest.TipoOperacion.CREAR, null,
+                nuevoEgreso(monto, categoria, presupuesto));
+    }
+
+    private EgresoLoteRequest.Operacion actualizar(Integer id, String monto) {
+        return new EgresoLoteRequest.Operacion(EgresoLoteRequest.TipoOperacion.ACTUALIZAR, id,
+                nuevoEgreso(monto, categoria, presupuesto));
+    }
+
+    private EgresoLoteRequest.Operacion eliminar(Integer id) {
+        return new EgresoLoteRequest.Operacion(EgresoLoteRequest.TipoOperacion.ELIMINAR, id, null);
+    }
+}
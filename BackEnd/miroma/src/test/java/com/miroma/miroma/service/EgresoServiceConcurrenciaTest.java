@@ -0,0 +1,318 @@
+package com.miroma.miroma.service;
+
+import com.miroma.miroma.dto.EgresoLoteRequest;
+import com.miroma.miroma.entity.CategoriaEgreso;
+import com.miroma.miroma.entity.Pareja;
+import com.miroma.miroma.entity.Presupuesto;
+import com.miroma.miroma.entity.PresupuestoCategoria;
+import com.miroma.miroma.entity.Usuario;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Los dos integrantes de la pareja cargan egresos a la vez en la misma categoría:
+ * el UPDATE condicional del acumulado tiene que dejar pasar exactamente los que
+ * entran en el monto asignado, sin sobregiro; y cambios simultáneos que pasan egresos
+ * entre dos categorías en sentidos opuestos no se bloquean mutuamente. Cambios simultáneos del
+ * mismo egreso parten cada uno del monto que dejó el anterior, y un egreso que eliminan dos
+ * lotes a la vez (mientras otro hilo lo modifica) se resta una sola vez. Lo mismo con lotes que
+ * mueven egresos de categoría mientras otros egresos llenan la categoría de destino: ninguna
+ * queda por encima de lo asignado ni desfasada de sus egresos. Usa transacciones reales (sin el
+ * rollback de @DataJpaTest) para que los hilos compitan por la misma fila, y el
+ * esquema de Flyway con su clave única por (pareja, presupuesto, categoría).
+ */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EgresoServiceConcurrenciaTest extends PruebaServiciosEgresosMySql {
+
+    private static final int EGRESOS = 20;
+
+    private static final int PARES = 10;
+
+    private static final int LOTES = 5;
+
+    @Autowired
+    private EgresoService egresoService;
+
+    @Autowired
+    private EgresoLoteService egresoLoteService;
+
+    @Autowired
+    private CategoriaEgresoCache categoriaEgresoCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Usuario esposo;
+    private Usuario esposa;
+    private CategoriaEgreso categoria;
+    private CategoriaEgreso transporte;
+    private Presupuesto presupuesto;
+
+    @BeforeEach
+    void preparar() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            esposo = nuevoUsuario("esposo@prueba.com", 1);
+            esposa = nuevoUsuario("esposa@prueba.com", 2);
+            Pareja pareja = nuevaPareja(esposo, esposa);
+
+            // Ingresos 10.000 y 10% para la categoría: asignado 1.000
+            registrarIngresos(pareja, "6000.00", "4000.00");
+            categoria = new CategoriaEgreso("Comida", null);
+            entityManager.persist(categoria);
+            presupuesto = nuevoPresupuesto(pareja, "2025-01", categoria, "10.00");
+            transporte = new CategoriaEgreso("Transporte", null);
+            entityManager.persist(transporte);
+            entityManager.persist(new PresupuestoCategoria(presupuesto.getId(), transporte.getId(), new BigDecimal("10.00")));
+        });
+        // Como al arrancar la aplicación: el catálogo ya está en memoria antes de la primera petición
+        categoriaEgresoCache.recargar();
+    }
+
+    /**
+     * Las transacciones de la prueba se confirman: se borra todo para las demás pruebas que
+     * comparten la base
+     */
+    @AfterEach
+    void limpiar() {
+        for (String tabla : List.of("egreso_participaciones", "egresos", "egresos_acumulados", "ingresos_acumulados",
+                "presupuesto_categoria", "presupuestos", "parejas", "usuarios", "categorias_gasto")) {
+            jdbcTemplate.update("DELETE FROM " + tabla);
+        }
+        categoriaEgresoCache.recargar();
+    }
+
+    @Test
+    void egresosConcurrentesNoSuperanElMontoAsignado() throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(EGRESOS);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<Boolean>> resultados = new ArrayList<>();
+        try {
+            for (int i = 0; i < EGRESOS; i++) {
+                Usuario usuario = i % 2 == 0 ? esposo : esposa;
+                resultados.add(hilos.submit(() -> {
+                    largada.await();
+                    try {
+                        egresoService.crearEgreso(usuario.getId(), nuevoEgreso("100.00", categoria, presupuesto));
+                        return true;
+                    } catch (IllegalArgumentException e) {
+                        return false;
+                    }
+                }));
+            }
+            largada.countDown();
+
+            int creados = 0;
+            for (Future<Boolean> resultado : resultados) {
+                if (resultado.get(30, TimeUnit.SECONDS)) {
+                    creados++;
+                }
+            }
+            assertEquals(10, creados);
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        assertEquals(0, new BigDecimal("1000.00").compareTo(
+                jdbcTemplate.queryForObject("SELECT SUM(monto_total) FROM egresos", BigDecimal.class)));
+        assertEquals(0, new BigDecimal("1000.00").compareTo(
+                jdbcTemplate.queryForObject("SELECT gastado FROM egresos_acumulados", BigDecimal.class)));
+        assertEquals(20, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM egreso_participaciones", Integer.class));
+    }
+
+    @Test
+    void cambiosCruzadosEntreCategoriasNoSeBloqueanMutuamente() throws Exception {
+        List<Integer> enComida = new ArrayList<>();
+        List<Integer> enTransporte = new ArrayList<>();
+        for (int i = 0; i < PARES; i++) {
+            enComida.add(egresoService.crearEgreso(esposo.getId(), nuevoEgreso("50.00", categoria, presupuesto)).getId());
+            enTransporte.add(egresoService.crearEgreso(esposa.getId(), nuevoEgreso("50.00", transporte, presupuesto)).getId());
+        }
+
+        // Cada par toma las dos filas del acumulado: uno pasa de Comida a Transporte y el otro al revés
+        ExecutorService hilos = Executors.newFixedThreadPool(PARES * 2);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> resultados = new ArrayList<>();
+        try {
+            for (int i = 0; i < PARES; i++) {
+                Integer haciaTransporte = enComida.get(i);
+                Integer haciaComida = enTransporte.get(i);
+                resultados.add(hilos.submit(() -> {
+                    largada.await();
+                    return egresoService.actualizarEgreso(haciaTransporte, esposo.getId(),
+                            nuevoEgreso("60.00", transporte, presupuesto));
+                }));
+                resultados.add(hilos.submit(() -> {
+                    largada.await();
+                    return egresoService.actualizarEgreso(haciaComida, esposa.getId(),
+                            nuevoEgreso("40.00", categoria, presupuesto));
+                }));
+            }
+            largada.countDown();
+            // Un interbloqueo aparece como excepción (deadlock o tiempo de espera del bloqueo)
+            for (Future<?> resultado : resultados) {
+                resultado.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        assertEquals(0, new BigDecimal("400.00").compareTo(gastado(categoria)));
+        assertEquals(0, new BigDecimal("600.00").compareTo(gastado(transporte)));
+    }
+
+    @Test
+    void cambiosConcurrentesDelMismoEgresoDejanElAcumuladoAlDia() throws Exception {
+        Integer egresoId = egresoService.crearEgreso(esposo.getId(), nuevoEgreso("100.00", categoria, presupuesto)).getId();
+
+        // Cada cambio resta del acumulado el monto que lee: si dos leen el mismo, el acumulado se desfasa
+        ExecutorService hilos = Executors.newFixedThreadPool(PARES);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> resultados = new ArrayList<>();
+        try {
+            for (int i = 0; i < PARES; i++) {
+                String monto = (10 * (i + 1)) + ".00";
+                Usuario usuario = i % 2 == 0 ? esposo : esposa;
+                resultados.add(hilos.submit(() -> {
+                    largada.await();
+                    return egresoService.actualizarEgreso(egresoId, usuario.getId(),
+                            nuevoEgreso(monto, categoria, presupuesto));
+                }));
+            }
+            largada.countDown();
+            for (Future<?> resultado : resultados) {
+                resultado.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        BigDecimal guardado = jdbcTemplate.queryForObject("SELECT monto_total FROM egresos WHERE id = ?",
+                BigDecimal.class, egresoId);
+        assertEquals(0, guardado.compareTo(gastado(categoria)));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM egreso_participaciones", Integer.class));
+    }
+
+    @Test
+    void lotesQueEliminanElMismoEgresoLoRestanUnaVez() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < PARES; i++) {
+            ids.add(egresoService.crearEgreso(esposo.getId(), nuevoEgreso("50.00", categoria, presupuesto)).getId());
+        }
+
+        // Por cada egreso, dos lotes lo eliminan y un cambio individual lo sube a 80
+        ExecutorService hilos = Executors.newFixedThreadPool(PARES * 3);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> resultados = new ArrayList<>();
+        try {
+            for (Integer egresoId : ids) {
+                for (Usuario usuario : List.of(esposo, esposa)) {
+                    EgresoLoteRequest lote = new EgresoLoteRequest();
+                    lote.setOperaciones(List.of(new EgresoLoteRequest.Operacion(
+                            EgresoLoteRequest.TipoOperacion.ELIMINAR, egresoId, null)));
+                    resultados.add(hilos.submit(() -> {
+                        largada.await();
+                        return egresoLoteService.procesarLote(usuario.getId(), lote);
+                    }));
+                }
+                resultados.add(hilos.submit(() -> {
+                    largada.await();
+                    try {
+                        return egresoService.actualizarEgreso(egresoId, esposo.getId(),
+                                nuevoEgreso("80.00", categoria, presupuesto));
+                    } catch (IllegalArgumentException e) {
+                        // Ya lo eliminó un lote
+                        return null;
+                    }
+                }));
+            }
+            largada.countDown();
+            for (Future<?> resultado : resultados) {
+                resultado.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM egresos", Integer.class));
+        assertEquals(0, BigDecimal.ZERO.compareTo(gastado(categoria)));
+    }
+
+    @Test
+    void lotesQueMuevenEgresosNoSobregiranConAltasConcurrentes() throws Exception {
+        // Comida queda llena con dos egresos de 100 por lote
+        List<Integer> enComida = new ArrayList<>();
+        for (int i = 0; i < LOTES * 2; i++) {
+            enComida.add(egresoService.crearEgreso(esposo.getId(), nuevoEgreso("100.00", categoria, presupuesto)).getId());
+        }
+
+        // Cada lote baja un egreso a 50, pasa otro a Transporte y usa lo liberado en un alta de 150 en
+        // Comida, mientras otros hilos llenan Transporte: si el paso a Transporte ya no entra, el alta
+        // tampoco (Transporte recibe 1.500 en total para 1.000 asignados)
+        ExecutorService hilos = Executors.newFixedThreadPool(LOTES + EGRESOS / 2);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> resultados = new ArrayList<>();
+        try {
+            for (int i = 0; i < LOTES; i++) {
+                EgresoLoteRequest lote = new EgresoLoteRequest();
+                lote.setModo(EgresoLoteRequest.Modo.PARCIAL);
+                lote.setOperaciones(List.of(
+                        new EgresoLoteRequest.Operacion(EgresoLoteRequest.TipoOperacion.ACTUALIZAR, enComida.get(2 * i),
+                                nuevoEgreso("50.00", categoria, presupuesto)),
+                        new EgresoLoteRequest.Operacion(EgresoLoteRequest.TipoOperacion.ACTUALIZAR, enComida.get(2 * i + 1),
+                                nuevoEgreso("100.00", transporte, presupuesto)),
+                        new EgresoLoteRequest.Operacion(EgresoLoteRequest.TipoOperacion.CREAR, null,
+                                nuevoEgreso("150.00", categoria, presupuesto))));
+                resultados.add(hilos.submit(() -> {
+                    largada.await();
+                    return egresoLoteService.procesarLote(esposo.getId(), lote);
+                }));
+            }
+            for (int i = 0; i < EGRESOS / 2; i++) {
+                resultados.add(hilos.submit(() -> {
+                    largada.await();
+                    try {
+                        return egresoService.crearEgreso(esposa.getId(), nuevoEgreso("100.00", transporte, presupuesto));
+                    } catch (IllegalArgumentException e) {
+                        return null;
+                    }
+                }));
+            }
+            largada.countDown();
+            for (Future<?> resultado : resultados) {
+                resultado.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        for (CategoriaEgreso categoriaEgreso : List.of(categoria, transporte)) {
+            BigDecimal suma = jdbcTemplate.queryForObject(
+                    "SELECT SUM(monto_total) FROM egresos WHERE categoria_id = ?", BigDecimal.class, categoriaEgreso.getId());
+            assertEquals(0, suma.compareTo(gastado(categoriaEgreso)));
+            assertTrue(suma.compareTo(new BigDecimal("1000.00")) <= 0);
+        }
+    }
+
+    private BigDecimal gastado(CategoriaEgreso categoriaEgreso) {
+        return jdbcTemplate.queryForObject("SELECT gastado FROM egresos_acumulados WHERE categoria_id = ?",
+                BigDecimal.class, categoriaEgreso.getId());
+    }
+}
@@ -0,0 +1,110 @@
+package com.miroma.miroma.service;
+
+import com.miroma.miroma.dto.EgresoRequest;
+import com.miroma.miroma.dto.EgresoResponse;
+import com.miroma.miroma.entity.CategoriaEgreso;
+import com.miroma.miroma.entity.Egreso;
+import com.miroma.miroma.entity.EgresoParticipacion;
+import com.miroma.miroma.entity.Pareja;
+import com.miroma.miroma.entity.Presupuesto;
+import com.miroma.miroma.entity.Usuario;
+import com.miroma.miroma.repository.EgresoParticipacionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cuenta las sentencias que llegan a la base de datos al escribir participaciones:
+ * las dos filas de un egreso nuevo van en un solo batch y el borrado es una única
+ * sentencia, en lugar de un INSERT por fila y un SELECT más un DELETE por fila.
+ */
+class EgresoServiceEscrituraTest extends PruebaServiciosEgresos {
+
+    @Autowired
+    private EgresoService egresoService;
+
+    @Autowired
+    private EgresoParticipacionRepository egresoParticipacionRepository;
+
+    @MockitoBean
+    private EgresoAcumuladoService egresoAcumuladoService;
+
+    @MockitoBean
+    private IngresoAcumuladoService ingresoAcumuladoService;
+
+    private Usuario usuario;
+    private Usuario conyuge;
+    private Pareja pareja;
+    private CategoriaEgreso categoria;
+    private Presupuesto presupuesto;
+
+    @BeforeEach
+    void preparar() {
+        usuario = nuevoUsuario("usuario@prueba.com", 1);
+        conyuge = nuevoUsuario("conyuge@prueba.com", 2);
+        pareja = nuevaPareja(usuario, conyuge);
+
+        categoria = new CategoriaEgreso("Comida", null);
+        entityManager.persist(categoria);
+        presupuesto = nuevoPresupuesto(pareja, "2025-01", categoria, "30.00");
+
+        entityManager.flush();
+        entityManager.clear();
+
+        when(egresoAcumuladoService.registrarSiHayDisponible(any(), any(), any(), any(), any()))
+                .thenReturn(true);
+    }
+
+    @Test
+    void crearEgresoInsertaLasParticipacionesEnUnSoloBatch() {
+        EgresoRequest request = nuevoEgreso("100.01", categoria, presupuesto);
+
+        ContadorSentencias.limpiar();
+        EgresoResponse egreso = egresoService.crearEgreso(usuario.getId(), request);
+        entityManager.flush();
+
+        List<ContadorSentencias.Ejecucion> inserts = ContadorSentencias.ejecuciones("insert into egreso_participaciones");
+        assertEquals(1, inserts.size());
+        assertTrue(inserts.get(0).batch());
+        assertEquals(2, inserts.get(0).filas());
+
+        // Sin ingresos registrados se reparte 50/50; el centavo impar queda en la segunda participación
+        List<EgresoParticipacion> participaciones = egresoParticipacionRepository.findByEgresoId(egreso.getId());
+        assertEquals(2, participaciones.size());
+        BigDecimal total = participaciones.stream()
+                .map(EgresoParticipacion::getMontoAsignado)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, new BigDecimal("100.01").compareTo(total));
+    }
+
+    @Test
+    void eliminarEgresoBorraLasParticipacionesConUnaSolaSentencia() {
+        Egreso egreso = new Egreso(pareja.getId(), new BigDecimal("80.00"), Date.valueOf("2025-01-10"),
+                "Supermercado", categoria.getId(), presupuesto.getId());
+        entityManager.persist(egreso);
+        entityManager.persist(new EgresoParticipacion(egreso.getId(), usuario.getId(), new BigDecimal("50.00"), new BigDecimal("40.00")));
+        entityManager.persist(new EgresoParticipacion(egreso.getId(), conyuge.getId(), new BigDecimal("50.00"), new BigDecimal("40.00")));
+        entityManager.flush();
+        entityManager.clear();
+
+        ContadorSentencias.limpiar();
+        egresoService.eliminarEgreso(egreso.getId(), usuario.getId());
+        entityManager.flush();
+
+        // Ni se cargan las participaciones ni se borran de a una
+        assertEquals(1, ContadorSentencias.ejecuciones("delete from egreso_participaciones").size());
+        assertTrue(ContadorSentencias.ejecuciones("select").stream()
+                .noneMatch(e -> e.sql().toLowerCase().contains("from egreso_participaciones")));
+        assertTrue(egresoParticipacionRepository.findByEgresoId(egreso.getId()).isEmpty());
+    }
+}
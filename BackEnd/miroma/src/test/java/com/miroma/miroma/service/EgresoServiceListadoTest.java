@@ -0,0 +1,165 @@
+package com.miroma.miroma.service;
+
+import com.miroma.miroma.dto.EgresoResponse;
+import com.miroma.miroma.dto.PaginaResponse;
+import com.miroma.miroma.entity.CategoriaEgreso;
+import com.miroma.miroma.entity.Egreso;
+import com.miroma.miroma.entity.Pareja;
+import com.miroma.miroma.entity.Presupuesto;
+import com.miroma.miroma.entity.Usuario;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Verifica que los listados de egresos no hagan una consulta por fila para
+ * resolver la categoría y el período (problema N+1), y que la paginación por
+ * cursor recorra el mismo listado sin repetir ni saltear egresos.
+ */
+class EgresoServiceListadoTest extends PruebaServiciosEgresos {
+
+    private static final int CANTIDAD_EGRESOS = 40;
+
+    @Autowired
+    private EgresoService egresoService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private EgresoAcumuladoService egresoAcumuladoService;
+
+    @MockitoBean
+    private IngresoAcumuladoService ingresoAcumuladoService;
+
+    private Integer usuarioId;
+    private Integer categoriaId;
+
+    @BeforeEach
+    void preparar() {
+        Usuario usuario = nuevoUsuario("usuario@prueba.com", 1);
+        Pareja pareja = nuevaPareja(usuario, nuevoUsuario("conyuge@prueba.com", 2));
+        usuarioId = usuario.getId();
+
+        CategoriaEgreso comida = new CategoriaEgreso("Comida", "Supermercado");
+        CategoriaEgreso transporte = new CategoriaEgreso("Transporte", null);
+        entityManager.persist(comida);
+        entityManager.persist(transporte);
+        categoriaId = comida.getId();
+
+        Presupuesto enero = new Presupuesto(pareja.getId(), "2025-01");
+        Presupuesto febrero = new Presupuesto(pareja.getId(), "2025-02");
+        entityManager.persist(enero);
+        entityManager.persist(febrero);
+
+        for (int i = 0; i < CANTIDAD_EGRESOS; i++) {
+            CategoriaEgreso categoria = i % 2 == 0 ? comida : transporte;
+            Presupuesto presupuesto = i < CANTIDAD_EGRESOS / 2 ? enero : febrero;
+            Date fecha = Date.valueOf(presupuesto.getPeriodo() + "-" + String.format("%02d", i % 28 + 1));
+            entityManager.persist(new Egreso(pareja.getId(), new BigDecimal("10.00"), fecha,
+                    "Egreso " + i, categoria.getId(), presupuesto.getId()));
+        }
+
+        // Categoría borrada: el egreso debe listarse igual, sin nombre de categoría
+        entityManager.persist(new Egreso(pareja.getId(), new BigDecimal("5.00"), Date.valueOf("2024-12-31"),
+                "Huérfano", 9999, enero.getId()));
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void listarEgresosEjecutaUnaCantidadFijaDeSentencias() {
+        Statistics estadisticas = estadisticas();
+
+        List<EgresoResponse> egresos = egresoService.obtenerEgresosPorUsuario(usuarioId);
+
+        // Una sentencia para el usuario y otra para el listado, sin importar la cantidad de egresos
+        assertEquals(2, estadisticas.getPrepareStatementCount());
+        assertEquals(CANTIDAD_EGRESOS + 1, egresos.size());
+
+        EgresoResponse primero = egresos.stream()
+                .filter(e -> categoriaId.equals(e.getCategoriaId()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("Comida", primero.getCategoriaNombre());
+        assertEquals("Supermercado", primero.getCategoriaDescripcion());
+        assertEquals(primero.getPeriodoNombre(), primero.getFecha().substring(0, 7));
+
+        EgresoResponse huerfano = egresos.get(egresos.size() - 1);
+        assertEquals("2024-12-31", huerfano.getFecha());
+        assertNull(huerfano.getCategoriaNombre());
+        assertEquals("2025-01", huerfano.getPeriodoNombre());
+    }
+
+    @Test
+    void listarEgresosPorFechaEjecutaUnaCantidadFijaDeSentencias() {
+        Statistics estadisticas = estadisticas();
+
+        List<EgresoResponse> egresos = egresoService.obtenerEgresosPorUsuarioYFecha(
+                usuarioId, "2025-02-01", "2025-02-28");
+
+        assertEquals(2, estadisticas.getPrepareStatementCount());
+        assertEquals(CANTIDAD_EGRESOS / 2, egresos.size());
+        egresos.forEach(e -> assertEquals("2025-02", e.getPeriodoNombre()));
+    }
+
+    @Test
+    void paginarEgresosRecorreElListadoCompletoEnOrden() {
+        List<Integer> esperados = egresoService.obtenerEgresosPorUsuario(usuarioId).stream()
+                .map(EgresoResponse::getId)
+                .collect(Collectors.toList());
+
+        // Varias fechas se repiten: el id desempata entre páginas
+        List<EgresoResponse> recorridos = new ArrayList<>();
+        String cursor = null;
+        int paginas = 0;
+        do {
+            PaginaResponse<EgresoResponse> pagina = egresoService.obtenerPaginaEgresosPorUsuario(
+                    usuarioId, null, null, cursor, 7);
+            recorridos.addAll(pagina.getElementos());
+            cursor = pagina.getSiguienteCursor();
+            paginas++;
+        } while (cursor != null);
+
+        assertEquals((CANTIDAD_EGRESOS + 1 + 6) / 7, paginas);
+        assertEquals(CANTIDAD_EGRESOS + 1, recorridos.size());
+        assertEquals(esperados.size(), recorridos.stream().map(EgresoResponse::getId).distinct().count());
+        for (int i = 1; i < recorridos.size(); i++) {
+            EgresoResponse anterior = recorridos.get(i - 1);
+            EgresoResponse actual = recorridos.get(i);
+            int comparacion = anterior.getFecha().compareTo(actual.getFecha());
+            assertFalse(comparacion < 0 || (comparacion == 0 && anterior.getId() < actual.getId()));
+        }
+    }
+
+    @Test
+    void paginarEgresosPorFechaRespetaElRango() {
+        PaginaResponse<EgresoResponse> pagina = egresoService.obtenerPaginaEgresosPorUsuario(
+                usuarioId, "2025-02-01", "2025-02-28", null, 100);
+
+        assertEquals(CANTIDAD_EGRESOS / 2, pagina.getElementos().size());
+        assertNull(pagina.getSiguienteCursor());
+        assertFalse(pagina.isHayMas());
+    }
+
+    private Statistics estadisticas() {
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+        return estadisticas;
+    }
+}
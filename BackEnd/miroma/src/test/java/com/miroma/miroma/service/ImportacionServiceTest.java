@@ -0,0 +1,130 @@
+package com.miroma.miroma.service;
+
+import com.miroma.miroma.dto.ImportacionResponse;
+import com.miroma.miroma.entity.CategoriaEgreso;
+import com.miroma.miroma.entity.Pareja;
+import com.miroma.miroma.entity.Usuario;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Importación de CSV en lotes de 2 líneas contra una categoría con 1.000 asignados
+ * (ingresos 10.000, 10%): cada línea inválida se informa con su número sin frenar el resto,
+ * y cada lote se confirma por separado, así que si uno falla lo anterior queda importado.
+ * Las transacciones se confirman de verdad (sin el rollback de @DataJpaTest).
+ */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "app.importacion.tamanio-lote=2")
+class ImportacionServiceTest extends PruebaServiciosEgresosMySql {
+
+    @Autowired
+    private ImportacionService importacionService;
+
+    @Autowired
+    private CategoriaEgresoCache categoriaEgresoCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Usuario esposo;
+
+    @BeforeEach
+    void preparar() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            esposo = nuevoUsuario("esposo@prueba.com", 1);
+            Pareja pareja = nuevaPareja(esposo, nuevoUsuario("esposa@prueba.com", 2));
+            registrarIngresos(pareja, "6000.00", "4000.00");
+            CategoriaEgreso categoria = new CategoriaEgreso("Comida", null);
+            entityManager.persist(categoria);
+            nuevoPresupuesto(pareja, "2025-01", categoria, "10.00");
+        });
+        categoriaEgresoCache.recargar();
+    }
+
+    @AfterEach
+    void limpiar() {
+        for (String tabla : List.of("egreso_participaciones", "egresos", "egresos_acumulados", "ingresos",
+                "ingresos_acumulados", "presupuesto_categoria", "presupuestos", "parejas", "usuarios", "categorias_gasto")) {
+            jdbcTemplate.update("DELETE FROM " + tabla);
+        }
+        categoriaEgresoCache.recargar();
+    }
+
+    @Test
+    void informaCadaLineaInvalidaConSuNumero() throws Exception {
+        String csv = "\uFEFFFecha,Monto,Categoria,Periodo,Descripcion\n"
+                + "2025-01-10,100.00,Comida,2025-01,\"Feria, verduras\"\n"
+                + "2025-01-11,abc,Comida,2025-01,Monto mal escrito\n"
+                + "2025-01-12,\"50,50\",comida,2025-01,\"Cena \"\"especial\"\"\nen casa\"\n"
+                + "10/01/2025,20.00,Comida,2025-01,Fecha con otro formato\n"
+                + "\n"
+                + "2025-01-14,30.00,Viajes,2025-01,\n"
+                + "2025-01-15,900.00,Comida,2025-01,No entra\n"
+                + "2025-01-16,25.00,Comida,2025-01,Entra\n"
+                + "2025-01-17,10.00,Comida,2025-01,\"Sin cerrar\n"
+                + "2025-01-18,10.00,Comida,2025-01,No se lee\n";
+
+        ImportacionResponse respuesta = importacionService.importarEgresos(esposo.getId(),
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(8, respuesta.getProcesadas());
+        assertEquals(3, respuesta.getImportadas());
+        assertEquals(5, respuesta.getRechazadas());
+        assertEquals(List.of(
+                "3: Monto inválido: 'abc'",
+                "6: Fecha inválida: '10/01/2025' (formato AAAA-MM-DD)",
+                "8: Categoría no encontrada: 'Viajes'",
+                "9: Supera el monto disponible de la categoría 'Comida' en el período '2025-01' ($849.50)",
+                "11: Comillas sin cerrar desde la línea 11; no se leyó el resto del archivo"
+        ), errores(respuesta));
+
+        assertEquals(List.of("Feria, verduras", "Cena \"especial\"\nen casa", "Entra"),
+                jdbcTemplate.queryForList("SELECT descripcion FROM egresos ORDER BY fecha", String.class));
+        assertEquals(0, new BigDecimal("175.50").compareTo(
+                jdbcTemplate.queryForObject("SELECT gastado FROM egresos_acumulados", BigDecimal.class)));
+    }
+
+    @Test
+    void unLoteQueFallaDejaImportadosLosAnteriores() throws Exception {
+        // El tercer monto no entra en la columna DECIMAL(15,2): falla el INSERT del segundo lote
+        String csv = "fecha;monto\n"
+                + "2025-01-01;100.00\n"
+                + "2025-01-02;200.00\n"
+                + "2025-01-03;1000000000000000.00\n"
+                + "2025-01-04;400.00\n"
+                + "2025-01-05;500.00\n";
+
+        ImportacionResponse respuesta = importacionService.importarIngresos(esposo.getId(),
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(4, respuesta.getProcesadas());
+        assertEquals(2, respuesta.getImportadas());
+        assertEquals(2, respuesta.getRechazadas());
+        assertEquals(List.of("4: No se pudieron guardar las líneas 4 a 5; quedaron importadas las 2 línea(s) anteriores "
+                + "y no se leyó el resto del archivo"), errores(respuesta));
+
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ingresos", Integer.class));
+        assertEquals(0, new BigDecimal("6300.00").compareTo(jdbcTemplate.queryForObject(
+                "SELECT total FROM ingresos_acumulados WHERE usuario_id = ?", BigDecimal.class, esposo.getId())));
+    }
+
+    private List<String> errores(ImportacionResponse respuesta) {
+        return respuesta.getErrores().stream()
+                .map(error -> error.getLinea() + ": " + error.getMensaje())
+                .toList();
+    }
+}
@@ -0,0 +1,142 @@
+package com.miroma.miroma.service;
+
+import com.miroma.miroma.exception.ValidationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Intentos de login con una ventana deslizante de 500 ms (3 fallos por email) sobre la tabla
+ * intentos_login de Flyway (H2 modo MySQL, por el INSERT ... ON DUPLICATE KEY). La escritura
+ * programada no corre en la prueba: se llama a escribirPendientes a mano.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:login;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "app.login-throttle.ventana-ms=500"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(LoginAttemptService.class)
+@ActiveProfiles("test")
+class LoginAttemptServiceTest {
+
+    @Autowired
+    private LoginAttemptService loginAttemptService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void losFallosFueraDeLaVentanaNoCuentan() throws Exception {
+        String email = "ventana@prueba.com";
+        fallar(email, 2);
+        Thread.sleep(600);
+        fallar(email, 1);
+        assertDoesNotThrow(() -> loginAttemptService.verificarBloqueo(email, null));
+        assertEquals("Intentos fallidos: 1/3. Nivel bloqueo: 0", loginAttemptService.obtenerInfoBloqueo(email));
+
+        fallar(email, 2);
+        ValidationException bloqueo = assertThrows(ValidationException.class,
+                () -> loginAttemptService.verificarBloqueo(email, null));
+        assertTrue(bloqueo.getMessage().contains("3 minuto(s)"), bloqueo.getMessage());
+    }
+
+    @Test
+    void cadaBloqueoDuplicaElAnteriorYSeEscribeUnaVezPorEmail() {
+        String email = "nivel@prueba.com";
+        // El servicio se comparte entre pruebas: se descarta lo que dejaron pendiente las demás
+        loginAttemptService.escribirPendientes();
+        // El login exitoso quita el bloqueo pero no el nivel: el siguiente dura el doble
+        for (String esperado : List.of("Bloqueado por 3 minutos. Nivel: 1", "Bloqueado por 6 minutos. Nivel: 2",
+                "Bloqueado por 12 minutos. Nivel: 3")) {
+            fallar(" Nivel@Prueba.com ", 3);
+            assertEquals(esperado, loginAttemptService.obtenerInfoBloqueo(email));
+            loginAttemptService.resetearIntentos(email);
+        }
+        fallar(email, 3);
+        assertEquals("Bloqueado por 24 minutos. Nivel: 4", loginAttemptService.obtenerInfoBloqueo(email));
+
+        // Los cambios quedan en memoria hasta la escritura, que guarda solo el último estado
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM intentos_login WHERE email = ?", Integer.class, email));
+        long escritos = loginAttemptService.getEscritos();
+        loginAttemptService.escribirPendientes();
+        assertEquals(escritos + 1, loginAttemptService.getEscritos());
+
+        Map<String, Object> fila = jdbcTemplate.queryForMap(
+                "SELECT intentos_fallidos, bloqueado_hasta, nivel_bloqueo FROM intentos_login WHERE email = ?", email);
+        assertEquals(4, ((Number) fila.get("nivel_bloqueo")).intValue());
+        assertEquals(0, ((Number) fila.get("intentos_fallidos")).intValue());
+        assertTrue(fila.get("bloqueado_hasta") != null);
+
+        loginAttemptService.escribirPendientes();
+        assertEquals(escritos + 1, loginAttemptService.getEscritos());
+    }
+
+    @Test
+    void laLimpiezaNoPierdeFallosDeClavesNuevas() throws Exception {
+        int hilos = 4;
+        int emailsPorHilo = 100;
+        long bloqueosAntes = loginAttemptService.getBloqueos();
+        AtomicBoolean terminado = new AtomicBoolean();
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos + 1);
+        try {
+            // Las claves recién creadas no tienen fallos: la limpieza puede quitarlas en cualquier momento
+            Future<?> limpieza = ejecutor.submit(() -> {
+                while (!terminado.get()) {
+                    loginAttemptService.limpiarInactivos();
+                }
+            });
+            List<Future<?>> resultados = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                int hilo = h;
+                resultados.add(ejecutor.submit(() -> {
+                    for (int i = 0; i < emailsPorHilo; i++) {
+                        String email = "usuario" + hilo + "-" + i + "@prueba.com";
+                        for (int intento = 0; intento < 3; intento++) {
+                            loginAttemptService.registrarIntentoFallido(email, "10.0." + hilo + "." + i);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> resultado : resultados) {
+                resultado.get(60, TimeUnit.SECONDS);
+            }
+            terminado.set(true);
+            limpieza.get(10, TimeUnit.SECONDS);
+        } finally {
+            terminado.set(true);
+            ejecutor.shutdownNow();
+        }
+
+        // Tres fallos seguidos bloquean cada email; ninguno quedó en un estado ya quitado del mapa
+        assertEquals(hilos * emailsPorHilo, loginAttemptService.getBloqueos() - bloqueosAntes);
+    }
+
+    private void fallar(String email, int veces) {
+        for (int i = 0; i < veces; i++) {
+            loginAttemptService.registrarIntentoFallido(email, null);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.miroma.miroma.service;
+
+import com.miroma.miroma.dto.EgresoRequest;
+import com.miroma.miroma.entity.CategoriaEgreso;
+import com.miroma.miroma.entity.IngresoAcumulado;
+import com.miroma.miroma.entity.Pareja;
+import com.miroma.miroma.entity.Presupuesto;
+import com.miroma.miroma.entity.PresupuestoCategoria;
+import com.miroma.miroma.entity.Usuario;
+import com.miroma.miroma.security.AuthenticationCache;
+import com.miroma.miroma.security.SecurityUtils;
+import com.miroma.miroma.util.Paginacion;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+/**
+ * Base de las pruebas de los servicios de egresos: levanta JPA con los servicios reales
+ * (las subclases reemplazan con @MockitoBean los que no quieren ejercitar), deja afuera el
+ * log de eventos y la caché del resumen, y arma los datos de una pareja con sus períodos.
+ * El esquema es el que genera Hibernate; PruebaServiciosEgresosMySql usa el de Flyway.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({EgresoService.class, EgresoLoteService.class, ImportacionService.class, EgresoAcumuladoService.class,
+        IngresoAcumuladoService.class, CategoriaEgresoCache.class, VersionDatosService.class, SecurityUtils.class,
+        AuthenticationCache.class, Paginacion.class, ContadorSentencias.class})
+abstract class PruebaServiciosEgresos {
+
+    @Autowired
+    protected EntityManager entityManager;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    protected LogEventoService logEventoService;
+
+    @MockitoBean
+    protected ResumenFinancieroCache resumenFinancieroCache;
+
+    protected Usuario nuevoUsuario(String email, int rolId) {
+        Usuario usuario = new Usuario();
+        usuario.setNombre(email);
+        usuario.setEmail(email);
+        usuario.setPassword("hash");
+        usuario.setRolId(rolId);
+        usuario.setFechaNacimiento(Date.valueOf("1990-01-01"));
+        entityManager.persist(usuario);
+        return usuario;
+    }
+
+    /**
+     * Crea la pareja y la vincula a los dos usuarios
+     */
+    protected Pareja nuevaPareja(Usuario esposo, Usuario esposa) {
+        Pareja pareja = new Pareja("Pareja de prueba", esposo.getId(), esposa.getId());
+        entityManager.persist(pareja);
+        esposo.setParejaId(pareja.getId());
+        esposa.setParejaId(pareja.getId());
+        return pareja;
+    }
+
+    /**
+     * Deja registrados los ingresos acumulados de cada integrante
+     */
+    protected void registrarIngresos(Pareja pareja, String esposo, String esposa) {
+        entityManager.persist(new IngresoAcumulado(pareja.getEsposoId(), pareja.getId(), new BigDecimal(esposo)));
+        entityManager.persist(new IngresoAcumulado(pareja.getEsposaId(), pareja.getId(), new BigDecimal(esposa)));
+    }
+
+    /**
+     * Crea un período de la pareja con un porcentaje asignado a la categoría
+     */
+    protected Presupuesto nuevoPresupuesto(Pareja pareja, String periodo, CategoriaEgreso categoria, String porcentaje) {
+        Presupuesto presupuesto = new Presupuesto(pareja.getId(), periodo);
+        entityManager.persist(presupuesto);
+        entityManager.persist(new PresupuestoCategoria(presupuesto.getId(), categoria.getId(), new BigDecimal(porcentaje)));
+        return presupuesto;
+    }
+
+    protected EgresoRequest nuevoEgreso(String monto, CategoriaEgreso categoria, Presupuesto presupuesto) {
+        EgresoRequest request = new EgresoRequest();
+        request.setMontoTotal(new BigDecimal(monto));
+        request.setFecha(presupuesto.getPeriodo() + "-15");
+        request.setDescripcion("Supermercado");
+        request.setCategoriaId(categoria.getId());
+        request.setPeriodoId(presupuesto.getId());
+        return request;
+    }
+}
@@ -0,0 +1,24 @@
+package com.miroma.miroma.service;
+
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Como PruebaServiciosEgresos pero sobre el esquema de las migraciones de Flyway, en H2 modo
+ * MySQL: hace falta para las sentencias nativas del acumulado (INSERT ... ON DUPLICATE KEY) y
+ * para las claves únicas que forman parte de las garantías de concurrencia.
+ * Las subclases comparten el contexto y la base: la que confirme transacciones propias tiene
+ * que borrar lo que escribió.
+ */
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:egresos;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=20",
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=none"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+abstract class PruebaServiciosEgresosMySql extends PruebaServiciosEgresos {
+}